@@ -0,0 +1,157 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ * 
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link FastBitSet} against {@link BitSet} (one bit out of three set).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastBitSetBenchmark {
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	private FastBitSet fastBitSet, fastOther;
+	private BitSet bitSet, other;
+	private int[] indices; // Random indices in range [0..size[
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		fastBitSet = new FastBitSet();
+		fastOther = new FastBitSet();
+		bitSet = new BitSet();
+		other = new BitSet();
+		for (int i = 0; i < size; i += 3) {
+			fastBitSet.set(i);
+			bitSet.set(i);
+		}
+		for (int i = 0; i < size; i += 2) {
+			fastOther.set(i);
+			other.set(i);
+		}
+		indices = FastTableBenchmark.randomIndices(size);
+	}
+
+	@Benchmark
+	public Object fastBitSetSet() {
+		FastBitSet bits = new FastBitSet();
+		for (int i = 0; i < size; i += 3) bits.set(i);
+		return bits;
+	}
+
+	@Benchmark
+	public Object bitSetSet() {
+		BitSet bits = new BitSet();
+		for (int i = 0; i < size; i += 3) bits.set(i);
+		return bits;
+	}
+
+	@Benchmark
+	public boolean fastBitSetGet() {
+		return fastBitSet.get(nextIndex());
+	}
+
+	@Benchmark
+	public boolean bitSetGet() {
+		return bitSet.get(nextIndex());
+	}
+
+	@Benchmark
+	public void fastBitSetIterate(Blackhole blackhole) {
+		for (int i = fastBitSet.nextSetBit(0); i >= 0; i = fastBitSet.nextSetBit(i + 1)) blackhole.consume(i);
+	}
+
+	@Benchmark
+	public void bitSetIterate(Blackhole blackhole) {
+		for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) blackhole.consume(i);
+	}
+
+	@Benchmark
+	public int fastBitSetCardinality() {
+		return fastBitSet.cardinality();
+	}
+
+	@Benchmark
+	public int bitSetCardinality() {
+		return bitSet.cardinality();
+	}
+
+	@Benchmark
+	public Object fastBitSetOr() {
+		FastBitSet bits = fastBitSet.clone();
+		bits.or(fastOther);
+		return bits;
+	}
+
+	@Benchmark
+	public Object bitSetOr() {
+		BitSet bits = (BitSet) bitSet.clone();
+		bits.or(other);
+		return bits;
+	}
+
+	@Benchmark
+	public Object fastBitSetFreeze() { // No freeze for bit-sets, read-only view instead.
+		return fastBitSet.unmodifiable();
+	}
+
+	@Benchmark
+	public Object bitSetFreeze() { // No read-only view, defensive copy instead.
+		return bitSet.clone();
+	}
+
+	@Benchmark
+	public Object fastBitSetClone() {
+		return fastBitSet.clone();
+	}
+
+	@Benchmark
+	public Object bitSetClone() {
+		return bitSet.clone();
+	}
+
+	@Benchmark
+	public Object fastBitSetTrySplit() {
+		return fastBitSet.trySplit(Runtime.getRuntime().availableProcessors());
+	}
+
+	@Benchmark
+	public Object bitSetTrySplit() {
+		return bitSet.stream().spliterator().trySplit();
+	}
+
+	private int nextIndex() {
+		int i = indices[next];
+		next = (next + 1) % indices.length;
+		return i;
+	}
+}
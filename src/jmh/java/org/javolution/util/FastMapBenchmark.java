@@ -0,0 +1,116 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ * 
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link FastMap} against {@link HashMap}, {@link TreeMap} and {@link ConcurrentHashMap}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastMapBenchmark {
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "FastMap", "HashMap", "TreeMap", "ConcurrentHashMap" })
+	String type;
+
+	private Map<Integer, Integer> map;
+	private int[] keys; // Random keys in range [0..2*size[ (half of them in the map).
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		map = newMap();
+		for (int i = 0; i < size; i++) map.put(2 * i, i);
+		keys = FastTableBenchmark.randomIndices(2 * size);
+	}
+
+	@Benchmark
+	public Map<Integer, Integer> put() {
+		Map<Integer, Integer> added = newMap();
+		for (int i = 0; i < size; i++) added.put(i, i);
+		return added;
+	}
+
+	@Benchmark
+	public Integer get() {
+		return map.get(nextKey());
+	}
+
+	@Benchmark
+	public Integer putRemove() {
+		int key = nextKey() | 1; // Odd keys are not in the map.
+		map.put(key, key);
+		return map.remove(key);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (Map.Entry<Integer, Integer> entry : map.entrySet()) blackhole.consume(entry.getValue());
+	}
+
+	@Benchmark
+	public Object freeze() { // Freezes a copy-on-write clone (freezing cannot be reversed).
+		return (map instanceof FastMap) ? ((FastMap<Integer, Integer>) map).clone().freeze() 
+				: Collections.unmodifiableMap(map);
+	}
+
+	@Benchmark
+	public Object cloneMap() {
+		if (map instanceof FastMap) return ((FastMap<Integer, Integer>) map).clone();
+		Map<Integer, Integer> copy = newMap();
+		copy.putAll(map);
+		return copy;
+	}
+
+	@Benchmark
+	public Object trySplit() {
+		int concurrency = Runtime.getRuntime().availableProcessors();
+		return (map instanceof FastMap) ? ((FastMap<Integer, Integer>) map).entries().trySplit(concurrency) 
+				: map.entrySet().spliterator().trySplit();
+	}
+
+	Map<Integer, Integer> newMap() {
+		if (type.equals("FastMap")) return new FastMap<Integer, Integer>();
+		if (type.equals("TreeMap")) return new TreeMap<Integer, Integer>();
+		return type.equals("HashMap") ? new HashMap<Integer, Integer>() : new ConcurrentHashMap<Integer, Integer>();
+	}
+
+	private int nextKey() {
+		int key = keys[next];
+		next = (next + 1) % keys.length;
+		return key;
+	}
+}
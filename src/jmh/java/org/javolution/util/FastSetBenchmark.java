@@ -0,0 +1,113 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ * 
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link FastSet} against {@link HashSet} and {@link TreeSet}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastSetBenchmark {
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "FastSet", "HashSet", "TreeSet" })
+	String type;
+
+	private Set<Integer> set;
+	private int[] keys; // Random keys in range [0..2*size[ (half of them in the set).
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		set = newSet();
+		for (int i = 0; i < size; i++) set.add(2 * i);
+		keys = FastTableBenchmark.randomIndices(2 * size);
+	}
+
+	@Benchmark
+	public Set<Integer> add() {
+		Set<Integer> added = newSet();
+		for (int i = 0; i < size; i++) added.add(i);
+		return added;
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return set.contains(nextKey());
+	}
+
+	@Benchmark
+	public boolean addRemove() {
+		int key = nextKey() | 1; // Odd keys are not in the set.
+		set.add(key);
+		return set.remove(key);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (Integer e : set) blackhole.consume(e);
+	}
+
+	@Benchmark
+	public Object freeze() { // Freezes a copy-on-write clone (freezing cannot be reversed).
+		return (set instanceof FastSet) ? ((FastSet<Integer>) set).clone().freeze() 
+				: Collections.unmodifiableSet(set);
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Object cloneSet() {
+		if (set instanceof FastSet) return ((FastSet<Integer>) set).clone();
+		return (set instanceof TreeSet) ? ((TreeSet<Integer>) set).clone() : ((HashSet<Integer>) set).clone();
+	}
+
+	@Benchmark
+	public Object trySplit() {
+		int concurrency = Runtime.getRuntime().availableProcessors();
+		return (set instanceof FastSet) ? ((FastSet<Integer>) set).trySplit(concurrency) 
+				: set.spliterator().trySplit();
+	}
+
+	Set<Integer> newSet() {
+		if (type.equals("FastSet")) return new FastSet<Integer>();
+		return type.equals("TreeSet") ? new TreeSet<Integer>() : new HashSet<Integer>();
+	}
+
+	private int nextKey() {
+		int key = keys[next];
+		next = (next + 1) % keys.length;
+		return key;
+	}
+}
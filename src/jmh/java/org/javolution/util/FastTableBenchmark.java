@@ -0,0 +1,117 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ * 
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link FastTable} against {@link ArrayList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastTableBenchmark {
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "FastTable", "ArrayList" })
+	String type;
+
+	private List<Integer> list;
+	private int[] indices; // Random indices in range [0..size[
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		list = newList();
+		for (int i = 0; i < size; i++) list.add(i);
+		indices = randomIndices(size);
+	}
+
+	@Benchmark
+	public List<Integer> add() {
+		List<Integer> added = newList();
+		for (int i = 0; i < size; i++) added.add(i);
+		return added;
+	}
+
+	@Benchmark
+	public Integer get() {
+		return list.get(nextIndex());
+	}
+
+	@Benchmark
+	public Integer insertRemove() {
+		list.add(nextIndex(), size);
+		return list.remove(nextIndex());
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (Integer e : list) blackhole.consume(e);
+	}
+
+	@Benchmark
+	public Object freeze() { // Freezes a copy-on-write clone (freezing cannot be reversed).
+		return (list instanceof FastTable) ? ((FastTable<Integer>) list).clone().freeze() 
+				: Collections.unmodifiableList(list);
+	}
+
+	@Benchmark
+	public Object cloneList() {
+		return (list instanceof FastTable) ? ((FastTable<Integer>) list).clone() : new ArrayList<Integer>(list);
+	}
+
+	@Benchmark
+	public Object trySplit() {
+		int concurrency = Runtime.getRuntime().availableProcessors();
+		return (list instanceof FastTable) ? ((FastTable<Integer>) list).trySplit(concurrency) 
+				: list.spliterator().trySplit();
+	}
+
+	List<Integer> newList() {
+		return type.equals("FastTable") ? new FastTable<Integer>() : new ArrayList<Integer>();
+	}
+
+	private int nextIndex() {
+		int i = indices[next];
+		next = (next + 1) % indices.length;
+		return i;
+	}
+
+	/** Returns a fixed (seeded) sequence of random indices in range [0..size[. */
+	static int[] randomIndices(int size) {
+		Random random = new Random(0);
+		int[] indices = new int[Math.min(size, 1 << 16)];
+		for (int i = 0; i < indices.length; i++) indices[i] = random.nextInt(size);
+		return indices;
+	}
+}
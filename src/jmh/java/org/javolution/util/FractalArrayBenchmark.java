@@ -0,0 +1,94 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ * 
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link FractalArray} dense (indices {@code 0..size-1}) and sparse (hashed indices) usages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractalArrayBenchmark {
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "dense", "sparse" })
+	String layout;
+
+	private FractalArray<Integer> array;
+	private long[] indices; // Indices of the array elements (random order).
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		array = FractalArray.empty();
+		for (int i = 0; i < size; i++) array = array.set(indexOf(i), i);
+		int[] random = FastTableBenchmark.randomIndices(size);
+		indices = new long[random.length];
+		for (int i = 0; i < random.length; i++) indices[i] = indexOf(random[i]);
+	}
+
+	@Benchmark
+	public FractalArray<Integer> set() {
+		FractalArray<Integer> added = FractalArray.empty();
+		for (int i = 0; i < size; i++) added = added.set(indexOf(i), i);
+		return added;
+	}
+
+	@Benchmark
+	public Integer get() {
+		return array.get(nextIndex());
+	}
+
+	@Benchmark
+	public FractalArray<Integer> insertDelete() {
+		array = array.insert(nextIndex(), size);
+		return array = array.delete(nextIndex());
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (FractalArray.Iterator<Integer> i = array.iterator(); i.hasNext();) blackhole.consume(i.next());
+	}
+
+	@Benchmark
+	public FractalArray<Integer> cloneArray() {
+		return array.clone();
+	}
+
+	private long indexOf(int i) {
+		return layout.equals("dense") ? i : i * 0x9E3779B97F4A7C15L; // Fibonacci hashing (sparse).
+	}
+
+	private long nextIndex() {
+		long i = indices[next];
+		next = (next + 1) % indices.length;
+		return i;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ * 
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks read-mostly concurrent access to {@link FastTable#shared shared} tables against
+ * {@link Collections#synchronizedList synchronized} lists (run with {@code -t} to vary the number of readers).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedTableBenchmark {
+
+	@Param({ "1000" })
+	int size;
+
+	@Param({ "FastTable", "SynchronizedList" })
+	String type;
+
+	private List<Integer> list;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		list = type.equals("FastTable") ? new FastTable<Integer>().shared()
+				: Collections.synchronizedList(new FastTable<Integer>());
+		for (int i = 0; i < size; i++) list.add(i);
+	}
+
+	@Benchmark
+	public Integer get() {
+		return list.get(ThreadLocalRandom.current().nextInt(size));
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(7)
+	public Integer reader() {
+		return list.get(ThreadLocalRandom.current().nextInt(size));
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(1)
+	public Integer writer() {
+		list.add(size);
+		return list.remove(size);
+	}
+}
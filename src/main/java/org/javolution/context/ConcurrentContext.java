@@ -173,6 +173,31 @@ public abstract class ConcurrentContext extends AbstractContext {
         }
     };
 
+    /**
+     * Holds the number of pieces per concurrent thread into which parallel collection operations recursively 
+     * split collections (default `16`). Idle threads steal pieces from busy ones; a finer grain improves 
+     * load balancing when the processing is uneven (e.g. filtered collections) at the cost of more splitting.
+     * For example, the JVM option `-Djavolution.context.ConcurrentContext#GRANULARITY=64`.
+     * This parameter can be locally superseded (see {@link LocalContext}).
+     */
+    public static final LocalContext.Parameter<Integer> GRANULARITY = new LocalContext.Parameter<Integer>() {
+        @Override
+        protected Integer getDefault() {
+            return 16;
+        }
+
+        @Override
+        protected Integer initialized(Integer value) {
+            if (value <= 0) throw new IllegalArgumentException("Granularity should be positive");
+            return value;
+        }
+
+        @Override
+        public String getName() { // Multiple configurable fields in this class.
+            return "javolution.context.ConcurrentContext#GRANULARITY";
+        }
+    };
+
     /**
      * Default constructor.
      */
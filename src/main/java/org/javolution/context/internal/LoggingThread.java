@@ -60,8 +60,10 @@ class LoggingThread extends Thread {
                tmp.append(event.suffix);
                String message = tmp.toString();
                Object[] logServices = OSGiServices.getLogServices();
-               for (Object obj : logServices) {
-                   log((LogService)obj, event.level, message, event.error);
+               if (logServices != null) { // Null when not running in an OSGi environment.
+                   for (Object obj : logServices) {
+                       log((LogService)obj, event.level, message, event.error);
+                   }
                }
                logSLF4J(event.level, message, event.error);    
             } catch (InterruptedException error) {
@@ -20,6 +20,7 @@ public final class ConfigurableListenerImpl implements Configurable.Listener {
     @Override
     public <T> void configurableInitialized(Configurable<T> configurable,
             T value) {
+        if (LogContext.DEFAULT_LEVEL == null) return; // LogContext being initialized (its own configurable).
         LogContext.debug(configurable.getName(), "=", value);
     }
 
@@ -0,0 +1,82 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.internal.map.SharedCacheImpl;
+
+/**
+ * A map view evicting entries automatically, either because the maximum size is reached (see {@link AbstractMap#lru},
+ * {@link AbstractMap#lfu}) or because entries have expired (see {@link AbstractMap#expiring}).
+ *
+ * ```java
+ * AbstractCache<String, Quote> quotes = new FastMap<String, Quote>().lfu(10000).shared(); // Thread-safe.
+ * Quote quote = quotes.get("IBM"); // Records a hit or a miss.
+ * if (quote == null) quotes.put("IBM", quote = lookup("IBM"), 5, TimeUnit.SECONDS); // Per-entry time-to-live.
+ * ...
+ * System.out.println("Hit ratio: " + (double) quotes.hits() / (quotes.hits() + quotes.misses()));
+ * ```
+ *
+ * Expired entries are removed lazily (when accessed or when the cache is updated); until then they are still
+ * counted in the cache {@link #size}. Because reads update the eviction order, the {@link #shared shared} view of
+ * a cache serializes reads and writes.
+ *
+ * @param <K> the type of keys ({@code null} values are not supported)
+ * @param <V> the type of values
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle </a>
+ * @version 7.0, September 13, 2016
+ */
+@Realtime
+public abstract class AbstractCache<K, V> extends AbstractMap<K, V> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** Returns the number of successful lookups ({@link #get} or {@link #getEntry}). */
+    @Realtime(limit = CONSTANT)
+    public abstract long hits();
+
+    /** Returns the number of lookups for which no entry (or only an expired one) was found. */
+    @Realtime(limit = CONSTANT)
+    public abstract long misses();
+
+    /** Returns the number of entries removed by this cache because of its size limit or because they expired. */
+    @Realtime(limit = CONSTANT)
+    public abstract long evictions();
+
+    /**
+     * Associates the specified value with the specified key for the specified duration (overriding the default
+     * time-to-live of this cache if any).
+     *
+     * @return the previous value or {@code null} if none.
+     */
+    @Realtime(limit = CONSTANT)
+    public abstract @Nullable V put(K key, @Nullable V value, long timeToLive, TimeUnit unit);
+
+    /**
+     * Returns a thread-safe view over this cache. Since reads modify the eviction order, all the operations
+     * (except iterations) are performed under an exclusive lock.
+     */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public AbstractCache<K, V> shared() {
+        return new SharedCacheImpl<K, V>(this);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public abstract AbstractCache<K, V> clone();
+
+}
@@ -11,6 +11,7 @@ package org.javolution.util;
 import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
 import static org.javolution.annotations.Realtime.Limit.N_SQUARE;
+import static org.javolution.annotations.Realtime.Limit.UNKNOWN;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -443,6 +444,18 @@ public abstract class AbstractCollection<E> implements Collection<E>, Serializab
         return changed;
     }
 
+    /** 
+     * Performs the specified batch of operations on this collection. For {@link #shared shared} views, the whole
+     * batch is performed under a single write-lock acquisition (instead of one per operation). The collection 
+     * passed to the batch should not be used outside of the batch.
+     * 
+     * @param batch the operations to perform.
+     */
+    @Realtime(limit = UNKNOWN)
+    public void update(Consumer<? super AbstractCollection<E>> batch) {
+        batch.accept(this);
+    }
+
     /** Indicates if this collection contains all the specified elements testing for element equality 
      *  using this collection {@link #equality}. */
     @Parallel
@@ -10,20 +10,24 @@ package org.javolution.util;
 
 import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
+import static org.javolution.annotations.Realtime.Limit.UNKNOWN;
 
 import java.io.Serializable;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.javolution.annotations.Nullable;
 import org.javolution.annotations.ReadOnly;
 import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Consumer;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Order;
 import org.javolution.util.function.UnaryOperator;
 import org.javolution.util.internal.map.AtomicMapImpl;
+import org.javolution.util.internal.map.CacheMapImpl;
 import org.javolution.util.internal.map.KeySetImpl;
 import org.javolution.util.internal.map.LinkedMapImpl;
 import org.javolution.util.internal.map.MultiMapImpl;
@@ -130,6 +134,46 @@ public abstract class AbstractMap<K, V> implements ConcurrentMap<K, V>, SortedMa
         return new LinkedMapImpl<K, V>(this);
     }
 
+    /**
+     * Returns a cache view holding at most {@code maxSize} entries; when full, the least recently accessed entry
+     * is evicted. Access order is updated in constant time (no linear removal).
+     * 
+     * @param maxSize the maximum number of entries (entries in excess are evicted immediately).
+     * @throws IllegalArgumentException if {@code maxSize <= 0}
+     */
+    @Realtime(limit = LINEAR, comment = "Constant time once created")
+    public AbstractCache<K, V> lru(int maxSize) {
+        return new CacheMapImpl<K, V>(this, CacheMapImpl.Policy.LRU, maxSize, 0);
+    }
+
+    /**
+     * Returns a cache view holding at most {@code maxSize} entries and evicting the least frequently used 
+     * (W-TinyLFU admission). New entries go through a small recency window; leaving the window they replace 
+     * the least recently used entry of the cache only if they have been accessed more frequently (frequencies 
+     * are estimated in constant space and decay over time). This is more resistant than {@link #lru LRU} to 
+     * scans of keys accessed only once.
+     * 
+     * @param maxSize the maximum number of entries (entries in excess are evicted immediately).
+     * @throws IllegalArgumentException if {@code maxSize <= 0}
+     */
+    @Realtime(limit = LINEAR, comment = "Constant time once created")
+    public AbstractCache<K, V> lfu(int maxSize) {
+        return new CacheMapImpl<K, V>(this, CacheMapImpl.Policy.LFU, maxSize, 0);
+    }
+
+    /**
+     * Returns an unbounded cache view whose entries expire after the specified time-to-live (since they were
+     * last put). Expired entries are removed whenever the cache is accessed or updated and different time-to-live
+     * can be specified per entry (see {@link AbstractCache#put(Object, Object, long, TimeUnit)}).
+     * 
+     * @throws IllegalArgumentException if {@code timeToLive <= 0}
+     */
+    @Realtime(limit = LINEAR, comment = "Constant time once created")
+    public AbstractCache<K, V> expiring(long timeToLive, TimeUnit unit) {
+        if (timeToLive <= 0) throw new IllegalArgumentException("Invalid time-to-live: " + timeToLive);
+        return new CacheMapImpl<K, V>(this, CacheMapImpl.Policy.LRU, Integer.MAX_VALUE, unit.toNanos(timeToLive));
+    }
+
     /**
      * Returns an unmodifiable view over this map. Attempts to modify the map directly through this view will 
      * result into a {@link java.lang.UnsupportedOperationException} being raised.
@@ -241,6 +285,18 @@ public abstract class AbstractMap<K, V> implements ConcurrentMap<K, V>, SortedMa
             put(entry.getKey(), entry.getValue());
     }
 
+    /** 
+     * Performs the specified batch of operations on this map. For {@link #shared shared} views, the whole
+     * batch is performed under a single write-lock acquisition (instead of one per operation). The map 
+     * passed to the batch should not be used outside of the batch.
+     * 
+     * @param batch the operations to perform.
+     */
+    @Realtime(limit = UNKNOWN)
+    public void update(Consumer<? super AbstractMap<K, V>> batch) {
+        batch.accept(this);
+    }
+
     @Override
     @Realtime(limit = LINEAR, comment = "Views may have to remove entries one at a time (e.g. filtered views)")
     public void clear() {
@@ -303,6 +359,41 @@ public abstract class AbstractMap<K, V> implements ConcurrentMap<K, V>, SortedMa
         return entrySet().last().getKey();
     }
 
+    /**
+     * Returns the number of entries whose key is strictly lower than the specified key (according to this map
+     * {@link #keyOrder() key order}).
+     */
+    @Realtime(limit = LINEAR, comment="O(Log(n)) for fast maps")
+    public int rank(K key) {
+        return entries().rank(new Entry<K, V>(key, null));
+    }
+
+    /**
+     * Returns the entry at the specified position in iteration order (for sorted maps, the entry of specified 
+     * {@link #rank rank}).
+     * 
+     * @throws IndexOutOfBoundsException if {@code (k < 0) || (k >= size())}
+     */
+    @Realtime(limit = LINEAR, comment="O(Log(n)) for fast maps")
+    public Entry<K, V> select(int k) {
+        return entries().select(k);
+    }
+
+    /**
+     * Returns the number of entries whose key is in the specified range; equivalent to
+     * {@code subMap(fromKey, fromInclusive, toKey, toInclusive).size()} without iterating the sub-map.
+     * 
+     * @param fromKey the low endpoint or {@code null} if none.
+     * @param fromInclusive indicates if the low endpoint is included.
+     * @param toKey the high endpoint or {@code null} if none.
+     * @param toInclusive indicates if the high endpoint is included.
+     */
+    @Realtime(limit = LINEAR, comment="O(Log(n)) for fast maps")
+    public int rangeCount(@Nullable K fromKey, boolean fromInclusive, @Nullable K toKey, boolean toInclusive) {
+        return entries().rangeCount((fromKey != null) ? new Entry<K, V>(fromKey, null) : null, fromInclusive,
+                (toKey != null) ? new Entry<K, V>(toKey, null) : null, toInclusive);
+    }
+
     ////////////////////////////////////////////////////////////////////////////
     // Misc.
     //
@@ -314,11 +405,11 @@ public abstract class AbstractMap<K, V> implements ConcurrentMap<K, V>, SortedMa
 
     /** Adds and return the specified entry to this map regardless if an entry with the same key already exists 
      * (faster than using {@link #put} as it does not check for key presence)..*/
-    @Realtime(limit = LINEAR, comment="Linear removal time for linked maps")
+    @Realtime(limit = CONSTANT)
     public abstract @Nullable Entry<K, V> addEntry(K key, V value);
     
     /** Removes and returns a single entry having the specified key.*/
-    @Realtime(limit = LINEAR, comment="Linear removal time for linked maps")
+    @Realtime(limit = CONSTANT)
     public abstract @Nullable Entry<K, V> removeEntry(K key);
     
     /** Returns the key order of this map. */
@@ -0,0 +1,148 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Predicate;
+
+/**
+ * A concurrent queue with {@link Realtime strict timing constraints}; unlike the {@link AbstractTable#shared shared}
+ * view of tables, producers and consumers do not contend on a lock (see {@link ConcurrentRingBuffer},
+ * {@link MpscQueue} and {@link WorkStealingDeque}).
+ *
+ * Iterations and bulk operations (e.g. {@link #removeIf}) are performed on a weakly consistent copy of the
+ * elements of the queue (they never throw {@link java.util.ConcurrentModificationException}); all the
+ * collection views (filtered, parallel, ...) are supported.
+ *
+ * @param <E> the type of queue elements ({@code null} instances are not supported)
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ */
+public abstract class AbstractQueue<E> extends AbstractCollection<E> implements Queue<E> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** Inserts the specified element into this queue if possible; returns {@code false} if the queue is full. */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public abstract boolean offer(E element);
+
+    /** Retrieves and removes the head of this queue or returns {@code null} if this queue is empty. */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public abstract @Nullable E poll();
+
+    /** Retrieves but does not remove the head of this queue or returns {@code null} if this queue is empty. */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public abstract @Nullable E peek();
+
+    /**
+     * Returns a weakly consistent copy of the elements of this queue in iterative order (the elements
+     * concurrently added or removed may or may not be present).
+     */
+    @Realtime(limit = LINEAR)
+    protected abstract FastTable<E> elements();
+
+    /** Inserts the specified element into this queue.
+     *
+     * @throws IllegalStateException if this queue is full. */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public boolean add(E element) {
+        if (!offer(element)) throw new IllegalStateException("Queue full");
+        return true;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public E remove() {
+        E element = poll();
+        if (element == null) throw new NoSuchElementException();
+        return element;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public E element() {
+        E element = peek();
+        if (element == null) throw new NoSuchElementException();
+        return element;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /** Removes the elements of this queue by polling them. */
+    @Override
+    @Realtime(limit = LINEAR)
+    public void clear() {
+        while (poll() != null) {}
+    }
+
+    /**
+     * Removes the elements matching the specified filter; the elements present are polled and those not
+     * matching are offered back (in the same order). This operation is not atomic; if a bounded queue is
+     * concurrently filled, it waits for consumers to make room (the elements not matching are never dropped).
+     */
+    @Override
+    @Realtime(limit = LINEAR)
+    public boolean removeIf(Predicate<? super E> filter) {
+        FastTable<E> polled = new FastTable<E>();
+        for (E element = poll(); element != null; element = poll())
+            polled.add(element);
+        boolean removed = false;
+        for (E element : polled) {
+            if (filter.test(element)) removed = true;
+            else while (!offer(element)) Thread.yield(); // Full (concurrent producers).
+        }
+        return removed;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public FastIterator<E> iterator() {
+        return elements().iterator();
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public FastIterator<E> descendingIterator() {
+        return elements().descendingIterator();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public Equality<? super E> equality() {
+        return Equality.standard();
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public AbstractCollection<E>[] trySplit(int n) {
+        return elements().trySplit(n);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public abstract AbstractQueue<E> clone();
+
+}
@@ -166,7 +166,7 @@ public abstract class AbstractSet<E> extends AbstractCollection<E> implements So
     @SuppressWarnings("unchecked")
     @Parallel(false)
     @Override
-    @Realtime(limit = LINEAR, comment="Linear removal time for linked sets")
+    @Realtime(limit = CONSTANT)
     public boolean remove(Object element) {
         return removeAny((E)element) != null;
     }
@@ -262,6 +262,61 @@ public abstract class AbstractSet<E> extends AbstractCollection<E> implements So
      */
     @Realtime(limit = CONSTANT)
     public abstract Order<? super E> order();
+
+    /**
+     * Returns the number of elements of this set strictly lower than the specified element (according to 
+     * this set {@link #order() order}).
+     */
+    @Realtime(limit = LINEAR, comment="O(Log(n)) for fast sets")
+    public int rank(E element) {
+        return rangeCount(null, false, element, false);
+    }
+
+    /**
+     * Returns the element at the specified position in iteration order (for sorted sets, the element 
+     * of specified {@link #rank rank}).
+     * 
+     * @throws IndexOutOfBoundsException if {@code (k < 0) || (k >= size())}
+     */
+    @Realtime(limit = LINEAR, comment="O(Log(n)) for fast sets")
+    public E select(int k) {
+        if (k >= 0) {
+            int i = 0;
+            for (FastIterator<E> itr = iterator(); itr.hasNext(); i++) {
+                E element = itr.next();
+                if (i == k) return element;
+            }
+        }
+        throw new IndexOutOfBoundsException("Rank: " + k);
+    }
+
+    /**
+     * Returns the number of elements of this set in the specified range; equivalent to 
+     * {@code subSet(fromElement, fromInclusive, toElement, toInclusive).size()} without iterating the sub-set.
+     * 
+     * @param fromElement the low endpoint or {@code null} if none.
+     * @param fromInclusive indicates if the low endpoint is included.
+     * @param toElement the high endpoint or {@code null} if none.
+     * @param toInclusive indicates if the high endpoint is included.
+     */
+    @Realtime(limit = LINEAR, comment="O(Log(n)) for fast sets")
+    public int rangeCount(@Nullable E fromElement, boolean fromInclusive, @Nullable E toElement, 
+            boolean toInclusive) {
+        Order<? super E> order = order();
+        int count = 0;
+        for (E e : this) { // Any iteration order (e.g. linked views).
+            if (fromElement != null) {
+                int cmp = order.compare(fromElement, e);
+                if (fromInclusive ? cmp > 0 : cmp >= 0) continue;
+            }
+            if (toElement != null) {
+                int cmp = order.compare(toElement, e);
+                if (toInclusive ? cmp < 0 : cmp <= 0) continue;
+            }
+            count++;
+        }
+        return count;
+    }
  
     /**
      * Returns an iterator over the elements of this set higher or equal to the specified element.
@@ -12,7 +12,6 @@ import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
 import static org.javolution.annotations.Realtime.Limit.LOG_N;
 import static org.javolution.annotations.Realtime.Limit.N_LOG_N;
-import static org.javolution.annotations.Realtime.Limit.N_SQUARE;
 
 import java.util.Collection;
 import java.util.Comparator;
@@ -26,6 +25,7 @@ import org.javolution.annotations.Nullable;
 import org.javolution.annotations.Parallel;
 import org.javolution.annotations.ReadOnly;
 import org.javolution.annotations.Realtime;
+import org.javolution.context.ConcurrentContext;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Function;
 import org.javolution.util.function.Order;
@@ -33,7 +33,7 @@ import org.javolution.util.function.Predicate;
 import org.javolution.util.internal.table.AtomicTableImpl;
 import org.javolution.util.internal.table.CustomEqualityTableImpl;
 import org.javolution.util.internal.table.MappedTableImpl;
-import org.javolution.util.internal.table.QuickSortImpl;
+import org.javolution.util.internal.table.MergeSortImpl;
 import org.javolution.util.internal.table.SharedTableImpl;
 import org.javolution.util.internal.table.SubTableImpl;
 import org.javolution.util.internal.table.UnmodifiableTableImpl;
@@ -448,12 +448,12 @@ public abstract class AbstractTable<E> extends AbstractCollection<E> implements
     }
 
     /**
-     * Sorts this table in place (quick sort).
+     * Sorts this table in place (stable merge sort, performed {@link ConcurrentContext concurrently} 
+     * for large tables); presorted sequences are sorted in linear time.
      */
-    @Realtime(limit = N_SQUARE)
+    @Realtime(limit = N_LOG_N)
     public void sort(Comparator<? super E> cmp) {
-        QuickSortImpl<E> qs = new QuickSortImpl<E>(this, cmp);
-        qs.sort();
+        new MergeSortImpl<E>(cmp).sort(this);
     }
 
     @Override
@@ -0,0 +1,568 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+import static org.javolution.annotations.Realtime.Limit.LOG_N;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Order;
+import org.javolution.util.function.Predicate;
+import org.javolution.util.function.UnaryOperator;
+
+/**
+ * A concurrent map ordered by its {@link #keyOrder key order} whose reads are lock-free and whose updates
+ * are performed atomically (compare-and-swap) on the entries having the same key index.
+ *
+ * Unlike the {@link FastMap#shared shared} view (readers-writer lock), throughput scales with the number of cores
+ * for both reads and writes. Entries are held in a concurrent skip list indexed by the key {@link Order#indexOf index};
+ * keys with the same index (collisions) share an immutable bucket replaced atomically on update.
+ *
+ * ```java
+ * ConcurrentFastMap<String, Quote> quotes = new ConcurrentFastMap<>(Order.lexical()); // Sorted.
+ * quotes.put("IBM", quote); // Thread-safe.
+ * quotes.put("IBM", previous -> merge(previous, quote)); // Atomic update (the operator may be called more than once).
+ * for (Quote q : quotes.subMap("A", "C").values()) ... // Weakly consistent iteration in key order.
+ * ```
+ *
+ * Entries are never modified in place (a new entry is created on update) and iterations are weakly consistent
+ * (they never throw {@link java.util.ConcurrentModificationException}).
+ *
+ * @param <K> the type of keys ({@code null} values are not supported)
+ * @param <V> the type of values
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle </a>
+ * @version 7.0, September 13, 2016
+ */
+@Realtime
+public class ConcurrentFastMap<K, V> extends AbstractMap<K, V> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private static final Comparator<Long> UNSIGNED = new UnsignedComparator();
+
+    private final Order<? super K> keyOrder;
+    private final Equality<? super V> valuesEquality;
+    private final ConcurrentSkipListMap<Long, Object> buckets; // Single entry or Entry[] (same index).
+    private final LongAdder count = new LongAdder();
+
+    /** Creates a {@link Equality#STANDARD standard} concurrent map arbitrarily ordered. */
+    public ConcurrentFastMap() {
+        this(Order.standard());
+    }
+
+    /** Creates a concurrent map ordered using the specified key order. */
+    public ConcurrentFastMap(Order<? super K> keyOrder) {
+        this(keyOrder, Equality.standard());
+    }
+
+    /** Creates a concurrent map ordered using the specified key order and the specified values equality. */
+    public ConcurrentFastMap(Order<? super K> keyOrder, Equality<? super V> valuesEquality) {
+        this.keyOrder = keyOrder;
+        this.valuesEquality = valuesEquality;
+        this.buckets = new ConcurrentSkipListMap<Long, Object>(UNSIGNED);
+    }
+
+    @Override
+    public ConcurrentFastMap<K, V> with(K key, V value) {
+        put(key, value);
+        return this;
+    }
+
+    /** Returns this map (already thread-safe). */
+    @Override
+    public ConcurrentFastMap<K, V> shared() {
+        return this;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final AbstractSet<Entry<K, V>> entries() {
+        return new EntriesImpl();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final int size() {
+        return count.intValue();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final boolean isEmpty() {
+        return buckets.isEmpty();
+    }
+
+    @Override
+    @Realtime(limit = LINEAR, comment = "Weakly consistent (concurrent updates may be kept)")
+    public final void clear() {
+        for (Long index : buckets.keySet()) {
+            Object bucket = buckets.remove(index);
+            if (bucket != null) count.add(-lengthOf(bucket));
+        }
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public ConcurrentFastMap<K, V> clone() {
+        ConcurrentFastMap<K, V> copy = new ConcurrentFastMap<K, V>(keyOrder, valuesEquality);
+        for (Entry<K, V> entry : entries()) copy.addEntry(entry.getKey(), entry.getValue());
+        return copy;
+    }
+
+    @Override
+    public final Order<? super K> keyOrder() {
+        return keyOrder;
+    }
+
+    @Override
+    public final Equality<? super V> valuesEquality() {
+        return valuesEquality;
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable Entry<K, V> getEntry(K key) {
+        return find(buckets.get(keyOrder.indexOf(key)), key);
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final Entry<K, V> addEntry(final K key, final V value) {
+        final Entry<K, V> entry = new Entry<K, V>(key, value);
+        update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                delta = 1;
+                return insert(bucket, entry);
+            }
+        });
+        return entry;
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable Entry<K, V> removeEntry(final K key) {
+        Update update = update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, key);
+                result = entry;
+                delta = (entry != null) ? -1 : 0;
+                return (entry != null) ? delete(bucket, entry) : bucket;
+            }
+        });
+        @SuppressWarnings("unchecked")
+        Entry<K, V> removed = (Entry<K, V>) update.result;
+        return removed;
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable V put(final K key, final @Nullable V value) {
+        return valueOf(update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, key);
+                result = entry;
+                delta = (entry != null) ? 0 : 1;
+                Entry<K, V> newEntry = new Entry<K, V>(key, value);
+                return (entry != null) ? replace(bucket, entry, newEntry) : insert(bucket, newEntry);
+            }
+        }));
+    }
+
+    /** Atomically updates the value of the specified key (the operator may be called more than once). */
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable V put(final K key, final UnaryOperator<V> operator) {
+        return valueOf(update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, key);
+                result = entry;
+                delta = (entry != null) ? 0 : 1;
+                Entry<K, V> newEntry = new Entry<K, V>(key, operator.apply(entry != null ? entry.getValue() : null));
+                return (entry != null) ? replace(bucket, entry, newEntry) : insert(bucket, newEntry);
+            }
+        }));
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable V putIfAbsent(final K key, final @Nullable V value) {
+        return valueOf(update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, key);
+                result = entry;
+                delta = (entry != null) ? 0 : 1;
+                return (entry != null) ? bucket : insert(bucket, new Entry<K, V>(key, value));
+            }
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable V remove(Object key) {
+        Entry<K, V> entry = removeEntry((K) key);
+        return (entry != null) ? entry.getValue() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Realtime(limit = LOG_N)
+    public final boolean remove(final Object key, final @Nullable Object value) {
+        return update((K) key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, (K) key);
+                boolean matches = (entry != null) && valuesEquality.areEqual(entry.getValue(), (V) value);
+                result = matches ? entry : null;
+                delta = matches ? -1 : 0;
+                return matches ? delete(bucket, entry) : bucket;
+            }
+        }).result != null;
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final @Nullable V replace(final K key, final @Nullable V value) {
+        return valueOf(update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, key);
+                result = entry;
+                return (entry != null) ? replace(bucket, entry, new Entry<K, V>(key, value)) : bucket;
+            }
+        }));
+    }
+
+    @Override
+    @Realtime(limit = LOG_N)
+    public final boolean replace(final K key, final @Nullable V oldValue, final @Nullable V newValue) {
+        return update(key, new Update() {
+            @Override
+            Object apply(Object bucket) {
+                Entry<K, V> entry = find(bucket, key);
+                boolean matches = (entry != null) && valuesEquality.areEqual(entry.getValue(), oldValue);
+                result = matches ? entry : null;
+                return matches ? replace(bucket, entry, new Entry<K, V>(key, newValue)) : bucket;
+            }
+        }).result != null;
+    }
+
+    /** Replaces the specified entry by a new entry holding the specified value (entries are immutable). */
+    @Override
+    protected V updateValue(final Entry<K, V> entry, final V newValue) {
+        update(entry.getKey(), new Update() {
+            @Override
+            Object apply(Object bucket) {
+                boolean found = contains(bucket, entry);
+                result = found ? entry : null;
+                return found ? replace(bucket, entry, new Entry<K, V>(entry.getKey(), newValue)) : bucket;
+            }
+        });
+        return entry.getValue();
+    }
+
+    /** Atomic update of the bucket holding the specified key. */
+    private Update update(K key, Update update) {
+        buckets.compute(keyOrder.indexOf(key), update);
+        if (update.delta != 0) count.add(update.delta);
+        return update;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueOf(Update update) {
+        return (update.result != null) ? ((Entry<K, V>) update.result).getValue() : null;
+    }
+
+    /** Returns the first entry in the bucket having the specified key. */
+    @SuppressWarnings("unchecked")
+    private @Nullable Entry<K, V> find(@Nullable Object bucket, K key) {
+        if (bucket == null) return null;
+        if (bucket instanceof Entry) {
+            Entry<K, V> entry = (Entry<K, V>) bucket;
+            return keyOrder.areEqual(entry.getKey(), key) ? entry : null;
+        }
+        for (Entry<K, V> entry : (Entry<K, V>[]) bucket)
+            if (keyOrder.areEqual(entry.getKey(), key)) return entry;
+        return null;
+    }
+
+    private static boolean contains(@Nullable Object bucket, Entry<?, ?> entry) {
+        if ((bucket == null) || (bucket == entry)) return bucket != null;
+        if (bucket instanceof Entry) return false;
+        for (Entry<?, ?> e : (Entry<?, ?>[]) bucket)
+            if (e == entry) return true;
+        return false;
+    }
+
+    /** Returns a new bucket with the specified entry inserted after the entries with lower or equal keys. */
+    @SuppressWarnings("unchecked")
+    private Object insert(@Nullable Object bucket, Entry<K, V> entry) {
+        if (bucket == null) return entry;
+        Entry<K, V>[] entries = (bucket instanceof Entry) ? new Entry[] { (Entry<K, V>) bucket } : (Entry<K, V>[]) bucket;
+        int i = entries.length;
+        while ((i > 0) && (keyOrder.compare(entries[i - 1].getKey(), entry.getKey()) > 0)) i--;
+        Entry<K, V>[] newEntries = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, newEntries, 0, i);
+        newEntries[i] = entry;
+        System.arraycopy(entries, i, newEntries, i + 1, entries.length - i);
+        return newEntries;
+    }
+
+    /** Returns a new bucket with the specified entry replaced. */
+    private static Object replace(Object bucket, Entry<?, ?> entry, Entry<?, ?> newEntry) {
+        if (bucket == entry) return newEntry;
+        Entry<?, ?>[] newEntries = ((Entry<?, ?>[]) bucket).clone();
+        for (int i = 0; i < newEntries.length; i++)
+            if (newEntries[i] == entry) newEntries[i] = newEntry;
+        return newEntries;
+    }
+
+    /** Returns a new bucket with the specified entry removed ({@code null} if the bucket becomes empty). */
+    private static @Nullable Object delete(Object bucket, Entry<?, ?> entry) {
+        if (bucket == entry) return null;
+        Entry<?, ?>[] entries = (Entry<?, ?>[]) bucket;
+        if (entries.length == 2) return (entries[0] == entry) ? entries[1] : entries[0];
+        Entry<?, ?>[] newEntries = new Entry<?, ?>[entries.length - 1];
+        for (int i = 0, j = 0; i < entries.length; i++)
+            if (entries[i] != entry) newEntries[j++] = entries[i];
+        return newEntries;
+    }
+
+    private static int lengthOf(Object bucket) {
+        return (bucket instanceof Entry) ? 1 : ((Entry<?, ?>[]) bucket).length;
+    }
+
+    /** Bucket update function (may be applied more than once in case of contention). */
+    private abstract static class Update implements BiFunction<Long, Object, Object> {
+        Object result; // Set by the last (successful) application.
+        int delta; // Change in the number of entries.
+
+        @Override
+        public final Object apply(Long index, Object bucket) {
+            return apply(bucket);
+        }
+
+        abstract Object apply(@Nullable Object bucket);
+    }
+
+    /** Unsigned order of the keys indices. */
+    private static final class UnsignedComparator implements Comparator<Long>, Serializable {
+        private static final long serialVersionUID = ConcurrentFastMap.serialVersionUID;
+
+        @Override
+        public int compare(Long left, Long right) {
+            return Long.compareUnsigned(left, right);
+        }
+    }
+
+    /** The entries view (weakly consistent iterations). */
+    private final class EntriesImpl extends AbstractSet<Entry<K, V>> {
+        private static final long serialVersionUID = ConcurrentFastMap.serialVersionUID;
+
+        @Override
+        public boolean add(final Entry<K, V> entry, final boolean allowDuplicate) {
+            if (allowDuplicate) {
+                addEntry(entry.getKey(), entry.getValue());
+                return true;
+            }
+            return ConcurrentFastMap.this.update(entry.getKey(), new Update() {
+                @Override
+                Object apply(Object bucket) {
+                    boolean present = findEqual(bucket, entry) != null;
+                    delta = present ? 0 : 1;
+                    return present ? bucket : insert(bucket, new Entry<K, V>(entry.getKey(), entry.getValue()));
+                }
+            }).delta != 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object obj) {
+            if (!(obj instanceof Entry)) return false;
+            final Entry<K, V> entry = (Entry<K, V>) obj;
+            return ConcurrentFastMap.this.update(entry.getKey(), new Update() {
+                @Override
+                Object apply(Object bucket) {
+                    Entry<K, V> found = findEqual(bucket, entry);
+                    delta = (found != null) ? -1 : 0;
+                    return (found != null) ? delete(bucket, found) : bucket;
+                }
+            }).delta != 0;
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Entry<K, V>> filter) {
+            boolean modified = false;
+            for (Entry<K, V> entry : this)
+                if (filter.test(entry) && remove(entry)) modified = true;
+            return modified;
+        }
+
+        @Override
+        public Entry<K, V> getAny(Entry<K, V> entry) {
+            return getEntry(entry.getKey());
+        }
+
+        @Override
+        public Entry<K, V> removeAny(Entry<K, V> entry) {
+            return removeEntry(entry.getKey());
+        }
+
+        @Override
+        public Order<? super Entry<K, V>> order() {
+            return new Order<Entry<K, V>>() {
+                private static final long serialVersionUID = ConcurrentFastMap.serialVersionUID;
+
+                @Override
+                public boolean areEqual(Entry<K, V> left, Entry<K, V> right) {
+                    if (left == right) return true;
+                    if ((left == null) || (right == null)) return false;
+                    return keyOrder.areEqual(left.getKey(), right.getKey())
+                            && valuesEquality.areEqual(left.getValue(), right.getValue());
+                }
+
+                @Override
+                public int compare(Entry<K, V> left, Entry<K, V> right) {
+                    if (left == null) return -1;
+                    if (right == null) return 1;
+                    return keyOrder.compare(left.getKey(), right.getKey());
+                }
+
+                @Override
+                public long indexOf(Entry<K, V> entry) {
+                    return (entry != null) ? keyOrder.indexOf(entry.getKey()) : 0;
+                }
+            };
+        }
+
+        @Override
+        public FastIterator<Entry<K, V>> iterator(@Nullable Entry<K, V> low) {
+            NavigableMap<Long, Object> view = (low == null) ? buckets
+                    : buckets.tailMap(keyOrder.indexOf(low.getKey()), true);
+            return new IteratorImpl(view.values().iterator(), (low != null) ? low.getKey() : null, false);
+        }
+
+        @Override
+        public FastIterator<Entry<K, V>> descendingIterator(@Nullable Entry<K, V> high) {
+            NavigableMap<Long, Object> view = (high == null) ? buckets.descendingMap()
+                    : buckets.headMap(keyOrder.indexOf(high.getKey()), true).descendingMap();
+            return new IteratorImpl(view.values().iterator(), (high != null) ? high.getKey() : null, true);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentFastMap.this.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentFastMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentFastMap.this.clear();
+        }
+
+        @Override
+        public AbstractSet<Entry<K, V>> clone() {
+            return ConcurrentFastMap.this.clone().entries();
+        }
+
+        @SuppressWarnings("unchecked")
+        private @Nullable Entry<K, V> findEqual(@Nullable Object bucket, Entry<K, V> entry) {
+            if (bucket == null) return null;
+            Entry<K, V>[] entries = (bucket instanceof Entry) ? new Entry[] { (Entry<K, V>) bucket }
+                    : (Entry<K, V>[]) bucket;
+            for (Entry<K, V> e : entries)
+                if (keyOrder.areEqual(e.getKey(), entry.getKey())
+                        && valuesEquality.areEqual(e.getValue(), entry.getValue())) return e;
+            return null;
+        }
+    }
+
+    /** Iterator over the buckets entries (ascending or descending). */
+    private final class IteratorImpl implements FastIterator<Entry<K, V>> {
+        private final Iterator<Object> bucketsItr;
+        private final boolean descending;
+        private @Nullable K bound; // Lower (or upper) key for the first bucket.
+        private Entry<K, V>[] entries;
+        private int i; // Next position in entries.
+        private @Nullable Entry<K, V> next;
+
+        IteratorImpl(Iterator<Object> bucketsItr, @Nullable K bound, boolean descending) {
+            this.bucketsItr = bucketsItr;
+            this.bound = bound;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            while (true) {
+                if ((entries != null) && (i < entries.length)) {
+                    Entry<K, V> entry = entries[descending ? entries.length - 1 - i++ : i++];
+                    if ((bound != null) && (descending ? keyOrder.compare(entry.getKey(), bound) > 0
+                            : keyOrder.compare(entry.getKey(), bound) < 0)) continue;
+                    next = entry;
+                    return true;
+                }
+                if (entries != null) bound = null; // Only applies to the first bucket.
+                if (!bucketsItr.hasNext()) return false;
+                entries = toArray(bucketsItr.next());
+                i = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext(Predicate<? super Entry<K, V>> matching) {
+            while (hasNext()) {
+                if (matching.test(next)) return true;
+                next = null;
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry<K, V> entry = next;
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry<K, V>[] toArray(Object bucket) {
+            return (bucket instanceof Entry) ? new Entry[] { (Entry<K, V>) bucket } : (Entry<K, V>[]) bucket;
+        }
+    }
+
+}
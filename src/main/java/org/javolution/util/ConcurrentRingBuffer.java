@@ -0,0 +1,153 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+
+/**
+ * A bounded lock-free queue supporting multiple producers and multiple consumers, backed by a ring buffer
+ * allocated once at creation.
+ *
+ * Each slot holds a sequence number telling producers when the slot is free and consumers when the slot is
+ * filled; producers and consumers claim slots by incrementing (compare-and-swap) their respective counters and
+ * never wait for each other unless the queue is full (offer fails) or empty (poll returns {@code null}).
+ *
+ * ```java
+ * ConcurrentRingBuffer<Reader> pool = new ConcurrentRingBuffer<>(64); // Capacity rounded up to a power of two.
+ * Reader reader = pool.poll(); // Thread-safe.
+ * if (reader == null) reader = new Reader();
+ * ...
+ * pool.offer(reader); // Discarded if the pool is full.
+ * ```
+ *
+ * @param <E> the type of queue elements ({@code null} instances are not supported)
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ */
+@Realtime
+public class ConcurrentRingBuffer<E> extends AbstractQueue<E> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences; // Slot sequence numbers.
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next position to poll.
+    private final AtomicLong tail = new AtomicLong(); // Next position to offer.
+
+    /**
+     * Creates a ring buffer holding at least the specified number of elements (rounded up to a power of two).
+     *
+     * @throws IllegalArgumentException if {@code capacity <= 0 || capacity > (1 << 30)}
+     */
+    public ConcurrentRingBuffer(int capacity) {
+        if ((capacity <= 0) || (capacity > (1 << 30)))
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        int length = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new AtomicReferenceArray<E>(length);
+        sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++)
+            sequences.set(i, i);
+        mask = length - 1;
+    }
+
+    /** Returns the maximum number of elements this ring buffer can hold. */
+    @Realtime(limit = CONSTANT)
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        while (true) {
+            long pos = tail.get();
+            int i = (int) pos & mask;
+            long dif = sequences.get(i) - pos;
+            if (dif == 0) {
+                if (!tail.compareAndSet(pos, pos + 1)) continue;
+                elements.lazySet(i, element);
+                sequences.lazySet(i, pos + 1); // Publishes the element.
+                return true;
+            }
+            if (dif < 0) return false; // Full.
+            // Else another producer has claimed the slot, try again.
+        }
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public @Nullable E poll() {
+        while (true) {
+            long pos = head.get();
+            int i = (int) pos & mask;
+            long dif = sequences.get(i) - (pos + 1);
+            if (dif == 0) {
+                if (!head.compareAndSet(pos, pos + 1)) continue;
+                E element = elements.get(i);
+                elements.lazySet(i, null);
+                sequences.lazySet(i, pos + mask + 1); // Releases the slot for the next round.
+                return element;
+            }
+            if (dif < 0) return null; // Empty.
+            // Else another consumer has claimed the slot, try again.
+        }
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public @Nullable E peek() {
+        while (true) {
+            long pos = head.get();
+            int i = (int) pos & mask;
+            if (sequences.get(i) - (pos + 1) < 0) return null; // Empty.
+            E element = elements.get(i);
+            if ((element != null) && (head.get() == pos)) return element;
+        }
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public int size() {
+        long size = tail.get() - head.get();
+        return (size < 0) ? 0 : (size > capacity()) ? capacity() : (int) size;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    protected FastTable<E> elements() {
+        FastTable<E> table = new FastTable<E>();
+        for (long pos = head.get(), end = tail.get(); pos < end; pos++) {
+            int i = (int) pos & mask;
+            E element = elements.get(i);
+            if ((element != null) && (sequences.get(i) == pos + 1)) table.addLast(element);
+        }
+        return table;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public ConcurrentRingBuffer<E> clone() {
+        ConcurrentRingBuffer<E> copy = new ConcurrentRingBuffer<E>(capacity());
+        for (E element : elements())
+            copy.offer(element);
+        return copy;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Realtime;
+
+/**
+ * A table of {@code double} values stored without boxing.
+ *
+ * Elements are held in dense {@code double[]} blocks; the primitive methods ({@link #getDouble getDouble},
+ * {@link #setDouble setDouble}, {@link #addDouble(double) addDouble}, {@link #removeDouble removeDouble}, {@link Iterator#nextDouble nextDouble})
+ * do not allocate. The standard {@link java.util.List List} methods are supported through boxing and all the
+ * fast collection views are inherited.
+ *
+ * ```java
+ * DoubleTable values = new DoubleTable();
+ * values.addDouble(4.2);
+ * values.addDouble(0, 0.7); // Insertion (the blocks are rotated, no full array copy).
+ * double sum = 0;
+ * for (DoubleTable.Iterator itr = values.listIterator(0); itr.hasNext();)
+ *     sum += itr.nextDouble();
+ * ```
+ *
+ * Insertions/removals at any position move at most one block of elements plus one element per following block
+ * (1024 elements per block).
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ * @see IntTable
+ * @see LongTable
+ */
+public class DoubleTable extends PrimitiveTable<Double> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** A list iterator over {@code double} values. */
+    public interface Iterator extends FastListIterator<Double> {
+
+        /**
+         * Returns the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        double nextDouble();
+
+        /**
+         * Returns the previous value (no boxing).
+         * @throws NoSuchElementException if the iteration has no previous element
+         */
+        double previousDouble();
+
+    }
+
+    /** Creates an empty table. */
+    public DoubleTable() {
+        super(double.class);
+    }
+
+    @Override
+    public DoubleTable with(Double... elements) {
+        addAll(elements);
+        return this;
+    }
+
+    /** Adds the specified values to this table (convenience method). */
+    public DoubleTable withDoubles(double... values) {
+        for (double value : values) addDouble(value);
+        return this;
+    }
+
+    /** Returns the value at the specified index. */
+    @Realtime(limit = CONSTANT)
+    public final double getDouble(int index) {
+        return ((double[]) blockOf(index))[positionOf(index)];
+    }
+
+    /** Replaces the value at the specified index and returns the previous value. */
+    @Realtime(limit = CONSTANT)
+    public final double setDouble(int index, double value) {
+        double[] block = (double[]) blockOf(index);
+        int i = positionOf(index);
+        double previous = block[i];
+        block[i] = value;
+        return previous;
+    }
+
+    /** Appends the specified value to the end of this table. */
+    @Realtime(limit = CONSTANT)
+    public final void addDouble(double value) {
+        addDouble(size(), value);
+    }
+
+    /** Inserts the specified value at the specified index. */
+    @Realtime(limit = LINEAR, comment = "Rotates the blocks following the insertion point (one element per block).")
+    public final void addDouble(int index, double value) {
+        ((double[]) insert(index))[positionOf(index)] = value;
+    }
+
+    /** Removes the value at the specified index and returns it. */
+    @Realtime(limit = LINEAR, comment = "Rotates the blocks following the removal point (one element per block).")
+    public final double removeDouble(int index) {
+        double removed = getDouble(index);
+        delete(index);
+        return removed;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final boolean add(Double element) {
+        addDouble(element);
+        return true;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public final void add(int index, Double element) {
+        addDouble(index, element);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public DoubleTable clone() {
+        return (DoubleTable) super.clone();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Iterator listIterator(int index) {
+        return new IteratorImpl(this, index);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public final Double remove(int index) {
+        return removeDouble(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Double set(int index, Double element) {
+        return setDouble(index, element);
+    }
+
+    /** List Iterator Implementation. */
+    private static final class IteratorImpl extends PrimitiveTable.IteratorImpl<Double> implements Iterator {
+
+        public IteratorImpl(DoubleTable table, int nextIndex) {
+            super(table, nextIndex);
+        }
+
+        @Override
+        public Double next() {
+            return nextDouble();
+        }
+
+        @Override
+        public double nextDouble() {
+            if (nextIndex >= table.size()) throw new NoSuchElementException();
+            return ((DoubleTable) table).getDouble(nextIndex++);
+        }
+
+        @Override
+        public Double previous() {
+            return previousDouble();
+        }
+
+        @Override
+        public double previousDouble() {
+            if (nextIndex <= 0) throw new NoSuchElementException();
+            return ((DoubleTable) table).getDouble(--nextIndex);
+        }
+
+    }
+
+}
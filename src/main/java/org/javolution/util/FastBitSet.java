@@ -12,18 +12,40 @@ import static org.javolution.annotations.Realtime.Limit.LINEAR;
 
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
 
 import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Parallel;
 import org.javolution.annotations.Realtime;
+import org.javolution.context.ConcurrentContext;
 import org.javolution.lang.Index;
 import org.javolution.lang.MathLib;
 import org.javolution.util.function.Order;
 import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.CompressedBitsImpl;
 
 /**
  * A high-performance bit-set integrated with the collection framework as a set of {@link Index indices} 
  * and obeying the collection semantic for methods such as {@link #size} (cardinality) or {@link #equals}
  * (same set of indices).</p>
+ * 
+ * Bulk operations ({@link #and and}, {@link #or or}, {@link #xor xor}, {@link #andNot andNot}, 
+ * {@link #cardinality cardinality}) on large bit-sets are performed {@link ConcurrentContext concurrently}
+ * (the words are split among the concurrent threads). Set bits can be iterated without allocating 
+ * {@link Index} instances using {@link #forEachSetBit forEachSetBit}, {@link #nextSetBits nextSetBits} or
+ * {@link IndexIterator#nextLong nextLong} (indices greater than {@link Index#UNIQUE} are not preallocated).
+ * 
+ * ```java
+ * FastBitSet segment = ...;
+ * int[] buffer = new int[1024];
+ * for (int n, from = 0; (n = segment.nextSetBits(from, buffer)) > 0; from = buffer[n - 1] + 1) {
+ *     for (int i = 0; i < n; i++) process(buffer[i]);
+ * }
+ * ```
+ * 
+ * Sparse or clustered bit-sets should use the {@link #compressed compressed} representation; a single bit set at 
+ * index 2^31 - 1 requires 256 MBytes with the default (word array) representation, but only a few bytes when
+ * compressed (Roaring bitmap). Both representations can be combined in set operations.
  *   
  * @author  <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
  * @version 7.0, September 13, 2015
@@ -31,11 +53,28 @@ import org.javolution.util.function.Predicate;
 public class FastBitSet extends AbstractSet<Index> {
 
     private static final long serialVersionUID = 0x700L; // Version.
+
     private static final long[] ALL_CLEARED = new long[0];
+    private static final int MIN_TASK_WORDS = 1 << 14; // Minimum number of words per concurrent task.
+    private static final int AND = 0, AND_NOT = 1, OR = 2, XOR = 3, CARDINALITY = 4; // Bulk operations.
     
     /** Holds the bits (64 bits per long). */
     private long[] bits;
     
+    /** Holds the compressed bits (compressed representation only). */
+    private CompressedBitsImpl compressed;
+    
+    /** An iterator over the set bits whose primitive method {@link #nextLong nextLong} does not allocate. */
+    public interface IndexIterator extends FastIterator<Index> {
+
+        /**
+         * Returns the index of the next set bit (no {@link Index} instance created).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        long nextLong();
+
+    }
+
     /** 
      * Creates a new bit-set (all bits cleared).
      */
@@ -43,13 +82,29 @@ public class FastBitSet extends AbstractSet<Index> {
         bits = ALL_CLEARED;
     }
 
+    /**
+     * Returns a new bit-set (all bits cleared) using a compressed representation; the bits are grouped in chunks of
+     * 2^16 bits and each non-empty chunk is held in a sorted array, a bitmap or a sorted array of runs 
+     * (whichever is the most compact). Intersections of sparse bit-sets are proportional to their cardinality.
+     */
+    public static FastBitSet compressed() {
+        FastBitSet bitSet = new FastBitSet();
+        bitSet.compressed = new CompressedBitsImpl();
+        return bitSet;
+    }
+
+    /** Indicates if this bit-set uses a {@link #compressed compressed} representation. */
+    public final boolean isCompressed() {
+        return compressed != null;
+    }
+
       ////////////////////////////////////////////////////////////////////////////
      // Set operations.
      //
 
     @Override
      public final boolean add(Index index, boolean allowDuplicate) {
-         return add(index); // allowDuplicate flag ignored.
+         return !getAndSet(index.intValue(), true); // allowDuplicate flag ignored.
      }
 
      /**
@@ -59,16 +114,17 @@ public class FastBitSet extends AbstractSet<Index> {
      *
      * @param that the second bit set.
      */
+    @Parallel
     @Realtime(limit = LINEAR)
     public final void and(FastBitSet that) {
-        long[] thatBits = that.toLongArray();
-        int n = MathLib.min(this.bits.length, thatBits.length);
-        for (int i = 0; i < n; i++) {
-            this.bits[i] &= thatBits[i];
-        }
-        for (int i = n; i < bits.length; i++) {
-            this.bits[i] = 0L;
+        if (compressed != null) {
+            compressed.and(that.compressedBits());
+            return;
         }
+        long[] thatBits = that.words(bits.length);
+        int n = MathLib.min(this.bits.length, thatBits.length);
+        bulk(AND, this.bits, thatBits, n);
+        Arrays.fill(this.bits, n, bits.length, 0L);
     }
 
  	/**
@@ -79,13 +135,16 @@ public class FastBitSet extends AbstractSet<Index> {
      *
      * @param that the second bit set
      */
+    @Parallel
     @Realtime(limit = LINEAR)
     public final void andNot(FastBitSet that) {
-        long[] thatBits = that.toLongArray();
-        int n = MathLib.min(this.bits.length, thatBits.length);
-        for (int i = 0; i < n; i++) {
-            this.bits[i] &= ~thatBits[i];
+        if (compressed != null) {
+            compressed.andNot(that.compressedBits());
+            return;
         }
+        long[] thatBits = that.words(bits.length);
+        int n = MathLib.min(this.bits.length, thatBits.length);
+        bulk(AND_NOT, this.bits, thatBits, n);
     }
 
      /**
@@ -94,16 +153,16 @@ public class FastBitSet extends AbstractSet<Index> {
      *
      * @return the number of bits being set.
      */
+    @Parallel
+    @Realtime(limit = LINEAR)
     public final int cardinality() {
-        int sum = 0;
-        for (int i = 0; i < bits.length; i++) {
-            sum += MathLib.bitCount(bits[i]);
-        }
-        return sum;
+        if (compressed != null) return compressed.cardinality();
+        return bulk(CARDINALITY, bits, null, bits.length);
     }
 
      @Override
      public final void clear() {
+         if (compressed != null) compressed = new CompressedBitsImpl();
          bits = ALL_CLEARED;
      }
 
@@ -115,6 +174,10 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code index < 0}
      */
     public final void clear(int bitIndex) {
+        if (compressed != null) {
+            compressed.set(bitIndex, false);
+            return;
+        }
         int longIndex = bitIndex >> 6;
         if (longIndex >= bits.length)
             return;
@@ -134,6 +197,10 @@ public class FastBitSet extends AbstractSet<Index> {
     public final void clear(int fromIndex, int toIndex) {
         if ((fromIndex < 0) || (toIndex < fromIndex))
             throw new IndexOutOfBoundsException();
+        if (compressed != null) {
+            compressed.clear(fromIndex, toIndex);
+            return;
+        }
         int i = fromIndex >>> 6;
         if (i >= bits.length)
             return; // Ensures that i < _length
@@ -155,6 +222,7 @@ public class FastBitSet extends AbstractSet<Index> {
  	public final FastBitSet clone() {
  	    FastBitSet copy = new FastBitSet();
  	    copy.bits = this.bits.clone();
+ 	    if (compressed != null) copy.compressed = compressed.clone();
  	    return copy;
  	}
 	
@@ -163,7 +231,12 @@ public class FastBitSet extends AbstractSet<Index> {
      //
 
     @Override
-    public final FastIterator<Index> descendingIterator(@Nullable Index from) {
+    public final IndexIterator descendingIterator() {
+        return descendingIterator(null);
+    }
+
+    @Override
+    public final IndexIterator descendingIterator(@Nullable Index from) {
         int start = (from == null) ? this.length() - 1 : from.intValue();
         return new IteratorImpl(this, start, true);
     }
@@ -175,6 +248,10 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code bitIndex < 0}
      */
     public final void flip(int bitIndex) {
+        if (compressed != null) {
+            compressed.set(bitIndex, !compressed.get(bitIndex));
+            return;
+        }
         int i = bitIndex >> 6;
         ensureCapacity(i + 1);
         bits[i] ^= 1L << bitIndex;
@@ -192,6 +269,10 @@ public class FastBitSet extends AbstractSet<Index> {
     public final void flip(int fromIndex, int toIndex) {
         if ((fromIndex < 0) || (toIndex < fromIndex))
             throw new IndexOutOfBoundsException();
+        if (compressed != null) {
+            compressed.flip(fromIndex, toIndex);
+            return;
+        }
         int i = fromIndex >>> 6;
         int j = toIndex >>> 6;
         ensureCapacity(j + 1);
@@ -215,6 +296,7 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code bitIndex < 0}
      */
     public final boolean get(int bitIndex) {
+        if (compressed != null) return compressed.get(bitIndex);
         int i = bitIndex >> 6;
         return (i >= bits.length) ? false : (bits[i] & (1L << bitIndex)) != 0;
     }
@@ -233,6 +315,10 @@ public class FastBitSet extends AbstractSet<Index> {
         if (fromIndex < 0 || fromIndex > toIndex)
             throw new IndexOutOfBoundsException();
         FastBitSet bitSet = new FastBitSet();
+        if (compressed != null) {
+            bitSet.compressed = compressed.get(fromIndex, toIndex);
+            return bitSet;
+        }
         int length = MathLib.min(bits.length, (toIndex >>> 6) + 1);
         bitSet.bits = new long[length];
         System.arraycopy(bits, 0, bitSet.bits, 0, length);
@@ -241,10 +327,25 @@ public class FastBitSet extends AbstractSet<Index> {
         return bitSet;
     }
 
+    /** 
+     * Compares the words of both bit-sets when the specified object is a bit-set; compressed bit-sets are 
+     * compared chunk by chunk (never expanded).
+     */
+    @Override
+    @Realtime(limit = LINEAR)
+    public boolean equals(Object obj) {
+        if (!(obj instanceof FastBitSet)) return super.equals(obj);
+        FastBitSet that = (FastBitSet) obj;
+        if ((compressed == null) && (that.compressed == null)) 
+            return Arrays.equals(toLongArray(), that.toLongArray());
+        return compressedBits().equals(that.compressedBits());
+    }
+
     /** 
      * Sets the specified bit, returns <code>true</code>
      * if previously set. */
     public final boolean getAndSet(int bitIndex, boolean value) {
+        if (compressed != null) return compressed.set(bitIndex, value);
         int i = bitIndex >> 6;
         ensureCapacity(i + 1);
         boolean previous = (bits[i] & (1L << bitIndex)) != 0;
@@ -270,7 +371,8 @@ public class FastBitSet extends AbstractSet<Index> {
      */
     @Realtime(limit = LINEAR)
     public final boolean intersects(FastBitSet that) {
-        long[] thatBits = that.toLongArray();
+        if (compressed != null) return compressed.intersects(that.compressedBits());
+        long[] thatBits = that.words(bits.length);
         int i = MathLib.min(this.bits.length, thatBits.length);
         while (--i >= 0) {
             if ((bits[i] & thatBits[i]) != 0) return true; 
@@ -284,7 +386,12 @@ public class FastBitSet extends AbstractSet<Index> {
 	}
 
     @Override
-    public final FastIterator<Index> iterator(@Nullable Index from) {
+    public final IndexIterator iterator() {
+        return iterator(null);
+    }
+
+    @Override
+    public final IndexIterator iterator(@Nullable Index from) {
         int start = (from == null) ? 0: from.intValue();
         return new IteratorImpl(this, start, false);
     }
@@ -299,6 +406,7 @@ public class FastBitSet extends AbstractSet<Index> {
      * @return the index of the highest set bit plus one.
      */
     public final int length() {
+        if (compressed != null) return compressed.length();
         trim();
         if (bits.length == 0) return 0;
         return (bits.length << 6) - MathLib.numberOfLeadingZeros(bits[bits.length -1]);
@@ -313,19 +421,15 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code fromIndex < 0} 
      */
     public final int nextClearBit(int fromIndex) {
+        if (compressed != null) return compressed.nextClearBit(fromIndex);
         int offset = fromIndex >> 6;
-        long mask = 1L << fromIndex;
-        while (offset < bits.length) {
-            long h = bits[offset];
-            do {
-                if ((h & mask) == 0) { return fromIndex; }
-                mask <<= 1;
-                fromIndex++;
-            } while (mask != 0);
-            mask = 1;
-            offset++;
+        if (offset >= bits.length) return fromIndex;
+        long word = ~bits[offset] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++offset == bits.length) return offset << 6;
+            word = ~bits[offset];
         }
-        return fromIndex;
+        return (offset << 6) + Long.numberOfTrailingZeros(word);
     }
 
     /**
@@ -341,20 +445,74 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code fromIndex < 0} 
      */
     public final int nextSetBit(int fromIndex) {
+        if (compressed != null) return compressed.nextSetBit(fromIndex);
         int offset = fromIndex >> 6;
-        long mask = 1L << fromIndex;
-        while (offset < bits.length) {
-            long h = bits[offset];
-            do {
-                if ((h & mask) != 0)
-                    return fromIndex;
-                mask <<= 1;
-                fromIndex++;
-            } while (mask != 0);
-            mask = 1;
-            offset++;
+        if (offset >= bits.length) return -1;
+        long word = bits[offset] & (-1L << fromIndex); // Ignores the bits before fromIndex.
+        while (word == 0) {
+            if (++offset >= bits.length) return -1;
+            word = bits[offset];
         }
-        return -1;
+        return (offset << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Fills the specified array with the indices of the next {@code true} bits from the specified bit 
+     * (inclusive) and returns the number of indices written (less than the array length only if there are
+     * no more set bits). This method allows for the batch iteration of large bit sets without allocating
+     * {@link Index} instances.
+     *
+     * @param fromIndex the start location.
+     * @param indices the array filled with the indices of the set bits in ascending order.
+     * @return the number of indices written.
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} 
+     */
+    @Realtime(limit = LINEAR)
+    public final int nextSetBits(int fromIndex, int[] indices) {
+        if (fromIndex < 0) throw new IndexOutOfBoundsException();
+        if (compressed != null) return compressed.nextSetBits(fromIndex, indices);
+        int count = 0;
+        int offset = fromIndex >> 6;
+        if (offset >= bits.length) return 0;
+        long word = bits[offset] & (-1L << fromIndex);
+        while (true) {
+            for (; word != 0; word &= word - 1) { // Clears the lowest set bit.
+                if (count == indices.length) return count;
+                indices[count++] = (offset << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++offset >= bits.length) return count;
+            word = bits[offset];
+        }
+    }
+
+    /**
+     * Performs the specified action for each {@code true} bit in ascending order (no allocation).
+     *
+     * @param action the action called with the index of each set bit.
+     */
+    @Realtime(limit = LINEAR)
+    public final void forEachSetBit(IntConsumer action) {
+        if (compressed != null) {
+            compressed.forEach(action);
+            return;
+        }
+        long[] words = bits;
+        for (int offset = 0; offset < words.length; offset++) {
+            for (long word = words[offset]; word != 0; word &= word - 1)
+                action.accept((offset << 6) + Long.numberOfTrailingZeros(word));
+        }
+    }
+
+    /**
+     * Returns the indices of the {@code true} bits in ascending order.
+     * 
+     * @return the set bits indices.
+     */
+    @Realtime(limit = LINEAR)
+    public final int[] toIntArray() {
+        int[] indices = new int[cardinality()];
+        nextSetBits(0, indices);
+        return indices;
     }
 
     /**
@@ -364,14 +522,16 @@ public class FastBitSet extends AbstractSet<Index> {
      *
      * @param that the second bit set.
      */
+    @Parallel
     @Realtime(limit = LINEAR)
     public final void or(FastBitSet that) {
-        long[] thatBits = (that instanceof FastBitSet) ? ((FastBitSet) that).bits
-                : that.toLongArray();
-        ensureCapacity(thatBits.length);
-        for (int i = thatBits.length; --i >= 0;) {
-            bits[i] |= thatBits[i];
+        if (compressed != null) {
+            compressed.or(that.compressedBits());
+            return;
         }
+        long[] thatBits = that.words(Integer.MAX_VALUE);
+        ensureCapacity(thatBits.length);
+        bulk(OR, bits, thatBits, thatBits.length);
     }
 
     @Override
@@ -388,20 +548,15 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code fromIndex < -1} 
      */
     public final int previousClearBit(int fromIndex) {
+        if (compressed != null) return compressed.previousClearBit(fromIndex);
         int offset = fromIndex >> 6;
-        long mask = 1L << fromIndex;
-        while (offset >= 0) {
-            long h = bits[offset];
-            do {
-                if ((h & mask) == 0)
-                    return fromIndex;
-                mask >>= 1;
-                fromIndex--;
-            } while (mask != 0);
-            mask = 1L << 63;
-            offset--;
+        if (offset >= bits.length) return fromIndex; // Bits beyond the array are clear.
+        long word = ~bits[offset] & (-1L >>> (63 - (fromIndex & 63)));
+        while (word == 0) {
+            if (--offset < 0) return -1;
+            word = ~bits[offset];
         }
-        return -1;
+        return (offset << 6) + 63 - Long.numberOfLeadingZeros(word);
     }
 
     /**
@@ -417,20 +572,22 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code fromIndex < -1} 
      */
     public final int previousSetBit(int fromIndex) {
+        if (compressed != null) return compressed.previousSetBit(fromIndex);
+        if (fromIndex < 0) return -1;
         int offset = fromIndex >> 6;
-        long mask = 1L << fromIndex;
-        while (offset >= 0) {
-            long h = bits[offset];
-            do {
-                if ((h & mask) != 0)
-                    return fromIndex;
-                mask >>= 1;
-                fromIndex--;
-            } while (mask != 0);
-            mask = 1L << 63;
-            offset--;
+        long word;
+        if (offset >= bits.length) {
+            offset = bits.length - 1;
+            if (offset < 0) return -1;
+            word = bits[offset];
+        } else {
+            word = bits[offset] & (-1L >>> (63 - (fromIndex & 63))); // Ignores the bits after fromIndex.
+        }
+        while (word == 0) {
+            if (--offset < 0) return -1;
+            word = bits[offset];
         }
-        return -1;
+        return (offset << 6) + 63 - Long.numberOfLeadingZeros(word);
     }
 
     @Override
@@ -457,6 +614,10 @@ public class FastBitSet extends AbstractSet<Index> {
      * @throws IndexOutOfBoundsException if {@code bitIndex < 0}
      */
     public final void set(int bitIndex) {
+        if (compressed != null) {
+            compressed.set(bitIndex, true);
+            return;
+        }
         int i = bitIndex >> 6;
         ensureCapacity(i + 1);
         bits[i] |= 1L << bitIndex;
@@ -490,6 +651,10 @@ public class FastBitSet extends AbstractSet<Index> {
     public final void set(int fromIndex, int toIndex) {
         if ((fromIndex < 0) || (toIndex < fromIndex))
         	throw new IndexOutOfBoundsException();
+        if (compressed != null) {
+            compressed.set(fromIndex, toIndex);
+            return;
+        }
         int i = fromIndex >>> 6;
         int j = toIndex >>> 6;
         ensureCapacity(j + 1);
@@ -532,6 +697,7 @@ public class FastBitSet extends AbstractSet<Index> {
      * @return Array of longs representing this bitset 
      */
     public final long[] toLongArray() {
+        if (compressed != null) return compressed.toLongArray();
         trim();
         return bits;
     }
@@ -544,14 +710,51 @@ public class FastBitSet extends AbstractSet<Index> {
      *
      * @param that the second bit set.
      */
+    @Parallel
     @Realtime(limit = LINEAR)
     public final void xor(FastBitSet that) {
-        long[] thatBits = (that instanceof FastBitSet) ? ((FastBitSet) that).bits
-                : that.toLongArray();
+        if (compressed != null) {
+            compressed.xor(that.compressedBits());
+            return;
+        }
+        long[] thatBits = that.words(Integer.MAX_VALUE);
         ensureCapacity(thatBits.length);
-        for (int i = thatBits.length; --i >= 0;) {
-            bits[i] ^= thatBits[i];
+        bulk(XOR, bits, thatBits, thatBits.length);
+    }
+
+    /** 
+     * Performs the specified bulk operation on the first n words, concurrently if there are enough words;
+     * returns the number of bits set (for cardinality).
+     */
+    private static int bulk(int operation, long[] bits, long[] thatBits, int n) {
+        if (n < 2 * MIN_TASK_WORDS) return new BulkTask(operation, bits, thatBits, 0, n).perform();
+        BulkTask[] tasks;
+        ConcurrentContext ctx = ConcurrentContext.enter();
+        try {
+            int concurrency = MathLib.min(ctx.getConcurrency() + 1, n / MIN_TASK_WORDS);
+            tasks = new BulkTask[concurrency];
+            for (int i = 0; i < concurrency; i++) {
+                tasks[i] = new BulkTask(operation, bits, thatBits, (int) ((long) n * i / concurrency),
+                        (int) ((long) n * (i + 1) / concurrency));
+                if (i != 0) ctx.execute(tasks[i]);
+            }
+            tasks[0].run(); // Current thread works too.
+        } finally {
+            ctx.exit(); // Waits for concurrent completion.
         }
+        int sum = 0;
+        for (BulkTask task : tasks) sum += task.count;
+        return sum;
+    }
+
+    /** Returns the compressed bits of this bit-set (converted if this bit-set is not compressed). */
+    private CompressedBitsImpl compressedBits() {
+        return (compressed != null) ? compressed : CompressedBitsImpl.valueOf(toLongArray());
+    }
+
+    /** Returns the words of this bit-set (trimmed), at most the specified number of words if compressed. */
+    private long[] words(int maxLength) {
+        return (compressed != null) ? compressed.toLongArray(maxLength) : toLongArray();
     }
 
     // Checks capacity.
@@ -570,11 +773,55 @@ public class FastBitSet extends AbstractSet<Index> {
         }        
     }
 
+    /** Bulk operation over a range of words. */
+    private static final class BulkTask implements Runnable {
+        private final int operation;
+        private final long[] bits;
+        private final long[] thatBits;
+        private final int from, to;
+        private int count;
+
+        private BulkTask(int operation, long[] bits, long[] thatBits, int from, int to) {
+            this.operation = operation;
+            this.bits = bits;
+            this.thatBits = thatBits;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            count = perform();
+        }
+
+        private int perform() {
+            switch (operation) {
+            case AND:
+                for (int i = from; i < to; i++) bits[i] &= thatBits[i];
+                return 0;
+            case AND_NOT:
+                for (int i = from; i < to; i++) bits[i] &= ~thatBits[i];
+                return 0;
+            case OR:
+                for (int i = from; i < to; i++) bits[i] |= thatBits[i];
+                return 0;
+            case XOR:
+                for (int i = from; i < to; i++) bits[i] ^= thatBits[i];
+                return 0;
+            default: // CARDINALITY
+                int sum = 0;
+                for (int i = from; i < to; i++) sum += Long.bitCount(bits[i]); // Intrinsic (popcnt).
+                return sum;
+            }
+        }
+    }
+
     /** BitSet iterator implementation. */
-    private static final class IteratorImpl implements FastIterator<Index> {
+    private static final class IteratorImpl implements IndexIterator {
 
         private final FastBitSet that;
         private int nextIndex;
+        private Index nextValue; // The index instance for nextIndex (if already created).
         private int currentIndex = -1;
         private boolean reversed;
 
@@ -591,8 +838,9 @@ public class FastBitSet extends AbstractSet<Index> {
         @Override
         public boolean hasNext(Predicate<? super Index> matching) {
             while (hasNext()) {
-                if (matching.test(Index.of(nextIndex))) return true;
-                next();
+                if (nextValue == null) nextValue = Index.of(nextIndex); // Reused by next().
+                if (matching.test(nextValue)) return true;
+                advance();
             }
             return false;
         }
@@ -600,9 +848,17 @@ public class FastBitSet extends AbstractSet<Index> {
         public Index next() {
             if (nextIndex < 0)
                 throw new NoSuchElementException();
-            currentIndex = nextIndex;
-            nextIndex = reversed ? that.previousSetBit(nextIndex - 1) : that.nextSetBit(nextIndex + 1);
-            return Index.of(currentIndex);
+            Index next = (nextValue != null) ? nextValue : Index.of(nextIndex);
+            advance();
+            return next;
+        }
+
+        @Override
+        public long nextLong() {
+            if (nextIndex < 0)
+                throw new NoSuchElementException();
+            advance();
+            return currentIndex;
         }
 
         public void remove() {
@@ -612,5 +868,11 @@ public class FastBitSet extends AbstractSet<Index> {
             currentIndex = -1;
         }
 
+        private void advance() {
+            currentIndex = nextIndex;
+            nextIndex = reversed ? that.previousSetBit(nextIndex - 1) : that.nextSetBit(nextIndex + 1);
+            nextValue = null;
+        }
+
     }
 }
@@ -8,12 +8,18 @@
  */
 package org.javolution.util;
 
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
+import static org.javolution.annotations.Realtime.Limit.N_LOG_N;
+
+import java.util.Map;
 
 import org.javolution.annotations.Realtime;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Indexer;
 import org.javolution.util.function.Order;
+import org.javolution.util.internal.HashArrayImpl;
+import org.javolution.util.internal.function.HashOrderImpl;
 
 /**
  * High-performance ordered map / multimap based upon fast-access {@link FractalArray}. 
@@ -43,6 +49,7 @@ import org.javolution.util.function.Order;
  * AbstractMap<Foo, Bar> linkedMultimap = new FastMap<Foo, Bar>().linked().multi(); 
  * ...
  * AbstractMap<Foo, Bar> identityLinkedAtomicMap = new FastMap<Foo, Bar>(IDENTITY).linked().atomic(); // Thread-safe.
+ * FastMap<Foo, Bar> openHashMap = FastMap.openAddressing(); // Dense arrays (linear probing).
  * ```
  * 
  * FastMap supports a great diversity of views.
@@ -56,7 +63,8 @@ import org.javolution.util.function.Order;
  *    <li>{@link #keySet} - View over the map keys allowing keys to be removed or added (entries with {@code null} values).</li>
  *    <li>{@link #values} - View over the map values (removal is supported but not adding new values).</li>
  *    <li>{@link #shared} - Thread-safe view based on <a href=
- *                          "http://en.wikipedia.org/wiki/Readers%E2%80%93writer_lock">readers-writer locks</a>.</li>
+ *                          "http://en.wikipedia.org/wiki/Readers%E2%80%93writer_lock">readers-writer locks</a>
+ *                          (see {@link ConcurrentFastMap} for lock-free reads and concurrent updates).</li>
  *    <li>{@link #atomic} - Thread-safe view for which all reads are mutex-free and map updates 
  *                           (e.g. {@link #putAll putAll}) are atomic.</li>
  *    <li>{@link #reversed} - Reversed order view.</li>
@@ -130,6 +138,8 @@ public class FastMap<K, V> extends AbstractMap<K, V> {
     private final Order<? super K> keyOrder; 
     private final Equality<? super V> valuesEquality; 
     private final FastSet<Entry<K,V>> entries; 
+    private transient boolean entriesShared; // Entries shared with a clone or snapshot (replaced unless owned).
+    private transient Object owner; // Stamp of the entries created since the entries have been shared.
     
     /** Creates a {@link Equality#STANDARD standard} map arbitrarily ordered. */
     public FastMap() {
@@ -152,33 +162,58 @@ public class FastMap<K, V> extends AbstractMap<K, V> {
     public FastMap(Order<? super K> keyOrder, Equality<? super V> valuesEquality) {
         this.keyOrder = keyOrder;
         this.valuesEquality = valuesEquality;
-        this.entries = new FastSet<Entry<K,V>>(new Order<Entry<K,V>>() {
-            private static final long serialVersionUID = FastMap.serialVersionUID;
-
-            @Override
-            public boolean areEqual(Entry<K, V> left, Entry<K, V> right) {
-            	if (left == right) return true;
-            	if ((left == null) || (right == null)) return false;
-                return FastMap.this.keyOrder.areEqual(left.getKey(), right.getKey()) && 
-                        FastMap.this.valuesEquality.areEqual(left.getValue(), right.getValue());
-            }
-
-            @Override
-            public int compare(Entry<K, V> left, Entry<K, V> right) {
-            	if (left == null) return -1;
-            	if (right == null) return 1;
-                return FastMap.this.keyOrder.compare(left.getKey(), right.getKey());
-            }
-
-            @Override
-            public long indexOf(Entry<K, V> entry) {
-            	if (entry == null) return 0;
-                return FastMap.this.keyOrder.indexOf(entry.getKey());
-            }
-
-        });
+        this.entries = new FastSet<Entry<K,V>>(new EntryOrder<K,V>(keyOrder, valuesEquality));
+    }
+
+    /**
+     * Returns a {@link Equality#STANDARD standard} map using open addressing (equivalent to 
+     * {@code openAddressing(Order.standard())}).
+     */
+    public static <K, V> FastMap<K, V> openAddressing() {
+        return openAddressing(Order.standard());
+    }
+
+    /**
+     * Returns a map using open addressing for the specified hash order (e.g. {@link Order#standard()}, 
+     * {@link Order#identity()}); the map {@link #keyOrder() key order} is the scrambled hash order.
+     * 
+     * @param hashOrder the order whose indices are hash values.
+     * @see FastSet#openAddressing(Order)
+     */
+    public static <K, V> FastMap<K, V> openAddressing(Order<? super K> hashOrder) {
+        Order<K> keyOrder = new HashOrderImpl<K>(hashOrder);
+        Equality<Object> valuesEquality = Equality.standard();
+        return new FastMap<K, V>(keyOrder, valuesEquality, new FastSet<Entry<K, V>>(
+                new EntryOrder<K, V>(keyOrder, valuesEquality), new HashArrayImpl<Entry<K, V>>(),
+                FractalArray.<AbstractSet<Entry<K, V>>>empty(), FractalArray.empty(), 0));
     }
     
+    /**
+     * Returns a map holding the mappings of the specified map, ordered using the specified key order
+     * (bulk loading). The entries are pre-sorted by index and the map structure is built bottom-up, which is
+     * much faster than successive insertions for large maps.
+     * 
+     * @param keyOrder the key order of the map returned.
+     * @param map the mappings to be held (for keys equal according to the key order, the last mapping prevails).
+     */
+    @Realtime(limit = N_LOG_N)
+    public static <K, V> FastMap<K, V> of(final Order<? super K> keyOrder, Map<? extends K, ? extends V> map) {
+        Object[] entries = new Object[map.size()];
+        int i = entries.length;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) // Reversed, the first duplicate is retained.
+            entries[--i] = new Entry<K, V>(entry.getKey(), entry.getValue());
+        Equality<Object> valuesEquality = Equality.standard();
+        return new FastMap<K, V>(keyOrder, valuesEquality, FastSet.of(new EntryOrder<K, V>(keyOrder,
+                valuesEquality), entries, new Equality<Entry<K, V>>() { // Same key.
+                    private static final long serialVersionUID = 0x700L; // Version.
+
+                    @Override
+                    public boolean areEqual(Entry<K, V> left, Entry<K, V> right) {
+                        return keyOrder.areEqual(left.getKey(), right.getKey());
+                    }
+                }));
+    }
+
     /**  Base constructor (private). */
     private FastMap(Order<? super K> keyOrder, Equality<? super V> valuesEquality, FastSet<Entry<K,V>> entries) {
        this.keyOrder = keyOrder;
@@ -193,9 +228,22 @@ public class FastMap<K, V> extends AbstractMap<K, V> {
 
     /** Freezes this map and returns the corresponding {@link Immutable} instance (cannot be reversed). */
     public final Immutable<K,V> freeze() {
+        share();
         return new Immutable<K,V>(keyOrder, valuesEquality, entries.freeze());
     }
 
+    /** 
+     * Returns an immutable point-in-time copy of this map. The internal structure is shared and copied only 
+     * when this map is modified (copy-on-write); the snapshot can be read (e.g. for reporting) while this 
+     * map is being updated. Snapshots should be taken by the thread updating this map (or while holding 
+     * its write lock).
+     */
+    @Realtime(limit = CONSTANT)
+    public final Immutable<K,V> snapshot() {
+        share();
+        return new Immutable<K,V>(keyOrder, valuesEquality, entries.snapshot());
+    }
+
     @Override
     public FastMap<K,V> with(K key, V value) {
         put(key, value);
@@ -213,24 +261,46 @@ public class FastMap<K, V> extends AbstractMap<K, V> {
     }
 
     @Override
-    @Realtime(limit = LINEAR)
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
     public FastMap<K, V> clone() {
-        return new FastMap<K,V>(keyOrder, valuesEquality, entries.clone());
+        FastMap<K, V> copy = new FastMap<K,V>(keyOrder, valuesEquality, entries.clone());
+        copy.share();
+        share();
+        return copy;
     }
 
     @Override
+    protected V updateValue(Entry<K, V> entry, V newValue) {
+        if (!entriesShared || (entry instanceof OwnedEntry) && (((OwnedEntry<K, V>) entry).owner == owner))
+            return super.updateValue(entry, newValue);
+        entries.removeAny(entry); // Shared entries are replaced (copy-on-write).
+        entries.add(new OwnedEntry<K, V>(entry.getKey(), newValue, owner), true);
+        return entry.getValue();
+    }
+
+    /** Marks the current entries as shared; entries are replaced on update unless created afterwards. */
+    private void share() {
+        entriesShared = true;
+        owner = new Object(); // The entries owned previously are now shared.
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
     public final Entry<K, V> getEntry(K key) {
-        return entries.getAny(new Entry<K,V>(key, null)); 
+        return entries.getAny(key, entryOrder()); // No probe entry.
     }
    
     @Override
+    @Realtime(limit = CONSTANT)
     public final Entry<K, V> removeEntry(K key) {
-        return entries.removeAny(new Entry<K,V>(key, null));
+        return entries.removeAny(key, entryOrder());
     }
 
     @Override
     public final void clear() {
         entries.clear();
+        entriesShared = false;
+        owner = null;
     }
 
     @Override
@@ -245,9 +315,71 @@ public class FastMap<K, V> extends AbstractMap<K, V> {
 
     @Override
     public final Entry<K, V> addEntry(K key, V value) {
-        Entry<K,V> entry = new Entry<K,V>(key, value);
+        Entry<K,V> entry = entriesShared ? new OwnedEntry<K,V>(key, value, owner) : new Entry<K,V>(key, value);
         entries.add(entry, true /* allowDuplicate */);
         return entry;
     }
     
+    /** Returns the order of the entries (all the entries sets of this class use an entry order). */
+    @SuppressWarnings("unchecked")
+    private EntryOrder<K, V> entryOrder() {
+        return (EntryOrder<K, V>) (Order<?>) entries.order;
+    }
+
+    /** An entry created while the entries are shared (can be updated in place by its owner). */
+    private static final class OwnedEntry<K, V> extends Entry<K, V> {
+        private static final long serialVersionUID = FastMap.serialVersionUID;
+        private final transient Object owner;
+
+        private OwnedEntry(K key, V value, Object owner) {
+            super(key, value);
+            this.owner = owner;
+        }
+    }
+
+    /** The order of the map entries (key order), also used for look-up by key. */
+    private static final class EntryOrder<K, V> extends Order<Entry<K, V>> 
+            implements FastSet.KeyProjection<Entry<K, V>, K> {
+        private static final long serialVersionUID = FastMap.serialVersionUID;
+        private final Order<? super K> keyOrder;
+        private final Equality<? super V> valuesEquality;
+
+        private EntryOrder(Order<? super K> keyOrder, Equality<? super V> valuesEquality) {
+            this.keyOrder = keyOrder;
+            this.valuesEquality = valuesEquality;
+        }
+
+        @Override
+        public boolean areEqual(Entry<K, V> left, Entry<K, V> right) {
+        	if (left == right) return true;
+        	if ((left == null) || (right == null)) return false;
+            return keyOrder.areEqual(left.getKey(), right.getKey()) && 
+                    valuesEquality.areEqual(left.getValue(), right.getValue());
+        }
+
+        @Override
+        public int compare(Entry<K, V> left, Entry<K, V> right) {
+        	if (left == null) return -1;
+        	if (right == null) return 1;
+            return keyOrder.compare(left.getKey(), right.getKey());
+        }
+
+        @Override
+        public long indexOf(Entry<K, V> entry) {
+        	if (entry == null) return 0;
+            return keyOrder.indexOf(entry.getKey());
+        }
+
+        @Override
+        public long indexOfKey(K key) {
+            return keyOrder.indexOf(key);
+        }
+
+        @Override
+        public boolean hasKey(Entry<K, V> entry, K key) {
+            return keyOrder.areEqual(entry.getKey(), key);
+        }
+
+    }
+    
 }
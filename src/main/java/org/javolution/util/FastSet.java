@@ -10,8 +10,12 @@ package org.javolution.util;
 
 import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
+import static org.javolution.annotations.Realtime.Limit.LOG_N;
+import static org.javolution.annotations.Realtime.Limit.N_LOG_N;
 import static org.javolution.lang.MathLib.unsignedLessThan;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.NoSuchElementException;
 
 import org.javolution.annotations.Nullable;
@@ -22,6 +26,10 @@ import org.javolution.util.function.Equality;
 import org.javolution.util.function.Indexer;
 import org.javolution.util.function.Order;
 import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.FractalArrayImpl;
+import org.javolution.util.internal.FractalArrayImpl.Weight;
+import org.javolution.util.internal.HashArrayImpl;
+import org.javolution.util.internal.function.HashOrderImpl;
 import org.javolution.util.internal.set.SortedSetImpl;
 
 /**
@@ -52,6 +60,14 @@ import org.javolution.util.internal.set.SortedSetImpl;
  * ... 
  * ``` 
  * 
+ * Sets with a hash order may use {@link #openAddressing open addressing} in place of fractal arrays
+ * (dense arrays with linear probing) for faster look-up of large sets.
+ * 
+ * ```java
+ * FastSet<Foo> openHashSet = FastSet.openAddressing(); // Arbitrary order (scrambled hash).
+ * FastSet<Foo> openIdentitySet = FastSet.openAddressing(IDENTITY); 
+ * ```
+ * 
  * This class inherits collection closures and support the {@link #subSet subSet} view over a portion of a set.
  * 
  * ```java
@@ -92,8 +108,10 @@ public class FastSet<E> extends AbstractSet<E> {
     /** Immutable Set (can only be created through the {@link #freeze()} method). */
     public static final class Immutable<E> extends FastSet<E> implements org.javolution.lang.Immutable {
         private static final long serialVersionUID = FastSet.serialVersionUID;
-        private Immutable(Order<? super E> order, FractalArray<E> singles, FractalArray<AbstractSet<E>> multiples, int size) {
-            super(order, singles, multiples, size);
+        private Immutable(Order<? super E> order, FractalArray<E> singles, FractalArray<AbstractSet<E>> multiples,
+                FractalArray<Object> multipleSizes, int size) {
+            super(order, singles, multiples, multipleSizes, size);
+            share(); // Any update of multiples fails.
         }
         
         @Override
@@ -102,10 +120,25 @@ public class FastSet<E> extends AbstractSet<E> {
         }
     }
 
+    /** The projection of elements to keys for look-up by key (package private, e.g. map entries by key). */
+    interface KeyProjection<E, K> {
+
+        /** Returns the index of the elements having the specified key. */
+        long indexOfKey(K key);
+
+        /** Indicates if the specified element has the specified key. */
+        boolean hasKey(E element, K key);
+
+    }
+
     final Order<? super E> order;
     FractalArray<E> singles; // Hold instances for which there is no collisions.  
     FractalArray<AbstractSet<E>> multiples; // Holds instances for which there are collisions (same index value). 
+    FractalArray<Object> multipleSizes; // The size of each multiple (weights counted by the fractal array).
     int size; // Keep tracks of the size since fractal arrays are unbounded.
+    private transient boolean multiplesShared; // Multiples shared with a clone or snapshot (copied unless owned).
+    private transient Object owner; // Stamp of the multiples created or copied since the multiples have been shared.
+    private transient FractalArray<Object> owners; // The stamp of each multiple (by index) when shared.
 
     /** Creates a {@link Equality#STANDARD standard} set arbitrarily ordered (hash order). */
     public FastSet() {
@@ -126,29 +159,125 @@ public class FastSet<E> extends AbstractSet<E> {
         this.order = order;
         this.singles = FractalArray.empty();
         this.multiples = FractalArray.empty();        
+        this.multipleSizes = FractalArray.empty();
     }
 
     /**  Base constructor (package private). */
-    FastSet(Order<? super E> order, FractalArray<E> singles, FractalArray<AbstractSet<E>> multiples, int size) {
+    FastSet(Order<? super E> order, FractalArray<E> singles, FractalArray<AbstractSet<E>> multiples,
+            FractalArray<Object> multipleSizes, int size) {
        this.order = order;
        this.singles = singles;
        this.multiples = multiples;
+       this.multipleSizes = multipleSizes;
        this.size = size;
     }
 
+    /** 
+     * Returns a {@link Equality#STANDARD standard} set using open addressing (equivalent to 
+     * {@code openAddressing(Order.standard())}).
+     */
+    public static <E> FastSet<E> openAddressing() {
+        return openAddressing(Order.standard());
+    }
+
+    /** 
+     * Returns a set using open addressing for the specified hash order (e.g. {@link Order#standard()}, 
+     * {@link Order#identity()}). The elements are held in dense arrays sorted by scrambled hash index and probed 
+     * linearly from their home slot; the set {@link #order() order} is the scrambled hash order. 
+     * 
+     * @param hashOrder the order whose indices are hash values.
+     */
+    public static <E> FastSet<E> openAddressing(Order<? super E> hashOrder) {
+        return new FastSet<E>(new HashOrderImpl<E>(hashOrder), new HashArrayImpl<E>(), 
+                FractalArray.<AbstractSet<E>>empty(), FractalArray.empty(), 0);
+    }
+
+    /** 
+     * Returns a set holding the specified elements sorted using the specified order (bulk loading). 
+     * The elements are pre-sorted by index and the set structure is built bottom-up, which is much faster 
+     * than successive additions for large collections.
+     * 
+     * @param order the set order.
+     * @param elements the elements to be held (only the first of equal elements is retained).
+     */
+    @Realtime(limit = N_LOG_N)
+    public static <E> FastSet<E> of(Order<? super E> order, Collection<? extends E> elements) {
+        return FastSet.<E>of(order, elements.toArray(), order);
+    }
+
+    /** Bulk loading of the specified elements, only the first of elements equal according to the specified 
+     *  equality is retained (package private, the specified array is modified). */
+    @SuppressWarnings("unchecked")
+    static <E> FastSet<E> of(Order<? super E> order, Object[] elements, Equality<? super E> distinct) {
+        int n = elements.length;
+        long[] indices = new long[n];
+        for (int i = 0; i < n; i++)
+            indices[i] = order.indexOf((E) elements[i]);
+        FractalArrayImpl.sort(indices, elements, n);
+        long[] multipleIndices = new long[0];
+        AbstractSet<E>[] multiples = new AbstractSet[0];
+        int singleCount = 0, multipleCount = 0, size = 0;
+        for (int i = 0; i < n;) { // Elements with the same index are contiguous.
+            int end = i + 1;
+            int kept = i + 1;
+            for (; (end < n) && (indices[end] == indices[i]); end++) {
+                E element = (E) elements[end];
+                boolean duplicate = false;
+                for (int j = i; !duplicate && (j < kept); j++)
+                    duplicate = distinct.areEqual((E) elements[j], element);
+                if (!duplicate) elements[kept++] = element;
+            }
+            size += kept - i;
+            if (kept - i == 1) { // Single (compacted in place).
+                indices[singleCount] = indices[i];
+                elements[singleCount++] = elements[i];
+            } else {
+                Order<? super E> subOrder = order.subOrder((E) elements[i]);
+                AbstractSet<E> multiple = (subOrder != null) ? new FastSet<E>(subOrder) : new SortedSetImpl<E>(order);
+                for (int j = i; j < kept; j++)
+                    multiple.add((E) elements[j], true);
+                if (multipleCount >= multiples.length) {
+                    multipleIndices = Arrays.copyOf(multipleIndices, multipleCount * 2 + 16);
+                    multiples = Arrays.copyOf(multiples, multipleCount * 2 + 16);
+                }
+                multipleIndices[multipleCount] = indices[i];
+                multiples[multipleCount++] = multiple;
+            }
+            i = end;
+        }
+        Object[] multipleSizes = new Object[multipleCount];
+        for (int i = 0; i < multipleCount; i++)
+            multipleSizes[i] = Weight.of(multiples[i].size());
+        return new FastSet<E>(order, FractalArrayImpl.of(indices, (E[]) elements, singleCount),
+                FractalArrayImpl.of(multipleIndices, multiples, multipleCount),
+                FractalArrayImpl.of(multipleIndices, multipleSizes, multipleCount), size);
+    }
+
     /** Freezes this set and returns the corresponding {@link Immutable} instance (cannot be reversed). */
+    @Realtime(limit = CONSTANT)
     public final Immutable<E> freeze() {
         singles = singles.unmodifiable();
-        for (FractalArray.Iterator<AbstractSet<E>> itr = multiples.iterator(); itr.hasNext();) {
-            long index = itr.nextIndex();
-            multiples.set(index, itr.next().unmodifiable()); // Replaces.
-        }
         multiples = multiples.unmodifiable();
-        return new Immutable<E>(order, singles, multiples, size);
+        multipleSizes = multipleSizes.unmodifiable();
+        share(); // Multiples cannot be copied into an unmodifiable array.
+        return new Immutable<E>(order, singles, multiples, multipleSizes, size);
+    }
+
+    /** 
+     * Returns an immutable point-in-time copy of this set. The internal structure is shared and copied only 
+     * when this set is modified (copy-on-write); the snapshot can be iterated (e.g. for reporting) while this 
+     * set is being updated. Snapshots should be taken by the thread updating this set (or while holding its
+     * write lock).
+     */
+    @Realtime(limit = CONSTANT)
+    public final Immutable<E> snapshot() {
+        share();
+        return new Immutable<E>(order, singles.snapshot(), multiples.snapshot(), multipleSizes.snapshot(), size);
     }
 
     @Override
-    public FastSet<E> with(@SuppressWarnings("unchecked") E... elements) {
+    @SafeVarargs
+    public final FastSet<E> with(E... elements) {
         addAll(elements);
         return this;
     }
@@ -165,7 +294,10 @@ public class FastSet<E> extends AbstractSet<E> {
         long index = order.indexOf(element);
         AbstractSet<E> multiple = multiples.get(index);
         if (multiple != null) {
-            if (!multiple.add(element, allowDuplicate)) return false;            
+            if (!allowDuplicate && (multiple.getAny(element) != null)) return false;
+            multiple = modifiable(index, multiple);
+            multiple.add(element, true);
+            multipleSizes = multipleSizes.set(index, Weight.of(multiple.size()));
         } else {
             E single = singles.get(index);
             if (single != null) {
@@ -173,7 +305,11 @@ public class FastSet<E> extends AbstractSet<E> {
                 singles = singles.clear(index); // No more single.
                 Order<? super E> subOrder = order.subOrder(element); 
                 multiple = (subOrder != null) ? new FastSet<E>(subOrder) : new SortedSetImpl<E>(order);
+                multiple.add(single, true);
+                multiple.add(element, true);
                 multiples = multiples.set(index, multiple);
+                multipleSizes = multipleSizes.set(index, Weight.of(2));
+                if (multiplesShared) owners = owners.set(index, owner);
             } else { // Empty slot.
                 singles = singles.set(index, element);
             }
@@ -197,27 +333,69 @@ public class FastSet<E> extends AbstractSet<E> {
         }
     }
     
+    /** 
+     * Returns any element having the specified key; unlike {@link #getAny(Object)} there is no need for 
+     * a probe element (no allocation unless elements with the same index are iterated).
+     */
+    @Realtime(limit = CONSTANT)
+    final <K> E getAny(K key, KeyProjection<? super E, ? super K> projection) {
+        long index = projection.indexOfKey(key);
+        AbstractSet<E> multiple = multiples.get(index);
+        if (multiple == null) {
+            E single = singles.get(index);
+            return ((single != null) && projection.hasKey(single, key)) ? single : null;
+        }
+        for (E element : multiple) 
+            if (projection.hasKey(element, key)) return element;
+        return null;
+    }
+
+    /** Removes and returns any element having the specified key (no probe element). */
+    @Realtime(limit = CONSTANT)
+    final <K> E removeAny(K key, KeyProjection<? super E, ? super K> projection) {
+        E element = getAny(key, projection);
+        return (element != null) ? removeAny(element) : null;
+    }
+
     @Override
     public void clear() {
-        singles = FractalArray.empty();
+        singles = (singles instanceof HashArrayImpl) ? new HashArrayImpl<E>() : FractalArray.<E>empty();
         multiples = FractalArray.empty();
+        multipleSizes = FractalArray.empty();
+        multiplesShared = false;
+        owner = null;
+        owners = null;
         size = 0;
     }
 
     @Override
-    @Realtime(limit = LINEAR)
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
     public FastSet<E> clone() {
         FastSet<E> copy = (FastSet<E>) super.clone();
         copy.singles = singles.clone();
         copy.multiples = multiples.clone();
-        for (FractalArray.Iterator<AbstractSet<E>> itr = multiples.iterator(); itr.hasNext();) {
-            long index = itr.nextIndex();
-            AbstractSet<E> multiple = itr.next();
-            copy.multiples.set(index, multiple.clone()); // Replaces.
-        }
+        copy.multipleSizes = multipleSizes.clone();
+        copy.share(); // Both this set and its copy copy their multiples before modifying them.
+        share();
+        return copy;
+    }
+
+    /** Returns the specified multiple for update (copied first if shared and not owned, multiples are small). */
+    private AbstractSet<E> modifiable(long index, AbstractSet<E> multiple) {
+        if (!multiplesShared || (owners.get(index) == owner)) return multiple;
+        AbstractSet<E> copy = multiple.clone();
+        multiples = multiples.set(index, copy);
+        owners = owners.set(index, owner);
         return copy;
     }
 
+    /** Marks the current multiples as shared; they are copied once before being modified. */
+    final void share() {
+        multiplesShared = true;
+        owner = new Object(); // The multiples owned previously are now shared.
+        owners = FractalArray.empty();
+    }
+
     @Override
     @Realtime(limit = CONSTANT)
     public final Order<? super E> order() {
@@ -263,11 +441,16 @@ public class FastSet<E> extends AbstractSet<E> {
         long index = order.indexOf(element);
         AbstractSet<E> multiple = multiples.get(index);
         if (multiple != null) {
+            if (multiple.getAny(element) == null) return null;
+            multiple = modifiable(index, multiple);
             removed = multiple.removeAny(element);
-            if (removed == null) return null;
             if (multiple.size() == 1) { // Go back to single.
                 singles = singles.set(index, multiple.findAny());
                 multiples = multiples.clear(index);
+                multipleSizes = multipleSizes.clear(index);
+                if (multiplesShared) owners = owners.clear(index);
+            } else {
+                multipleSizes = multipleSizes.set(index, Weight.of(multiple.size()));
             }
         } else {
             removed = singles.get(index);
@@ -283,11 +466,17 @@ public class FastSet<E> extends AbstractSet<E> {
         int initialSize = size;
         for (FractalArray.Iterator<AbstractSet<E>> itr = multiples.iterator(); itr.hasNext();) {
             long index = itr.nextIndex();
-            AbstractSet<E> multiple = itr.next();
+            AbstractSet<E> multiple = modifiable(index, itr.next());
             int sizeBefore = multiple.size();
             multiple.removeIf(filter);
             int sizeAfter = multiple.size();
-            if (sizeAfter <= 1) multiples = multiples.clear(index);
+            if (sizeAfter <= 1) {
+                multiples = multiples.clear(index);
+                multipleSizes = multipleSizes.clear(index);
+                if (multiplesShared) owners = owners.clear(index);
+            } else if (sizeAfter != sizeBefore) {
+                multipleSizes = multipleSizes.set(index, Weight.of(sizeAfter));
+            }
             if (sizeAfter == 1) singles = singles.set(index, multiple.findAny());
             size += sizeAfter - sizeBefore;
         }
@@ -304,6 +493,18 @@ public class FastSet<E> extends AbstractSet<E> {
         return size;
     }       
 
+    /** 
+     * Splits this set into sub-views over contiguous ranges of indices (elements are iterated only once 
+     * by all the sub-views together).
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    @Realtime(limit = CONSTANT)
+    public AbstractSet<E>[] trySplit(int n) {
+        if (n <= 0) throw new IllegalArgumentException("n: " + n);
+        return new RangeImpl(0, -1).trySplit(n);
+    }
+
     @Override
     @Realtime(limit = CONSTANT)
     public final E findAny() {
@@ -323,6 +524,58 @@ public class FastSet<E> extends AbstractSet<E> {
     public final E last() {
     	return descendingIterator().next();
     }
+
+    @Override
+    @Realtime(limit = LOG_N, comment = "The collision groups sizes are counted by the fractal arrays")
+    public final int rank(E element) {
+        return (int) countBelow(element, false);
+    }
+
+    @Override
+    @Realtime(limit = LOG_N, comment = "Binary search over the ranks of the singles when there are collision groups")
+    public final E select(int k) {
+        if ((k < 0) || (k >= size)) throw new IndexOutOfBoundsException("Rank: " + k);
+        if (multiples.isEmpty()) return singles.get(singles.select(k));
+        long low = 0, high = singles.count(); // Number of singles before the element of rank k.
+        while (low < high) { // Finds the first single whose rank is not lower than k (ranks are increasing).
+            long mid = (low + high) >>> 1;
+            long index = singles.select(mid);
+            long rank = mid + ((index == 0) ? 0 : multipleSizes.count(0, index - 1));
+            if (rank == k) return singles.get(index);
+            if (rank < k) low = mid + 1;
+            else high = mid;
+        }
+        long rank = k - low; // Rank among the elements of the multiples.
+        long index = multipleSizes.select(rank);
+        if (index != 0) rank -= multipleSizes.count(0, index - 1);
+        return multiples.get(index).select((int) rank);
+    }
+
+    @Override
+    @Realtime(limit = LOG_N, comment = "The collision groups sizes are counted by the fractal arrays")
+    public final int rangeCount(@Nullable E fromElement, boolean fromInclusive, @Nullable E toElement,
+            boolean toInclusive) {
+        long high = (toElement != null) ? countBelow(toElement, toInclusive) : size;
+        long low = (fromElement != null) ? countBelow(fromElement, !fromInclusive) : 0;
+        return (high > low) ? (int) (high - low) : 0;
+    }
+
+    /** Returns the number of elements lower than (or equal to when inclusive) the specified element. */
+    private long countBelow(E element, boolean inclusive) {
+        long index = order.indexOf(element);
+        long count = (index == 0) ? 0 : singles.count(0, index - 1) + multipleSizes.count(0, index - 1);
+        AbstractSet<E> multiple = multiples.get(index);
+        if (multiple != null) {
+            count += inclusive ? multiple.rangeCount(null, false, element, true) : multiple.rank(element);
+        } else {
+            E single = singles.get(index);
+            if (single != null) {
+                int cmp = order.compare(single, element);
+                if ((cmp < 0) || (inclusive && (cmp == 0))) count++;
+            }
+        }
+        return count;
+    }
         
     /** Ascending iterator implementation. */
     private final class AscendingIteratorImpl implements FastIterator<E> {
@@ -335,7 +588,7 @@ public class FastSet<E> extends AbstractSet<E> {
             long i = (from != null) ? order.indexOf(from) : 0;
             singleItr = singles.iterator(i);
             multipleItr = multiples.iterator(i);            
-            if (multipleItr.hasNext() && !unsignedLessThan(singleItr.nextIndex(), multipleItr.nextIndex())) {
+            if (multipleFirst()) {
                 subItr = multipleItr.next().iterator(from);
             } else {
                 subItr = (FastIterator<E>) EMPTY_ITERATOR; 
@@ -355,7 +608,7 @@ public class FastSet<E> extends AbstractSet<E> {
         @Override
         public E next() {
             if (subItr.hasNext()) return subItr.next();
-            if (multipleItr.hasNext() && !unsignedLessThan(singleItr.nextIndex(), multipleItr.nextIndex())) {
+            if (multipleFirst()) {
                 subItr = multipleItr.next().iterator();
                 return subItr.next();
             }
@@ -366,15 +619,22 @@ public class FastSet<E> extends AbstractSet<E> {
         public boolean hasNext(Predicate<? super E> matching) {
             while (true) {
                 if (subItr.hasNext(matching)) return true;
-                if (multipleItr.hasNext() && !unsignedLessThan(singleItr.nextIndex(), multipleItr.nextIndex())) {
+                if (multipleFirst()) {
                     subItr = multipleItr.next().iterator();
                 } else {
                     if (!singleItr.hasNext()) return false;
-                    if (matching.test(singleItr.next())) return true;
+                    if (matching.test(singles.get(singleItr.nextIndex()))) return true; // Not consumed.
+                    singleItr.next(); // Skips non-matching element.
                 }
             }    
        }
 
+        /** Indicates if the next element comes from the next collision group (singles may be exhausted). */
+        private boolean multipleFirst() {
+            return multipleItr.hasNext() && (!singleItr.hasNext() 
+                    || !unsignedLessThan(singleItr.nextIndex(), multipleItr.nextIndex()));
+        }
+
     }
 
     /** Descending iterator implementation. */
@@ -388,7 +648,7 @@ public class FastSet<E> extends AbstractSet<E> {
             long i = (from != null) ? order.indexOf(from) : -1;
             singleItr = singles.descendingIterator(i);
             multipleItr = multiples.descendingIterator(i);            
-            if (multipleItr.hasNext() && !unsignedLessThan(multipleItr.nextIndex(), singleItr.nextIndex())) {
+            if (multipleFirst()) {
                 subItr = multipleItr.next().descendingIterator(from);
             } else {
                 subItr = (FastIterator<E>) EMPTY_ITERATOR; 
@@ -408,7 +668,7 @@ public class FastSet<E> extends AbstractSet<E> {
         @Override
         public E next() {
             if (subItr.hasNext()) return subItr.next();
-            if (multipleItr.hasNext() && !unsignedLessThan(multipleItr.nextIndex(), singleItr.nextIndex())) {
+            if (multipleFirst()) {
                 subItr = multipleItr.next().descendingIterator();
                 return subItr.next();
             }
@@ -419,17 +679,212 @@ public class FastSet<E> extends AbstractSet<E> {
         public boolean hasNext(Predicate<? super E> matching) {
             while (true) {
                 if (subItr.hasNext(matching)) return true;
-                if (multipleItr.hasNext() && !unsignedLessThan(multipleItr.nextIndex(), singleItr.nextIndex())) {
+                if (multipleFirst()) {
                     subItr = multipleItr.next().descendingIterator();
                 } else {
                     if (!singleItr.hasNext()) return false;
-                    if (matching.test(singleItr.next())) return true;
+                    if (matching.test(singles.get(singleItr.nextIndex()))) return true; // Not consumed.
+                    singleItr.next(); // Skips non-matching element.
                 }
             }    
        }
 
+        /** Indicates if the next element comes from the next collision group (singles may be exhausted). */
+        private boolean multipleFirst() {
+            return multipleItr.hasNext() && (!singleItr.hasNext() 
+                    || !unsignedLessThan(multipleItr.nextIndex(), singleItr.nextIndex()));
+        }
+
     }
     
+    /** Unmodifiable view over the elements whose indices are in the specified range (unsigned, inclusive). */
+    private final class RangeImpl extends AbstractSet<E> {
+        private static final long serialVersionUID = FastSet.serialVersionUID;
+        private final long first;
+        private final long last;
+
+        private RangeImpl(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public AbstractSet<E>[] trySplit(int n) {
+            long low = -1, high = 0; // Actual range of indices.
+            FractalArray.Iterator<E> singleItr = singles.iterator(first);
+            if (inRange(singleItr)) low = singleItr.nextIndex();
+            FractalArray.Iterator<AbstractSet<E>> multipleItr = multiples.iterator(first);
+            if (inRange(multipleItr) && unsignedLessThan(multipleItr.nextIndex(), low)) low = multipleItr.nextIndex();
+            singleItr = singles.descendingIterator(last);
+            if (inRange(singleItr)) high = singleItr.nextIndex();
+            multipleItr = multiples.descendingIterator(last);
+            if (inRange(multipleItr) && unsignedLessThan(high, multipleItr.nextIndex())) high = multipleItr.nextIndex();
+            if ((n <= 1) || !unsignedLessThan(low, high)) return new AbstractSet[] { this };
+            long width = high - low; // Unsigned.
+            if (!unsignedLessThan(n - 1, width)) n = (int) width + 1;
+            long step = Long.divideUnsigned(width, n) + 1;
+            AbstractSet<E>[] split = new AbstractSet[n];
+            int count = 0;
+            for (long from = low;;) {
+                long to = (count == n - 1) || unsignedLessThan(high - from, step) ? high : from + step - 1;
+                split[count++] = new RangeImpl(from, to);
+                if (to == high) break;
+                from = to + 1;
+            }
+            if (count == n) return split;
+            AbstractSet<E>[] tmp = new AbstractSet[count];
+            System.arraycopy(split, 0, tmp, 0, count);
+            return tmp;
+        }
+
+        @Override
+        public boolean add(E element, boolean allowDuplicate) {
+            throw new UnsupportedOperationException("Sub-views are unmodifiable");
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super E> filter) {
+            throw new UnsupportedOperationException("Sub-views are unmodifiable");
+        }
+
+        @Override
+        public E removeAny(E element) {
+            throw new UnsupportedOperationException("Sub-views are unmodifiable");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Sub-views are unmodifiable");
+        }
+
+        @Override
+        public E getAny(E element) {
+            long index = order.indexOf(element);
+            return !unsignedLessThan(index, first) && !unsignedLessThan(last, index) ? FastSet.this.getAny(element)
+                    : null;
+        }
+
+        @Override
+        public Order<? super E> order() {
+            return order;
+        }
+
+        @Override
+        public FastIterator<E> iterator() {
+            return new RangeIteratorImpl(first, last, false, null);
+        }
+
+        @Override
+        public FastIterator<E> iterator(@Nullable E low) {
+            return new RangeIteratorImpl(first, last, false, low);
+        }
+
+        @Override
+        public FastIterator<E> descendingIterator() {
+            return new RangeIteratorImpl(first, last, true, null);
+        }
+
+        @Override
+        public FastIterator<E> descendingIterator(@Nullable E high) {
+            return new RangeIteratorImpl(first, last, true, high);
+        }
+
+        @Override
+        public int size() {
+            return (int) (singles.count(first, last) + multipleSizes.count(first, last));
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        private boolean inRange(FractalArray.Iterator<?> itr) {
+            return itr.hasNext() && !unsignedLessThan(itr.nextIndex(), first) && !unsignedLessThan(last, itr.nextIndex());
+        }
+    }
+
+    /** Iterator over the elements of a range of indices (single elements first, then the multiple ones). */
+    private final class RangeIteratorImpl implements FastIterator<E> {
+        private final long first;
+        private final long last;
+        private final boolean descending;
+        private final @Nullable E bound; // Lowest (or highest when descending) element iterated.
+        private final FractalArray.Iterator<E> singleItr;
+        private final FractalArray.Iterator<AbstractSet<E>> multipleItr;
+        @SuppressWarnings("unchecked")
+        private FastIterator<E> subItr = (FastIterator<E>) EMPTY_ITERATOR;
+        private @Nullable E next; // Look-ahead.
+
+        private RangeIteratorImpl(long first, long last, boolean descending, @Nullable E bound) {
+            this.first = first;
+            this.last = last;
+            this.descending = descending;
+            this.bound = bound;
+            singleItr = descending ? singles.descendingIterator(last) : singles.iterator(first);
+            multipleItr = descending ? multiples.descendingIterator(last) : multiples.iterator(first);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (next != null) || advance(Predicate.TRUE);
+        }
+
+        @Override
+        public boolean hasNext(Predicate<? super E> matching) {
+            if (next != null) {
+                if (matching.test(next)) return true;
+                next = null;
+            }
+            return advance(matching);
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            E element = next;
+            next = null;
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private boolean advance(Predicate<? super E> matching) {
+            while (true) {
+                while (subItr.hasNext()) {
+                    E element = subItr.next();
+                    if (inBound(element) && matching.test(element)) return found(element);
+                }
+                if (inRange(singleItr)) {
+                    E element = singleItr.next();
+                    if (inBound(element) && matching.test(element)) return found(element);
+                } else if (inRange(multipleItr)) {
+                    AbstractSet<E> multiple = multipleItr.next();
+                    subItr = descending ? multiple.descendingIterator() : multiple.iterator();
+                } else return false;
+            }
+        }
+
+        private boolean found(E element) {
+            next = element;
+            return true;
+        }
+
+        private boolean inBound(E element) {
+            if (bound == null) return true;
+            int cmp = order.compare(element, bound);
+            return descending ? cmp <= 0 : cmp >= 0;
+        }
+
+        private boolean inRange(FractalArray.Iterator<?> itr) {
+            return itr.hasNext() && !unsignedLessThan(itr.nextIndex(), first) && !unsignedLessThan(last, itr.nextIndex());
+        }
+    }
+
     /** Iterator over empty collection. */
     private static final FastIterator<Object> EMPTY_ITERATOR = new FastIterator<Object> () {
 
@@ -11,13 +11,17 @@ package org.javolution.util;
 import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
 import static org.javolution.annotations.Realtime.Limit.LOG_N;
+import static org.javolution.annotations.Realtime.Limit.N_LOG_N;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.NoSuchElementException;
 
 import org.javolution.annotations.Nullable;
 import org.javolution.annotations.Realtime;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.table.MergeSortImpl;
 
 /**
  * A high-performance table based upon fast-rotating {@link FractalArray}.
@@ -76,6 +80,11 @@ public class FastTable<E> extends AbstractTable<E> {
         public void clear() {
             throw new UnsupportedOperationException("Immutable");
         }
+
+        @Override
+        public void sort(Comparator<? super E> cmp) {
+            throw new UnsupportedOperationException("Immutable");
+        }
  
     }
 
@@ -95,14 +104,46 @@ public class FastTable<E> extends AbstractTable<E> {
        this.length = length;
     }
 
+    /** 
+     * Returns a new table holding the specified elements; the table is built in a single pass (bulk loading)
+     * which is faster than successive additions.
+     */
+    @SafeVarargs
+    @Realtime(limit = LINEAR)
+    public static <E> FastTable<E> of(E... elements) {
+        return new FastTable<E>(FractalArray.of(elements, elements.length), elements.length);
+    }
+
+    /** 
+     * Returns a new table holding the elements of the specified collection in iterative order (bulk loading).
+     */
+    @Realtime(limit = LINEAR)
+    public static <E> FastTable<E> of(Collection<? extends E> elements) {
+        @SuppressWarnings("unchecked")
+        E[] array = (E[]) elements.toArray();
+        return new FastTable<E>(FractalArray.of(array, array.length), array.length);
+    }
+
     /** Freezes this table and returns the corresponding {@link Immutable} instance (cannot be reversed). */
     public final Immutable<E> freeze() {
         array = array.unmodifiable();
         return new Immutable<E>(array, length);
     }
 
+    /** 
+     * Returns an immutable point-in-time copy of this table. The internal structure is shared and copied only 
+     * when this table is modified (copy-on-write); the snapshot can be read (e.g. for reporting) while this 
+     * table is being updated. Snapshots should be taken by the thread updating this table (or while holding 
+     * its write lock).
+     */
+    @Realtime(limit = CONSTANT)
+    public final Immutable<E> snapshot() {
+        return new Immutable<E>(array.snapshot(), length);
+    }
+
     @Override
-    public FastTable<E> with(@SuppressWarnings("unchecked") E... elements) {
+    @SafeVarargs
+    public final FastTable<E> with(E... elements) {
         addAll(elements);
         return this;
     }
@@ -129,8 +170,19 @@ public class FastTable<E> extends AbstractTable<E> {
         length = 0;
     }
 
+    /** Sorts this table in place; the sorted elements are bulk loaded in a new fractal array. */
     @Override
-    @Realtime(limit = LINEAR)
+    @SuppressWarnings("unchecked")
+    @Realtime(limit = N_LOG_N)
+    public void sort(Comparator<? super E> cmp) {
+        if (length < 2) return;
+        Object[] elements = toArray();
+        new MergeSortImpl<E>(cmp).sort(elements);
+        array = FractalArray.of((E[]) elements, length);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
     public FastTable<E> clone() {
         FastTable<E> copy = (FastTable<E>) super.clone();
         copy.array = array.clone();
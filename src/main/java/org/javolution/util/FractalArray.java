@@ -11,6 +11,7 @@ package org.javolution.util;
 import static org.javolution.annotations.Realtime.Limit.CONSTANT;
 import static org.javolution.annotations.Realtime.Limit.LINEAR;
 import static org.javolution.annotations.Realtime.Limit.LOG_N;
+import static org.javolution.lang.MathLib.unsignedLessThan;
 
 import java.io.Serializable;
 import java.util.NoSuchElementException;
@@ -64,14 +65,41 @@ public abstract class FractalArray<E> implements Cloneable, Serializable, Iterab
         return FractalArrayImpl.empty();
     }
 
+    /** 
+     * Returns a new instance holding the specified elements at their position (indices {@code 0} to 
+     * {@code length - 1}); the instance is built bottom-up in a single pass which is faster than successive
+     * {@link #set} operations. The specified array is not referenced by the returned instance.
+     * 
+     * @param elements the elements ({@code null} elements are not held).
+     * @param length the number of elements to hold.
+     */
+    @Realtime(limit = LINEAR)
+    public static <E> FractalArray<E> of(E[] elements, int length) {
+        return FractalArrayImpl.of(null, elements, length);
+    }
+
     /** 
      * Returns a copy of this fractal array; updates of the copy should not impact the original. 
+     * The internal structure is shared and copied only when modified (copy-on-write).
      * 
      * @return a copy of this fractal array.
      */
-    @Realtime(limit = LINEAR)
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write, the first updates of the copy (or the original) are O(Log(n))")
     public abstract FractalArray<E> clone();
     
+    /** 
+     * Returns an unmodifiable point-in-time copy of this fractal array. The internal structure is shared and 
+     * copied only when this array is modified (copy-on-write); unlike {@link #clone} no node is copied. 
+     * Snapshots should be taken by the thread updating this array (or while holding its write lock), they can 
+     * then be read concurrently with the updates of this array.
+     * 
+     * @return an unmodifiable snapshot of this fractal array.
+     */
+    @Realtime(limit = CONSTANT)
+    public FractalArray<E> snapshot() {
+        return clone().unmodifiable();
+    }
+
     /** 
      * Indicates if this fractal has no element
      * 
@@ -166,6 +194,49 @@ public abstract class FractalArray<E> implements Cloneable, Serializable, Iterab
      */
     @Realtime(limit = LINEAR)
     public abstract long previous(long before, @Nullable Predicate<? super E> matching);
+
+    /**
+     * Returns the number of non-null elements in this array.
+     */
+    @Realtime(limit = LINEAR, comment = "Constant time for fractal arrays (elements counts are maintained)")
+    public long count() {
+        return count(0, -1);
+    }
+
+    /**
+     * Returns the number of non-null elements in the specified range of indices.
+     * 
+     * @param from the unsigned 64-bits starting index (inclusive).
+     * @param to the unsigned 64-bits ending index (inclusive).
+     * @return the number of elements whose index is in range {@code [from, to]} or {@code 0} if {@code to < from}
+     *         (unsigned comparison).
+     */
+    @Realtime(limit = LINEAR, comment = "O(Log(n)) for fractal arrays (elements counts are maintained)")
+    public long count(long from, long to) {
+        if (unsignedLessThan(to, from)) return 0;
+        long n = 0;
+        for (Iterator<E> itr = iterator(from); itr.hasNext() && !unsignedLessThan(to, itr.nextIndex()); itr.next())
+            n++;
+        return n;
+    }
+
+    /**
+     * Returns the index of the non-null element at the specified rank (the number of non-null elements at lower 
+     * indices).
+     * 
+     * @param rank the rank of the element searched.
+     * @return the unsigned 64-bits index of the element of specified rank.
+     * @throws IndexOutOfBoundsException if {@code (rank < 0) || (rank >= count())}
+     */
+    @Realtime(limit = LINEAR, comment = "O(Log(n)) for fractal arrays (elements counts are maintained)")
+    public long select(long rank) {
+        if (rank >= 0) {
+            long n = 0;
+            for (Iterator<E> itr = iterator(0); itr.hasNext(); itr.next())
+                if (n++ == rank) return itr.nextIndex();
+        }
+        throw new IndexOutOfBoundsException("Rank: " + rank);
+    }
     
     /** 
      * Returns an ascending iterator over non-null elements starting from the specified (unsigned 64-bits) index.
@@ -343,6 +414,11 @@ public abstract class FractalArray<E> implements Cloneable, Serializable, Iterab
             return target.clone().unmodifiable();
         }
 
+		@Override
+        public FractalArray<E> snapshot() {
+            return target.snapshot();
+        }
+
         @Override
         public E get(long index) {
             return target.get(index);
@@ -377,6 +453,21 @@ public abstract class FractalArray<E> implements Cloneable, Serializable, Iterab
 		public long previous(long before, Predicate<? super E> matching) {
 	        return target.previous(before, matching);
 	 	}
+
+		@Override
+		public long count() {
+			return target.count();
+		}
+
+		@Override
+		public long count(long from, long to) {
+			return target.count(from, to);
+		}
+
+		@Override
+		public long select(long rank) {
+			return target.select(rank);
+		}
        
     }
     
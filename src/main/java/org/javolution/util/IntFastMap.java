@@ -0,0 +1,163 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Order;
+
+/**
+ * A map from {@code int} keys to objects, the keys are used directly as {@link FractalArray} indices
+ * (no key boxing, no entry per mapping).
+ *
+ * The primitive methods ({@link #get(int) get}, {@link #put(int, Object) put}, {@link #remove(int) remove},
+ * {@link #containsKey(int) containsKey}, {@link Iterator#nextKey nextKey}) do not allocate. The standard
+ * {@link java.util.Map Map} methods are supported through boxing; the entries iterated are snapshots (the
+ * map should be updated through its methods). Mappings are iterated in ascending (signed) order of their keys.
+ *
+ * ```java
+ * IntFastMap<Instrument> instruments = new IntFastMap<Instrument>();
+ * instruments.put(instrument.id(), instrument);
+ * ...
+ * for (IntFastMap.Iterator<Instrument> itr = instruments.iterator(); itr.hasNext();) {
+ *     int id = itr.nextKey();
+ *     Instrument instrument = itr.next();
+ * }
+ * ```
+ *
+ * Dense keys (e.g. sequence numbers) are stored in contiguous arrays without their indices.
+ *
+ * @param <V> the type of values
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle </a>
+ * @version 7.0, September 13, 2016
+ * @see IntFastMap
+ */
+@Realtime
+public class IntFastMap<V> extends PrimitiveKeyMap<Integer, V> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** An iterator over the map values giving access to their keys without boxing. */
+    public interface Iterator<V> extends FastIterator<V> {
+
+        /**
+         * Returns the key of the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        int nextKey();
+
+    }
+
+    /** The order of the keys (signed numeric order). */
+    public static final Order<Integer> KEY_ORDER = new Order<Integer>() {
+        private static final long serialVersionUID = IntFastMap.serialVersionUID;
+
+        @Override
+        public boolean areEqual(Integer left, Integer right) {
+            return (left == right) || ((left != null) && left.equals(right));
+        }
+
+        @Override
+        public int compare(Integer left, Integer right) {
+            return Integer.compare(left, right);
+        }
+
+        @Override
+        public long indexOf(Integer key) {
+            return key.intValue() ^ Long.MIN_VALUE;
+        }
+    };
+
+    /** Creates an empty map. */
+    public IntFastMap() {
+        super(Integer.class);
+    }
+
+    @Override
+    public IntFastMap<V> with(Integer key, V value) {
+        put(key, value);
+        return this;
+    }
+
+    /** Returns the value for the specified key or {@code null} if none (or if the value is {@code null}). */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V get(int key) {
+        return getValue(key);
+    }
+
+    /** Indicates if this map holds a mapping for the specified key. */
+    @Realtime(limit = CONSTANT)
+    public final boolean containsKey(int key) {
+        return hasKey(key);
+    }
+
+    /** Associates the specified value to the specified key and returns the previous value (if any). */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V put(int key, @Nullable V value) {
+        return putValue(key, value);
+    }
+
+    /** Removes the mapping for the specified key and returns its value (if any). */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V remove(int key) {
+        return removeValue(key);
+    }
+
+    /** Returns an iterator over the values in ascending order of their keys. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator<V> iterator() {
+        return new IteratorImpl<V>(this, valuesFrom(Integer.MIN_VALUE));
+    }
+
+    /** Returns an iterator over the values whose keys are greater or equal to the specified key. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator<V> iterator(int fromKey) {
+        return new IteratorImpl<V>(this, valuesFrom(fromKey));
+    }
+
+    /** Returns an iterator over the values in descending order of their keys. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator<V> descendingIterator() {
+        return new IteratorImpl<V>(this, valuesDownFrom(Integer.MAX_VALUE));
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
+    public IntFastMap<V> clone() {
+        return (IntFastMap<V>) super.clone();
+    }
+
+    @Override
+    public final Order<? super Integer> keyOrder() {
+        return KEY_ORDER;
+    }
+
+    @Override
+    final Integer boxed(long key) {
+        return (int) key;
+    }
+
+    /** Values iterator implementation. */
+    private static final class IteratorImpl<V> extends PrimitiveKeyMap.IteratorImpl<V> implements Iterator<V> {
+
+        private IteratorImpl(PrimitiveKeyMap<?, V> map, FractalArray.Iterator<Object> itr) {
+            super(map, itr);
+        }
+
+        @Override
+        public int nextKey() {
+            return (int) nextLongKey();
+        }
+    }
+}
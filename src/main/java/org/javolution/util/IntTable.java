@@ -0,0 +1,191 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Realtime;
+
+/**
+ * A table of {@code int} values stored without boxing.
+ *
+ * Elements are held in dense {@code int[]} blocks; the primitive methods ({@link #getInt getInt},
+ * {@link #setInt setInt}, {@link #addInt(int) addInt}, {@link #removeInt removeInt}, {@link Iterator#nextInt nextInt})
+ * do not allocate. The standard {@link java.util.List List} methods are supported through boxing and all the
+ * fast collection views are inherited.
+ *
+ * ```java
+ * IntTable ids = new IntTable();
+ * ids.addInt(42);
+ * ids.addInt(0, 7); // Insertion (the blocks are rotated, no full array copy).
+ * long sum = 0;
+ * for (IntTable.Iterator itr = ids.listIterator(0); itr.hasNext();)
+ *     sum += itr.nextInt();
+ * ```
+ *
+ * Insertions/removals at any position move at most one block of elements plus one element per following block
+ * (1024 elements per block).
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ * @see LongTable
+ * @see DoubleTable
+ */
+public class IntTable extends PrimitiveTable<Integer> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** A list iterator over {@code int} values. */
+    public interface Iterator extends FastListIterator<Integer> {
+
+        /**
+         * Returns the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        int nextInt();
+
+        /**
+         * Returns the previous value (no boxing).
+         * @throws NoSuchElementException if the iteration has no previous element
+         */
+        int previousInt();
+
+    }
+
+    /** Creates an empty table. */
+    public IntTable() {
+        super(int.class);
+    }
+
+    @Override
+    public IntTable with(Integer... elements) {
+        addAll(elements);
+        return this;
+    }
+
+    /** Adds the specified values to this table (convenience method). */
+    public IntTable withInts(int... values) {
+        for (int value : values) addInt(value);
+        return this;
+    }
+
+    /** Returns the value at the specified index. */
+    @Realtime(limit = CONSTANT)
+    public final int getInt(int index) {
+        return ((int[]) blockOf(index))[positionOf(index)];
+    }
+
+    /** Replaces the value at the specified index and returns the previous value. */
+    @Realtime(limit = CONSTANT)
+    public final int setInt(int index, int value) {
+        int[] block = (int[]) blockOf(index);
+        int i = positionOf(index);
+        int previous = block[i];
+        block[i] = value;
+        return previous;
+    }
+
+    /** Appends the specified value to the end of this table. */
+    @Realtime(limit = CONSTANT)
+    public final void addInt(int value) {
+        addInt(size(), value);
+    }
+
+    /** Inserts the specified value at the specified index. */
+    @Realtime(limit = LINEAR, comment = "Rotates the blocks following the insertion point (one element per block).")
+    public final void addInt(int index, int value) {
+        ((int[]) insert(index))[positionOf(index)] = value;
+    }
+
+    /** Removes the value at the specified index and returns it. */
+    @Realtime(limit = LINEAR, comment = "Rotates the blocks following the removal point (one element per block).")
+    public final int removeInt(int index) {
+        int removed = getInt(index);
+        delete(index);
+        return removed;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final boolean add(Integer element) {
+        addInt(element);
+        return true;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public final void add(int index, Integer element) {
+        addInt(index, element);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public IntTable clone() {
+        return (IntTable) super.clone();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Iterator listIterator(int index) {
+        return new IteratorImpl(this, index);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public final Integer remove(int index) {
+        return removeInt(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Integer set(int index, Integer element) {
+        return setInt(index, element);
+    }
+
+    /** List Iterator Implementation. */
+    private static final class IteratorImpl extends PrimitiveTable.IteratorImpl<Integer> implements Iterator {
+
+        public IteratorImpl(IntTable table, int nextIndex) {
+            super(table, nextIndex);
+        }
+
+        @Override
+        public Integer next() {
+            return nextInt();
+        }
+
+        @Override
+        public int nextInt() {
+            if (nextIndex >= table.size()) throw new NoSuchElementException();
+            return ((IntTable) table).getInt(nextIndex++);
+        }
+
+        @Override
+        public Integer previous() {
+            return previousInt();
+        }
+
+        @Override
+        public int previousInt() {
+            if (nextIndex <= 0) throw new NoSuchElementException();
+            return ((IntTable) table).getInt(--nextIndex);
+        }
+
+    }
+
+}
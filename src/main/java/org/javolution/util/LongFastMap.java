@@ -0,0 +1,164 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Order;
+
+/**
+ * A map from {@code long} keys to objects, the keys are used directly as {@link FractalArray} indices
+ * (no key boxing, no entry per mapping).
+ *
+ * The primitive methods ({@link #get(long) get}, {@link #put(long, Object) put}, {@link #remove(long) remove},
+ * {@link #containsKey(long) containsKey}, {@link Iterator#nextKey nextKey}) do not allocate. The standard
+ * {@link java.util.Map Map} methods are supported through boxing; the entries iterated are snapshots (the
+ * map should be updated through its methods). Mappings are iterated in ascending (signed) order of their keys.
+ *
+ * ```java
+ * LongFastMap<Order> orders = new LongFastMap<Order>();
+ * orders.put(order.id(), order);
+ * ...
+ * for (LongFastMap.Iterator<Order> itr = orders.iterator(); itr.hasNext();) {
+ *     long id = itr.nextKey();
+ *     Order order = itr.next();
+ * }
+ * ```
+ *
+ * Dense keys (e.g. sequence numbers) are stored in contiguous arrays without their indices.
+ *
+ * @param <V> the type of values
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle </a>
+ * @version 7.0, September 13, 2016
+ * @see IntFastMap
+ * @see LongLongFastMap
+ */
+@Realtime
+public class LongFastMap<V> extends PrimitiveKeyMap<Long, V> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** An iterator over the map values giving access to their keys without boxing. */
+    public interface Iterator<V> extends FastIterator<V> {
+
+        /**
+         * Returns the key of the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        long nextKey();
+
+    }
+
+    /** The order of the keys (signed numeric order). */
+    public static final Order<Long> KEY_ORDER = new Order<Long>() {
+        private static final long serialVersionUID = LongFastMap.serialVersionUID;
+
+        @Override
+        public boolean areEqual(Long left, Long right) {
+            return (left == right) || ((left != null) && left.equals(right));
+        }
+
+        @Override
+        public int compare(Long left, Long right) {
+            return Long.compare(left, right);
+        }
+
+        @Override
+        public long indexOf(Long key) {
+            return key.longValue() ^ Long.MIN_VALUE;
+        }
+    };
+
+    /** Creates an empty map. */
+    public LongFastMap() {
+        super(Long.class);
+    }
+
+    @Override
+    public LongFastMap<V> with(Long key, V value) {
+        put(key, value);
+        return this;
+    }
+
+    /** Returns the value for the specified key or {@code null} if none (or if the value is {@code null}). */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V get(long key) {
+        return getValue(key);
+    }
+
+    /** Indicates if this map holds a mapping for the specified key. */
+    @Realtime(limit = CONSTANT)
+    public final boolean containsKey(long key) {
+        return hasKey(key);
+    }
+
+    /** Associates the specified value to the specified key and returns the previous value (if any). */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V put(long key, @Nullable V value) {
+        return putValue(key, value);
+    }
+
+    /** Removes the mapping for the specified key and returns its value (if any). */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V remove(long key) {
+        return removeValue(key);
+    }
+
+    /** Returns an iterator over the values in ascending order of their keys. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator<V> iterator() {
+        return new IteratorImpl<V>(this, valuesFrom(Long.MIN_VALUE));
+    }
+
+    /** Returns an iterator over the values whose keys are greater or equal to the specified key. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator<V> iterator(long fromKey) {
+        return new IteratorImpl<V>(this, valuesFrom(fromKey));
+    }
+
+    /** Returns an iterator over the values in descending order of their keys. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator<V> descendingIterator() {
+        return new IteratorImpl<V>(this, valuesDownFrom(Long.MAX_VALUE));
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
+    public LongFastMap<V> clone() {
+        return (LongFastMap<V>) super.clone();
+    }
+
+    @Override
+    public final Order<? super Long> keyOrder() {
+        return KEY_ORDER;
+    }
+
+    @Override
+    final Long boxed(long key) {
+        return key;
+    }
+
+    /** Values iterator implementation. */
+    private static final class IteratorImpl<V> extends PrimitiveKeyMap.IteratorImpl<V> implements Iterator<V> {
+
+        private IteratorImpl(PrimitiveKeyMap<?, V> map, FractalArray.Iterator<Object> itr) {
+            super(map, itr);
+        }
+
+        @Override
+        public long nextKey() {
+            return nextLongKey();
+        }
+    }
+}
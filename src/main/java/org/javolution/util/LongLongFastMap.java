@@ -0,0 +1,241 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.lang.MathLib.unsignedLessThan;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Order;
+import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.LongHashArrayImpl;
+import org.javolution.util.internal.function.HashOrderImpl;
+
+/**
+ * A map from {@code long} keys to {@code long} values stored without boxing in two dense arrays
+ * (16 bytes per mapping at full load).
+ *
+ * The primitive methods ({@link #getLong getLong}, {@link #putLong putLong}, {@link #removeLong removeLong},
+ * {@link #increment increment}, {@link #containsKey(long) containsKey}, {@link Iterator#nextKey nextKey},
+ * {@link Iterator#nextLong nextLong}) do not allocate. The standard {@link java.util.Map Map} methods are
+ * supported through boxing; the entries iterated are snapshots (the map should be updated through its methods).
+ *
+ * ```java
+ * LongLongFastMap positions = new LongLongFastMap();
+ * positions.increment(instrumentId, quantity);
+ * ...
+ * for (LongLongFastMap.Iterator itr = positions.iterator(); itr.hasNext();) {
+ *     long instrumentId = itr.nextKey();
+ *     long position = itr.nextLong();
+ * }
+ * ```
+ *
+ * Keys are scrambled (bijective hash) and held using open addressing (linear probing, see
+ * {@link LongHashArrayImpl}) with the slots kept sorted by scrambled key; mappings are iterated in the
+ * {@link #KEY_ORDER key order} (scrambled keys order). A {@code null} value removes the mapping.
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle </a>
+ * @version 7.0, September 13, 2016
+ * @see LongFastMap
+ */
+@Realtime
+public class LongLongFastMap extends PrimitiveKeyMap<Long, Long> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** An iterator over the map values giving access to their keys without boxing. */
+    public interface Iterator extends FastIterator<Long> {
+
+        /**
+         * Returns the key of the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        long nextKey();
+
+        /**
+         * Returns the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        long nextLong();
+
+    }
+
+    /** The order of the keys (unsigned order of the scrambled keys). */
+    public static final Order<Long> KEY_ORDER = new Order<Long>() {
+        private static final long serialVersionUID = LongLongFastMap.serialVersionUID;
+
+        @Override
+        public boolean areEqual(Long left, Long right) {
+            return (left == right) || ((left != null) && left.equals(right));
+        }
+
+        @Override
+        public int compare(Long left, Long right) {
+            long leftIndex = indexOf(left);
+            long rightIndex = indexOf(right);
+            if (leftIndex == rightIndex) return 0;
+            return unsignedLessThan(leftIndex, rightIndex) ? -1 : 1;
+        }
+
+        @Override
+        public long indexOf(Long key) {
+            return HashOrderImpl.scramble(key);
+        }
+    };
+
+    /** Creates an empty map. */
+    public LongLongFastMap() {
+        super(Long.class);
+    }
+
+    @Override
+    public LongLongFastMap with(Long key, Long value) {
+        put(key, value);
+        return this;
+    }
+
+    /** Indicates if this map holds a mapping for the specified key. */
+    @Realtime(limit = CONSTANT)
+    public final boolean containsKey(long key) {
+        return array().contains(HashOrderImpl.scramble(key));
+    }
+
+    /** Returns the value for the specified key or the specified default value if none. */
+    @Realtime(limit = CONSTANT)
+    public final long getLong(long key, long defaultValue) {
+        return array().getLong(HashOrderImpl.scramble(key), defaultValue);
+    }
+
+    /**
+     * Associates the specified value to the specified key.
+     *
+     * @return {@code true} if a new mapping has been created; {@code false} if the previous value has been replaced.
+     */
+    @Realtime(limit = CONSTANT)
+    public final boolean putLong(long key, long value) {
+        if (!array().setLong(HashOrderImpl.scramble(key), value)) return false;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds the specified amount to the value of the specified key (zero if none) and returns the new value.
+     */
+    @Realtime(limit = CONSTANT)
+    public final long increment(long key, long delta) {
+        long index = HashOrderImpl.scramble(key);
+        if (!array().contains(index)) size++;
+        return array().add(index, delta);
+    }
+
+    /** Removes the mapping for the specified key, returns {@code true} if the mapping existed. */
+    @Realtime(limit = CONSTANT)
+    public final boolean removeLong(long key) {
+        if (!array().removeLong(HashOrderImpl.scramble(key))) return false;
+        size--;
+        return true;
+    }
+
+    /** Returns an iterator over the values in the key order. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator iterator() {
+        return new IteratorImpl(array().iterator(0));
+    }
+
+    /** Returns an iterator over the values in reverse key order. */
+    @Realtime(limit = CONSTANT)
+    public final Iterator descendingIterator() {
+        return new IteratorImpl(array().descendingIterator(-1));
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
+    public LongLongFastMap clone() {
+        return (LongLongFastMap) super.clone();
+    }
+
+    @Override
+    public final Order<? super Long> keyOrder() {
+        return KEY_ORDER;
+    }
+
+    @Override
+    final Long boxed(long key) {
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    final FractalArray<Object> newValues() {
+        return (FractalArray<Object>) (FractalArray<?>) new LongHashArrayImpl();
+    }
+
+    @Override
+    final long indexOf(long key) {
+        return HashOrderImpl.scramble(key);
+    }
+
+    @Override
+    final long keyOf(long index) {
+        return HashOrderImpl.unscramble(index);
+    }
+
+    /** Removes the mapping if the specified value is {@code null} (no {@code null} value). */
+    @Override
+    final @Nullable Long putValue(long key, @Nullable Long value) {
+        return (value != null) ? super.putValue(key, value) : removeValue(key);
+    }
+
+    private LongHashArrayImpl array() {
+        return (LongHashArrayImpl) (FractalArray<?>) values;
+    }
+
+    /** Values iterator implementation. */
+    private static final class IteratorImpl implements Iterator {
+        private final LongHashArrayImpl.Cursor cursor;
+
+        private IteratorImpl(LongHashArrayImpl.Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public boolean hasNext(Predicate<? super Long> matching) {
+            return cursor.hasNext(matching);
+        }
+
+        @Override
+        public long nextKey() {
+            if (!cursor.hasNext()) throw new NoSuchElementException();
+            return HashOrderImpl.unscramble(cursor.nextIndex());
+        }
+
+        @Override
+        public long nextLong() {
+            return cursor.nextLong();
+        }
+
+        @Override
+        public Long next() {
+            return cursor.nextLong();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Realtime;
+
+/**
+ * A table of {@code long} values stored without boxing.
+ *
+ * Elements are held in dense {@code long[]} blocks; the primitive methods ({@link #getLong getLong},
+ * {@link #setLong setLong}, {@link #addLong(long) addLong}, {@link #removeLong removeLong}, {@link Iterator#nextLong nextLong})
+ * do not allocate. The standard {@link java.util.List List} methods are supported through boxing and all the
+ * fast collection views are inherited.
+ *
+ * ```java
+ * LongTable ids = new LongTable();
+ * ids.addLong(42L);
+ * ids.addLong(0, 7L); // Insertion (the blocks are rotated, no full array copy).
+ * long sum = 0;
+ * for (LongTable.Iterator itr = ids.listIterator(0); itr.hasNext();)
+ *     sum += itr.nextLong();
+ * ```
+ *
+ * Insertions/removals at any position move at most one block of elements plus one element per following block
+ * (1024 elements per block).
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ * @see IntTable
+ * @see DoubleTable
+ */
+public class LongTable extends PrimitiveTable<Long> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** A list iterator over {@code long} values. */
+    public interface Iterator extends FastListIterator<Long> {
+
+        /**
+         * Returns the next value (no boxing).
+         * @throws NoSuchElementException if the iteration has no next element
+         */
+        long nextLong();
+
+        /**
+         * Returns the previous value (no boxing).
+         * @throws NoSuchElementException if the iteration has no previous element
+         */
+        long previousLong();
+
+    }
+
+    /** Creates an empty table. */
+    public LongTable() {
+        super(long.class);
+    }
+
+    @Override
+    public LongTable with(Long... elements) {
+        addAll(elements);
+        return this;
+    }
+
+    /** Adds the specified values to this table (convenience method). */
+    public LongTable withLongs(long... values) {
+        for (long value : values) addLong(value);
+        return this;
+    }
+
+    /** Returns the value at the specified index. */
+    @Realtime(limit = CONSTANT)
+    public final long getLong(int index) {
+        return ((long[]) blockOf(index))[positionOf(index)];
+    }
+
+    /** Replaces the value at the specified index and returns the previous value. */
+    @Realtime(limit = CONSTANT)
+    public final long setLong(int index, long value) {
+        long[] block = (long[]) blockOf(index);
+        int i = positionOf(index);
+        long previous = block[i];
+        block[i] = value;
+        return previous;
+    }
+
+    /** Appends the specified value to the end of this table. */
+    @Realtime(limit = CONSTANT)
+    public final void addLong(long value) {
+        addLong(size(), value);
+    }
+
+    /** Inserts the specified value at the specified index. */
+    @Realtime(limit = LINEAR, comment = "Rotates the blocks following the insertion point (one element per block).")
+    public final void addLong(int index, long value) {
+        ((long[]) insert(index))[positionOf(index)] = value;
+    }
+
+    /** Removes the value at the specified index and returns it. */
+    @Realtime(limit = LINEAR, comment = "Rotates the blocks following the removal point (one element per block).")
+    public final long removeLong(int index) {
+        long removed = getLong(index);
+        delete(index);
+        return removed;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final boolean add(Long element) {
+        addLong(element);
+        return true;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public final void add(int index, Long element) {
+        addLong(index, element);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public LongTable clone() {
+        return (LongTable) super.clone();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Iterator listIterator(int index) {
+        return new IteratorImpl(this, index);
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public final Long remove(int index) {
+        return removeLong(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Long set(int index, Long element) {
+        return setLong(index, element);
+    }
+
+    /** List Iterator Implementation. */
+    private static final class IteratorImpl extends PrimitiveTable.IteratorImpl<Long> implements Iterator {
+
+        public IteratorImpl(LongTable table, int nextIndex) {
+            super(table, nextIndex);
+        }
+
+        @Override
+        public Long next() {
+            return nextLong();
+        }
+
+        @Override
+        public long nextLong() {
+            if (nextIndex >= table.size()) throw new NoSuchElementException();
+            return ((LongTable) table).getLong(nextIndex++);
+        }
+
+        @Override
+        public Long previous() {
+            return previousLong();
+        }
+
+        @Override
+        public long previousLong() {
+            if (nextIndex <= 0) throw new NoSuchElementException();
+            return ((LongTable) table).getLong(--nextIndex);
+        }
+
+    }
+
+}
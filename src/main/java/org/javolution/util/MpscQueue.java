@@ -0,0 +1,143 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+
+/**
+ * An unbounded lock-free queue supporting multiple producers and a single consumer.
+ *
+ * Producers append a node with a single atomic exchange (wait-free); the consumer thread is the only one
+ * allowed to {@link #poll}, {@link #peek}, {@link #clear} or {@link #removeIf remove} elements, it never
+ * contends with producers.
+ *
+ * ```java
+ * MpscQueue<Event> events = new MpscQueue<>();
+ * events.offer(event); // From any thread.
+ * for (Event e = events.poll(); e != null; e = events.poll()) ... // From the consumer thread only.
+ * ```
+ *
+ * @param <E> the type of queue elements ({@code null} instances are not supported)
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ */
+@Realtime
+public class MpscQueue<E> extends AbstractQueue<E> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    private transient AtomicReference<Node<E>> tail; // Last node appended (producers).
+    private transient volatile Node<E> head; // Stub node whose successor is the head element (consumer).
+
+    /** Creates an empty queue. */
+    public MpscQueue() {
+        Node<E> stub = new Node<E>(null);
+        tail = new AtomicReference<Node<E>>(stub);
+        head = stub;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        Node<E> node = new Node<E>(element);
+        Node<E> previous = tail.getAndSet(node);
+        previous.next = node; // Consumer may briefly see the queue empty until then.
+        return true;
+    }
+
+    /** Retrieves and removes the head of this queue (consumer thread only). */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public @Nullable E poll() {
+        Node<E> next = head.next;
+        if (next == null) return null;
+        E element = next.value;
+        next.value = null; // Becomes the new stub.
+        head = next;
+        return element;
+    }
+
+    /** Retrieves but does not remove the head of this queue (consumer thread only). */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public @Nullable E peek() {
+        Node<E> next = head.next;
+        return (next != null) ? next.value : null;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public int size() {
+        int count = 0;
+        for (Node<E> node = head.next; node != null; node = node.next)
+            count++;
+        return count;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    protected FastTable<E> elements() {
+        FastTable<E> table = new FastTable<E>();
+        for (Node<E> node = head.next; node != null; node = node.next) {
+            E element = node.value;
+            if (element != null) table.addLast(element);
+        }
+        return table;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public MpscQueue<E> clone() {
+        MpscQueue<E> copy = new MpscQueue<E>();
+        for (E element : elements())
+            copy.offer(element);
+        return copy;
+    }
+
+    /** Linked node. */
+    private static final class Node<E> {
+        @Nullable
+        E value;
+        volatile Node<E> next;
+
+        Node(@Nullable E value) {
+            this.value = value;
+        }
+    }
+
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        FastTable<E> elements = elements();
+        s.writeInt(elements.size());
+        for (E element : elements)
+            s.writeObject(element);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        Node<E> stub = new Node<E>(null);
+        tail = new AtomicReference<Node<E>>(stub);
+        head = stub;
+        for (int i = s.readInt(); i > 0; i--)
+            offer((E) s.readObject());
+    }
+
+}
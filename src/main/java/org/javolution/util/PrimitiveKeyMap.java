@@ -0,0 +1,398 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+import static org.javolution.lang.MathLib.unsignedLessThan;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Order;
+import org.javolution.util.function.Predicate;
+
+/**
+ * The common part of the maps with primitive keys ({@link LongFastMap}, {@link IntFastMap},
+ * {@link LongLongFastMap}); the keys (widened to {@code long}) are mapped to {@link FractalArray} indices
+ * (by default their signed order), the sub-classes only provide the typed accessors and the boxing of their keys.
+ */
+abstract class PrimitiveKeyMap<K extends Number, V> extends AbstractMap<K, V> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    private final Class<K> keyType;
+    FractalArray<Object> values; // Null values are replaced by NULL.
+    int size;
+
+    /** Creates an empty map whose boxed keys are of the specified type. */
+    PrimitiveKeyMap(Class<K> keyType) {
+        this.keyType = keyType;
+        values = newValues();
+    }
+
+    /** Returns the boxed instance of the specified key. */
+    abstract K boxed(long key);
+
+    /** Returns a new empty array to hold the values. */
+    FractalArray<Object> newValues() {
+        return FractalArray.empty();
+    }
+
+    /** Returns the index of the specified key (unsigned 64-bits), the keys are iterated in the index order. */
+    long indexOf(long key) {
+        return key ^ Long.MIN_VALUE;
+    }
+
+    /** Returns the key at the specified index (inverse of {@link #indexOf(long)}). */
+    long keyOf(long index) {
+        return index ^ Long.MIN_VALUE;
+    }
+
+    /** Returns the value for the specified key or {@code null} if none. */
+    final @Nullable V getValue(long key) {
+        return valueOf(values.get(indexOf(key)));
+    }
+
+    /** Indicates if this map holds a mapping for the specified key. */
+    final boolean hasKey(long key) {
+        return values.get(indexOf(key)) != null;
+    }
+
+    /** Associates the specified value to the specified key and returns the previous value (if any). */
+    @Nullable V putValue(long key, @Nullable V value) {
+        long index = indexOf(key);
+        Object previous = values.get(index);
+        if (previous == null) size++;
+        values = values.set(index, (value != null) ? value : NULL);
+        return valueOf(previous);
+    }
+
+    /** Removes the mapping for the specified key and returns its value (if any). */
+    final @Nullable V removeValue(long key) {
+        long index = indexOf(key);
+        Object previous = values.get(index);
+        if (previous == null) return null;
+        values = values.clear(index);
+        size--;
+        return valueOf(previous);
+    }
+
+    /** Returns an iterator over the values whose keys are greater or equal to the specified key. */
+    final FractalArray.Iterator<Object> valuesFrom(long fromKey) {
+        return values.iterator(indexOf(fromKey));
+    }
+
+    /** Returns a descending iterator over the values whose keys are less or equal to the specified key. */
+    final FractalArray.Iterator<Object> valuesDownFrom(long fromKey) {
+        return values.descendingIterator(indexOf(fromKey));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // AbstractMap (boxed keys).
+    //
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final AbstractSet<Entry<K, V>> entries() {
+        return new EntriesImpl();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final int size() {
+        return size;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public final void clear() {
+        values = newValues();
+        size = 0;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT, comment = "Copy-on-write")
+    public PrimitiveKeyMap<K, V> clone() {
+        @SuppressWarnings("unchecked")
+        PrimitiveKeyMap<K, V> copy = (PrimitiveKeyMap<K, V>) super.clone();
+        copy.values = values.clone();
+        return copy;
+    }
+
+    @Override
+    public final Equality<? super V> valuesEquality() {
+        return Equality.standard();
+    }
+
+    /** Throws {@code UnsupportedOperationException} (a single value per key). */
+    @Override
+    public AbstractMap<K, V> multi() {
+        throw new UnsupportedOperationException("Primitive maps hold a single value per key");
+    }
+
+    @Override
+    public final boolean containsKey(Object key) {
+        return keyType.isInstance(key) && hasKey(((Number) key).longValue());
+    }
+
+    @Override
+    public final @Nullable V get(Object key) {
+        return keyType.isInstance(key) ? getValue(((Number) key).longValue()) : null;
+    }
+
+    @Override
+    public final @Nullable V put(K key, @Nullable V value) {
+        return putValue(key.longValue(), value);
+    }
+
+    @Override
+    public final @Nullable V remove(Object key) {
+        return keyType.isInstance(key) ? removeValue(((Number) key).longValue()) : null;
+    }
+
+    @Override
+    public final @Nullable Entry<K, V> getEntry(K key) {
+        Object value = values.get(indexOf(key.longValue()));
+        return (value != null) ? new Entry<K, V>(key, PrimitiveKeyMap.<V>valueOf(value)) : null;
+    }
+
+    /** Equivalent to {@link #put(Number, Object) put} (a single value per key). */
+    @Override
+    public final Entry<K, V> addEntry(K key, V value) {
+        putValue(key.longValue(), value);
+        return new Entry<K, V>(key, value);
+    }
+
+    @Override
+    public final @Nullable Entry<K, V> removeEntry(K key) {
+        Object value = values.get(indexOf(key.longValue()));
+        if (value == null) return null;
+        removeValue(key.longValue());
+        return new Entry<K, V>(key, PrimitiveKeyMap.<V>valueOf(value));
+    }
+
+    /** Puts the new value for the entry key (entries are snapshots). */
+    @Override
+    protected V updateValue(Entry<K, V> entry, V newValue) {
+        return putValue(entry.getKey().longValue(), newValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> V valueOf(Object value) {
+        return (value != NULL) ? (V) value : null;
+    }
+
+    /** The value held in place of {@code null} (fractal arrays do not hold null elements). */
+    private static final Object NULL = new Null();
+
+    private static final class Null implements Serializable {
+        private static final long serialVersionUID = PrimitiveKeyMap.serialVersionUID;
+
+        private Object readResolve() throws ObjectStreamException {
+            return NULL;
+        }
+    }
+
+    /** Values iterator (the sub-classes add the primitive key accessor). */
+    abstract static class IteratorImpl<V> implements FastIterator<V> {
+        private final PrimitiveKeyMap<?, V> map;
+        private final FractalArray.Iterator<Object> itr;
+
+        IteratorImpl(PrimitiveKeyMap<?, V> map, FractalArray.Iterator<Object> itr) {
+            this.map = map;
+            this.itr = itr;
+        }
+
+        /** Returns the key of the next value (widened to {@code long}). */
+        final long nextLongKey() {
+            if (!itr.hasNext()) throw new NoSuchElementException();
+            return map.keyOf(itr.nextIndex());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return itr.hasNext();
+        }
+
+        @Override
+        public boolean hasNext(final Predicate<? super V> matching) {
+            return itr.hasNext(new Predicate<Object>() {
+                @Override
+                public boolean test(Object value) {
+                    return matching.test(PrimitiveKeyMap.<V>valueOf(value));
+                }
+            });
+        }
+
+        @Override
+        public V next() {
+            return valueOf(itr.next());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /** The entries view (boxed keys). */
+    private final class EntriesImpl extends AbstractSet<Entry<K, V>> {
+        private static final long serialVersionUID = PrimitiveKeyMap.serialVersionUID;
+
+        @Override
+        public boolean add(Entry<K, V> entry, boolean allowDuplicate) {
+            Object value = values.get(indexOf(entry.getKey().longValue()));
+            if ((value != null) && Equality.standard().areEqual(valueOf(value), entry.getValue())) return false;
+            putValue(entry.getKey().longValue(), entry.getValue());
+            return true;
+        }
+
+        @Override
+        public Entry<K, V> getAny(Entry<K, V> entry) {
+            return getEntry(entry.getKey());
+        }
+
+        @Override
+        public Entry<K, V> removeAny(Entry<K, V> entry) {
+            return removeEntry(entry.getKey());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object obj) {
+            if (!(obj instanceof Entry)) return false;
+            Entry<K, V> entry = (Entry<K, V>) obj;
+            if (!keyType.isInstance(entry.getKey())) return false;
+            Object value = values.get(indexOf(entry.getKey().longValue()));
+            if ((value == null) || !Equality.standard().areEqual(valueOf(value), entry.getValue())) return false;
+            removeValue(entry.getKey().longValue());
+            return true;
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Entry<K, V>> filter) {
+            int initialSize = size;
+            for (FractalArray.Iterator<Object> itr = values.clone().iterator(); itr.hasNext();) { // Snapshot.
+                long index = itr.nextIndex();
+                if (!filter.test(new Entry<K, V>(boxed(keyOf(index)), PrimitiveKeyMap.<V>valueOf(itr.next()))))
+                    continue;
+                values = values.clear(index);
+                size--;
+            }
+            return initialSize != size;
+        }
+
+        @Override
+        public Order<? super Entry<K, V>> order() {
+            return new Order<Entry<K, V>>() {
+                private static final long serialVersionUID = PrimitiveKeyMap.serialVersionUID;
+
+                @Override
+                public boolean areEqual(Entry<K, V> left, Entry<K, V> right) {
+                    if (left == right) return true;
+                    if ((left == null) || (right == null)) return false;
+                    return left.equals(right);
+                }
+
+                @Override
+                public int compare(Entry<K, V> left, Entry<K, V> right) {
+                    if (left == null) return -1;
+                    if (right == null) return 1;
+                    long leftIndex = indexOf(left);
+                    long rightIndex = indexOf(right);
+                    if (leftIndex == rightIndex) return 0;
+                    return unsignedLessThan(leftIndex, rightIndex) ? -1 : 1;
+                }
+
+                @Override
+                public long indexOf(Entry<K, V> entry) {
+                    return (entry != null) ? PrimitiveKeyMap.this.indexOf(entry.getKey().longValue()) : 0;
+                }
+            };
+        }
+
+        @Override
+        public FastIterator<Entry<K, V>> iterator(@Nullable Entry<K, V> low) {
+            return new EntryIterator((low != null) ? valuesFrom(low.getKey().longValue()) : values.iterator(0));
+        }
+
+        @Override
+        public FastIterator<Entry<K, V>> descendingIterator(@Nullable Entry<K, V> high) {
+            return new EntryIterator(
+                    (high != null) ? valuesDownFrom(high.getKey().longValue()) : values.descendingIterator(-1));
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            PrimitiveKeyMap.this.clear();
+        }
+
+        @Override
+        @Realtime(limit = LINEAR)
+        public AbstractSet<Entry<K, V>> clone() {
+            return PrimitiveKeyMap.this.clone().entries();
+        }
+    }
+
+    /** Iterator over the map entries (created while iterating). */
+    private final class EntryIterator implements FastIterator<Entry<K, V>> {
+        private final FractalArray.Iterator<Object> itr;
+
+        private EntryIterator(FractalArray.Iterator<Object> itr) {
+            this.itr = itr;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return itr.hasNext();
+        }
+
+        @Override
+        public boolean hasNext(final Predicate<? super Entry<K, V>> matching) {
+            while (itr.hasNext()) {
+                if (matching.test(new Entry<K, V>(boxed(keyOf(itr.nextIndex())),
+                        PrimitiveKeyMap.<V>valueOf(values.get(itr.nextIndex()))))) return true;
+                itr.next();
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!itr.hasNext()) throw new NoSuchElementException();
+            K key = boxed(keyOf(itr.nextIndex()));
+            return new Entry<K, V>(key, PrimitiveKeyMap.<V>valueOf(itr.next()));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.PrimitiveArrayImpl;
+
+/**
+ * The common part of the primitive tables ({@link IntTable}, {@link LongTable}, {@link DoubleTable}); the blocks
+ * layout is managed here, the sub-classes only read/write the values of their primitive type.
+ */
+abstract class PrimitiveTable<E> extends AbstractTable<E> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+
+    /** The dense blocks holding the values (primitive arrays). */
+    PrimitiveArrayImpl array;
+
+    /** Creates an empty table holding values of the specified primitive type (e.g. {@code int.class}). */
+    PrimitiveTable(Class<?> componentType) {
+        array = new PrimitiveArrayImpl(componentType);
+    }
+
+    /** Returns the block holding the value at the specified index (to be read at {@link #positionOf}). */
+    final Object blockOf(int index) {
+        if (index < 0 || index >= array.size()) throw new IndexOutOfBoundsException();
+        return array.blockOf(index);
+    }
+
+    /** Returns the position of the value at the specified index within its block. */
+    final int positionOf(int index) {
+        return array.positionOf(index);
+    }
+
+    /** Inserts an uninitialized value at the specified index and returns its block (to be set by the caller). */
+    final Object insert(int index) {
+        if (index < 0 || index > array.size()) throw new IndexOutOfBoundsException();
+        array.insert(index);
+        return array.blockOf(index);
+    }
+
+    /** Removes the value at the specified index (read by the caller beforehand). */
+    final void delete(int index) {
+        array.remove(index);
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public void clear() {
+        array.clear();
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public PrimitiveTable<E> clone() {
+        PrimitiveTable<E> copy = (PrimitiveTable<E>) super.clone();
+        copy.array = array.clone();
+        return copy;
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Equality<? super E> equality() {
+        return Equality.standard();
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final int size() {
+        return array.size();
+    }
+
+    /** Index-based list iterator; the sub-classes add the primitive accessors. */
+    abstract static class IteratorImpl<E> implements FastListIterator<E> {
+        final PrimitiveTable<E> table;
+        int nextIndex;
+
+        IteratorImpl(PrimitiveTable<E> table, int nextIndex) {
+            if (nextIndex < 0 || nextIndex > table.size()) throw new IndexOutOfBoundsException();
+            this.table = table;
+            this.nextIndex = nextIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < table.size();
+        }
+
+        @Override
+        public boolean hasNext(Predicate<? super E> matching) {
+            for (int n = table.size(); nextIndex < n; nextIndex++)
+                if (matching.test(table.get(nextIndex))) return true;
+            return false;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(E arg0) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public boolean hasPrevious(Predicate<? super E> matching) {
+            for (; nextIndex > 0; nextIndex--)
+                if (matching.test(table.get(nextIndex - 1))) return true;
+            return false;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void set(E arg0) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
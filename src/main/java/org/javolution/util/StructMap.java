@@ -0,0 +1,366 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.io.Struct;
+import org.javolution.util.internal.MappedArrayImpl;
+import org.javolution.util.internal.OffHeapArrayImpl;
+
+/**
+ * A hash map of fixed-layout keys and values ({@link Struct}) stored outside of the heap.
+ *
+ * Keys are compared by content (bytes); entries and hash buckets are held in direct byte buffers and
+ * accessed through reusable key/value cursors (see {@link StructTable}). The bucket table grows by
+ * splitting buckets in place (no rehash into a new table).
+ *
+ * ```java
+ * class Isin extends Struct { final UTF8String code = new UTF8String(12); }
+ * class Price extends Struct { final Float64 bid = new Float64(); final Float64 ask = new Float64(); }
+ *
+ * StructMap.Mapped<Isin, Price> prices = StructMap.map(new File("prices"), new Isin(), new Price());
+ * Isin isin = new Isin();
+ * isin.code.set("US0378331005");
+ * prices.put(isin).bid.set(189.5); // Value cursor positioned on the (new) value.
+ * Price price = prices.get(isin); // null if not found.
+ * prices.close(); // Reopening is immediate (no deserialization).
+ * ```
+ *
+ * The cursors returned by {@link #get get}, {@link #put put} or the iterators are moved by any subsequent access.
+ * This class is not thread-safe.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ */
+public class StructMap<K extends Struct, V extends Struct> implements Iterable<K> {
+
+    private static final int INITIAL_BUCKETS = 16;
+    private static final int NEXT = 0; // Entry layout: next entry (int), used flag (int), key, value.
+    private static final int USED = 4;
+    private static final int KEY = 8;
+    private static final int COUNT_SLOT = 0; // Mapped user values.
+    private static final int FREE_SLOT = 1;
+
+    /** A map mapped to files (can only be created through the {@link StructMap#map map} method). */
+    public static final class Mapped<K extends Struct, V extends Struct> extends StructMap<K, V>
+            implements Closeable {
+        private final MappedArrayImpl mappedEntries;
+        private final MappedArrayImpl mappedBuckets;
+
+        private Mapped(K keyCursor, V valueCursor, MappedArrayImpl entries, MappedArrayImpl buckets) {
+            super(keyCursor, valueCursor, entries, buckets, (int) entries.getUserValue(COUNT_SLOT),
+                    (int) entries.getUserValue(FREE_SLOT));
+            this.mappedEntries = entries;
+            this.mappedBuckets = buckets;
+        }
+
+        /** Writes the entries to the storage device (checkpoint); the map can be reopened in that state. */
+        @Realtime(limit = LINEAR)
+        public void force() {
+            mappedEntries.setUserValue(COUNT_SLOT, size());
+            mappedEntries.setUserValue(FREE_SLOT, free());
+            mappedBuckets.force();
+            mappedEntries.force();
+        }
+
+        /** Forces and closes this map (the map should not be used afterward). */
+        @Override
+        public void close() throws IOException {
+            force();
+            mappedBuckets.close();
+            mappedEntries.close();
+        }
+    }
+
+    private final K keyCursor;
+    private final V valueCursor;
+    private final int keySize;
+    private final OffHeapArrayImpl entries;
+    private final OffHeapArrayImpl buckets; // Index of the first entry plus one (zero if none).
+    private int count;
+    private int free; // Head of the list of removed entries plus one (zero if none).
+
+    /**
+     * Creates an empty off-heap map whose keys and values have the same layout as the specified structs.
+     *
+     * @param keyCursor the struct instance used to access the keys.
+     * @param valueCursor the struct instance used to access the values.
+     */
+    public StructMap(K keyCursor, V valueCursor) {
+        this(keyCursor, valueCursor,
+                new OffHeapArrayImpl(KEY + keyCursor.size() + valueCursor.size(), valueCursor.getByteBuffer().order()),
+                new OffHeapArrayImpl(4, valueCursor.getByteBuffer().order()), 0, 0);
+    }
+
+    /**
+     * Opens (or creates) a map held in the specified file (entries) and in a second file with
+     * the {@code ".index"} suffix (hash buckets).
+     *
+     * @throws IOException if the files cannot be mapped or hold entries of a different size.
+     */
+    public static <K extends Struct, V extends Struct> Mapped<K, V> map(File file, K keyCursor, V valueCursor)
+            throws IOException {
+        MappedArrayImpl entries = new MappedArrayImpl(file, KEY + keyCursor.size() + valueCursor.size(),
+                valueCursor.getByteBuffer().order());
+        try {
+            MappedArrayImpl buckets = new MappedArrayImpl(new File(file.getPath() + ".index"), 4,
+                    valueCursor.getByteBuffer().order());
+            return new Mapped<K, V>(keyCursor, valueCursor, entries, buckets);
+        } catch (IOException e) {
+            entries.close();
+            throw e;
+        }
+    }
+
+    private StructMap(K keyCursor, V valueCursor, OffHeapArrayImpl entries, OffHeapArrayImpl buckets,
+            int count, int free) {
+        if ((keyCursor.outer() != null) || (valueCursor.outer() != null))
+            throw new UnsupportedOperationException("Inner struct");
+        this.keyCursor = keyCursor;
+        this.valueCursor = valueCursor;
+        this.keySize = keyCursor.size();
+        this.entries = entries;
+        this.buckets = buckets;
+        this.count = count;
+        this.free = free;
+        if (buckets.size() == 0) for (int i = 0; i < INITIAL_BUCKETS; i++) buckets.append();
+    }
+
+    /** Returns the number of entries. */
+    @Realtime(limit = CONSTANT)
+    public final int size() {
+        return count;
+    }
+
+    /** Indicates if this map is empty. */
+    @Realtime(limit = CONSTANT)
+    public final boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Indicates if this map holds the specified key (same layout). */
+    @Realtime(limit = CONSTANT)
+    public final boolean containsKey(Struct key) {
+        return find(key) >= 0;
+    }
+
+    /** Returns the value cursor positioned on the value for the specified key or {@code null} if none. */
+    @Realtime(limit = CONSTANT)
+    public final @Nullable V get(Struct key) {
+        int entry = find(key);
+        return (entry >= 0) ? moveTo(entry) : null;
+    }
+
+    /**
+     * Returns the value cursor positioned on the value for the specified key; a new entry (value bytes cleared)
+     * is added if the key is not already present.
+     */
+    @Realtime(limit = CONSTANT, comment = "Bucket splits on growth are amortized")
+    public final V put(Struct key) {
+        int entry = find(key);
+        if (entry >= 0) return moveTo(entry);
+        if (free != 0) {
+            entry = free - 1;
+            free = getInt(entries, entry, NEXT);
+            entries.fill(entry, (byte) 0);
+        } else {
+            entry = entries.append();
+        }
+        ByteBuffer keyBuffer = key.getByteBuffer();
+        int keyPos = key.getByteBufferPosition();
+        ByteBuffer buffer = entries.chunkOf(entry);
+        int pos = entries.positionOf(entry) + KEY;
+        for (int i = 0; i < keySize; i++) buffer.put(pos + i, keyBuffer.get(keyPos + i));
+        buffer.putInt(pos - KEY + USED, 1);
+        int bucket = hash(keyBuffer, keyPos) & (buckets.size() - 1);
+        buffer.putInt(pos - KEY + NEXT, getInt(buckets, bucket, 0));
+        setInt(buckets, bucket, 0, entry + 1);
+        if (++count > buckets.size() - (buckets.size() >> 2)) grow(); // Load factor 0.75
+        return moveTo(entry);
+    }
+
+    /** Removes the entry for the specified key; returns {@code true} if there was such an entry. */
+    @Realtime(limit = CONSTANT)
+    public final boolean remove(Struct key) {
+        checkLayout(key);
+        ByteBuffer keyBuffer = key.getByteBuffer();
+        int keyPos = key.getByteBufferPosition();
+        int bucket = hash(keyBuffer, keyPos) & (buckets.size() - 1);
+        int previous = -1;
+        for (int link = getInt(buckets, bucket, 0); link != 0;) {
+            int entry = link - 1;
+            link = getInt(entries, entry, NEXT);
+            if (!keyEquals(entry, keyBuffer, keyPos)) {
+                previous = entry;
+                continue;
+            }
+            if (previous < 0) setInt(buckets, bucket, 0, link);
+            else setInt(entries, previous, NEXT, link);
+            setInt(entries, entry, USED, 0);
+            setInt(entries, entry, NEXT, free);
+            free = entry + 1;
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    /** Removes all the entries. */
+    @Realtime(limit = LINEAR)
+    public void clear() {
+        entries.clear();
+        buckets.clear();
+        for (int i = 0; i < INITIAL_BUCKETS; i++) buckets.append();
+        count = 0;
+        free = 0;
+    }
+
+    /**
+     * Returns an iterator over the keys; the same key cursor is returned for all the entries and the value cursor
+     * is positioned on the corresponding value.
+     */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Iterator<K> iterator() {
+        return new Iterator<K>() {
+            int nextEntry = nextUsed(0);
+
+            @Override
+            public boolean hasNext() {
+                return nextEntry < entries.size();
+            }
+
+            @Override
+            public K next() {
+                if (nextEntry >= entries.size()) throw new NoSuchElementException();
+                int entry = nextEntry;
+                nextEntry = nextUsed(entry + 1);
+                moveTo(entry);
+                return keyCursor;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "StructMap[" + keyCursor.getClass().getName() + " -> " + valueCursor.getClass().getName()
+                + ", size: " + count + "]";
+    }
+
+    /** Returns the head of the free list (for checkpoints). */
+    final int free() {
+        return free;
+    }
+
+    /** Returns the index of the entry for the specified key or {@code -1} if none. */
+    private int find(Struct key) {
+        checkLayout(key);
+        ByteBuffer keyBuffer = key.getByteBuffer();
+        int keyPos = key.getByteBufferPosition();
+        int bucket = hash(keyBuffer, keyPos) & (buckets.size() - 1);
+        for (int link = getInt(buckets, bucket, 0); link != 0; link = getInt(entries, link - 1, NEXT))
+            if (keyEquals(link - 1, keyBuffer, keyPos)) return link - 1;
+        return -1;
+    }
+
+    /** Doubles the number of buckets, each bucket is split in two (low and high). */
+    private void grow() {
+        int n = buckets.size();
+        for (int i = 0; i < n; i++) buckets.append();
+        for (int bucket = 0; bucket < n; bucket++) {
+            int low = 0, high = 0;
+            for (int link = getInt(buckets, bucket, 0); link != 0;) {
+                int entry = link - 1;
+                link = getInt(entries, entry, NEXT);
+                if ((hash(entries.chunkOf(entry), entries.positionOf(entry) + KEY) & n) == 0) {
+                    setInt(entries, entry, NEXT, low);
+                    low = entry + 1;
+                } else {
+                    setInt(entries, entry, NEXT, high);
+                    high = entry + 1;
+                }
+            }
+            setInt(buckets, bucket, 0, low);
+            setInt(buckets, bucket + n, 0, high);
+        }
+    }
+
+    private int nextUsed(int entry) {
+        while ((entry < entries.size()) && (getInt(entries, entry, USED) == 0)) entry++;
+        return entry;
+    }
+
+    private V moveTo(int entry) {
+        ByteBuffer buffer = entries.chunkOf(entry);
+        int pos = entries.positionOf(entry) + KEY;
+        keyCursor.setByteBuffer(buffer, pos);
+        valueCursor.setByteBuffer(buffer, pos + keySize);
+        return valueCursor;
+    }
+
+    private boolean keyEquals(int entry, ByteBuffer keyBuffer, int keyPos) {
+        ByteBuffer buffer = entries.chunkOf(entry);
+        int pos = entries.positionOf(entry) + KEY;
+        int i = 0;
+        for (; i + 8 <= keySize; i += 8)
+            if (bytesAt(buffer, pos + i) != bytesAt(keyBuffer, keyPos + i)) return false;
+        for (; i < keySize; i++)
+            if (buffer.get(pos + i) != keyBuffer.get(keyPos + i)) return false;
+        return true;
+    }
+
+    private int hash(ByteBuffer buffer, int pos) {
+        long h = keySize;
+        int i = 0;
+        for (; i + 8 <= keySize; i += 8) h = (h ^ bytesAt(buffer, pos + i)) * 0x9E3779B97F4A7C15L;
+        for (; i < keySize; i++) h = (h ^ buffer.get(pos + i)) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 31;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Returns the 8 bytes at the specified position (big-endian whatever the byte order of the buffer). */
+    private static long bytesAt(ByteBuffer buffer, int pos) {
+        long bytes = buffer.getLong(pos);
+        return (buffer.order() == ByteOrder.BIG_ENDIAN) ? bytes : Long.reverseBytes(bytes);
+    }
+
+    private void checkLayout(Struct key) {
+        if (key.size() != keySize)
+            throw new IllegalArgumentException("Key size " + key.size() + " different from " + keySize);
+    }
+
+    private static int getInt(OffHeapArrayImpl array, int index, int offset) {
+        return array.chunkOf(index).getInt(array.positionOf(index) + offset);
+    }
+
+    private static void setInt(OffHeapArrayImpl array, int index, int offset, int value) {
+        array.chunkOf(index).putInt(array.positionOf(index) + offset, value);
+    }
+
+}
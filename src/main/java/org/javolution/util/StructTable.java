@@ -0,0 +1,224 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Realtime;
+import org.javolution.io.Struct;
+import org.javolution.util.internal.MappedArrayImpl;
+import org.javolution.util.internal.OffHeapArrayImpl;
+
+/**
+ * A table of fixed-layout records ({@link Struct}) stored outside of the heap.
+ *
+ * Records are held in direct byte buffers (large contiguous chunks) and are never seen by the garbage
+ * collector; they are accessed through a single reusable {@link Struct} instance (the cursor) which is
+ * positioned on the record being read or written.
+ *
+ * ```java
+ * class Quote extends Struct {
+ *     final Signed64 time = new Signed64();
+ *     final Float64 price = new Float64();
+ * }
+ * StructTable<Quote> quotes = new StructTable<>(new Quote());
+ * Quote quote = quotes.addNew(); // Cursor positioned on the new record.
+ * quote.time.set(System.currentTimeMillis());
+ * quote.price.set(101.5);
+ * ...
+ * double sum = 0;
+ * for (Quote q : quotes) // Same cursor instance for all the records (no allocation).
+ *     sum += q.price.get();
+ * ```
+ *
+ * The cursor returned by {@link #get(int) get}, {@link #addNew addNew} or the iterators is moved by any
+ * subsequent access; records should be copied (e.g. {@link #set(int, Struct) set}) rather than referenced.
+ * This class is not thread-safe.
+ *
+ * Tables can be persisted by {@link #map mapping} them to a file; the records are then directly read/written
+ * from/to the file (memory-mapped) and reopening the table is immediate (no deserialization).
+ *
+ * ```java
+ * StructTable.Mapped<Quote> quotes = StructTable.map(new File("quotes.dat"), new Quote());
+ * quotes.addNew().price.set(101.5);
+ * quotes.force(); // Checkpoint.
+ * quotes.close();
+ * ```
+ *
+ * @param <S> the type of records
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ */
+public class StructTable<S extends Struct> implements Iterable<S> {
+
+    /** A table mapped to a file (can only be created through the {@link StructTable#map map} method). */
+    public static final class Mapped<S extends Struct> extends StructTable<S> implements Closeable {
+        private final MappedArrayImpl mapped;
+
+        private Mapped(S cursor, MappedArrayImpl mapped) {
+            super(cursor, mapped);
+            this.mapped = mapped;
+        }
+
+        /** Writes the records to the storage device (checkpoint); the table can be reopened in that state. */
+        @Realtime(limit = LINEAR)
+        public void force() {
+            mapped.force();
+        }
+
+        /** Forces and closes this table (the table should not be used afterward). */
+        @Override
+        public void close() throws IOException {
+            mapped.close();
+        }
+    }
+
+    private final S cursor;
+    private final OffHeapArrayImpl array;
+
+    /**
+     * Creates an empty off-heap table of records having the same layout as the specified struct.
+     *
+     * @param cursor the struct instance used to access the records (its byte buffer is changed by this table).
+     * @throws UnsupportedOperationException if the specified struct is an inner struct.
+     */
+    public StructTable(S cursor) {
+        this(cursor, new OffHeapArrayImpl(cursor.size(), cursor.getByteBuffer().order()));
+    }
+
+    /**
+     * Opens (or creates) a table of records mapped to the specified file.
+     *
+     * @param file the file holding the records.
+     * @param cursor the struct instance used to access the records.
+     * @throws IOException if the file cannot be mapped or holds records of a different size.
+     */
+    public static <S extends Struct> Mapped<S> map(File file, S cursor) throws IOException {
+        return new Mapped<S>(cursor, new MappedArrayImpl(file, cursor.size(), cursor.getByteBuffer().order()));
+    }
+
+    /** Base constructor (for tables with custom storage). */
+    private StructTable(S cursor, OffHeapArrayImpl array) {
+        if (cursor.outer() != null) throw new UnsupportedOperationException("Inner struct");
+        this.cursor = cursor;
+        this.array = array;
+    }
+
+    /** Returns the number of records. */
+    @Realtime(limit = CONSTANT)
+    public final int size() {
+        return array.size();
+    }
+
+    /** Indicates if this table is empty. */
+    @Realtime(limit = CONSTANT)
+    public final boolean isEmpty() {
+        return array.size() == 0;
+    }
+
+    /** Returns the cursor positioned on the record at the specified index. */
+    @Realtime(limit = CONSTANT)
+    public final S get(int index) {
+        if (index < 0 || index >= array.size()) throw new IndexOutOfBoundsException();
+        return moveTo(index);
+    }
+
+    /** Appends a new record (all bytes cleared) and returns the cursor positioned on that record. */
+    @Realtime(limit = CONSTANT)
+    public final S addNew() {
+        return moveTo(array.append());
+    }
+
+    /** Appends a copy of the specified record (same layout). */
+    @Realtime(limit = CONSTANT)
+    public final void add(Struct record) {
+        checkLayout(record);
+        array.copy(record.getByteBuffer(), record.getByteBufferPosition(), array.append());
+    }
+
+    /** Copies the specified record (same layout) into the record at the specified index. */
+    @Realtime(limit = CONSTANT)
+    public final void set(int index, Struct record) {
+        if (index < 0 || index >= array.size()) throw new IndexOutOfBoundsException();
+        checkLayout(record);
+        array.copy(record.getByteBuffer(), record.getByteBufferPosition(), index);
+    }
+
+    /** Removes the record at the specified index (the following records are moved). */
+    @Realtime(limit = LINEAR)
+    public final void remove(int index) {
+        int n = array.size();
+        if (index < 0 || index >= n) throw new IndexOutOfBoundsException();
+        for (int i = index + 1; i < n; i++) array.copy(i, i - 1);
+        array.removeLast();
+    }
+
+    /** Removes the last record. */
+    @Realtime(limit = CONSTANT)
+    public final void removeLast() {
+        if (array.size() == 0) throw new NoSuchElementException();
+        array.removeLast();
+    }
+
+    /** Removes all the records. */
+    @Realtime(limit = CONSTANT)
+    public void clear() {
+        array.clear();
+    }
+
+    /** Returns an iterator over the records; the same cursor instance is returned for all the records. */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public final Iterator<S> iterator() {
+        return new Iterator<S>() {
+            int nextIndex;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < array.size();
+            }
+
+            @Override
+            public S next() {
+                if (nextIndex >= array.size()) throw new NoSuchElementException();
+                return moveTo(nextIndex++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "StructTable[" + cursor.getClass().getName() + ", size: " + array.size() + "]";
+    }
+
+    private S moveTo(int index) {
+        cursor.setByteBuffer(array.chunkOf(index), array.positionOf(index));
+        return cursor;
+    }
+
+    private void checkLayout(Struct record) {
+        if (record.size() != array.recordSize())
+            throw new IllegalArgumentException("Record size " + record.size() + " different from "
+                    + array.recordSize());
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.javolution.annotations.Realtime.Limit.CONSTANT;
+import static org.javolution.annotations.Realtime.Limit.LINEAR;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.annotations.Realtime;
+import org.javolution.util.function.Predicate;
+
+/**
+ * A work-stealing deque: the owner thread {@link #push pushes} and {@link #pop pops} elements at the bottom
+ * (last-in-first-out) while any other thread may {@link #steal} elements at the top (first-in-first-out).
+ *
+ * The owner only synchronizes with thieves when a single element remains; thieves claim elements with a
+ * compare-and-swap. The backing array grows (doubles) as needed, it never shrinks.
+ *
+ * ```java
+ * WorkStealingDeque<Task> tasks = new WorkStealingDeque<>();
+ * tasks.push(task); // Owner thread.
+ * Task next = tasks.pop(); // Owner thread (most recent task).
+ * Task stolen = tasks.steal(); // Any thread (oldest task).
+ * ```
+ *
+ * The {@link java.util.Queue} operations are those of the owner: {@link #offer} pushes, {@link #poll} pops and
+ * {@link #peek} returns the last element pushed. Iterations are from the top (oldest) to the bottom (newest).
+ *
+ * @param <E> the type of deque elements ({@code null} instances are not supported)
+ *
+ * @author <a href="mailto:jean-marie@dautelle.com">Jean-Marie Dautelle</a>
+ * @version 7.0, September 13, 2016
+ */
+@Realtime
+public class WorkStealingDeque<E> extends AbstractQueue<E> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile AtomicReferenceArray<E> array = new AtomicReferenceArray<E>(INITIAL_CAPACITY);
+    private final AtomicLong top = new AtomicLong(); // Next position to steal.
+    private volatile long bottom; // Next position to push (owner).
+
+    /** Creates an empty deque. */
+    public WorkStealingDeque() {
+    }
+
+    /** Pushes the specified element at the bottom of this deque (owner thread only). */
+    @Realtime(limit = CONSTANT, comment = "Amortized (array doubled when full)")
+    public void push(E element) {
+        if (element == null) throw new NullPointerException();
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<E> a = array;
+        if (b - t >= a.length() - 1) a = grow(a, t, b);
+        a.lazySet((int) b & (a.length() - 1), element);
+        bottom = b + 1; // Publishes the element.
+    }
+
+    /** Removes and returns the element at the bottom of this deque or {@code null} if none (owner thread only). */
+    @Realtime(limit = CONSTANT)
+    public @Nullable E pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<E> a = array;
+        bottom = b; // Volatile write before reading top.
+        long t = top.get();
+        if (t > b) { // Empty.
+            bottom = b + 1;
+            return null;
+        }
+        int i = (int) b & (a.length() - 1);
+        E element = a.get(i);
+        if (t == b) { // Last element, races with thieves.
+            if (top.compareAndSet(t, t + 1)) a.lazySet(i, null);
+            else element = null;
+            bottom = b + 1;
+            return element;
+        }
+        a.lazySet(i, null);
+        return element;
+    }
+
+    /** Removes and returns the element at the top of this deque or {@code null} if none (any thread). */
+    @Realtime(limit = CONSTANT)
+    public @Nullable E steal() {
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b) return null;
+            AtomicReferenceArray<E> a = array;
+            E element = a.get((int) t & (a.length() - 1));
+            if ((element != null) && top.compareAndSet(t, t + 1)) return element;
+        }
+    }
+
+    /** Pushes the specified element (owner thread only); always returns {@code true}. */
+    @Override
+    @Realtime(limit = CONSTANT, comment = "Amortized (array doubled when full)")
+    public boolean offer(E element) {
+        push(element);
+        return true;
+    }
+
+    /** Equivalent to {@link #pop} (owner thread only). */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public @Nullable E poll() {
+        return pop();
+    }
+
+    /** Returns the element at the bottom of this deque without removing it (owner thread only). */
+    @Override
+    @Realtime(limit = CONSTANT)
+    public @Nullable E peek() {
+        long b = bottom - 1;
+        if (top.get() > b) return null;
+        AtomicReferenceArray<E> a = array;
+        return a.get((int) b & (a.length() - 1));
+    }
+
+    @Override
+    @Realtime(limit = CONSTANT)
+    public int size() {
+        long size = bottom - top.get();
+        return (size < 0) ? 0 : (int) size;
+    }
+
+    /** Removes the elements matching the specified filter (owner thread only); the order is preserved. */
+    @Override
+    @Realtime(limit = LINEAR)
+    public boolean removeIf(Predicate<? super E> filter) {
+        FastTable<E> popped = new FastTable<E>();
+        for (E element = pop(); element != null; element = pop())
+            popped.addLast(element);
+        boolean removed = false;
+        for (E element : popped.reversed()) {
+            if (filter.test(element)) removed = true;
+            else push(element);
+        }
+        return removed;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    protected FastTable<E> elements() {
+        FastTable<E> table = new FastTable<E>();
+        AtomicReferenceArray<E> a = array;
+        for (long pos = top.get(), end = bottom; pos < end; pos++) {
+            E element = a.get((int) pos & (a.length() - 1));
+            if (element != null) table.addLast(element);
+        }
+        return table;
+    }
+
+    @Override
+    @Realtime(limit = LINEAR)
+    public WorkStealingDeque<E> clone() {
+        WorkStealingDeque<E> copy = new WorkStealingDeque<E>();
+        for (E element : elements())
+            copy.push(element);
+        return copy;
+    }
+
+    /** Doubles the capacity (the old array is left intact for concurrent thieves). */
+    private AtomicReferenceArray<E> grow(AtomicReferenceArray<E> a, long t, long b) {
+        int length = a.length() << 1;
+        AtomicReferenceArray<E> larger = new AtomicReferenceArray<E>(length);
+        for (long pos = t; pos < b; pos++)
+            larger.lazySet((int) pos & (length - 1), a.get((int) pos & (a.length() - 1)));
+        array = larger;
+        return larger;
+    }
+
+}
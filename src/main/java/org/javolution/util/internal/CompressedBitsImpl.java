@@ -0,0 +1,907 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The compressed representation of a bit set (Roaring bitmap). Bits are grouped in chunks of 2^16 bits, only
+ * the non-empty chunks are held (sorted by their high 16 bits) and each chunk is held in the most compact of
+ * three containers: a sorted array of the low 16 bits (sparse chunks, at most 4096 bits set), a bitmap of
+ * 1024 words (dense chunks) or a sorted array of runs (clustered bits). The container of a chunk is chosen
+ * automatically as bits are set or cleared.
+ *
+ * Binary operations are performed chunk by chunk over the chunks present in both sets; intersecting an array
+ * container with any other container is proportional to the array cardinality.
+ */
+public final class CompressedBitsImpl implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private static final int ARRAY_MAX = 4096; // Maximum cardinality of array containers.
+    private static final int WORDS = 1024; // Number of words per chunk.
+    private static final int CHUNK_BITS = 1 << 16;
+    private static final int CLEAR = 0, SET = 1, FLIP = 2; // Range operations.
+
+    private char[] keys = new char[4]; // High 16 bits of the chunks (ascending order).
+    private Container[] containers = new Container[4];
+    private int size; // Number of chunks.
+
+    /** Returns the compressed representation of the specified words (64 bits per word). */
+    public static CompressedBitsImpl valueOf(long[] words) {
+        CompressedBitsImpl bits = new CompressedBitsImpl();
+        for (int key = 0; (key * WORDS) < words.length; key++) {
+            Container container = optimize(Arrays.copyOfRange(words, key * WORDS, (key + 1) * WORDS));
+            if (container != null) bits.insert(bits.size, key, container);
+        }
+        return bits;
+    }
+
+    @Override
+    public CompressedBitsImpl clone() {
+        try {
+            CompressedBitsImpl copy = (CompressedBitsImpl) super.clone();
+            copy.keys = keys.clone();
+            copy.containers = containers.clone();
+            for (int i = 0; i < size; i++)
+                copy.containers[i] = containers[i].clone();
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new Error("Cannot happen since cloneable.");
+        }
+    }
+
+    /** Returns the value of the specified bit. */
+    public boolean get(int index) {
+        int i = find(index >>> 16);
+        return (i >= 0) && containers[i].contains(index & 0xFFFF);
+    }
+
+    /** Sets the specified bit to the specified value and returns its previous value. */
+    public boolean set(int index, boolean value) {
+        int key = index >>> 16;
+        int low = index & 0xFFFF;
+        int i = find(key);
+        if (i < 0) {
+            if (value) insert(-i - 1, key, new ArrayContainer(new char[] { (char) low }, 1));
+            return false;
+        }
+        Container container = containers[i];
+        boolean previous = container.contains(low);
+        if (previous != value) update(i, value ? container.add(low) : container.remove(low));
+        return previous;
+    }
+
+    /** Clears the bits from the specified index (inclusive) to the specified index (exclusive). */
+    public void clear(int fromIndex, int toIndex) {
+        range(fromIndex, toIndex, CLEAR);
+    }
+
+    /** Sets the bits from the specified index (inclusive) to the specified index (exclusive). */
+    public void set(int fromIndex, int toIndex) {
+        range(fromIndex, toIndex, SET);
+    }
+
+    /** Flips the bits from the specified index (inclusive) to the specified index (exclusive). */
+    public void flip(int fromIndex, int toIndex) {
+        range(fromIndex, toIndex, FLIP);
+    }
+
+    /** Returns a copy holding only the bits from the specified index (inclusive) to the specified index (exclusive). */
+    public CompressedBitsImpl get(int fromIndex, int toIndex) {
+        CompressedBitsImpl copy = clone();
+        copy.range(0, fromIndex, CLEAR);
+        copy.range(toIndex, 1L << 31, CLEAR);
+        return copy;
+    }
+
+    /** Intersection (the result is stored in this instance). */
+    public void and(CompressedBitsImpl that) {
+        int n = 0;
+        for (int i = 0, j = 0; (i < size) && (j < that.size);) {
+            int cmp = keys[i] - that.keys[j];
+            if (cmp < 0) i++;
+            else if (cmp > 0) j++;
+            else {
+                Container container = and(containers[i], that.containers[j]);
+                if (container != null) {
+                    keys[n] = keys[i];
+                    containers[n++] = container;
+                }
+                i++;
+                j++;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /** Difference (the result is stored in this instance). */
+    public void andNot(CompressedBitsImpl that) {
+        int n = 0;
+        for (int i = 0, j = 0; i < size; i++) {
+            while ((j < that.size) && (that.keys[j] < keys[i])) j++;
+            Container container = ((j < that.size) && (that.keys[j] == keys[i])) ?
+                    andNot(containers[i], that.containers[j]) : containers[i];
+            if (container != null) {
+                keys[n] = keys[i];
+                containers[n++] = container;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /** Union (the result is stored in this instance). */
+    public void or(CompressedBitsImpl that) {
+        merge(that, false);
+    }
+
+    /** Symmetric difference (the result is stored in this instance). */
+    public void xor(CompressedBitsImpl that) {
+        merge(that, true);
+    }
+
+    /** Indicates if this set and the one specified have at least one bit set in common. */
+    public boolean intersects(CompressedBitsImpl that) {
+        for (int i = 0, j = 0; (i < size) && (j < that.size);) {
+            int cmp = keys[i] - that.keys[j];
+            if (cmp < 0) i++;
+            else if (cmp > 0) j++;
+            else if (intersects(containers[i++], that.containers[j++])) return true;
+        }
+        return false;
+    }
+
+    /** Compares the chunks of both sets (containers of different kinds may hold the same bits). */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof CompressedBitsImpl)) return false;
+        CompressedBitsImpl that = (CompressedBitsImpl) obj;
+        if (size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != that.keys[i]) return false;
+            if (containers[i].cardinality() != that.containers[i].cardinality()) return false;
+            if (!Arrays.equals(containers[i].words(), that.containers[i].words())) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < size; i++)
+            hash = 31 * hash + (keys[i] << 16) + containers[i].cardinality();
+        return hash;
+    }
+
+    /** Returns the number of bits set. */
+    public int cardinality() {
+        int sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].cardinality();
+        return sum;
+    }
+
+    /** Indicates if no bit is set. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Returns the index of the highest set bit plus one. */
+    public int length() {
+        if (size == 0) return 0;
+        return (keys[size - 1] << 16) + containers[size - 1].previous(0xFFFF) + 1;
+    }
+
+    /** Returns the index of the first set bit from the specified index (inclusive) or {@code -1} if none. */
+    public int nextSetBit(int fromIndex) {
+        int key = fromIndex >>> 16;
+        int i = find(key);
+        if (i >= 0) {
+            int low = containers[i].next(fromIndex & 0xFFFF);
+            if (low >= 0) return (key << 16) | low;
+            i++;
+        } else {
+            i = -i - 1;
+        }
+        return (i < size) ? (keys[i] << 16) | containers[i].next(0) : -1;
+    }
+
+    /** Returns the index of the last set bit up to the specified index (inclusive) or {@code -1} if none. */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) return -1;
+        int key = fromIndex >>> 16;
+        int i = find(key);
+        if (i >= 0) {
+            int low = containers[i].previous(fromIndex & 0xFFFF);
+            if (low >= 0) return (key << 16) | low;
+            i--;
+        } else {
+            i = -i - 2;
+        }
+        return (i >= 0) ? (keys[i] << 16) | containers[i].previous(0xFFFF) : -1;
+    }
+
+    /** Returns the index of the first clear bit from the specified index (inclusive). */
+    public int nextClearBit(int fromIndex) {
+        int index = fromIndex;
+        while (true) {
+            int key = index >>> 16;
+            int i = find(key);
+            if (i < 0) return index;
+            int low = containers[i].nextClear(index & 0xFFFF);
+            if (low >= 0) return (key << 16) | low;
+            index = (key + 1) << 16; // Full chunk.
+        }
+    }
+
+    /** Returns the index of the last clear bit up to the specified index (inclusive) or {@code -1} if none. */
+    public int previousClearBit(int fromIndex) {
+        int index = fromIndex;
+        while (index >= 0) {
+            int key = index >>> 16;
+            int i = find(key);
+            if (i < 0) return index;
+            int low = containers[i].previousClear(index & 0xFFFF);
+            if (low >= 0) return (key << 16) | low;
+            index = (key << 16) - 1; // Full chunk.
+        }
+        return -1;
+    }
+
+    /** Fills the specified array with the next set bits (from the specified index) and returns their number. */
+    public int nextSetBits(int fromIndex, int[] indices) {
+        int key = fromIndex >>> 16;
+        int i = find(key);
+        int count = 0;
+        if (i >= 0) {
+            count = containers[i++].fill(fromIndex & 0xFFFF, key << 16, indices, 0);
+        } else {
+            i = -i - 1;
+        }
+        for (; (i < size) && (count < indices.length); i++)
+            count = containers[i].fill(0, keys[i] << 16, indices, count);
+        return count;
+    }
+
+    /** Performs the specified action for each set bit in ascending order. */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++)
+            containers[i].forEach(keys[i] << 16, action);
+    }
+
+    /** Returns the uncompressed representation of this set (64 bits per word, no trailing zero word). */
+    public long[] toLongArray() {
+        return toLongArray(Integer.MAX_VALUE);
+    }
+
+    /** Returns the first words (at most the specified number) of the uncompressed representation of this set. */
+    public long[] toLongArray(int maxLength) {
+        long[] words = new long[Math.min((length() + 63) >>> 6, maxLength)];
+        for (int i = 0; (i < size) && (keys[i] * WORDS < words.length); i++) {
+            int offset = keys[i] * WORDS;
+            System.arraycopy(containers[i].words(), 0, words, offset, Math.min(WORDS, words.length - offset));
+        }
+        return words;
+    }
+
+    /** Performs the specified operation over the bits from the specified index to the specified index. */
+    private void range(long fromIndex, long toIndex, int operation) {
+        if ((fromIndex < 0) || (toIndex < fromIndex)) throw new IndexOutOfBoundsException();
+        if (fromIndex == toIndex) return;
+        int firstKey = (int) (fromIndex >>> 16);
+        int lastKey = (int) ((toIndex - 1) >>> 16);
+        for (int key = firstKey; key <= lastKey; key++) {
+            int low = (key == firstKey) ? (int) (fromIndex & 0xFFFF) : 0;
+            int high = (key == lastKey) ? (int) ((toIndex - 1) & 0xFFFF) + 1 : CHUNK_BITS;
+            int i = find(key);
+            if (i >= 0) {
+                long[] words = containers[i].copyWords();
+                range(words, low, high, operation);
+                update(i, optimize(words));
+            } else if (operation != CLEAR) { // Set or flip of an empty chunk.
+                insert(-i - 1, key, new RunContainer(new char[] { (char) low },
+                        new char[] { (char) (high - low - 1) }, 1));
+            }
+        }
+    }
+
+    /** Union or symmetric difference. */
+    private void merge(CompressedBitsImpl that, boolean exclusive) {
+        char[] mergedKeys = new char[size + that.size];
+        Container[] merged = new Container[size + that.size];
+        int n = 0;
+        for (int i = 0, j = 0; (i < size) || (j < that.size);) {
+            int cmp = (i == size) ? 1 : (j == that.size) ? -1 : keys[i] - that.keys[j];
+            Container container;
+            char key;
+            if (cmp < 0) {
+                key = keys[i];
+                container = containers[i++];
+            } else if (cmp > 0) {
+                key = that.keys[j];
+                container = that.containers[j++].clone(); // Not shared (containers may be updated in place).
+            } else {
+                key = keys[i];
+                container = exclusive ? xor(containers[i++], that.containers[j++]) :
+                    or(containers[i++], that.containers[j++]);
+            }
+            if (container == null) continue;
+            mergedKeys[n] = key;
+            merged[n++] = container;
+        }
+        keys = mergedKeys;
+        containers = merged;
+        size = n;
+    }
+
+    /** Returns the position of the chunk having the specified key or {@code -(insertion point) - 1}. */
+    private int find(int key) {
+        if ((size != 0) && (keys[size - 1] == key)) return size - 1; // Appending (common).
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = keys[mid] - key;
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int i, int key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+            containers = Arrays.copyOf(containers, keys.length);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = (char) key;
+        containers[i] = container;
+        size++;
+    }
+
+    /** Replaces the container at the specified position (removes the chunk if the new container is null). */
+    private void update(int i, Container container) {
+        if (container != null) {
+            containers[i] = container;
+            return;
+        }
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Containers operations.
+    //
+
+    /** Returns the most compact container for the specified chunk words (taken) or null if no bit set. */
+    private static Container optimize(long[] words) {
+        int cardinality = 0;
+        int runs = 0;
+        long carry = 0; // Highest bit of the previous word.
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+            runs += Long.bitCount(word & ~((word << 1) | carry)); // Bits set following a clear bit.
+            carry = word >>> 63;
+        }
+        if (cardinality == 0) return null;
+        if (4 * runs < Math.min(2 * cardinality, 8 * WORDS)) return RunContainer.valueOf(words, runs);
+        if (cardinality <= ARRAY_MAX) return ArrayContainer.valueOf(words, cardinality);
+        return new BitmapContainer(words, cardinality);
+    }
+
+    private static Container and(Container a, Container b) {
+        if (a instanceof ArrayContainer) return ((ArrayContainer) a).filter(b, true);
+        if (b instanceof ArrayContainer) return ((ArrayContainer) b).filter(a, true);
+        long[] words = a.copyWords();
+        long[] thatWords = b.words();
+        for (int i = 0; i < WORDS; i++)
+            words[i] &= thatWords[i];
+        return optimize(words);
+    }
+
+    private static Container andNot(Container a, Container b) {
+        if (a instanceof ArrayContainer) return ((ArrayContainer) a).filter(b, false);
+        long[] words = a.copyWords();
+        long[] thatWords = b.words();
+        for (int i = 0; i < WORDS; i++)
+            words[i] &= ~thatWords[i];
+        return optimize(words);
+    }
+
+    private static Container or(Container a, Container b) {
+        long[] words = a.copyWords();
+        long[] thatWords = b.words();
+        for (int i = 0; i < WORDS; i++)
+            words[i] |= thatWords[i];
+        return optimize(words);
+    }
+
+    private static Container xor(Container a, Container b) {
+        long[] words = a.copyWords();
+        long[] thatWords = b.words();
+        for (int i = 0; i < WORDS; i++)
+            words[i] ^= thatWords[i];
+        return optimize(words);
+    }
+
+    private static boolean intersects(Container a, Container b) {
+        if (a instanceof ArrayContainer) return ((ArrayContainer) a).intersects(b);
+        if (b instanceof ArrayContainer) return ((ArrayContainer) b).intersects(a);
+        long[] words = a.words();
+        long[] thatWords = b.words();
+        for (int i = 0; i < WORDS; i++)
+            if ((words[i] & thatWords[i]) != 0) return true;
+        return false;
+    }
+
+    /** Performs the specified operation on the bits from low (inclusive) to high (exclusive). */
+    private static void range(long[] words, int low, int high, int operation) {
+        for (int i = low >>> 6, last = (high - 1) >>> 6; i <= last; i++) {
+            long mask = -1L;
+            if (i == low >>> 6) mask &= -1L << low;
+            if (i == last) mask &= -1L >>> (63 - ((high - 1) & 63));
+            if (operation == SET) words[i] |= mask;
+            else if (operation == CLEAR) words[i] &= ~mask;
+            else words[i] ^= mask;
+        }
+    }
+
+    /** Returns the first set bit from the specified bit (inclusive) or -1. */
+    private static int nextSet(long[] words, int from) {
+        int i = from >>> 6;
+        if (i >= WORDS) return -1;
+        long word = words[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == WORDS) return -1;
+            word = words[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /** Returns the first clear bit from the specified bit (inclusive) or -1. */
+    private static int nextClear(long[] words, int from) {
+        int i = from >>> 6;
+        if (i >= WORDS) return -1;
+        long word = ~words[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == WORDS) return -1;
+            word = ~words[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /** Returns the last set bit up to the specified bit (inclusive) or -1. */
+    private static int previousSet(long[] words, int from) {
+        int i = from >>> 6;
+        long word = words[i] & (-1L >>> (63 - (from & 63)));
+        while (word == 0) {
+            if (--i < 0) return -1;
+            word = words[i];
+        }
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+
+    /** Returns the last clear bit up to the specified bit (inclusive) or -1. */
+    private static int previousClear(long[] words, int from) {
+        int i = from >>> 6;
+        long word = ~words[i] & (-1L >>> (63 - (from & 63)));
+        while (word == 0) {
+            if (--i < 0) return -1;
+            word = ~words[i];
+        }
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+    }
+
+    /** The container of the low 16 bits of a chunk. */
+    private static abstract class Container implements Cloneable, Serializable {
+        private static final long serialVersionUID = 0x700L; // Version.
+
+        /** Returns the number of bits set. */
+        abstract int cardinality();
+
+        abstract boolean contains(int x);
+
+        /** Sets the specified bit and returns the updated container. */
+        abstract Container add(int x);
+
+        /** Clears the specified bit and returns the updated container (null if empty). */
+        abstract Container remove(int x);
+
+        /** Returns the first set bit greater or equal to x or -1. */
+        abstract int next(int x);
+
+        /** Returns the last set bit less or equal to x or -1. */
+        abstract int previous(int x);
+
+        /** Returns the first clear bit greater or equal to x or -1. */
+        abstract int nextClear(int x);
+
+        /** Returns the last clear bit less or equal to x or -1. */
+        abstract int previousClear(int x);
+
+        /** Fills the array (from the specified offset) with the set bits from x, returns the new offset. */
+        abstract int fill(int x, int base, int[] indices, int offset);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        /** Returns the bitmap words (read-only, can be the actual words of the container). */
+        abstract long[] words();
+
+        /** Returns a copy of the bitmap words. */
+        long[] copyWords() {
+            return words();
+        }
+
+        @Override
+        public Container clone() {
+            try {
+                return (Container) super.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new Error("Cannot happen since cloneable.");
+            }
+        }
+    }
+
+    /** A sorted array of the bits set (sparse chunks). */
+    private static final class ArrayContainer extends Container {
+        private static final long serialVersionUID = 0x700L; // Version.
+        private char[] values;
+        private int cardinality;
+
+        private ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        private static ArrayContainer valueOf(long[] words, int cardinality) {
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++)
+                for (long word = words[i]; word != 0; word &= word - 1)
+                    values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+            return new ArrayContainer(values, cardinality);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int x) {
+            return Arrays.binarySearch(values, 0, cardinality, (char) x) >= 0;
+        }
+
+        @Override
+        Container add(int x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i >= 0) return this;
+            if (cardinality == ARRAY_MAX) return new BitmapContainer(words(), cardinality).add(x);
+            i = -i - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, 2 * cardinality));
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = (char) x;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(int x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i < 0) return this;
+            System.arraycopy(values, i + 1, values, i, --cardinality - i);
+            return (cardinality != 0) ? this : null;
+        }
+
+        @Override
+        int next(int x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i < 0) i = -i - 1;
+            return (i < cardinality) ? values[i] : -1;
+        }
+
+        @Override
+        int previous(int x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i < 0) i = -i - 2;
+            return (i >= 0) ? values[i] : -1;
+        }
+
+        @Override
+        int nextClear(int x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i < 0) return x;
+            while ((i < cardinality) && (values[i] == x)) {
+                i++;
+                x++;
+            }
+            return (x < CHUNK_BITS) ? x : -1;
+        }
+
+        @Override
+        int previousClear(int x) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i < 0) return x;
+            while ((i >= 0) && (values[i] == x)) {
+                i--;
+                x--;
+            }
+            return x;
+        }
+
+        @Override
+        int fill(int x, int base, int[] indices, int offset) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+            if (i < 0) i = -i - 1;
+            while ((i < cardinality) && (offset < indices.length))
+                indices[offset++] = base | values[i++];
+            return offset;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++)
+                action.accept(base | values[i]);
+        }
+
+        @Override
+        long[] words() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++)
+                words[values[i] >>> 6] |= 1L << values[i];
+            return words;
+        }
+
+        /** Returns the bits of this container which are (or are not) in the specified container. */
+        private Container filter(Container that, boolean retain) {
+            char[] filtered = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++)
+                if (that.contains(values[i]) == retain) filtered[n++] = values[i];
+            return (n != 0) ? new ArrayContainer(filtered, n) : null;
+        }
+
+        private boolean intersects(Container that) {
+            for (int i = 0; i < cardinality; i++)
+                if (that.contains(values[i])) return true;
+            return false;
+        }
+
+        @Override
+        public ArrayContainer clone() {
+            ArrayContainer copy = (ArrayContainer) super.clone();
+            copy.values = values.clone();
+            return copy;
+        }
+    }
+
+    /** A bitmap of 1024 words (dense chunks). */
+    private static final class BitmapContainer extends Container {
+        private static final long serialVersionUID = 0x700L; // Version.
+        private long[] words;
+        private int cardinality;
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        @Override
+        Container add(int x) {
+            if (!contains(x)) {
+                words[x >>> 6] |= 1L << x;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(int x) {
+            if (!contains(x)) return this;
+            words[x >>> 6] &= ~(1L << x);
+            return (--cardinality > ARRAY_MAX) ? this : ArrayContainer.valueOf(words, cardinality);
+        }
+
+        @Override
+        int next(int x) {
+            return nextSet(words, x);
+        }
+
+        @Override
+        int previous(int x) {
+            return previousSet(words, x);
+        }
+
+        @Override
+        int nextClear(int x) {
+            return CompressedBitsImpl.nextClear(words, x);
+        }
+
+        @Override
+        int previousClear(int x) {
+            return CompressedBitsImpl.previousClear(words, x);
+        }
+
+        @Override
+        int fill(int x, int base, int[] indices, int offset) {
+            int i = x >>> 6;
+            long word = words[i] & (-1L << x);
+            while (offset < indices.length) {
+                if (word == 0) {
+                    if (++i == WORDS) break;
+                    word = words[i];
+                    continue;
+                }
+                indices[offset++] = base | ((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+            return offset;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++)
+                for (long word = words[i]; word != 0; word &= word - 1)
+                    action.accept(base | ((i << 6) + Long.numberOfTrailingZeros(word)));
+        }
+
+        @Override
+        long[] words() {
+            return words;
+        }
+
+        @Override
+        long[] copyWords() {
+            return words.clone();
+        }
+
+        @Override
+        public BitmapContainer clone() {
+            BitmapContainer copy = (BitmapContainer) super.clone();
+            copy.words = words.clone();
+            return copy;
+        }
+    }
+
+    /** A sorted array of runs of bits set (clustered chunks). */
+    private static final class RunContainer extends Container {
+        private static final long serialVersionUID = 0x700L; // Version.
+        private final char[] starts;
+        private final char[] lengths; // Number of bits set minus one.
+        private final int runs;
+
+        private RunContainer(char[] starts, char[] lengths, int runs) {
+            this.starts = starts;
+            this.lengths = lengths;
+            this.runs = runs;
+        }
+
+        private static RunContainer valueOf(long[] words, int runs) {
+            char[] starts = new char[runs];
+            char[] lengths = new char[runs];
+            int n = 0;
+            for (int start = nextSet(words, 0); start >= 0; n++) {
+                int end = CompressedBitsImpl.nextClear(words, start);
+                if (end < 0) end = CHUNK_BITS;
+                starts[n] = (char) start;
+                lengths[n] = (char) (end - start - 1);
+                start = (end < CHUNK_BITS) ? nextSet(words, end) : -1;
+            }
+            return new RunContainer(starts, lengths, runs);
+        }
+
+        @Override
+        int cardinality() {
+            int sum = runs;
+            for (int i = 0; i < runs; i++)
+                sum += lengths[i];
+            return sum;
+        }
+
+        @Override
+        boolean contains(int x) {
+            int i = runOf(x);
+            return (i >= 0) && (x <= starts[i] + lengths[i]);
+        }
+
+        @Override
+        Container add(int x) {
+            if (contains(x)) return this;
+            long[] words = words();
+            words[x >>> 6] |= 1L << x;
+            return optimize(words);
+        }
+
+        @Override
+        Container remove(int x) {
+            if (!contains(x)) return this;
+            long[] words = words();
+            words[x >>> 6] &= ~(1L << x);
+            return optimize(words);
+        }
+
+        @Override
+        int next(int x) {
+            int i = runOf(x);
+            if ((i >= 0) && (x <= starts[i] + lengths[i])) return x;
+            return (i + 1 < runs) ? starts[i + 1] : -1;
+        }
+
+        @Override
+        int previous(int x) {
+            int i = runOf(x);
+            return (i >= 0) ? Math.min(x, starts[i] + lengths[i]) : -1;
+        }
+
+        @Override
+        int nextClear(int x) {
+            int i = runOf(x);
+            if ((i < 0) || (x > starts[i] + lengths[i])) return x;
+            int end = starts[i] + lengths[i] + 1; // Runs are never adjacent.
+            return (end < CHUNK_BITS) ? end : -1;
+        }
+
+        @Override
+        int previousClear(int x) {
+            int i = runOf(x);
+            if ((i < 0) || (x > starts[i] + lengths[i])) return x;
+            return starts[i] - 1;
+        }
+
+        @Override
+        int fill(int x, int base, int[] indices, int offset) {
+            int i = runOf(x);
+            if (i < 0) i = 0;
+            for (; (i < runs) && (offset < indices.length); i++) {
+                int end = starts[i] + lengths[i];
+                for (int j = Math.max(x, starts[i]); (j <= end) && (offset < indices.length); j++)
+                    indices[offset++] = base | j;
+            }
+            return offset;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < runs; i++)
+                for (int j = starts[i], end = starts[i] + lengths[i]; j <= end; j++)
+                    action.accept(base | j);
+        }
+
+        @Override
+        long[] words() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < runs; i++)
+                range(words, starts[i], starts[i] + lengths[i] + 1, SET);
+            return words;
+        }
+
+        /** Returns the last run starting at or before x or -1. */
+        private int runOf(int x) {
+            int i = Arrays.binarySearch(starts, 0, runs, (char) x);
+            return (i >= 0) ? i : -i - 2;
+        }
+    }
+}
@@ -2,7 +2,7 @@
  * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
  * Copyright (C) 2016 - Javolution (http://javolution.org/)
  * All rights reserved.
- * 
+ *
  * Permission to use, copy, modify, and distribute this software is
  * freely granted, provided that this notice is preserved.
  */
@@ -10,21 +10,65 @@ package org.javolution.util.internal;
 
 import static org.javolution.lang.MathLib.unsignedLessThan;
 
+import java.io.Serializable;
+
 import org.javolution.annotations.Nullable;
 import org.javolution.lang.Immutable;
 import org.javolution.util.FractalArray;
 import org.javolution.util.function.Predicate;
 
 /**
- * The fractal array default implementation (core class for org.javolution.util package). 
+ * The fractal array default implementation (core class for org.javolution.util package).
  * Each instance has a bounded capacity and returns an enclosing instance with higher capacity
  * when its capacity is reached (no resize ever).
+ *
+ * Small arrays are held in dense arrays (contiguous indices, no index stored) or in sorted arrays of
+ * indices (when there are holes); when these arrays reach their maximum length
+ * they are replaced by fractal nodes (tries of 16 inner fractals) whose index space can be rotated in
+ * constant time. Shifting elements (insertion/deletion) is then performed in O(Log(n)) by shifting
+ * the inner fractal holding the index and rotating the following inner fractals.
+ *
+ * Cloning a fractal is performed in constant time; the inner fractals are shared and copied only when modified
+ * (copy-on-write), updating a clone copies the path from the root to the modified element only.
+ *
+ * All operations take the number of bits of the index space available to the instance (64 for the root
+ * instance, the inner index size for inner fractals); elements shifted beyond that space are discarded.
+ *
+ * Elements are counted as one, except {@link Weight} elements which are counted as their value; the counts
+ * ({@link #count()}, {@link #count(long, long)}, {@link #select(long)}) are then weighted sums maintained in
+ * O(Log(n)) (e.g. the sizes of collision groups).
  */
 public abstract class FractalArrayImpl<E> extends FractalArray<E> {
-	
+
 	private static final long serialVersionUID = 0x700L;
 	private static final Empty<Object> EMPTY = new Empty<Object>(); // Singleton.
+	private static final long NOT_FOUND = -1;
+	boolean shared; // Referenced by more than one fractal (copied before being modified).
+
+	/** An element counted as a specified number of elements (at least one). */
+	public static final class Weight implements Serializable {
+		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
+		private static final Weight[] CACHE = new Weight[64]; // Small weights are shared.
+		static {
+			for (int i = 1; i < CACHE.length; i++) CACHE[i] = new Weight(i);
+		}
+		private final long value;
+
+		private Weight(long value) {
+			this.value = value;
+		}
+
+		/** Returns the weight having the specified value. */
+		public static Weight of(long value) {
+			if (value <= 0) throw new IllegalArgumentException("Weight: " + value);
+			return (value < CACHE.length) ? CACHE[(int) value] : new Weight(value);
+		}
 
+		/** Returns the number of elements this weight is counted as. */
+		public long value() {
+			return value;
+		}
+	}
 
 	/** Returns the immutable empty instance. */
 	@SuppressWarnings("unchecked")
@@ -32,43 +76,166 @@ public abstract class FractalArrayImpl<E> extends FractalArray<E> {
 		return (Empty<E>) EMPTY;
 	}
 
+	/**
+	 * Returns a fractal array holding the specified elements, built bottom-up in a single pass (no intermediate
+	 * resizing or conversion). The elements are set at the specified indices (unsigned ascending order, no
+	 * duplicate) or at their position if {@code indices} is {@code null}; {@code null} elements are skipped.
+	 */
+	public static <E> FractalArrayImpl<E> of(@Nullable long[] indices, E[] elements, int length) {
+		return build(indices, elements, 0, length, 0, 64);
+	}
+
+	/** Sorts the specified indices in unsigned ascending order along with their elements (stable). */
+	public static void sort(long[] indices, Object[] elements, int length) {
+		if (length <= 1) return;
+		long[] indicesTmp = new long[length];
+		Object[] elementsTmp = new Object[length];
+		for (int width = 1; width < length; width <<= 1) { // Bottom-up merge sort.
+			for (int start = 0; start < length; start += width << 1) {
+				int mid = Math.min(start + width, length);
+				int end = Math.min(mid + width, length);
+				for (int i = start, j = mid, k = start; k < end; k++) {
+					boolean left = (j >= end) || ((i < mid) && !unsignedLessThan(indices[j], indices[i]));
+					int src = left ? i++ : j++;
+					indicesTmp[k] = indices[src];
+					elementsTmp[k] = elements[src];
+				}
+			}
+			System.arraycopy(indicesTmp, 0, indices, 0, length);
+			System.arraycopy(elementsTmp, 0, elements, 0, length);
+		}
+	}
+
+	/** Builds the instance holding the elements at the specified positions, indices being relative to base. */
+	private static <E> FractalArrayImpl<E> build(long[] indices, E[] elements, int from, int to, long base,
+			int bits) {
+		int first = -1, last = -1, count = 0;
+		for (int i = from; i < to; i++) {
+			if (elements[i] == null) continue;
+			if (first < 0) first = i;
+			last = i;
+			count++;
+		}
+		if (count == 0) return empty();
+		long firstIndex = indexAt(indices, first) - base;
+		long lastIndex = indexAt(indices, last) - base;
+		if (count == 1) return new Single<E>(firstIndex, elements[first]);
+		if ((lastIndex - firstIndex == count - 1) && (count <= Dense.MAX_LENGTH)) // Contiguous.
+			return new Dense<E>(firstIndex, elements, first, count);
+		if (count <= Array.MAX_LENGTH) return new Array<E>(indices, elements, first, last + 1, base, count);
+		Fractal<E> fractal = Fractal.newInstance(lastIndex, bits);
+		int innerBits = fractal.innerIndexSize;
+		for (int start = first; start <= last;) {
+			int i = fractal.arrayIndex(indexAt(indices, start) - base);
+			int end = start + 1;
+			while ((end <= last) && (fractal.arrayIndex(indexAt(indices, end) - base) == i))
+				end++;
+			fractal.update(i, build(indices, elements, start, end, base + ((long) i << innerBits), innerBits), 0);
+			start = end;
+		}
+		return fractal;
+	}
+
+	/** Returns the number of elements the specified element is counted as. */
+	static long weightOf(Object element) {
+		return (element instanceof Weight) ? ((Weight) element).value : 1;
+	}
+
+	private static long indexAt(long[] indices, int position) {
+		return (indices != null) ? indices[position] : position;
+	}
+
 	@Override
 	public final boolean isEmpty() {
 		return this == EMPTY;
 	}
 
-
 	@Override
 	public abstract FractalArrayImpl<E> clone();
 
+	@Override
+	public final FractalArray<E> snapshot() {
+		if (this != EMPTY) shared = true; // Copied by the next update.
+		return unmodifiable();
+	}
+
 	@Override
 	public abstract FractalArrayImpl<E> clear(long index);
 
 	@Override
-	public abstract FractalArrayImpl<E> set(long index, E element);
+	public final FractalArrayImpl<E> set(long index, @Nullable E element) {
+		return set(index, element, 64);
+	}
+
+	@Override
+	public final FractalArrayImpl<E> insert(long index, @Nullable E inserted) {
+		if (get(-1) != null) throw new ArithmeticException("Index Overflow");
+		return shift(index, -1, inserted, 64);
+	}
+
+	@Override
+	public final FractalArrayImpl<E> delete(long index) {
+		return shift(-1, index, null, 64);
+	}
+
+	@Override
+	public final long next(long after, @Nullable Predicate<? super E> matching) {
+		if (after == -1) return 0;
+		if (matching == null) matching = Predicate.TRUE;
+		if (after != -2) { // The last index (-1) is searched separately (same as NOT_FOUND).
+			long index = next(after + 1, -2, matching);
+			if (index != NOT_FOUND) return index;
+		}
+		E last = get(-1);
+		return (last != null) && matching.test(last) ? -1 : 0;
+	}
 
 	@Override
-	public abstract FractalArrayImpl<E> insert(long index, @Nullable E inserted);
+	public final long previous(long before, @Nullable Predicate<? super E> matching) {
+		if (before == 0) return -1;
+		return next(before - 1, 0, (matching != null) ? matching : Predicate.TRUE);
+	}
+
+	@Override
+	public abstract long count();
 
 	@Override
-	public abstract FractalArrayImpl<E> delete(long index);
-	
-	/** Shifts all elements to the right **/
-	abstract FractalArrayImpl<E> shiftRight();
-
-	/** Shifts all elements to the left **/
-	abstract FractalArrayImpl<E> shiftLeft();
-	
-	/** Clears the highest bits, bits should be in range 0..63  */
-	private static final long clearHighBits(long value, int bits) {
-		return value << bits >>> bits;
+	public final long count(long from, long to) {
+		return unsignedLessThan(to, from) ? 0 : countRange(from, to);
 	}
 
-	/** Clears the lowest bits, bits should be in range 0..63  */
-	private static final long clearLowBits(long value, int bits) {
-		return value >>> bits << bits;
+	@Override
+	public final long select(long rank) {
+		if ((rank < 0) || (rank >= count())) throw new IndexOutOfBoundsException("Rank: " + rank);
+		return selectIndex(rank);
 	}
 
+	/**
+	 * Sets the element at the specified index; the index should be within the specified number of bits.
+	 */
+	abstract FractalArrayImpl<E> set(long index, @Nullable E element, int bits);
+
+	/**
+	 * Shifts the elements from the specified index ({@code from}) towards the specified index ({@code to}),
+	 * the element at {@code to} is discarded and the specified element is set at {@code from}.
+	 * The right shift ({@code from < to}) corresponds to an insertion, the left shift ({@code from > to})
+	 * corresponds to a deletion. Indices should be within the specified number of bits.
+	 */
+	abstract FractalArrayImpl<E> shift(long from, long to, @Nullable E inserted, int bits);
+
+	/**
+	 * Returns the index of the first non-null element from the specified index ({@code from}) to the specified
+	 * index ({@code to}) inclusive, matching the specified predicate or {@link #NOT_FOUND} if none. The search
+	 * is performed in ascending order if {@code from <= to} and in descending order otherwise.
+	 */
+	abstract long next(long from, long to, Predicate<? super E> matching);
+
+	/** Returns the number of non-null elements in the specified range ({@code from <= to} unsigned, inclusive). */
+	abstract long countRange(long from, long to);
+
+	/** Returns the index of the element at the specified rank ({@code 0 <= rank < count()}). */
+	abstract long selectIndex(long rank);
+
 	/** The empty singleton. */
 	private static final class Empty<E> extends FractalArrayImpl<E> implements Immutable {
 		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
@@ -92,40 +259,35 @@ public abstract class FractalArrayImpl<E> extends FractalArray<E> {
 		}
 
 		@Override
-		public FractalArrayImpl<E> set(long index, E element) {
+		FractalArrayImpl<E> set(long index, E element, int bits) {
 			return (element == null) ? this : new Single<E>(index, element);
 		}
 
 		@Override
-		public FractalArrayImpl<E> insert(long index, E inserted) {
-			return set(index, inserted);
+		FractalArrayImpl<E> shift(long from, long to, E inserted, int bits) {
+			return set(from, inserted, bits);
 		}
 
 		@Override
-		public FractalArrayImpl<E> delete(long index) {
-			return this;
+		long next(long from, long to, Predicate<? super E> matching) {
+			return NOT_FOUND;
 		}
 
 		@Override
-		public long next(long after, Predicate<? super E> matching) {
+		public long count() {
 			return 0;
 		}
 
 		@Override
-		public long previous(long before, Predicate<? super E> matching) {
-			return -1;
+		long countRange(long from, long to) {
+			return 0;
 		}
 
 		@Override
-		Empty<E> shiftRight() {
-			return this;
+		long selectIndex(long rank) {
+			return NOT_FOUND;
 		}
 
-		@Override
-		Empty<E> shiftLeft() {
-			return this;
-		}	
-
 	}
 
 	/** A single element. */
@@ -155,76 +317,98 @@ public abstract class FractalArrayImpl<E> extends FractalArray<E> {
 		}
 
 		@Override
-		public FractalArrayImpl<E> set(long i, E e) {
+		FractalArrayImpl<E> set(long i, E e, int bits) {
 			if (e == null) return clear(i);
+			if (shared) return clone().set(i, e, bits);
+			if ((i == index + 1) && (i != 0)) return new Dense<E>(index, element, e);
+			if ((index == i + 1) && (index != 0)) return new Dense<E>(i, e, element);
 			if (index != i) return new Array<E>(index, element, i, e);
-				//return ((index ^ i) >>> Array.LOG2_CAPACITY == 0) ? 
-				//		new Array<E>(index, element, i, e) // Same high bits.
-				//		: new Fractal<E>(i, e, this);
 			element = e;
 			return this;
 		}
 
 		@Override
-		public FractalArrayImpl<E> insert(long i, E inserted) {
-			if (!unsignedLessThan(index, i)) index++; // Shift right.
-			return set(i, inserted);
+		FractalArrayImpl<E> shift(long from, long to, E inserted, int bits) {
+			if (index == to) return FractalArrayImpl.<E>empty().set(from, inserted, bits); // Discarded.
+			if (shared) return clone().shift(from, to, inserted, bits);
+			if (unsignedLessThan(from, to)) { // Right shift.
+				if (!unsignedLessThan(index, from) && unsignedLessThan(index, to)) index++;
+			} else if (unsignedLessThan(to, index) && !unsignedLessThan(from, index)) index--; // Left shift.
+			return set(from, inserted, bits);
 		}
 
 		@Override
-		public FractalArrayImpl<E> delete(long i) {
-			if (unsignedLessThan(i, index)) index--; // Shift left.
-			return clear(i);
+		long next(long from, long to, Predicate<? super E> matching) {
+			boolean inRange = unsignedLessThan(to, from) ?
+					!unsignedLessThan(index, to) && !unsignedLessThan(from, index) :
+					!unsignedLessThan(index, from) && !unsignedLessThan(to, index);
+			return inRange && matching.test(element) ? index : NOT_FOUND;
 		}
 
 		@Override
-		public long next(long after, Predicate<? super E> matching) {
-			if (unsignedLessThan(after, index) && matching.test(element)) return index;
-			return 0;
+		public long count() {
+			return weightOf(element);
 		}
 
 		@Override
-		public long previous(long before, Predicate<? super E> matching) {
-			if (unsignedLessThan(index, before) && matching.test(element)) return index;
-			return -1;
+		long countRange(long from, long to) {
+			return !unsignedLessThan(index, from) && !unsignedLessThan(to, index) ? weightOf(element) : 0;
 		}
 
 		@Override
-		Single<E> shiftRight() {
-			index++;
-			return this;
+		long selectIndex(long rank) {
+			return index;
 		}
 
-		@Override
-		Single<E> shiftLeft() {
-			index--;
-			return this;
-		}
 	}
 
-	// Trivial Implementation, until Fractal implementation rework is completed !
-	private static final class Array<E> extends FractalArrayImpl<E> {	
-	private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
-	    private static final int INITIAL_CAPACITY = 16;
-	    private long[] indices;
-	    private E[] elements;
-	    private int length;
+	/** A sorted array of indices/elements, replaced by a fractal when its maximum length is reached. */
+	private static final class Array<E> extends FractalArrayImpl<E> {
+		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
+		private static final int INITIAL_CAPACITY = 16;
+		private static final int MAX_LENGTH = 64;
+		private long[] indices;
+		private E[] elements;
+		private int length;
+		private long weight; // Sum of the elements weights (equals length if no weighted element).
 
 		@SuppressWarnings("unchecked")
 		public Array(long i0, E e0, long i1, E e1) {
 			indices = new long[INITIAL_CAPACITY];
 			elements = (E[]) new Object[INITIAL_CAPACITY];
 			length = 2;
+			weight = weightOf(e0) + weightOf(e1);
 			if (unsignedLessThan(i0, i1)) {
-				indices[0] = i0; 
-				elements[0] = e0; 
-				indices[1] = i1; 
-				elements[1] = e1; 
+				indices[0] = i0;
+				elements[0] = e0;
+				indices[1] = i1;
+				elements[1] = e1;
 			} else {
-				indices[0] = i1; 
-				elements[0] = e1; 
-				indices[1] = i0; 
-				elements[1] = e0; 
+				indices[0] = i1;
+				elements[0] = e1;
+				indices[1] = i0;
+				elements[1] = e0;
+			}
+		}
+
+		private Array(long[] indices, E[] elements, int length) {
+			this.indices = indices;
+			this.elements = elements;
+			this.length = length;
+			for (int i = 0; i < length; i++) weight += weightOf(elements[i]);
+		}
+
+		@SuppressWarnings("unchecked")
+		private Array(long[] srcIndices, E[] srcElements, int from, int to, long base, int length) { // Bulk.
+			int capacity = INITIAL_CAPACITY;
+			while (capacity < length) capacity <<= 1;
+			indices = new long[capacity];
+			elements = (E[]) new Object[capacity];
+			for (int i = from; i < to; i++) {
+				if (srcElements[i] == null) continue;
+				indices[this.length] = indexAt(srcIndices, i) - base;
+				elements[this.length++] = srcElements[i];
+				weight += weightOf(srcElements[i]);
 			}
 		}
 
@@ -232,109 +416,110 @@ public abstract class FractalArrayImpl<E> extends FractalArray<E> {
 			indices = that.indices.clone();
 			elements = that.elements.clone();
 			length = that.length;
+			weight = that.weight;
 		}
-		
+
 		@Override
 		public FractalArrayImpl<E> clone() {
 			return new Array<E>(this);
 		}
-		
+
+		@Override
+		public E get(long index) {
+			int i = positionOf(index, 0, length);
+			return i >= 0 ? elements[i] : null;
+		}
+
 		@Override
 		public FractalArrayImpl<E> clear(long index) {
 			int i = positionOf(index, 0, length);
 			if (i >= 0) { // Found it.
+				if (shared) return clone().clear(index);
+				weight -= weightOf(elements[i]);
 				System.arraycopy(indices, i+1, indices, i, length - i - 1);
 				System.arraycopy(elements, i+1, elements, i, length - i - 1);
-				if (--length * 4 < indices.length) return downsize();
-		    } 
+				elements[--length] = null;
+				if (length * 4 <= indices.length) return downsize();
+		    }
 			return this;
 		}
-		
+
 		@Override
-		public FractalArrayImpl<E> set(long index, E element) {
+		FractalArrayImpl<E> set(long index, E element, int bits) {
+			if (element == null) return clear(index);
+			if (shared) return clone().set(index, element, bits);
 			int i = positionOf(index, 0, length);
 			if (i >= 0) { // Replace element.
+				weight += weightOf(element) - weightOf(elements[i]);
 				elements[i] = element;
-			} else {
-				if (length >= indices.length) return upsize().set(index, element);
-				i = -i - 1; // The "should be" position.
-				System.arraycopy(indices, i, indices, i+1, length - i);
-				System.arraycopy(elements, i, elements, i+1, length - i);
-				length++;
+				return this;
 			}
-			return this;
-		}
-		
-		@Override
-		public FractalArrayImpl<E> insert(long index, E inserted) {
-			if (length >= indices.length) return upsize().insert(index, inserted);
-			int i = positionOf(index, 0, length);
-			i = (i >= 0) ? i : -i - 1;
-			for (int j=i; j < length; ++j) indices[j]++;
+			if (length >= MAX_LENGTH) return toFractal(index, bits).set(index, element, bits);
+			if (length >= indices.length) upsize();
+			i = -i - 1; // The "should be" position.
 			System.arraycopy(indices, i, indices, i+1, length - i);
 			System.arraycopy(elements, i, elements, i+1, length - i);
 			indices[i] = index;
-			elements[i] = inserted;	
+			elements[i] = element;
+			length++;
+			weight += weightOf(element);
 			return this;
 		}
 
 		@Override
-		public FractalArrayImpl<E> delete(long index) {
-			int i = positionOf(index, 0, length);
-			if (i >= 0) { // Remove element.
-				System.arraycopy(indices, i+1, indices, i, length - i - 1);
-				System.arraycopy(elements, i+1, elements, i, length - i - 1);
-				if (--length * 4 < indices.length) downsize();				
-			} else {
-				i = -i - 1;					
+		FractalArrayImpl<E> shift(long from, long to, E inserted, int bits) {
+			if (from == to) return set(from, inserted, bits);
+			if (shared) return clone().shift(from, to, inserted, bits);
+			FractalArrayImpl<E> discarded = clear(to);
+			if (discarded != this) return discarded.shift(from, to, inserted, bits);
+			int i = positionOf(from, 0, length);
+			if (unsignedLessThan(from, to)) { // Right shift.
+				for (i = (i >= 0) ? i : -i - 1; (i < length) && unsignedLessThan(indices[i], to); ++i) indices[i]++;
+			} else { // Left shift.
+				for (i = (i >= 0) ? i : -i - 2; (i >= 0) && unsignedLessThan(to, indices[i]); --i) indices[i]--;
 			}
-			for (int j=i; j < length; ++j) indices[j]--;
-			return this;
+			return set(from, inserted, bits);
 		}
-		
+
 		@Override
-		public E get(long index) {	
-			int i = positionOf(index, 0, length);
-			return i >= 0 ? elements[i] : null;
+		long next(long from, long to, Predicate<? super E> matching) {
+			int i = positionOf(from, 0, length);
+			if (unsignedLessThan(to, from)) { // Descending.
+				for (i = (i >= 0) ? i : -i - 2; (i >= 0) && !unsignedLessThan(indices[i], to); --i)
+					if (matching.test(elements[i])) return indices[i];
+			} else {
+				for (i = (i >= 0) ? i : -i - 1; (i < length) && !unsignedLessThan(to, indices[i]); ++i)
+					if (matching.test(elements[i])) return indices[i];
+			}
+			return NOT_FOUND;
 		}
-	
+
 		@Override
-		FractalArrayImpl<E> shiftRight() {
-			if ((length != 0) && (indices[length-1] == -1)) 
-				throw new ArithmeticException("Index Overflow");
-			for (int i=0; i < length; ++i) indices[i]++;
-			return this;
+		public long count() {
+			return weight;
 		}
 
 		@Override
-		FractalArrayImpl<E> shiftLeft() {
-			if ((length != 0) && (indices[0] == 0)) 
-				throw new ArithmeticException("Index Underflow");
-			for (int i=0; i < length; ++i) indices[i]--;
-			return this;
-		}
-	
-		@Override
-		public long next(long after, Predicate<? super E> matching) {
-			int i = positionOf(after, 0, length);
-			i = (i >= 0) ? i + 1 : -i - 1;
-			while (i < length) {
-				if (matching.test(elements[i])) return indices[i];
-				i++;
-			}
-			return 0;
+		long countRange(long from, long to) {
+			int start = positionOf(from, 0, length);
+			int end = positionOf(to, 0, length);
+			start = (start >= 0) ? start : -start - 1;
+			end = (end >= 0) ? end + 1 : -end - 1;
+			if (weight == length) return end - start;
+			long result = 0;
+			for (int i = start; i < end; i++) result += weightOf(elements[i]);
+			return result;
 		}
+
 		@Override
-		public long previous(long before, Predicate<? super E> matching) {
-			int i = positionOf(before, 0, length);
-			i = (i >= 0) ? i - 1 : -i - 2;
-			while (i >= 0) {
-				if (matching.test(elements[i])) return indices[i];
-				i--;
+		long selectIndex(long rank) {
+			if (weight == length) return indices[(int) rank];
+			for (int i = 0;; i++) {
+				rank -= weightOf(elements[i]);
+				if (rank < 0) return indices[i];
 			}
-			return -1;
 		}
-	    
+
 		private int positionOf(long index, int start, int length) {
 			while (length != 0) {
 				int half = length >> 1;
@@ -348,24 +533,31 @@ public abstract class FractalArrayImpl<E> extends FractalArray<E> {
 			    	length = length - half - 1;
 			    }
 			}
-			return -start - 1; // Not found.	
-		}		
-		
+			return -start - 1; // Not found.
+		}
+
+		/** Returns a fractal holding the elements of this array and able to hold the specified index. */
+		private Fractal<E> toFractal(long index, int bits) {
+			long maxIndex = unsignedLessThan(index, indices[length-1]) ? indices[length-1] : index;
+			Fractal<E> fractal = Fractal.newInstance(maxIndex, bits);
+			for (int i=0; i < length; ++i) fractal.set(indices[i], elements[i], bits);
+			return fractal;
+		}
+
  		@SuppressWarnings("unchecked")
- 		private FractalArrayImpl<E> upsize() {
+ 		private void upsize() {
     		long[] indicesTmp = new long[indices.length * 2];
     		E[] elementsTmp = (E[]) new Object[elements.length * 2];
     	    System.arraycopy(indices, 0, indicesTmp, 0, length);
      		System.arraycopy(elements, 0, elementsTmp, 0, length);
     		indices = indicesTmp;
     	    elements = elementsTmp;
-    		return this;
     	}
 
  		@SuppressWarnings("unchecked")
  	 	private FractalArrayImpl<E> downsize() {
  			if (length == 1) return new Single<E>(indices[0], elements[0]);
- 			if (indices.length <= INITIAL_CAPACITY) return this; 
+ 			if (indices.length <= INITIAL_CAPACITY) return this;
  			long[] indicesTmp = new long[indices.length / 2];
  	 		E[] elementsTmp = (E[]) new Object[indices.length / 2];
  	 	    System.arraycopy(indices, 0, indicesTmp, 0, length);
@@ -376,407 +568,582 @@ public abstract class FractalArrayImpl<E> extends FractalArray<E> {
     	}
 
 	}
-	
-//	private static final int ARRAY_CAPACITY = 1 << LOG2_CAPACITY;
-//	private static final int MASK = ARRAY_CAPACITY - 1;
-//
-//	private final E[] elements;
-//	private long lastIndex; // Index of the last element (higher bits holds the array prefix).
-//	private int firstPos; // Holds the position of the first element (lowest index).
-
-	
-	
-//	/**
-//	 * An array of elements (indexes all having the same high bits). 
-//	 * It is an optimization to reduce memory usage in case of dense arrays.
-//	 */
-//	private static final class Array<E> extends FractalArrayImpl<E> {
-//		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
-//		private static final int LOG2_CAPACITY = 4;
-//		private static final int ARRAY_CAPACITY = 1 << LOG2_CAPACITY;
-//		private static final int MASK = ARRAY_CAPACITY - 1;
-//
-//		private final E[] elements;
-//		private long lastIndex; // Index of the last element (higher bits holds the array prefix).
-//		private int firstPos; // Holds the position of the first element (lowest index).
-//
-//		@SuppressWarnings("unchecked")
-//		public Array(long i0, E e0, long i1, E e1) {
-//			elements = (E[]) new Object[ARRAY_CAPACITY];
-//			elements[(int)clearHighBits(i0, 64 - LOG2_CAPACITY)] = e0;
-//			elements[(int)clearHighBits(i1, 64 - LOG2_CAPACITY)] = e1;
-//			lastIndex = unsignedLessThan(i0, i1) ? i1 : i0;
-//			firstPos = 0;
-//		}
-//
-//		private Array(Array<E> that) {
-//			elements = that.elements.clone();
-//			lastIndex = that.lastIndex;
-//			firstPos = that.firstPos;
-//		}
-//
-//		@Override
-//		public E get(long index) {
-//			return inRange(index) ? elements[posFor(index)] : null;
-//		}
-//
-//		@Override
-//		public FractalArrayImpl<E> clear(long index) {
-//			if (!inRange(index)) return this;
-//			elements[posFor(index)] = null;
-//			if (index == lastIndex) lastIndex = previous(lastIndex, null);
-//			if (previous(lastIndex, null) == -1) return new Single<E>(lastIndex, elements[posFor(lastIndex)]);
-//			return this;
-//	    }	
-//
-//		@Override
-//		public FractalArrayImpl<E> set(long index, E element) {
-//			if (element == null) return clear(index);
-//			if (!inRange(index)) return new Fractal<E>(index, element, this);
-//			elements[posFor(index)] = element;
-//			if (unsignedLessThan(lastIndex, index)) lastIndex = index;
-//			return this;
-//		}
-//
-//		@Override
-//		public FractalArrayImpl<E> insert(long index, E inserted) {
-//			if (unsignedLessThan(lastIndex, index)) return set(index, inserted);
-//			if (unsignedLessThan(index, firstIndex())) return shiftRight().set(index, inserted);
-//			int indexPos = posFor(index);
-//			int lastPos = posFor(lastIndex);			
-//			E last = elements[lastPos];
-//			for (int i=lastPos; i != indexPos;) elements[i] = elements[i = (i-1) & MASK];
-//			elements[firstPos] = inserted;
-//			return set(++lastIndex, last);
-//		}
-//
-//		@Override
-//		public FractalArrayImpl<E> delete(long index) {
-//			if (!unsignedLessThan(index, lastIndex)) return clear(index); // index >= lastIndex
-//			if (unsignedLessThan(index, firstIndex())) return shiftLeft(); // index < firstIndex
-//			int indexPos = posFor(index);
-//			int lastPos = posFor(lastIndex);			
-//			for (int i=indexPos; i != lastPos;) elements[i] = elements[i = (i+1) & MASK];
-//			lastIndex--;
-//			return (previous(lastIndex, null) == -1) ? new Single<E>(lastIndex, elements[posFor(lastIndex)]) : this;
-//		}
-//
-//		@Override
-//		public Array<E> clone() {
-//			return new Array<E>(this);
-//		}
-//
-//		@Override
-//		FractalArrayImpl<E> shiftRight() {
-//			firstPos = (firstPos - 1) & MASK;
-//			if ((++lastIndex & MASK) != 0) return this; // No overflow.
-//			
-//			
-//			TO BE CONTINUED ******* 
-//			
-//			E carry = elements[firstPos]; 
-//			elements[firstPos] = null;
-//			lastIndex = previous(lastIndex, null);
-//		}
-//			
-//			E carry = elements[--firstPos & MASK];
-//			lastIndex++;
-//			if (carry != null) return set()
-//			
-//		}
-//
-//		@Override
-//		FractalArrayImpl<E> shiftLeft() {
-//			long newOffset = clearHighBits(prefix + 1, 64 - INDEX_SIZE);
-//			prefix = prefixWithoutOffset() | newOffset;
-//			return this;
-//		}
-//
-//	
-//
-//		private boolean inRange(long index) { // Check prefix equality
-//			return (index ^ offset) >>> LOG2_CAPACITY == 0;
-//		}
-//
-//		private boolean isUnderflow(long index) { // Too small.
-//			return (index >>> INDEX_SIZE) < (prefix >>> INDEX_SIZE);
-//		}
-//
-//		private boolean isOverflow(long index) { // Too large.
-//			return (index >>> INDEX_SIZE) > (prefix >>> INDEX_SIZE);
-//		}
-//
-//		private long prefixWithoutOffset() {
-//			return clearLowBits(prefix, INDEX_SIZE);
-//		}
-//
-//		private long firstIndex() {
-//			return clearLowBits(prefix, INDEX_SIZE);
-//		}
-//
-//		private long lastIndex() {
-//			return firstIndex() + MASK;
-//		}
-//
-//		private int posFor(long index) { // For index in range; returns the position in elements[]
-//			return (int) ((index - offset) & MASK);
-//		}
-//
-//		private long indexFor(int arrayPos) { // Returns the index corresponding to an array position.
-//			return clearLowBits(offset, LOG2_CAPACITY) + ((arrayPos + offset) & MASK);
-//		}
-//
-//	}
-//
-//	/** The fractal structure. */
-//	private static final class Fractal<E> extends FractalArrayImpl<E> {
-//		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
-//		private static final int SIZE_INC = 4;
-//		private static final int ARRAY_LENGTH = 1 << SIZE_INC;
-//		private static final int MASK = ARRAY_LENGTH - 1;
-//
-//		private final FractalArrayImpl<E>[] inners;
-//		private final int innerIndexSize; // Always in range [Array.INDEX_SIZE .. 63] by construction.
-//		private int count; // Number of non-empty inner fractals.
-//
-//		@SuppressWarnings("unchecked")
-//		public Fractal(long index, E element, FractalArrayImpl<E> inner) {
-//			inners = new FractalArrayImpl[ARRAY_LENGTH];
-//			int shift = Array.INDEX_SIZE;
-//			long diffBits = inner.prefix ^ index;
-//			while ((diffBits >>> shift >>> SIZE_INC) != 0)
-//				shift += SIZE_INC;
-//			innerIndexSize = shift; // Minimal shift for element and inner to belong to the same fractal.
-//			prefix = clearLowBits(index >>> SIZE_INC, innerIndexSize) << SIZE_INC;
-//			inners[arrayIndex(index)] = new Single<E>(subIndex(index), element);
-//			inners[arrayIndex(inner.prefix)] = inner;
-//			inner.prefix = subIndex(inner.prefix); // Clears prefix and array index high bits (makes it inner).
-//			count = 2;
-//		}
-//
-//		private Fractal(Fractal<E> that) {
-//			inners = that.inners.clone();
-//			prefix = that.prefix;
-//			innerIndexSize = that.innerIndexSize;
-//			count = that.count;
-//			for (int i = 0; i < ARRAY_LENGTH; i++) {
-//				FractalArrayImpl<E> fractal = inners[i];
-//				if (fractal != null)
-//					inners[i] = fractal.clone();
-//			}
-//		}
-//
-//		@Override
-//		public E get(long index) {
-//			if (!inRange(index))
-//				return null;
-//			FractalArrayImpl<E> fractal = inners[arrayIndex(index)];
-//			return (fractal != null) ? fractal.get(subIndex(index)) : null;
-//		}
-//
-//		@Override
-//		public FractalArrayImpl<E> clear(long index) {
-//			if (!inRange(index))
-//				return this;
-//			int i = arrayIndex(index);
-//			FractalArrayImpl<E> fractal = inners[i];
-//			if (fractal == null)
-//				return this;
-//			FractalArrayImpl<E> newFractal = fractal.clear(subIndex(index));
-//			if (newFractal != fractal)
-//				inners[i] = newFractal.isEmpty() ? null : newFractal;
-//			return newFractal.isEmpty() && (--count == 1) ? extractFractal() : this;
-//		}
-//
-//		@Override
-//		public FractalArrayImpl<E> set(long index, E element) {
-//			if (element == null)
-//				return clear(index);
-//			if (!inRange(index))
-//				return new Fractal<E>(index, element, this);
-//			int i = arrayIndex(index);
-//			FractalArrayImpl<E> fractal = inners[i];
-//			if (fractal == null) {
-//				inners[i] = new Single<E>(subIndex(index), element);
-//				count++;
-//			} else {
-//				FractalArrayImpl<E> newFractal = fractal.set(subIndex(index), element);
-//				if (newFractal != fractal)
-//					inners[i] = newFractal;
-//			}
-//			return this;
-//		}
-//
-//		@Override
-//		public FractalArrayImpl<E> shift(long from, long to, E inserted) {
-//			if (from == to)
-//				return set(from, inserted);
-//
-//			if (unsignedLessThan(from, to)) { // Right shift.
-//
-//				if (isUnderflow(from))
-//					return shift(firstIndex(), to, null).set(from, inserted);
-//				if (isOverflow(to))
-//					return set(lastIndex() + 1, get(lastIndex())).shift(from, lastIndex(), inserted);
-//
-//				if ((to - from) >>> innerIndexSize > ARRAY_LENGTH / 2) // Optimization
-//					return shift(lastIndex(), to, get(firstIndex())).shiftRight().shift(from, firstIndex(), inserted);
-//				int iFrom = arrayIndex(from);
-//				int iTo = arrayIndex(to);
-//				for (int i = iFrom;; i = ++i & MASK) {
-//					long minSubIndex = (i == iFrom) ? subIndex(from) : 0;
-//					long maxSubIndex = (i == iTo) ? subIndex(to) : clearHighBits(-1, 64 - innerIndexSize);
-//					FractalArrayImpl<E> fractal = inners[i];
-//					if (fractal == null) {
-//						inners[i] = new Single<E>(minSubIndex, inserted);
-//						count++;
-//						inserted = null;
-//					} else {
-//						E carry = fractal.get(maxSubIndex);
-//						FractalArrayImpl<E> newFractal = fractal.shift(minSubIndex, maxSubIndex, inserted);
-//						if (newFractal != fractal)
-//							inners[i] = newFractal.isEmpty() ? null : newFractal;
-//						if (newFractal.isEmpty())
-//							count--;
-//						inserted = carry;
-//					}
-//					if (i == iTo)
-//						break;
-//				}
-//
-//			} else { // Left shift.
-//
-//				if (isUnderflow(to))
-//					return set(firstIndex() - 1, get(firstIndex())).shift(from, firstIndex(), inserted);
-//				if (isOverflow(from))
-//					return shift(lastIndex(), to, null).set(from, inserted);
-//
-//				if ((from - to) >>> innerIndexSize > ARRAY_LENGTH / 2) // Optimization
-//					return shift(firstIndex(), to, get(lastIndex())).shiftLeft().shift(from, lastIndex(), inserted);
-//
-//				int iFrom = arrayIndex(from);
-//				int iTo = arrayIndex(to);
-//				for (int i = iFrom;; i = --i & MASK) {
-//					long minSubIndex = (i == iTo) ? subIndex(to) : 0;
-//					long maxSubIndex = (i == iFrom) ? subIndex(from) : clearHighBits(-1, 64 - innerIndexSize);
-//					FractalArrayImpl<E> fractal = inners[i];
-//					if (fractal == null) {
-//						inners[i] = new Single<E>(maxSubIndex, inserted);
-//						count++;
-//						inserted = null;
-//					} else {
-//						E carry = fractal.get(minSubIndex);
-//						FractalArrayImpl<E> newFractal = fractal.shift(maxSubIndex, minSubIndex, inserted);
-//						if (newFractal != fractal)
-//							inners[i] = newFractal.isEmpty() ? null : newFractal;
-//						if (newFractal.isEmpty())
-//							count--;
-//						inserted = carry;
-//					}
-//					if (i == iTo)
-//						break;
-//				}
-//			}
-//
-//			return (count == 1) ? extractFractal() : this;
-//		}
-//
-//		@Override
-//		public Fractal<E> clone() {
-//			return new Fractal<E>(this);
-//		}
-//
-//		@Override
-//		public long next(long index, long to, Predicate<? super E> matching) {
-//			int inc;
-//			if (unsignedLessThan(index, to)) {
-//				if (isOverflow(index))
-//					return index;
-//				from = max(firstIndex(), from);
-//				to = min(lastIndex(), to);
-//				inc = 1;
-//			} else {
-//				if (isUnderflow(from))
-//					return -1;
-//				from = min(lastIndex(), from);
-//				to = max(firstIndex(), to);
-//				inc = -1;
-//			}
-//			for (int i = arrayIndex(from), first = i, last = arrayIndex(to);; i = (i + inc) & MASK) {
-//				FractalArrayImpl<E> fractal = inners[i];
-//				if (fractal != null) {
-//					long fromSubIndex = (i == first) ? subIndex(from) : (inc > 0) ? 0 : -1;
-//					long toSubIndex = (i == last) ? subIndex(to) : (inc > 0) ? -1 : 0;
-//					long subIndex = fractal.next(fromSubIndex, toSubIndex, matching);
-//					if (subIndex != -1)
-//						return indexFor(i, subIndex);
-//				}
-//				if (i == last)
-//					return -1;
-//			}
-//		}
-//
-//		@Override
-//		Fractal<E> shiftRight() {
-//			long newOffset = clearHighBits(prefix - 1, max(0, 64 - SIZE_INC - innerIndexSize));
-//			prefix = prefixWithoutOffset() | newOffset;
-//			return this;
-//		}
-//
-//		@Override
-//		Fractal<E> shiftLeft() {
-//			long newOffset = clearHighBits(prefix + 1, max(0, 64 - SIZE_INC - innerIndexSize));
-//			prefix = prefixWithoutOffset() | newOffset;
-//			return this;
-//		}
-//
-//		private FractalArrayImpl<E> extractFractal() { // Called when count == 1 to extract the single inner.
-//			for (int i = arrayIndex(0);; i = ++i & MASK) {
-//				FractalArrayImpl<E> inner = inners[i];
-//				if (inner == null)
-//					continue;
-//				inner.prefix = indexFor(i, 0L); // Full prefix is the index of the first fractal element.
-//				return inner;
-//			}
-//		}
-//
-//		private boolean inRange(long index) { // Check prefix equality
-//			return (index ^ prefix) >>> SIZE_INC >>> innerIndexSize == 0;
-//		}
-//
-//		private boolean isUnderflow(long index) { // Too small.
-//			return (index >>> SIZE_INC >>> innerIndexSize) < (prefix >>> SIZE_INC >>> innerIndexSize);
-//		}
-//
-//		private boolean isOverflow(long index) { // Too large.
-//			return (index >>> SIZE_INC >>> innerIndexSize) > (prefix >>> SIZE_INC >>> innerIndexSize);
-//		}
-//
-//		private long prefixWithoutOffset() {
-//			return clearLowBits(prefix >>> SIZE_INC, innerIndexSize) << SIZE_INC;
-//		}
-//
-//		private long firstIndex() {
-//			return clearLowBits(prefix >>> SIZE_INC, innerIndexSize) << SIZE_INC;
-//		}
-//
-//		private long lastIndex() {
-//			return firstIndex() + (1L << SIZE_INC << innerIndexSize) - 1L;
-//		}
-//
-//		private int arrayIndex(long index) {
-//			return (int) clearHighBits((index + prefix) >>> innerIndexSize, 64 - SIZE_INC);
-//		}
-//
-//		private long subIndex(long index) {
-//			return clearHighBits(index + prefix, 64 - innerIndexSize);
-//		}
-//
-//		private long indexFor(long arrayIndex, long subIndex) { // Input/Output index of this fractal.
-//			long indexUnbound = (arrayIndex << innerIndexSize) + subIndex - prefix; // High bits should be ignored.
-//			return prefixWithoutOffset() | clearHighBits(indexUnbound, max(0, 64 - SIZE_INC - innerIndexSize));
-//		}
-//
-//	}
-//
+
+	/**
+	 * A contiguous range of non-null elements starting at {@code offset}; no index is stored and elements are
+	 * accessed directly (no search). The elements are held in a rotating buffer so that adding or removing
+	 * elements at both ends (including the rotations performed by enclosing fractals) is done in constant time.
+	 * Replaced by a sorted array when a hole is created or by a fractal when its maximum length is reached.
+	 */
+	private static final class Dense<E> extends FractalArrayImpl<E> {
+		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
+		private static final int INITIAL_CAPACITY = 16;
+		private static final int MAX_LENGTH = 256;
+		private E[] elements; // Rotating buffer (length is a power of two).
+		private int head; // Position of the first element.
+		private int length; // At least one.
+		private long offset; // Index of the first element.
+		private long weight; // Sum of the elements weights (equals length if no weighted element).
+
+		@SuppressWarnings("unchecked")
+		public Dense(long offset, E e0, E e1) {
+			elements = (E[]) new Object[INITIAL_CAPACITY];
+			elements[0] = e0;
+			elements[1] = e1;
+			length = 2;
+			weight = weightOf(e0) + weightOf(e1);
+			this.offset = offset;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Dense(long offset, E[] src, int from, int length) { // Bulk.
+			int capacity = INITIAL_CAPACITY;
+			while (capacity < length) capacity <<= 1;
+			elements = (E[]) new Object[capacity];
+			System.arraycopy(src, from, elements, 0, length);
+			this.length = length;
+			this.offset = offset;
+			for (int i = 0; i < length; i++) weight += weightOf(elements[i]);
+		}
+
+		private Dense(Dense<E> that) {
+			elements = that.elements.clone();
+			head = that.head;
+			length = that.length;
+			offset = that.offset;
+			weight = that.weight;
+		}
+
+		@Override
+		public Dense<E> clone() {
+			return new Dense<E>(this);
+		}
+
+		@Override
+		public E get(long index) {
+			long i = index - offset;
+			return (i >= 0) && (i < length) ? elements[(head + (int) i) & (elements.length - 1)] : null;
+		}
+
+		@Override
+		public FractalArrayImpl<E> clear(long index) {
+			long i = index - offset;
+			if ((i < 0) || (i >= length)) return this;
+			if (length == 1) return empty();
+			if (shared) return clone().clear(index);
+			if (i == 0) {
+				removeAt(0);
+				offset++;
+			} else if (i == length - 1) {
+				removeAt(length - 1);
+			} else return toArray().clear(index); // Hole.
+			return downsize();
+		}
+
+		@Override
+		FractalArrayImpl<E> set(long index, E element, int bits) {
+			if (element == null) return clear(index);
+			if (shared) return clone().set(index, element, bits);
+			long i = index - offset;
+			if ((i >= 0) && (i < length)) { // Replace element.
+				int pos = (head + (int) i) & (elements.length - 1);
+				weight += weightOf(element) - weightOf(elements[pos]);
+				elements[pos] = element;
+				return this;
+			}
+			if (((i == length) && (index != 0)) || ((i == -1) && (offset != 0))) { // Append or prepend.
+				if (!upsize()) return toFractal(index, bits).set(index, element, bits);
+				if (i == -1) offset--;
+				insertAt((int) (index - offset), element);
+				return this;
+			}
+			return toArray().set(index, element, bits);
+		}
+
+		@Override
+		FractalArrayImpl<E> shift(long from, long to, E inserted, int bits) {
+			if (from == to) return set(from, inserted, bits);
+			if (length == 1) return new Single<E>(offset, elements[head]).shift(from, to, inserted, bits);
+			if (shared) return clone().shift(from, to, inserted, bits);
+			long last = offset + length - 1;
+			if (unsignedLessThan(from, to)) { // Right shift.
+				if (unsignedLessThan(to, offset) || unsignedLessThan(last, from)) return set(from, inserted, bits);
+				if (!unsignedLessThan(offset, from)) { // All elements up to 'to' are shifted.
+					if (!unsignedLessThan(last, to)) removeAt((int) (to - offset)); // Discarded.
+					offset++;
+					return set(from, inserted, bits);
+				}
+				if (inserted == null) return toArray().shift(from, to, inserted, bits); // Hole.
+				if (!unsignedLessThan(last, to)) {
+					removeAt((int) (to - offset)); // Discarded.
+				} else if (!upsize()) return toFractal(last + 1, bits).shift(from, to, inserted, bits);
+				insertAt((int) (from - offset), inserted);
+				return this;
+			} else { // Left shift.
+				if (unsignedLessThan(from, offset) || unsignedLessThan(last, to)) return set(from, inserted, bits);
+				if (!unsignedLessThan(from, last)) { // All elements from 'to' are shifted.
+					if (unsignedLessThan(to, offset)) offset--;
+					else removeAt((int) (to - offset)); // Discarded.
+					return set(from, inserted, bits);
+				}
+				if (inserted == null) return toArray().shift(from, to, inserted, bits); // Hole.
+				if (unsignedLessThan(to, offset)) {
+					if (!upsize()) return toFractal(last, bits).shift(from, to, inserted, bits);
+					offset--;
+				} else removeAt((int) (to - offset)); // Discarded.
+				insertAt((int) (from - offset), inserted);
+				return this;
+			}
+		}
+
+		@Override
+		long next(long from, long to, Predicate<? super E> matching) {
+			long last = offset + length - 1;
+			int mask = elements.length - 1;
+			if (unsignedLessThan(to, from)) { // Descending.
+				if (unsignedLessThan(from, offset) || unsignedLessThan(last, to)) return NOT_FOUND;
+				int end = unsignedLessThan(to, offset) ? 0 : (int) (to - offset);
+				for (int i = unsignedLessThan(last, from) ? length - 1 : (int) (from - offset); i >= end; --i)
+					if (matching.test(elements[(head + i) & mask])) return offset + i;
+			} else {
+				if (unsignedLessThan(to, offset) || unsignedLessThan(last, from)) return NOT_FOUND;
+				int end = unsignedLessThan(last, to) ? length - 1 : (int) (to - offset);
+				for (int i = unsignedLessThan(from, offset) ? 0 : (int) (from - offset); i <= end; ++i)
+					if (matching.test(elements[(head + i) & mask])) return offset + i;
+			}
+			return NOT_FOUND;
+		}
+
+		@Override
+		public long count() {
+			return weight;
+		}
+
+		@Override
+		long countRange(long from, long to) {
+			long last = offset + length - 1;
+			long low = unsignedLessThan(from, offset) ? offset : from;
+			long high = unsignedLessThan(last, to) ? last : to;
+			if (unsignedLessThan(high, low)) return 0;
+			if (weight == length) return high - low + 1;
+			long result = 0;
+			for (int i = (int) (low - offset), end = (int) (high - offset); i <= end; i++)
+				result += weightOf(elements[(head + i) & (elements.length - 1)]);
+			return result;
+		}
+
+		@Override
+		long selectIndex(long rank) {
+			if (weight == length) return offset + rank;
+			for (int i = 0;; i++) {
+				rank -= weightOf(elements[(head + i) & (elements.length - 1)]);
+				if (rank < 0) return offset + i;
+			}
+		}
+
+		/** Inserts the specified element at the specified position (there should be room for it). */
+		private void insertAt(int i, E element) {
+			int mask = elements.length - 1;
+			if (i < length - i) { // Moves the head backward.
+				head = (head - 1) & mask;
+				for (int j = 0; j < i; j++) elements[(head + j) & mask] = elements[(head + j + 1) & mask];
+			} else { // Moves the tail forward.
+				for (int j = length; j > i; j--) elements[(head + j) & mask] = elements[(head + j - 1) & mask];
+			}
+			elements[(head + i) & mask] = element;
+			length++;
+			weight += weightOf(element);
+		}
+
+		/** Removes the element at the specified position. */
+		private void removeAt(int i) {
+			int mask = elements.length - 1;
+			weight -= weightOf(elements[(head + i) & mask]);
+			if (i < length - 1 - i) { // Moves the head forward.
+				for (int j = i; j > 0; j--) elements[(head + j) & mask] = elements[(head + j - 1) & mask];
+				elements[head] = null;
+				head = (head + 1) & mask;
+			} else { // Moves the tail backward.
+				for (int j = i; j < length - 1; j++) elements[(head + j) & mask] = elements[(head + j + 1) & mask];
+				elements[(head + length - 1) & mask] = null;
+			}
+			length--;
+		}
+
+		/** Returns a sorted array holding the elements of this dense array. */
+		@SuppressWarnings("unchecked")
+		private Array<E> toArray() {
+			int capacity = Array.INITIAL_CAPACITY;
+			while (capacity <= length) capacity <<= 1;
+			long[] indices = new long[capacity];
+			E[] elementsTmp = (E[]) new Object[capacity];
+			for (int i = 0; i < length; i++) {
+				indices[i] = offset + i;
+				elementsTmp[i] = elements[(head + i) & (elements.length - 1)];
+			}
+			return new Array<E>(indices, elementsTmp, length);
+		}
+
+		/** Returns a fractal holding the elements of this dense array and able to hold the specified index. */
+		private Fractal<E> toFractal(long index, int bits) {
+			long last = offset + length - 1;
+			Fractal<E> fractal = Fractal.newInstance(unsignedLessThan(index, last) ? last : index, bits);
+			for (int i = 0; i < length; i++) fractal.set(offset + i, elements[(head + i) & (elements.length - 1)], bits);
+			return fractal;
+		}
+
+		/** Ensures room for one more element; returns {@code false} if the maximum length is reached. */
+		@SuppressWarnings("unchecked")
+		private boolean upsize() {
+			if (length < elements.length) return true;
+			if (length >= MAX_LENGTH) return false;
+			E[] elementsTmp = (E[]) new Object[elements.length * 2];
+			for (int i = 0; i < length; i++) elementsTmp[i] = elements[(head + i) & (elements.length - 1)];
+			elements = elementsTmp;
+			head = 0;
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		private FractalArrayImpl<E> downsize() {
+			if (length == 1) return new Single<E>(offset, elements[head]);
+			if ((elements.length <= INITIAL_CAPACITY) || (length * 4 > elements.length)) return this;
+			E[] elementsTmp = (E[]) new Object[elements.length / 2];
+			for (int i = 0; i < length; i++) elementsTmp[i] = elements[(head + i) & (elements.length - 1)];
+			elements = elementsTmp;
+			head = 0;
+			return this;
+		}
+
+	}
+
+	/**
+	 * The fractal structure; a trie of 16 inner fractals whose index space can be rotated (offset).
+	 * The inner fractals hold the elements for the positions {@code (index + offset) mod 2^indexSize}.
+	 */
+	private static final class Fractal<E> extends FractalArrayImpl<E> {
+		private static final long serialVersionUID = FractalArrayImpl.serialVersionUID;
+		private static final int SIZE_INC = 4;
+		private static final int MIN_INDEX_SIZE = 2 * SIZE_INC;
+		private static final int ARRAY_LENGTH = 1 << SIZE_INC;
+
+		private final FractalArrayImpl<E>[] inners;
+		private final int innerIndexSize; // Multiple of SIZE_INC in range [SIZE_INC .. 60] by construction.
+		private long offset; // Rotation offset (fast shift of the whole fractal).
+		private int count; // Number of non-empty inner fractals.
+		private long size; // Number of elements (sum of the inner fractals counts, weighted).
+
+		@SuppressWarnings("unchecked")
+		public Fractal(int innerIndexSize) {
+			this.inners = new FractalArrayImpl[ARRAY_LENGTH];
+			this.innerIndexSize = innerIndexSize;
+		}
+
+		/** Returns an empty fractal able to hold the specified index (at least MIN_INDEX_SIZE bits). */
+		static <E> Fractal<E> newInstance(long maxIndex, int bits) {
+			int indexSize = MIN_INDEX_SIZE;
+			while ((indexSize < bits) && (maxIndex >>> indexSize != 0)) indexSize += SIZE_INC;
+			return new Fractal<E>(indexSize - SIZE_INC);
+		}
+
+		private Fractal(Fractal<E> inner) { // Enclosing fractal with higher capacity.
+			this(inner.innerIndexSize + SIZE_INC);
+			inners[0] = inner;
+			count = 1;
+			size = inner.size;
+		}
+
+		@Override
+		public Fractal<E> clone() { // Inner fractals are shared (copy-on-write).
+			Fractal<E> copy = new Fractal<E>(innerIndexSize);
+			copy.offset = offset;
+			copy.count = count;
+			copy.size = size;
+			for (int i = 0; i < ARRAY_LENGTH; i++) {
+				FractalArrayImpl<E> inner = inners[i];
+				if (inner == null) continue;
+				inner.shared = true;
+				copy.inners[i] = inner;
+			}
+			return copy;
+		}
+
+		@Override
+		public E get(long index) {
+			if (!inRange(index)) return null;
+			long pos = positionOf(index);
+			FractalArrayImpl<E> inner = inners[arrayIndex(pos)];
+			return (inner != null) ? inner.get(subIndex(pos)) : null;
+		}
+
+		@Override
+		public FractalArrayImpl<E> clear(long index) {
+			if (!inRange(index)) return this;
+			long pos = positionOf(index);
+			int i = arrayIndex(pos);
+			FractalArrayImpl<E> inner = inners[i];
+			if (inner == null) return this;
+			if (shared) return clone().clear(index);
+			long previousCount = inner.count();
+			inner = inner.clear(subIndex(pos));
+			size += inner.count() - previousCount;
+			if (!inner.isEmpty()) {
+				inners[i] = inner;
+				return this;
+			}
+			inners[i] = null;
+			return (--count <= 1) ? trim() : this;
+		}
+
+		@Override
+		FractalArrayImpl<E> set(long index, E element, int bits) {
+			if (element == null) return clear(index);
+			if (shared) return clone().set(index, element, bits);
+			if (!inRange(index)) return new Fractal<E>(this).set(index, element, bits);
+			long pos = positionOf(index);
+			int i = arrayIndex(pos);
+			FractalArrayImpl<E> inner = inners[i];
+			if (inner == null) {
+				inners[i] = new Single<E>(subIndex(pos), element);
+				count++;
+				size += weightOf(element);
+			} else {
+				long previousCount = inner.count();
+				inners[i] = inner.set(subIndex(pos), element, innerIndexSize);
+				size += inners[i].count() - previousCount;
+			}
+			return this;
+		}
+
+		@Override
+		FractalArrayImpl<E> shift(long from, long to, E inserted, int bits) {
+			if (from == to) return set(from, inserted, bits);
+			if (shared) return clone().shift(from, to, inserted, bits);
+			long last = lastIndex();
+			if (unsignedLessThan(from, to)) { // Right shift.
+				if (!inRange(from)) return set(from, inserted, bits); // Nothing to shift.
+				if (!inRange(to)) { // Shift up to our last index (if empty).
+					if (get(last) != null) return new Fractal<E>(this).shift(from, to, inserted, bits);
+					return shift(from, last, inserted, bits);
+				}
+				if ((from == 0) && (to == last)) { // Rotation.
+					FractalArrayImpl<E> discarded = clear(to);
+					if (discarded != this) return discarded.shift(from, to, inserted, bits);
+					offset = (offset - 1) & last;
+					return set(from, inserted, bits);
+				}
+				return shiftRight(from, to, inserted);
+			} else { // Left shift.
+				if (!inRange(to)) return set(from, inserted, bits); // Nothing to shift.
+				if (!inRange(from)) { // Shift from our last index.
+					if (inserted != null) return new Fractal<E>(this).shift(from, to, inserted, bits);
+					return shift(last, to, null, bits);
+				}
+				if ((from == last) && (to == 0)) { // Rotation.
+					FractalArrayImpl<E> discarded = clear(to);
+					if (discarded != this) return discarded.shift(from, to, inserted, bits);
+					offset = (offset + 1) & last;
+					return set(from, inserted, bits);
+				}
+				return shiftLeft(from, to, inserted);
+			}
+		}
+
+		/** Right shift within range, the carry of each inner fractal is inserted into the next one. */
+		private FractalArrayImpl<E> shiftRight(long from, long to, E inserted) {
+			long innerLast = innerLastIndex();
+			long pos = positionOf(from);
+			long remaining = to - from;
+			for (E carry = inserted;;) {
+				int i = arrayIndex(pos);
+				long subFrom = subIndex(pos);
+				long subTo = unsignedLessThan(remaining, innerLast - subFrom) ? subFrom + remaining : innerLast;
+				FractalArrayImpl<E> inner = inners[i];
+				if (inner != null) {
+					E next = inner.get(subTo);
+					long previousCount = inner.count();
+					update(i, inner.shift(subFrom, subTo, carry, innerIndexSize), previousCount);
+					carry = next;
+				} else if (carry != null) {
+					update(i, new Single<E>(subFrom, carry), 0);
+					carry = null;
+				}
+				long length = subTo - subFrom;
+				if (remaining == length) break;
+				remaining -= length + 1;
+				pos = (pos + length + 1) & lastIndex();
+			}
+			return (count <= 1) ? trim() : this;
+		}
+
+		/** Left shift within range, the carry of each inner fractal is inserted into the previous one. */
+		private FractalArrayImpl<E> shiftLeft(long from, long to, E inserted) {
+			long pos = positionOf(from);
+			long remaining = from - to;
+			for (E carry = inserted;;) {
+				int i = arrayIndex(pos);
+				long subFrom = subIndex(pos);
+				long subTo = unsignedLessThan(remaining, subFrom) ? subFrom - remaining : 0;
+				FractalArrayImpl<E> inner = inners[i];
+				if (inner != null) {
+					E next = inner.get(subTo);
+					long previousCount = inner.count();
+					update(i, inner.shift(subFrom, subTo, carry, innerIndexSize), previousCount);
+					carry = next;
+				} else if (carry != null) {
+					update(i, new Single<E>(subFrom, carry), 0);
+					carry = null;
+				}
+				long length = subFrom - subTo;
+				if (remaining == length) break;
+				remaining -= length + 1;
+				pos = (pos - length - 1) & lastIndex();
+			}
+			return (count <= 1) ? trim() : this;
+		}
+
+		@Override
+		long next(long from, long to, Predicate<? super E> matching) {
+			if (unsignedLessThan(to, from)) { // Descending.
+				if (!inRange(to)) return NOT_FOUND;
+				if (!inRange(from)) from = lastIndex();
+				long pos = positionOf(from);
+				for (long remaining = from - to;;) {
+					int i = arrayIndex(pos);
+					long subFrom = subIndex(pos);
+					long subTo = unsignedLessThan(remaining, subFrom) ? subFrom - remaining : 0;
+					FractalArrayImpl<E> inner = inners[i];
+					if (inner != null) {
+						long subIndex = inner.next(subFrom, subTo, matching);
+						if (subIndex != NOT_FOUND) return indexFor(i, subIndex);
+					}
+					long length = subFrom - subTo;
+					if (remaining == length) return NOT_FOUND;
+					remaining -= length + 1;
+					pos = (pos - length - 1) & lastIndex();
+				}
+			} else { // Ascending.
+				if (!inRange(from)) return NOT_FOUND;
+				if (!inRange(to)) to = lastIndex();
+				long innerLast = innerLastIndex();
+				long pos = positionOf(from);
+				for (long remaining = to - from;;) {
+					int i = arrayIndex(pos);
+					long subFrom = subIndex(pos);
+					long subTo = unsignedLessThan(remaining, innerLast - subFrom) ? subFrom + remaining : innerLast;
+					FractalArrayImpl<E> inner = inners[i];
+					if (inner != null) {
+						long subIndex = inner.next(subFrom, subTo, matching);
+						if (subIndex != NOT_FOUND) return indexFor(i, subIndex);
+					}
+					long length = subTo - subFrom;
+					if (remaining == length) return NOT_FOUND;
+					remaining -= length + 1;
+					pos = (pos + length + 1) & lastIndex();
+				}
+			}
+		}
+
+		@Override
+		public long count() {
+			return size;
+		}
+
+		@Override
+		long countRange(long from, long to) {
+			if (!inRange(from)) return 0;
+			if (!inRange(to)) to = lastIndex();
+			if ((from == 0) && (to == lastIndex())) return size;
+			long innerLast = innerLastIndex();
+			long pos = positionOf(from);
+			long result = 0;
+			for (long remaining = to - from;;) {
+				int i = arrayIndex(pos);
+				long subFrom = subIndex(pos);
+				long subTo = unsignedLessThan(remaining, innerLast - subFrom) ? subFrom + remaining : innerLast;
+				FractalArrayImpl<E> inner = inners[i];
+				if (inner != null)
+					result += (subFrom == 0) && (subTo == innerLast) ? inner.count() : inner.countRange(subFrom, subTo);
+				long length = subTo - subFrom;
+				if (remaining == length) return result;
+				remaining -= length + 1;
+				pos = (pos + length + 1) & lastIndex();
+			}
+		}
+
+		@Override
+		long selectIndex(long rank) { // Iterates the inner fractals from the position of index 0 (offset).
+			long innerLast = innerLastIndex();
+			long pos = offset;
+			for (long remaining = lastIndex();;) {
+				int i = arrayIndex(pos);
+				long subFrom = subIndex(pos);
+				long subTo = unsignedLessThan(remaining, innerLast - subFrom) ? subFrom + remaining : innerLast;
+				FractalArrayImpl<E> inner = inners[i];
+				if (inner != null) {
+					boolean whole = (subFrom == 0) && (subTo == innerLast);
+					long innerCount = whole ? inner.count() : inner.countRange(subFrom, subTo);
+					if (rank < innerCount) {
+						long skipped = (subFrom == 0) ? 0 : inner.countRange(0, subFrom - 1);
+						return indexFor(i, inner.selectIndex(rank + skipped));
+					}
+					rank -= innerCount;
+				}
+				long length = subTo - subFrom;
+				if (remaining == length) return NOT_FOUND;
+				remaining -= length + 1;
+				pos = (pos + length + 1) & lastIndex();
+			}
+		}
+
+		private void update(int i, FractalArrayImpl<E> inner, long previousCount) {
+			size += inner.count() - previousCount;
+			if (inner.isEmpty()) {
+				if (inners[i] != null) count--;
+				inners[i] = null;
+			} else {
+				if (inners[i] == null) count++;
+				inners[i] = inner;
+			}
+		}
+
+		private FractalArrayImpl<E> trim() { // Called when count <= 1 to extract the single inner (if aligned).
+			if (count == 0) return empty();
+			for (int i = 0;; i++) {
+				FractalArrayImpl<E> inner = inners[i];
+				if (inner == null) continue;
+				return (offset == (long) i << innerIndexSize) ? inner : this;
+			}
+		}
+
+		private boolean inRange(long index) {
+			return (index >>> innerIndexSize >>> SIZE_INC) == 0;
+		}
+
+		private long lastIndex() { // Also mask for positions.
+			return (innerIndexSize + SIZE_INC == 64) ? -1 : (1L << innerIndexSize << SIZE_INC) - 1;
+		}
+
+		private long innerLastIndex() {
+			return (1L << innerIndexSize) - 1;
+		}
+
+		private long positionOf(long index) {
+			return (index + offset) & lastIndex();
+		}
+
+		private int arrayIndex(long pos) {
+			return (int) (pos >>> innerIndexSize);
+		}
+
+		private long subIndex(long pos) {
+			return pos & innerLastIndex();
+		}
+
+		private long indexFor(int arrayIndex, long subIndex) {
+			return (((long) arrayIndex << innerIndexSize) + subIndex - offset) & lastIndex();
+		}
+
+	}
+
 }
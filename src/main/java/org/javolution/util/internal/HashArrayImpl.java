@@ -0,0 +1,260 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import static org.javolution.lang.MathLib.unsignedLessThan;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.util.FractalArray;
+import org.javolution.util.function.Predicate;
+
+/**
+ * A fractal array implementation based on open addressing (linear probing) over dense arrays of indices and
+ * elements, for uniformly distributed indices (e.g. scrambled hash values).
+ *
+ * The home slot of an index is given by its most significant bits, the slots are kept sorted by index
+ * (an insertion shifts the following elements of its cluster) which allows for ordered iterations and early
+ * termination of unsuccessful searches. Clusters never wrap around, an overflow area follows the last home slot
+ * and the last slot of the arrays is always empty. Empty slots have a zero index, the element at index zero
+ * is held separately.
+ *
+ * The slots management is provided through static methods shared with {@link LongHashArrayImpl} (the elements
+ * arrays being of any type).
+ *
+ * Cloning is performed in constant time; the arrays are shared and copied only when modified (copy-on-write).
+ * Insertion/deletion (shift of indices) are supported but performed in linear time.
+ */
+public final class HashArrayImpl<E> extends FractalArray<E> {
+
+	private static final long serialVersionUID = 0x700L; // Version.
+	static final int MIN_BITS = 4; // Minimum capacity of 16 slots.
+
+	private int bits; // The capacity is 2^bits home slots.
+	private long[] indices; // Zero for empty slots.
+	private Object[] elements;
+	private Object zero; // The element at index zero (null if none).
+	private int size; // Number of slots used.
+	private boolean shared; // The arrays are shared with a clone (copied before being modified).
+
+	/** Creates an empty instance. */
+	public HashArrayImpl() {
+		allocate(MIN_BITS);
+	}
+
+	private HashArrayImpl(HashArrayImpl<E> that) {
+		this.bits = that.bits;
+		this.indices = that.indices;
+		this.elements = that.elements;
+		this.zero = that.zero;
+		this.size = that.size;
+		this.shared = true;
+	}
+
+	@Override
+	public HashArrayImpl<E> clone() {
+		shared = true;
+		return new HashArrayImpl<E>(this);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (size == 0) && (zero == null);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public @Nullable E get(long index) {
+		if (index == 0) return (E) zero;
+		long[] indices = this.indices;
+		for (int i = home(index, bits);; i++) {
+			long j = indices[i];
+			if (j == index) return (E) elements[i];
+			if ((j == 0) || unsignedLessThan(index, j)) return null; // Sorted.
+		}
+	}
+
+	@Override
+	public HashArrayImpl<E> clear(long index) {
+		if (index == 0) {
+			zero = null;
+			return this;
+		}
+		int i = slotOf(indices, bits, index);
+		if (indices[i] != index) return this; // Not found.
+		if (shared) unshare();
+		elements[removeSlot(indices, elements, i, bits)] = null;
+		size--;
+		return this;
+	}
+
+	@Override
+	public HashArrayImpl<E> set(long index, @Nullable E element) {
+		if (element == null) return clear(index);
+		if (index == 0) {
+			zero = element;
+			return this;
+		}
+		int i = slotOf(indices, bits, index);
+		if (shared) unshare();
+		if (indices[i] == index) { // Replaces.
+			elements[i] = element;
+			return this;
+		}
+		if (!makeRoom(indices, elements, i, size, bits)) {
+			resize(bits + 1);
+			return set(index, element);
+		}
+		indices[i] = index;
+		elements[i] = element;
+		size++;
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public FractalArray<E> insert(long index, @Nullable E inserted) {
+		if (get(-1) != null) throw new ArithmeticException("Index Overflow");
+		HashArrayImpl<E> shifted = new HashArrayImpl<E>();
+		shifted.allocate(bits);
+		for (int i = 0; i < indices.length; i++) {
+			long j = indices[i];
+			if (j != 0) shifted.set(unsignedLessThan(j, index) ? j : j + 1, (E) elements[i]);
+		}
+		shifted.set((index == 0) ? 1 : 0, (E) zero);
+		return shifted.set(index, inserted);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public FractalArray<E> delete(long index) {
+		HashArrayImpl<E> shifted = new HashArrayImpl<E>();
+		shifted.allocate(bits);
+		for (int i = 0; i < indices.length; i++) {
+			long j = indices[i];
+			if ((j == 0) || (j == index)) continue; // Empty or discarded.
+			shifted.set(unsignedLessThan(j, index) ? j : j - 1, (E) elements[i]);
+		}
+		if (index != 0) shifted.set(0, (E) zero);
+		return shifted;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public long next(long after, @Nullable Predicate<? super E> matching) {
+		if (after == -1) return 0;
+		for (int i = home(after, bits); i < indices.length; i++) { // Elements are never before their home slot.
+			long j = indices[i];
+			if ((j == 0) || !unsignedLessThan(after, j)) continue;
+			if ((matching == null) || matching.test((E) elements[i])) return j;
+		}
+		return 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public long previous(long before, @Nullable Predicate<? super E> matching) {
+		if (before == 0) return -1;
+		int i = slotOf(indices, bits, before);
+		while (--i >= 0) { // All the elements before i have a lower index.
+			if (indices[i] == 0) continue;
+			if ((matching == null) || matching.test((E) elements[i])) return indices[i];
+		}
+		if ((zero != null) && ((matching == null) || matching.test((E) zero))) return 0;
+		return -1;
+	}
+
+	/** Returns the length of the slots arrays for the specified number of home slots (2^bits). */
+	static int lengthOf(int bits) {
+		return (1 << bits) + (1 << (bits - 3)) + 8; // Overflow area.
+	}
+
+	/** Returns the home slot of the specified index. */
+	static int home(long index, int bits) {
+		return (int) (index >>> (64 - bits));
+	}
+
+	/** Returns the slot of the specified (non-zero) index or the slot where it should be inserted. */
+	static int slotOf(long[] indices, int bits, long index) {
+		int i = home(index, bits);
+		while ((indices[i] != 0) && unsignedLessThan(indices[i], index))
+			i++;
+		return i;
+	}
+
+	/**
+	 * Shifts the elements of the cluster from the specified slot to make room for an insertion at that slot;
+	 * returns {@code false} if the arrays have to be resized first (last slot reached or 75% load).
+	 */
+	static boolean makeRoom(long[] indices, Object elements, int slot, int size, int bits) {
+		int end = slot;
+		while (indices[end] != 0)
+			end++;
+		if ((end == indices.length - 1) || (size >= (3 << bits) >> 2)) return false;
+		System.arraycopy(indices, slot, indices, slot + 1, end - slot);
+		System.arraycopy(elements, slot, elements, slot + 1, end - slot);
+		return true;
+	}
+
+	/**
+	 * Removes the element at the specified slot, the following elements not at their home slot move back;
+	 * returns the slot freed (whose element should be cleared by the caller).
+	 */
+	static int removeSlot(long[] indices, Object elements, int slot, int bits) {
+		int end = slot + 1;
+		while ((indices[end] != 0) && (home(indices[end], bits) < end))
+			end++;
+		System.arraycopy(indices, slot + 1, indices, slot, end - slot - 1);
+		System.arraycopy(elements, slot + 1, elements, slot, end - slot - 1);
+		indices[end - 1] = 0;
+		return end - 1;
+	}
+
+	/**
+	 * Copies the elements (already sorted) to the specified empty arrays of larger capacity; returns
+	 * {@code false} if the overflow area of the new arrays has been exhausted.
+	 */
+	static boolean rehash(long[] oldIndices, Object oldElements, long[] indices, Object elements, int bits) {
+		for (int i = 0, last = -1; i < oldIndices.length; i++) {
+			if (oldIndices[i] == 0) continue;
+			int j = Math.max(home(oldIndices[i], bits), last + 1);
+			if (j == indices.length - 1) return false;
+			indices[j] = oldIndices[i];
+			System.arraycopy(oldElements, i, elements, j, 1);
+			last = j;
+		}
+		return true;
+	}
+
+	private void allocate(int bits) {
+		this.bits = bits;
+		indices = new long[lengthOf(bits)];
+		elements = new Object[indices.length];
+	}
+
+	/** Rebuilds this array with the specified capacity. */
+	private void resize(int newBits) {
+		long[] oldIndices = indices;
+		Object[] oldElements = elements;
+		allocate(newBits);
+		if (!rehash(oldIndices, oldElements, indices, elements, bits)) { // Overflow area exhausted.
+			indices = oldIndices;
+			elements = oldElements;
+			resize(newBits + 1);
+			return;
+		}
+		shared = false;
+	}
+
+	private void unshare() {
+		indices = indices.clone();
+		elements = elements.clone();
+		shared = false;
+	}
+
+}
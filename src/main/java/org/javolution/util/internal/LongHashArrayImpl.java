@@ -0,0 +1,326 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import static org.javolution.lang.MathLib.unsignedLessThan;
+import static org.javolution.util.internal.HashArrayImpl.MIN_BITS;
+import static org.javolution.util.internal.HashArrayImpl.home;
+import static org.javolution.util.internal.HashArrayImpl.lengthOf;
+import static org.javolution.util.internal.HashArrayImpl.makeRoom;
+import static org.javolution.util.internal.HashArrayImpl.rehash;
+import static org.javolution.util.internal.HashArrayImpl.removeSlot;
+import static org.javolution.util.internal.HashArrayImpl.slotOf;
+
+import java.util.NoSuchElementException;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.util.FractalArray;
+import org.javolution.util.function.Predicate;
+
+/**
+ * A {@link HashArrayImpl} holding {@code long} values in a dense array (no boxing); the slots are managed the
+ * same way. The primitive methods ({@link #getLong}, {@link #setLong}, {@link #add}, {@link #removeLong} and the
+ * {@link Cursor#nextLong} iterations) do not allocate, the values are boxed only when accessed through the
+ * {@link FractalArray} methods.
+ */
+public final class LongHashArrayImpl extends FractalArray<Long> {
+
+	private static final long serialVersionUID = 0x700L; // Version.
+
+	private int bits; // The capacity is 2^bits home slots.
+	private long[] indices; // Zero for empty slots.
+	private long[] values;
+	private boolean hasZero; // The value at index zero is held separately.
+	private long zeroValue;
+	private int size; // Number of slots used.
+	private boolean shared; // The arrays are shared with a clone (copied before being modified).
+
+	/** Creates an empty instance. */
+	public LongHashArrayImpl() {
+		allocate(MIN_BITS);
+	}
+
+	private LongHashArrayImpl(LongHashArrayImpl that) {
+		this.bits = that.bits;
+		this.indices = that.indices;
+		this.values = that.values;
+		this.hasZero = that.hasZero;
+		this.zeroValue = that.zeroValue;
+		this.size = that.size;
+		this.shared = true;
+	}
+
+	/** Indicates if this array holds a value at the specified index. */
+	public boolean contains(long index) {
+		return (index == 0) ? hasZero : indices[slotOf(indices, bits, index)] == index;
+	}
+
+	/** Returns the value at the specified index or the specified default value if none. */
+	public long getLong(long index, long defaultValue) {
+		if (index == 0) return hasZero ? zeroValue : defaultValue;
+		int i = slotOf(indices, bits, index);
+		return (indices[i] == index) ? values[i] : defaultValue;
+	}
+
+	/** Sets the value at the specified index, returns {@code true} if the value has been added (none before). */
+	public boolean setLong(long index, long value) {
+		if (index == 0) {
+			boolean added = !hasZero;
+			hasZero = true;
+			zeroValue = value;
+			return added;
+		}
+		int i = slotOf(indices, bits, index);
+		if (shared) unshare();
+		if (indices[i] == index) {
+			values[i] = value;
+			return false;
+		}
+		insert(i, index, value);
+		return true;
+	}
+
+	/** Adds the specified amount to the value at the specified index (zero if none) and returns the new value. */
+	public long add(long index, long delta) {
+		if (index == 0) {
+			hasZero = true;
+			return zeroValue += delta; // Zero if none (reset on removal).
+		}
+		int i = slotOf(indices, bits, index);
+		if (shared) unshare();
+		if (indices[i] == index) return values[i] += delta;
+		insert(i, index, delta);
+		return delta;
+	}
+
+	/** Removes the value at the specified index, returns {@code true} if there was a value at that index. */
+	public boolean removeLong(long index) {
+		if (index == 0) {
+			if (!hasZero) return false;
+			hasZero = false;
+			zeroValue = 0;
+			return true;
+		}
+		int i = slotOf(indices, bits, index);
+		if (indices[i] != index) return false;
+		if (shared) unshare();
+		removeSlot(indices, values, i, bits);
+		size--;
+		return true;
+	}
+
+	@Override
+	public LongHashArrayImpl clone() {
+		shared = true;
+		return new LongHashArrayImpl(this);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (size == 0) && !hasZero;
+	}
+
+	@Override
+	public long count() {
+		return hasZero ? size + 1 : size;
+	}
+
+	@Override
+	public @Nullable Long get(long index) {
+		return contains(index) ? getLong(index, 0) : null;
+	}
+
+	@Override
+	public LongHashArrayImpl set(long index, @Nullable Long value) {
+		if (value == null) return clear(index);
+		setLong(index, value);
+		return this;
+	}
+
+	@Override
+	public LongHashArrayImpl clear(long index) {
+		removeLong(index);
+		return this;
+	}
+
+	@Override
+	public FractalArray<Long> insert(long index, @Nullable Long inserted) {
+		if (contains(-1)) throw new ArithmeticException("Index Overflow");
+		LongHashArrayImpl shifted = new LongHashArrayImpl();
+		shifted.allocate(bits);
+		for (int i = 0; i < indices.length; i++) {
+			long j = indices[i];
+			if (j != 0) shifted.setLong(unsignedLessThan(j, index) ? j : j + 1, values[i]);
+		}
+		if (hasZero) shifted.setLong((index == 0) ? 1 : 0, zeroValue);
+		return shifted.set(index, inserted);
+	}
+
+	@Override
+	public FractalArray<Long> delete(long index) {
+		LongHashArrayImpl shifted = new LongHashArrayImpl();
+		shifted.allocate(bits);
+		for (int i = 0; i < indices.length; i++) {
+			long j = indices[i];
+			if ((j == 0) || (j == index)) continue; // Empty or discarded.
+			shifted.setLong(unsignedLessThan(j, index) ? j : j - 1, values[i]);
+		}
+		if (hasZero && (index != 0)) shifted.setLong(0, zeroValue);
+		return shifted;
+	}
+
+	@Override
+	public long next(long after, @Nullable Predicate<? super Long> matching) {
+		if (after == -1) return 0;
+		for (int i = home(after, bits); i < indices.length; i++) { // Values are never before their home slot.
+			long j = indices[i];
+			if ((j == 0) || !unsignedLessThan(after, j)) continue;
+			if ((matching == null) || matching.test(values[i])) return j;
+		}
+		return 0;
+	}
+
+	@Override
+	public long previous(long before, @Nullable Predicate<? super Long> matching) {
+		if (before == 0) return -1;
+		int i = slotOf(indices, bits, before);
+		while (--i >= 0) { // All the values before i have a lower index.
+			if (indices[i] == 0) continue;
+			if ((matching == null) || matching.test(values[i])) return indices[i];
+		}
+		if (hasZero && ((matching == null) || matching.test(zeroValue))) return 0;
+		return -1;
+	}
+
+	@Override
+	public Cursor iterator(long from) {
+		return new Cursor(from, false);
+	}
+
+	@Override
+	public Cursor descendingIterator(long from) {
+		return new Cursor(from, true);
+	}
+
+	/** Inserts at the specified slot (resizing if necessary). */
+	private void insert(int i, long index, long value) {
+		if (!makeRoom(indices, values, i, size, bits)) {
+			resize(bits + 1);
+			insert(slotOf(indices, bits, index), index, value);
+			return;
+		}
+		indices[i] = index;
+		values[i] = value;
+		size++;
+	}
+
+	private void allocate(int bits) {
+		this.bits = bits;
+		indices = new long[lengthOf(bits)];
+		values = new long[indices.length];
+	}
+
+	/** Rebuilds this array with the specified capacity. */
+	private void resize(int newBits) {
+		long[] oldIndices = indices;
+		long[] oldValues = values;
+		allocate(newBits);
+		if (!rehash(oldIndices, oldValues, indices, values, bits)) { // Overflow area exhausted.
+			indices = oldIndices;
+			values = oldValues;
+			resize(newBits + 1);
+			return;
+		}
+		shared = false;
+	}
+
+	private void unshare() {
+		indices = indices.clone();
+		values = values.clone();
+		shared = false;
+	}
+
+	/** Iterator over the values giving access to the primitive values (slot {@code -1} is the index zero). */
+	public final class Cursor implements FractalArray.Iterator<Long> {
+		private final boolean descending;
+		private int next; // Slot of the next value.
+
+		private Cursor(long from, boolean descending) {
+			this.descending = descending;
+			if (descending) {
+				if (from == 0) {
+					next = hasZero ? -1 : -2;
+				} else {
+					int i = slotOf(indices, bits, from); // First slot greater or equal (or empty).
+					advanceFrom((indices[i] == from) ? i : i - 1);
+				}
+			} else {
+				if ((from == 0) && hasZero) next = -1;
+				else advanceFrom((from == 0) ? 0 : slotOf(indices, bits, from));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return descending ? next >= -1 : next < indices.length;
+		}
+
+		@Override
+		public boolean hasNext(Predicate<? super Long> matching) {
+			while (hasNext()) {
+				if (matching.test(valueAt(next))) return true;
+				advanceFrom(descending ? next - 1 : next + 1);
+			}
+			return false;
+		}
+
+		@Override
+		public long nextIndex() {
+			if (!hasNext()) return -1;
+			return (next < 0) ? 0 : indices[next];
+		}
+
+		/** Returns the next value (no boxing). */
+		public long nextLong() {
+			if (!hasNext()) throw new NoSuchElementException();
+			long value = valueAt(next);
+			advanceFrom(descending ? next - 1 : next + 1);
+			return value;
+		}
+
+		@Override
+		public Long next() {
+			return nextLong();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException(); // As per contract.
+		}
+
+		/** Moves to the first non-empty slot from the one specified (inclusive). */
+		private void advanceFrom(int i) {
+			if (descending) {
+				while ((i >= 0) && (indices[i] == 0))
+					i--;
+				next = ((i < 0) && !hasZero) ? -2 : i;
+			} else {
+				if (i < 0) i = 0;
+				while ((i < indices.length) && (indices[i] == 0))
+					i++;
+				next = i;
+			}
+		}
+
+		private long valueAt(int slot) {
+			return (slot < 0) ? zeroValue : values[slot];
+		}
+	}
+
+}
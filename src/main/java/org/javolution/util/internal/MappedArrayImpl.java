@@ -0,0 +1,105 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Fixed-size records held in a memory-mapped file. The file starts with a header (magic number, record size,
+ * number of records and a few user values) followed by the chunks of records; chunks are mapped when needed
+ * (the file grows incrementally) and reopening the file only maps the existing chunks (no deserialization).
+ *
+ * The number of records and the user values are persisted on {@link #force()} (checkpoint) and {@link #close()};
+ * after an abnormal termination only the state of the last checkpoint is meaningful.
+ */
+public final class MappedArrayImpl extends OffHeapArrayImpl implements Closeable {
+
+	private static final long MAGIC = 0x4A41564F4D415031L; // "JAVOMAP1"
+	private static final int HEADER_SIZE = 64;
+	private static final int RECORD_SIZE_POS = 8;
+	private static final int SIZE_POS = 12;
+	private static final int USER_VALUES_POS = 16;
+	public static final int USER_VALUES = (HEADER_SIZE - USER_VALUES_POS) / 8;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+
+	/**
+	 * Opens or creates the specified file for records of the specified size.
+	 *
+	 * @throws IOException if the file cannot be mapped or holds records of a different size.
+	 */
+	public MappedArrayImpl(File path, int recordSize, ByteOrder byteOrder) throws IOException {
+		super(recordSize, byteOrder);
+		file = new RandomAccessFile(path, "rw");
+		try {
+			channel = file.getChannel();
+			boolean created = channel.size() == 0;
+			header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+			if (created) {
+				header.putLong(0, MAGIC);
+				header.putInt(RECORD_SIZE_POS, recordSize);
+				header.putInt(SIZE_POS, 0);
+			} else {
+				if (header.getLong(0) != MAGIC) throw new IOException(path + ": Not a mapped collection file");
+				if (header.getInt(RECORD_SIZE_POS) != recordSize) throw new IOException(path + ": Record size is "
+						+ header.getInt(RECORD_SIZE_POS) + " (expected " + recordSize + ")");
+				setSize(header.getInt(SIZE_POS));
+			}
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/** Returns the user value at the specified slot (persisted on checkpoints). */
+	public long getUserValue(int slot) {
+		return header.getLong(USER_VALUES_POS + 8 * slot);
+	}
+
+	/** Sets the user value at the specified slot (persisted on checkpoints). */
+	public void setUserValue(int slot, long value) {
+		header.putLong(USER_VALUES_POS + 8 * slot, value);
+	}
+
+	/** Writes all the records and the header to the storage device (checkpoint). */
+	public void force() {
+		for (int i = 0; i < size(); i += chunkCapacity(i)) ((MappedByteBuffer) chunkOf(i)).force();
+		header.putInt(SIZE_POS, size());
+		header.force();
+	}
+
+	/** Forces and closes the file (the mapped buffers are released when garbage collected). */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+		file.close();
+	}
+
+	@Override
+	protected ByteBuffer newChunk(int chunkIndex, int capacity) {
+		try {
+			return channel.map(MapMode.READ_WRITE, HEADER_SIZE + chunkPosition(chunkIndex), capacity);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
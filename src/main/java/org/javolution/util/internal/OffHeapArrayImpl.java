@@ -0,0 +1,175 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-size records held outside of the heap in direct byte buffers (chunks). Each chunk holds a power of two
+ * number of records; the first chunk is small (16 records) and the following chunks double in capacity up to
+ * 64K records (or 1 GB), after which all the chunks have that maximum capacity. Chunks are allocated when needed
+ * and never moved, the records are addressed by their index through {@link #chunkOf(int)} and
+ * {@link #positionOf(int)}; records are laid out contiguously across chunks (the record at index {@code i}
+ * starts at byte {@code i * recordSize} of the concatenated chunks).
+ *
+ * Sub-classes may provide their own chunks (e.g. memory-mapped files) by overriding {@link #newChunk}.
+ */
+public class OffHeapArrayImpl {
+
+	private static final int FIRST_CHUNK_SHIFT = 4;
+	private static final int MAX_CHUNK_SHIFT = 16;
+	private static final int MAX_CHUNK_BITS = 30;
+	private static final ByteBuffer[] NO_CHUNK = new ByteBuffer[0];
+
+	private final int recordSize;
+	private final ByteOrder byteOrder;
+	private final int firstShift; // Number of records of the first chunk (log2).
+	private final int maxShift; // Number of records of the largest chunks (log2).
+	private final int growingChunks; // Number of chunks after the first one before the maximum capacity.
+	private ByteBuffer[] chunks = NO_CHUNK;
+	private int size;
+
+	/** Creates an empty array for records of the specified size (in bytes) and byte order. */
+	public OffHeapArrayImpl(int recordSize, ByteOrder byteOrder) {
+		if (recordSize <= 0) throw new IllegalArgumentException("Invalid record size: " + recordSize);
+		this.recordSize = recordSize;
+		this.byteOrder = byteOrder;
+		int recordBits = 32 - Integer.numberOfLeadingZeros(recordSize - 1);
+		this.maxShift = Math.max(0, Math.min(MAX_CHUNK_SHIFT, MAX_CHUNK_BITS - recordBits));
+		this.firstShift = Math.min(FIRST_CHUNK_SHIFT, maxShift);
+		this.growingChunks = maxShift - firstShift;
+	}
+
+	/** Returns the size in bytes of the records. */
+	public final int recordSize() {
+		return recordSize;
+	}
+
+	/** Returns the byte order of the chunks. */
+	public final ByteOrder byteOrder() {
+		return byteOrder;
+	}
+
+	/** Returns the number of records of the chunk holding the record at the specified index. */
+	public final int chunkCapacity(int index) {
+		return capacityOf(chunkIndexOf(index));
+	}
+
+	/** Returns the number of records. */
+	public final int size() {
+		return size;
+	}
+
+	/** Sets the number of records (allocating chunks if necessary); new records are not cleared. */
+	protected final void setSize(int newSize) {
+		if (newSize < 0) throw new IllegalArgumentException("Negative size");
+		if (newSize > 0) ensureChunk(chunkIndexOf(newSize - 1));
+		size = newSize;
+	}
+
+	/** Returns the chunk holding the record at the specified index. */
+	public final ByteBuffer chunkOf(int index) {
+		return chunks[chunkIndexOf(index)];
+	}
+
+	/** Returns the byte position of the record at the specified index within its chunk. */
+	public final int positionOf(int index) {
+		if (index >>> maxShift != 0) return (index & ((1 << maxShift) - 1)) * recordSize;
+		return ((index >>> firstShift == 0) ? index : index ^ Integer.highestOneBit(index)) * recordSize;
+	}
+
+	/** Appends a new record (all bytes cleared) and returns its index. */
+	public final int append() {
+		int index = size;
+		if (index == Integer.MAX_VALUE) throw new IllegalStateException("Maximum size reached");
+		ensureChunk(chunkIndexOf(index));
+		size++;
+		fill(index, (byte) 0);
+		return index;
+	}
+
+	/** Removes the last record. */
+	public final void removeLast() {
+		size--;
+	}
+
+	/** Removes all the records; the chunks beyond the first one are released. */
+	public void clear() {
+		size = 0;
+		if (chunks.length > 1) {
+			ByteBuffer first = chunks[0];
+			chunks = new ByteBuffer[] { first };
+		}
+	}
+
+	/** Copies the record at the specified index to the specified index. */
+	public final void copy(int fromIndex, int toIndex) {
+		ByteBuffer src = chunkOf(fromIndex);
+		ByteBuffer dst = chunkOf(toIndex);
+		int srcPos = positionOf(fromIndex);
+		int dstPos = positionOf(toIndex);
+		int i = 0;
+		for (; i + 8 <= recordSize; i += 8) dst.putLong(dstPos + i, src.getLong(srcPos + i));
+		for (; i < recordSize; i++) dst.put(dstPos + i, src.get(srcPos + i));
+	}
+
+	/** Copies the specified bytes (record content) to the record at the specified index. */
+	public final void copy(ByteBuffer src, int srcPos, int toIndex) {
+		ByteBuffer dst = chunkOf(toIndex);
+		int dstPos = positionOf(toIndex);
+		for (int i = 0; i < recordSize; i++) dst.put(dstPos + i, src.get(srcPos + i));
+	}
+
+	/** Sets all the bytes of the record at the specified index to the specified value. */
+	public final void fill(int index, byte value) {
+		ByteBuffer chunk = chunkOf(index);
+		int pos = positionOf(index);
+		for (int i = 0; i < recordSize; i++) chunk.put(pos + i, value);
+	}
+
+	/**
+	 * Returns a new chunk able to hold the specified number of bytes. This method allocates a direct byte buffer;
+	 * sub-classes may override it to provide their own storage.
+	 */
+	protected ByteBuffer newChunk(int chunkIndex, int capacity) {
+		return ByteBuffer.allocateDirect(capacity);
+	}
+
+	/** Returns the byte position of the specified chunk within the concatenated chunks. */
+	protected final long chunkPosition(int chunkIndex) {
+		if (chunkIndex == 0) return 0;
+		int first = (chunkIndex <= growingChunks) ? 1 << (firstShift + chunkIndex - 1)
+				: (chunkIndex - growingChunks) << maxShift;
+		return (long) first * recordSize;
+	}
+
+	/** Returns the index of the chunk holding the record at the specified index. */
+	private int chunkIndexOf(int index) {
+		if (index >>> maxShift != 0) return growingChunks + (index >>> maxShift);
+		return 32 - Integer.numberOfLeadingZeros(index >>> firstShift); // Doubling capacities.
+	}
+
+	/** Returns the number of records of the specified chunk. */
+	private int capacityOf(int chunkIndex) {
+		if (chunkIndex == 0) return 1 << firstShift;
+		return 1 << Math.min(firstShift + chunkIndex - 1, maxShift);
+	}
+
+	private void ensureChunk(int chunkIndex) {
+		if (chunkIndex >= chunks.length) {
+			ByteBuffer[] tmp = new ByteBuffer[Math.max(chunkIndex + 1, chunks.length * 2)];
+			System.arraycopy(chunks, 0, tmp, 0, chunks.length);
+			chunks = tmp;
+		}
+		for (int i = chunkIndex; (i >= 0) && (chunks[i] == null); i--)
+			chunks[i] = newChunk(i, recordSize * capacityOf(i)).order(byteOrder);
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+
+/**
+ * Dense blocks of primitive values ({@code int[]}, {@code long[]}, {@code double[]}...) supporting fast
+ * insertion/removal. Each block is a rotating buffer of {@link #BLOCK_SIZE} elements (the first block
+ * can be smaller when it is the only one); shifting elements across blocks is performed by rotating the blocks
+ * (one element moved per block) instead of copying the whole array.
+ *
+ * This class manages the layout only; values are read/written directly by the primitive tables using
+ * {@link #blockOf(int)} and {@link #positionOf(int)}.
+ */
+public final class PrimitiveArrayImpl implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = 0x700L;
+	private static final int BLOCK_SHIFT = 10;
+	public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Class<?> componentType;
+	private Object[] blocks;
+	private int[] heads; // Position of the first element of each block (rotation).
+	private int size;
+
+	/** Creates an empty array of the specified primitive type (e.g. {@code int.class}). */
+	public PrimitiveArrayImpl(Class<?> componentType) {
+		this.componentType = componentType;
+		clear();
+	}
+
+	/** Returns the number of elements. */
+	public int size() {
+		return size;
+	}
+
+	/** Removes all the elements (releases the blocks). */
+	public void clear() {
+		blocks = new Object[1];
+		heads = new int[1];
+		size = 0;
+	}
+
+	/** Returns the block holding the element at the specified index. */
+	public Object blockOf(int index) {
+		return blocks[index >>> BLOCK_SHIFT];
+	}
+
+	/** Returns the position of the element at the specified index within its block. */
+	public int positionOf(int index) {
+		int k = index >>> BLOCK_SHIFT;
+		return (heads[k] + index) & (capacityOf(k) - 1);
+	}
+
+	/**
+	 * Inserts an uninitialized element at the specified index; elements at or after that index are shifted
+	 * to the right. The new element should be set by the caller.
+	 */
+	public void insert(int index) {
+		ensureCapacity();
+		int k = index >>> BLOCK_SHIFT;
+		int last = size >>> BLOCK_SHIFT; // Block holding the new last element.
+		for (int j = last; j > k; j--) { // Moves the last element of block j-1 to the first position of block j.
+			heads[j] = (heads[j] - 1) & BLOCK_MASK;
+			System.arraycopy(blocks[j-1], (heads[j-1] + BLOCK_MASK) & BLOCK_MASK, blocks[j], heads[j], 1);
+		}
+		int mask = capacityOf(k) - 1;
+		int from = index & mask;
+		int end = (k == last) ? size & mask : mask; // Last position (free) in block k.
+		if (from < end - from) { // Rotates and shifts the head back.
+			heads[k] = (heads[k] - 1) & mask;
+			moveLeft(k, 0, from);
+		} else {
+			moveRight(k, from, end);
+		}
+		size++;
+	}
+
+	/** Removes the element at the specified index; elements after that index are shifted to the left. */
+	public void remove(int index) {
+		int k = index >>> BLOCK_SHIFT;
+		int last = (size - 1) >>> BLOCK_SHIFT; // Block holding the last element.
+		int mask = capacityOf(k) - 1;
+		int from = index & mask;
+		int end = (k == last) ? (size - 1) & mask : mask; // Last element position in block k.
+		if (from < end - from) { // Shifts the head forward and rotates.
+			moveRight(k, 0, from);
+			heads[k] = (heads[k] + 1) & mask;
+		} else {
+			moveLeft(k, from, end);
+		}
+		for (int j = k + 1; j <= last; j++) { // Moves the first element of block j to the last position of block j-1.
+			System.arraycopy(blocks[j], heads[j], blocks[j-1], (heads[j-1] + BLOCK_MASK) & BLOCK_MASK, 1);
+			heads[j] = (heads[j] + 1) & BLOCK_MASK;
+		}
+		size--;
+		int unused = (size >>> BLOCK_SHIFT) + 2; // Keeps one spare block.
+		if (unused < blocks.length) blocks[unused] = null;
+	}
+
+	@Override
+	public PrimitiveArrayImpl clone() {
+		try {
+			PrimitiveArrayImpl copy = (PrimitiveArrayImpl) super.clone();
+			copy.blocks = blocks.clone();
+			copy.heads = heads.clone();
+			for (int k = 0; k < blocks.length; k++) {
+				if (blocks[k] == null) continue;
+				int capacity = capacityOf(k);
+				copy.blocks[k] = Array.newInstance(componentType, capacity);
+				System.arraycopy(blocks[k], 0, copy.blocks[k], 0, capacity);
+			}
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError("Should not happen since this class is Cloneable !");
+		}
+	}
+
+	/** Moves the elements at the positions {@code [from .. end-1]} of the block k one position to the right. */
+	private void moveRight(int k, int from, int end) {
+		Object block = blocks[k];
+		int mask = capacityOf(k) - 1;
+		for (int n = end - from; n > 0;) { // Copies backward (non-wrapping chunks).
+			int src = (heads[k] + from + n - 1) & mask;
+			int dst = (src + 1) & mask;
+			int chunk = Math.min(n, Math.min(src, dst) + 1);
+			System.arraycopy(block, src - chunk + 1, block, dst - chunk + 1, chunk);
+			n -= chunk;
+		}
+	}
+
+	/** Moves the elements at the positions {@code [from+1 .. end]} of the block k one position to the left. */
+	private void moveLeft(int k, int from, int end) {
+		Object block = blocks[k];
+		int mask = capacityOf(k) - 1;
+		for (int i = from, n = end - from; n > 0;) { // Copies forward (non-wrapping chunks).
+			int dst = (heads[k] + i) & mask;
+			int src = (dst + 1) & mask;
+			int chunk = Math.min(n, mask + 1 - Math.max(src, dst));
+			System.arraycopy(block, src, block, dst, chunk);
+			n -= chunk;
+			i += chunk;
+		}
+	}
+
+	/** Ensures that there is room for one more element. */
+	private void ensureCapacity() {
+		int k = size >>> BLOCK_SHIFT;
+		if (k == 0) {
+			if (blocks[0] == null) {
+				blocks[0] = Array.newInstance(componentType, INITIAL_CAPACITY);
+			} else if (size == capacityOf(0)) { // Doubles the first block capacity (linearized).
+				Object block = Array.newInstance(componentType, 2 * size);
+				System.arraycopy(blocks[0], heads[0], block, 0, size - heads[0]);
+				System.arraycopy(blocks[0], 0, block, size - heads[0], heads[0]);
+				blocks[0] = block;
+				heads[0] = 0;
+			}
+			return;
+		}
+		if (k >= blocks.length) {
+			Object[] blocksTmp = new Object[blocks.length * 2];
+			int[] headsTmp = new int[blocks.length * 2];
+			System.arraycopy(blocks, 0, blocksTmp, 0, blocks.length);
+			System.arraycopy(heads, 0, headsTmp, 0, heads.length);
+			blocks = blocksTmp;
+			heads = headsTmp;
+		}
+		if (blocks[k] == null) {
+			blocks[k] = Array.newInstance(componentType, BLOCK_SIZE);
+			heads[k] = 0;
+		}
+	}
+
+	private int capacityOf(int k) {
+		return (k == 0) ? Array.getLength(blocks[0]) : BLOCK_SIZE;
+	}
+
+}
@@ -2,7 +2,7 @@
  * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
  * Copyright (C) 2012 - Javolution (http://javolution.org/)
  * All rights reserved.
- * 
+ *
  * Permission to use, copy, modify, and distribute this software is
  * freely granted, provided that this notice is preserved.
  */
@@ -13,37 +13,32 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 
 /**
- * Simple and efficient read/write lock implementation giving 
- * preferences to writers. Acquiring a write lock then a read lock is 
- * supported. Writers may acquire a read lock after having the write lock
- * but the reverse would result in deadlock.
+ * Scalable read/write lock implementation giving preferences to writers (no monitor, readers never wake up
+ * each other). Acquiring a write lock then a read lock is supported and the write lock is reentrant.
+ * Writers may acquire a read lock after having the write lock but the reverse would result in deadlock.
+ * Short reads may also be performed optimistically without locking (validated using version stamps).
  */
 public final class ReadWriteLockImpl implements ReadWriteLock, Serializable {
 
     /** Read-Lock Implementation. */
     public final class ReadLock implements Lock, Serializable {
-        private static final long serialVersionUID = 0x600L; // Version.
+        private static final long serialVersionUID = 0x700L; // Version.
 
         @Override
         public void lock() {
-            try {
-                lockInterruptibly();
-            } catch (java.lang.InterruptedException e) {
-            }
+            if (writerThread == Thread.currentThread())
+                return; // Current thread has the writer lock.
+            stamped.readLock();
         }
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            synchronized (ReadWriteLockImpl.this) {
-                if (writerThread == Thread.currentThread())
-                    return; // Current thread has the writer lock.
-                while ((writerThread != null) || (waitingWriters != 0)) {
-                    ReadWriteLockImpl.this.wait();
-                }
-                givenLocks++;
-            }
+            if (writerThread == Thread.currentThread())
+                return; // Current thread has the writer lock.
+            stamped.readLockInterruptibly();
         }
 
         @Override
@@ -53,48 +48,40 @@ public final class ReadWriteLockImpl implements ReadWriteLock, Serializable {
 
         @Override
         public boolean tryLock() {
-            throw new UnsupportedOperationException();
+            if (writerThread == Thread.currentThread())
+                return true; // Current thread has the writer lock.
+            return stamped.tryReadLock() != 0;
         }
 
         @Override
         public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-            throw new UnsupportedOperationException();
+            if (writerThread == Thread.currentThread())
+                return true; // Current thread has the writer lock.
+            return stamped.tryReadLock(time, unit) != 0;
         }
 
         @Override
         public void unlock() {
-            synchronized (ReadWriteLockImpl.this) {
-                if (writerThread == Thread.currentThread())
-                    return; // Itself is the writing thread.
-                assert (givenLocks > 0);
-                givenLocks--;
-                ReadWriteLockImpl.this.notifyAll();
-            }
+            if (writerThread == Thread.currentThread())
+                return; // Itself is the writing thread.
+            if (!stamped.tryUnlockRead()) throw new IllegalMonitorStateException();
         }
     }
 
-    /** Write-Lock Implementation. */
+    /** Write-Lock Implementation (reentrant). */
     public final class WriteLock implements Lock, Serializable {
-        private static final long serialVersionUID = 0x600L; // Version.
+        private static final long serialVersionUID = 0x700L; // Version.
 
         @Override
         public void lock() {
-            try {
-                lockInterruptibly();
-            } catch (java.lang.InterruptedException e) {
-            }
+            if (reenter()) return;
+            acquired(stamped.writeLock());
         }
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            synchronized (ReadWriteLockImpl.this) {
-                waitingWriters++;
-                while (givenLocks != 0) {
-                    ReadWriteLockImpl.this.wait();
-                }
-                waitingWriters--;
-                writerThread = Thread.currentThread();
-            }
+            if (reenter()) return;
+            acquired(stamped.writeLockInterruptibly());
         }
 
         @Override
@@ -104,29 +91,63 @@ public final class ReadWriteLockImpl implements ReadWriteLock, Serializable {
 
         @Override
         public boolean tryLock() {
-            throw new UnsupportedOperationException();
+            if (reenter()) return true;
+            long stamp = stamped.tryWriteLock();
+            if (stamp == 0) return false;
+            acquired(stamp);
+            return true;
         }
 
         @Override
         public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-            throw new UnsupportedOperationException();
+            if (reenter()) return true;
+            long stamp = stamped.tryWriteLock(time, unit);
+            if (stamp == 0) return false;
+            acquired(stamp);
+            return true;
         }
 
         @Override
         public void unlock() {
-            synchronized (ReadWriteLockImpl.this) {
-                writerThread = null;
-                ReadWriteLockImpl.this.notifyAll();
-            }
+            if (writerThread != Thread.currentThread()) throw new IllegalMonitorStateException();
+            if (--writeHolds != 0) return;
+            writerThread = null;
+            stamped.unlockWrite(writeStamp);
+        }
+
+        private boolean reenter() {
+            if (writerThread != Thread.currentThread()) return false;
+            writeHolds++;
+            return true;
+        }
+
+        private void acquired(long stamp) {
+            writeStamp = stamp;
+            writeHolds = 1;
+            writerThread = Thread.currentThread();
         }
     }
 
-    private static final long serialVersionUID = 0x600L; // Version.
+    private static final long serialVersionUID = 0x700L; // Version.
     public final ReadLock readLock = new ReadLock();
     public final WriteLock writeLock = new WriteLock();
-    private transient int givenLocks;
-    private transient int waitingWriters;
-    private transient Thread writerThread;
+    private final StampedLock stamped = new StampedLock(); // Deserialized in the unlocked state.
+    private transient long writeStamp; // Only accessed by the writer thread.
+    private transient int writeHolds; // Only accessed by the writer thread.
+    private transient Thread writerThread; // Set/cleared only by the writer thread (itself).
+
+    /**
+     * Returns a stamp for an optimistic (lock-free) read or {@code 0} if the write lock is held; the values read
+     * are consistent only if the stamp is {@link #validate validated} afterward.
+     */
+    public long tryOptimisticRead() {
+        return stamped.tryOptimisticRead();
+    }
+
+    /** Indicates if no write lock has been acquired since the specified stamp was issued. */
+    public boolean validate(long stamp) {
+        return stamped.validate(stamp);
+    }
 
     @Override
     public ReadLock readLock() {
@@ -10,7 +10,6 @@ package org.javolution.util.internal.collection;
 
 import org.javolution.util.AbstractCollection;
 import org.javolution.util.FastIterator;
-import org.javolution.util.FastTable;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Predicate;
 
@@ -21,14 +20,16 @@ public final class LinkedCollectionImpl<E> extends AbstractCollection<E> {
 
     private static final long serialVersionUID = 0x700L; // Version.
     private final AbstractCollection<E> inner;
-    private final FastTable<E> insertionTable = new FastTable<E>();
+    private final LinkedIndexImpl<E> insertionTable;
 
     public LinkedCollectionImpl(AbstractCollection<E> inner) {
         this.inner = inner;
+        this.insertionTable = new LinkedIndexImpl<E>();
     }
 
-    private LinkedCollectionImpl(AbstractCollection<E> inner, FastTable<E> insertionTable) {
+    private LinkedCollectionImpl(AbstractCollection<E> inner, LinkedIndexImpl<E> insertionTable) {
         this.inner = inner;
+        this.insertionTable = insertionTable;
     }
 
     @Override
@@ -67,6 +68,18 @@ public final class LinkedCollectionImpl<E> extends AbstractCollection<E> {
         return insertionTable.descendingIterator();
     }
 
+    /** Removes the oldest element equal to the one specified (the stored instance is removed from both views). */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object searched) {
+        Equality<? super E> equality = inner.equality();
+        for (FastIterator<E> itr = insertionTable.iterator(); itr.hasNext();) {
+            E element = itr.next();
+            if (equality.areEqual((E) searched, element)) return inner.remove(element) && insertionTable.remove(element);
+        }
+        return false;
+    }
+
     @Override
     public boolean removeIf(Predicate<? super E> filter) {
         return inner.removeIf(filter) ? insertionTable.removeIf(filter) : false;
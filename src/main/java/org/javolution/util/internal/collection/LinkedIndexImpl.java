@@ -0,0 +1,212 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal.collection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.NoSuchElementException;
+
+import org.javolution.util.AbstractCollection;
+import org.javolution.util.FastIterator;
+import org.javolution.util.FastMap;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Order;
+import org.javolution.util.function.Predicate;
+
+/**
+ * The insertion order of the elements of a linked view: a doubly-linked list of nodes indexed by element
+ * identity, removing an element is performed in constant time (instead of a linear search in a table).
+ * When the same instance is added several times, the first (oldest) occurrence is removed first.
+ */
+public final class LinkedIndexImpl<E> extends AbstractCollection<E> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private transient Node<E> sentinel; // sentinel.next is the first element added.
+    private transient FastMap<E, Node<E>> index; // Oldest node for each instance.
+    private transient int size;
+
+    public LinkedIndexImpl() {
+        initialize();
+    }
+
+    @Override
+    public boolean add(E element) {
+        Node<E> node = new Node<E>(element);
+        node.previous = sentinel.previous;
+        node.next = sentinel;
+        sentinel.previous.next = node;
+        sentinel.previous = node;
+        Node<E> same = index.get(element);
+        if (same == null) {
+            index.put(element, node);
+        } else { // Same instance already present (multi views).
+            while (same.nextSame != null)
+                same = same.nextSame;
+            same.nextSame = node;
+        }
+        size++;
+        return true;
+    }
+
+    /** Removes the first occurrence of the specified instance. */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object element) {
+        Node<E> node = index.get((E) element);
+        if (node == null) return false;
+        unlink(node);
+        return true;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        boolean removed = false;
+        for (Node<E> node = sentinel.next; node != sentinel; node = node.next) {
+            if (!filter.test(node.element)) continue;
+            unlink(node);
+            removed = true;
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        initialize();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Equality<? super E> equality() {
+        return Equality.identity();
+    }
+
+    @Override
+    public FastIterator<E> iterator() {
+        return new IteratorImpl<E>(sentinel, false);
+    }
+
+    @Override
+    public FastIterator<E> descendingIterator() {
+        return new IteratorImpl<E>(sentinel, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public AbstractCollection<E>[] trySplit(int n) {
+        return new AbstractCollection[] { this }; // Does not split.
+    }
+
+    @Override
+    public LinkedIndexImpl<E> clone() {
+        LinkedIndexImpl<E> copy = new LinkedIndexImpl<E>();
+        for (Node<E> node = sentinel.next; node != sentinel; node = node.next)
+            copy.add(node.element);
+        return copy;
+    }
+
+    /** Removes the specified node from the list and from the index. */
+    private void unlink(Node<E> node) {
+        node.previous.next = node.next; // The node keeps its links (iterations may continue from it).
+        node.next.previous = node.previous;
+        Node<E> first = index.get(node.element);
+        if (first == node) {
+            if (node.nextSame != null) index.put(node.element, node.nextSame);
+            else index.remove(node.element);
+        } else {
+            while (first.nextSame != node)
+                first = first.nextSame;
+            first.nextSame = node.nextSame;
+        }
+        size--;
+    }
+
+    private void initialize() {
+        sentinel = new Node<E>(null);
+        sentinel.previous = sentinel;
+        sentinel.next = sentinel;
+        index = new FastMap<E, Node<E>>(Order.identity());
+        size = 0;
+    }
+
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Node<E> node = sentinel.next; node != sentinel; node = node.next)
+            s.writeObject(node.element);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        initialize();
+        for (int i = s.readInt(); i > 0; i--)
+            add((E) s.readObject());
+    }
+
+    /** Linked node. */
+    private static final class Node<E> {
+        final E element;
+        Node<E> previous;
+        Node<E> next;
+        Node<E> nextSame; // Next node holding the same instance.
+
+        Node(E element) {
+            this.element = element;
+        }
+    }
+
+    /** Iterator over the nodes. */
+    private static final class IteratorImpl<E> implements FastIterator<E> {
+        private final Node<E> sentinel;
+        private final boolean descending;
+        private Node<E> next;
+
+        IteratorImpl(Node<E> sentinel, boolean descending) {
+            this.sentinel = sentinel;
+            this.descending = descending;
+            this.next = descending ? sentinel.previous : sentinel.next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != sentinel;
+        }
+
+        @Override
+        public boolean hasNext(Predicate<? super E> matching) {
+            for (; next != sentinel; next = descending ? next.previous : next.next)
+                if (matching.test(next.element)) return true; // Not consumed.
+            return false;
+        }
+
+        @Override
+        public E next() {
+            if (next == sentinel) throw new NoSuchElementException();
+            E element = next.element;
+            next = descending ? next.previous : next.next;
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -2,13 +2,15 @@
  * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
  * Copyright (C) 2012 - Javolution (http://javolution.org/)
  * All rights reserved.
- * 
+ *
  * Permission to use, copy, modify, and distribute this software is
  * freely granted, provided that this notice is preserved.
  */
 package org.javolution.util.internal.collection;
 
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.javolution.annotations.Parallel;
 import org.javolution.context.ConcurrentContext;
@@ -24,6 +26,12 @@ import org.javolution.util.function.Predicate;
 
 /**
  * A view to support parallel processing (methods annotated {@link Parallel}).
+ *
+ * The collection is recursively split in two (down to {@link ConcurrentContext#GRANULARITY} pieces
+ * per thread); each thread processes the pieces of its own queue (most recently split first) and steals
+ * the largest pieces of the other threads' queues when idle (work-stealing). Results of reductions
+ * ({@link #reduce reduce}, {@link #collect collect}) are merged by the workers themselves as soon as two
+ * sibling pieces are completed (tree reduction), the calling thread does not merge anything.
  */
 public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
 
@@ -44,19 +52,19 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
     @Override
     @Parallel
     public boolean anyMatch(Predicate<? super E> predicate) {
-        AnyMatchRunnable<E>[] results;
+        AnyMatchWorker<E>[] workers;
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            results = new AnyMatchRunnable[subViews.length];
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(results[i] = new AnyMatchRunnable<E>(subViews[i], predicate));
-            (results[0] = new AnyMatchRunnable<E>(subViews[0], predicate)).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            workers = new AnyMatchWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new AnyMatchWorker<E>(scheduler, i, predicate);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
-        for (AnyMatchRunnable<E> result : results)
-            if (result.matchFound) return true;
+        for (AnyMatchWorker<E> worker : workers)
+            if (worker.matchFound) return true;
         return false;
     }
 
@@ -64,19 +72,19 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
     @Override
     @Parallel
     public E findAny() {
-        AnyRunnable<E>[] results;
+        AnyWorker<E>[] workers;
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            results = new AnyRunnable[subViews.length];
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(results[i] = new AnyRunnable<E>(subViews[i]));
-            (results[0] = new AnyRunnable<E>(subViews[0])).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            workers = new AnyWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new AnyWorker<E>(scheduler, i);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
-        for (AnyRunnable<E> result : results)
-            if (result.found != null) return result.found;
+        for (AnyWorker<E> worker : workers)
+            if (worker.found != null) return worker.found;
         return null;
     }
 
@@ -95,21 +103,19 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
     @Override
     @Parallel
     public AbstractCollection<E> collect() {
-        CollectRunnable<E>[] results;
+        Object[] results;
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            results = new CollectRunnable[subViews.length];
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(results[i] = new CollectRunnable<E>(subViews[i]));
-            (results[0] = new CollectRunnable<E>(subViews[0])).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            results = new Object[scheduler.slots()];
+            CollectWorker<E>[] workers = new CollectWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new CollectWorker<E>(scheduler, i, results);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
-        AbstractCollection<E> collection = results[0].collection;
-        for (int i = 1; i < results.length; i++)
-            collection.addAll(results[i].collection);
-        return collection;
+        return (AbstractCollection<E>) results[0]; // Partial results merged by the workers.
     }
 
     @Override
@@ -117,15 +123,17 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
         return inner.equality();
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     @Parallel
     public void forEach(Consumer<? super E> consumer) {
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(new ForEachRunnable<E>(subViews[i], consumer));
-            new ForEachRunnable<E>(subViews[0], consumer).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            ForEachWorker<E>[] workers = new ForEachWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new ForEachWorker<E>(scheduler, i, consumer);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
@@ -135,19 +143,19 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
     @Parallel
     @Override
     public boolean isEmpty() {
-        IsEmptyRunnable<E>[] results;
+        IsEmptyWorker<E>[] workers;
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            results = new IsEmptyRunnable[subViews.length];
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(results[i] = new IsEmptyRunnable<E>(subViews[i]));
-            (results[0] = new IsEmptyRunnable<E>(subViews[0])).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            workers = new IsEmptyWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new IsEmptyWorker<E>(scheduler, i);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
-        for (IsEmptyRunnable<E> result : results)
-            if (!result.isEmpty) return false;
+        for (IsEmptyWorker<E> worker : workers)
+            if (worker.notEmpty) return false;
         return true;
     }
 
@@ -165,41 +173,41 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
     @Override
     @Parallel
     public E reduce(BinaryOperator<E> operator) {
-        ReduceRunnable<E>[] results;
+        ReduceWorker<E>[] workers;
+        Object[] results;
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            results = new ReduceRunnable[subViews.length];
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(results[i] = new ReduceRunnable<E>(subViews[i], operator));
-            (results[0] = new ReduceRunnable<E>(subViews[0], operator)).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            results = new Object[scheduler.slots()];
+            workers = new ReduceWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new ReduceWorker<E>(scheduler, i, operator, results);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
-        E accumulator = results[0].accumulator;
-        for (int i = 1; i < results.length;)
-            accumulator = operator.apply(accumulator, results[i].accumulator);
-        return accumulator;
+        return (E) results[0]; // Partial results merged by the workers.
     }
 
     @SuppressWarnings("unchecked")
     @Override
     @Parallel
     public boolean removeIf(Predicate<? super E> filter) {
-        RemoveIfRunnable<E>[] results;
+        RemoveIfWorker<E>[] workers;
         ConcurrentContext ctx = ConcurrentContext.enter();
         try {
-            AbstractCollection<E>[] subViews = inner.trySplit(ctx.getConcurrency() + 1);
-            results = new RemoveIfRunnable[subViews.length];
-            for (int i = 1; i < subViews.length; i++)
-                ctx.execute(results[i] = new RemoveIfRunnable<E>(subViews[i], filter));
-            (results[0] = new RemoveIfRunnable<E>(subViews[0], filter)).run(); // Current thread needs to work too!
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            workers = new RemoveIfWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new RemoveIfWorker<E>(scheduler, i, filter);
+            scheduler.execute(ctx, workers);
         } finally {
             ctx.exit(); // Waits for concurrent completion.
         }
         final FastSet<E> toRemove = new FastSet<E>(Order.identity());
-        for (RemoveIfRunnable<E> result : results)
-            toRemove.addAll(result.toRemove);
+        for (RemoveIfWorker<E> worker : workers)
+            toRemove.addAll(worker.toRemove);
+        if (toRemove.isEmpty()) return false;
         return inner.removeIf(new Predicate<E>() {
 
             @Override
@@ -214,17 +222,25 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
         return inner.sequential();
     }
 
+    @SuppressWarnings("unchecked")
     @Parallel
     @Override
     public int size() {
-        final AtomicInteger count = new AtomicInteger(0);
-        forEach(new Consumer<E>() {
-            @Override
-            public void accept(E param) {
-                count.incrementAndGet();
-            }
-        });
-        return count.get();
+        SizeWorker<E>[] workers;
+        ConcurrentContext ctx = ConcurrentContext.enter();
+        try {
+            Scheduler<E> scheduler = new Scheduler<E>(inner, ctx.getConcurrency() + 1);
+            workers = new SizeWorker[scheduler.concurrency()];
+            for (int i = 0; i < workers.length; i++)
+                workers[i] = new SizeWorker<E>(scheduler, i);
+            scheduler.execute(ctx, workers);
+        } finally {
+            ctx.exit(); // Waits for concurrent completion.
+        }
+        int size = 0;
+        for (SizeWorker<E> worker : workers)
+            size += worker.count;
+        return size;
     }
 
     @Override
@@ -232,62 +248,259 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
         return inner.trySplit(n);
     }
 
-    private static final class AnyMatchRunnable<E> implements Runnable {
-        private final AbstractCollection<E> subView;
+    /** A piece of the collection; its slot identifies its position in the iterative order of the pieces. */
+    private static final class Piece<E> {
+        private final AbstractCollection<E> view;
+        private final int depth; // Number of splits from the whole collection.
+        private final int position; // Position among the pieces of the same depth.
+
+        private Piece(AbstractCollection<E> view, int depth, int position) {
+            this.view = view;
+            this.depth = depth;
+            this.position = position;
+        }
+    }
+
+    /** Holds the queues of pieces for each worker (work-stealing). */
+    private static final class Scheduler<E> {
+        private final ConcurrentLinkedDeque<Piece<E>>[] queues;
+        private final AtomicInteger pending = new AtomicInteger(1); // Pieces not processed yet.
+        private final AtomicIntegerArray arrivals; // Completed halves per split piece (heap-ordered).
+        private final AtomicInteger idle = new AtomicInteger(); // Workers waiting for pieces.
+        private final int maxDepth;
+        private volatile boolean done; // Early termination.
+
+        @SuppressWarnings("unchecked")
+        private Scheduler(AbstractCollection<E> collection, int concurrency) {
+            queues = new ConcurrentLinkedDeque[concurrency];
+            for (int i = 0; i < concurrency; i++)
+                queues[i] = new ConcurrentLinkedDeque<Piece<E>>();
+            int pieces = (concurrency > 1) ? concurrency * ConcurrentContext.GRANULARITY.get() : 1;
+            maxDepth = Math.min(32 - Integer.numberOfLeadingZeros(pieces - 1), 20);
+            arrivals = new AtomicIntegerArray(1 << maxDepth);
+            queues[0].add(new Piece<E>(collection, 0, 0));
+        }
+
+        /** Returns the number of workers. */
+        private int concurrency() {
+            return queues.length;
+        }
+
+        /** Returns the number of distinct slots (pieces at maximum depth). */
+        private int slots() {
+            return 1 << maxDepth;
+        }
+
+        /** Executes the specified workers (one per queue), the current thread runs the first one. */
+        private void execute(ConcurrentContext ctx, Worker<E>[] workers) {
+            for (int i = 1; i < workers.length; i++)
+                ctx.execute(workers[i]);
+            workers[0].run(); // Current thread needs to work too!
+        }
+
+        /** Exposes a piece to the other workers (waking up the idle ones). */
+        private void expose(int id, Piece<E> piece) {
+            pending.incrementAndGet();
+            queues[id].addFirst(piece);
+            signal();
+        }
+
+        /** Called after a piece has been processed. */
+        private void processed() {
+            if (pending.decrementAndGet() == 0) signal(); // Idle workers can exit.
+        }
+
+        /** Stops all the workers (early termination). */
+        private void stop() {
+            done = true;
+            signal();
+        }
+
+        /** Waits until a piece is exposed or there is no more pending piece (idle worker). */
+        private void await() {
+            boolean interrupted = false;
+            synchronized (this) {
+                idle.incrementAndGet(); // Before checking the queues (no lost signal).
+                while (!done && (pending.get() != 0) && !hasPieces()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true; // Other workers depend on this one.
+                    }
+                }
+                idle.decrementAndGet();
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        private void signal() {
+            if (idle.get() == 0) return; // Common case (all busy).
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        private boolean hasPieces() {
+            for (ConcurrentLinkedDeque<Piece<E>> queue : queues)
+                if (!queue.isEmpty()) return true;
+            return false;
+        }
+
+        /** Returns the next piece from the specified worker queue or stolen from another queue. */
+        private Piece<E> poll(int id) {
+            Piece<E> piece = queues[id].pollFirst(); // Most recent (smallest).
+            for (int i = 1; (piece == null) && (i < queues.length); i++)
+                piece = queues[(id + i) % queues.length].pollLast(); // Oldest (largest).
+            return piece;
+        }
+    }
+
+    /** Processes pieces until there is none left, pieces are split while below the maximum depth. */
+    private static abstract class Worker<E> implements Runnable {
+        final Scheduler<E> scheduler;
+        private final int id;
+
+        private Worker(Scheduler<E> scheduler, int id) {
+            this.scheduler = scheduler;
+            this.id = id;
+        }
+
+        @Override
+        public final void run() {
+            while (!scheduler.done) {
+                Piece<E> piece = scheduler.poll(id);
+                if (piece == null) {
+                    if (scheduler.pending.get() == 0) return;
+                    scheduler.await(); // Others are still working (and may split).
+                    continue;
+                }
+                AbstractCollection<E> view = piece.view;
+                int depth = piece.depth;
+                int position = piece.position;
+                while (depth < scheduler.maxDepth) { // Keeps the first half, exposes the second half.
+                    AbstractCollection<E>[] halves = view.trySplit(2);
+                    if (halves.length < 2) break;
+                    depth++;
+                    position <<= 1;
+                    scheduler.expose(id, new Piece<E>(halves[1], depth, position + 1));
+                    view = halves[0];
+                }
+                try {
+                    int slot = position << (scheduler.maxDepth - depth);
+                    process(view, slot);
+                    completed(slot, depth);
+                } catch (RuntimeException | Error e) {
+                    scheduler.stop(); // Stops the other workers.
+                    throw e;
+                } finally {
+                    scheduler.processed();
+                }
+            }
+        }
+
+        /** Processes the specified piece of the collection. */
+        abstract void process(AbstractCollection<E> view, int slot);
+
+        /** Called after the piece at the specified slot and depth has been processed. */
+        void completed(int slot, int depth) {
+        }
+    }
+
+    /** 
+     * A worker merging the result of each piece with the result of its sibling piece (if completed); the merged
+     * result is in turn merged with the result of the parent's sibling, up to the whole collection result
+     * (held in the first slot).
+     */
+    private static abstract class CombiningWorker<E> extends Worker<E> {
+        final Object[] results; // Indexed by slot.
+
+        private CombiningWorker(Scheduler<E> scheduler, int id, Object[] results) {
+            super(scheduler, id);
+            this.results = results;
+        }
+
+        @Override
+        final void completed(int slot, int depth) {
+            int maxDepth = scheduler.maxDepth;
+            for (; depth > 0; depth--) {
+                int width = 1 << (maxDepth - depth); // Number of slots of the piece.
+                int parent = (1 << (depth - 1)) + (slot >> (maxDepth - depth + 1)); // Heap index.
+                if (scheduler.arrivals.getAndIncrement(parent) == 0) return; // The sibling will merge.
+                int left = slot & ~((width << 1) - 1);
+                results[left] = merge(results[left], results[left + width]);
+                results[left + width] = null;
+                slot = left;
+            }
+        }
+
+        /** Merges two contiguous results (the left one preceding the right one in iterative order). */
+        abstract Object merge(Object left, Object right);
+    }
+
+    private static final class AnyMatchWorker<E> extends Worker<E> {
         private final Predicate<? super E> predicate;
         private boolean matchFound;
 
-        private AnyMatchRunnable(AbstractCollection<E> subView, Predicate<? super E> predicate) {
-            this.subView = subView;
+        private AnyMatchWorker(Scheduler<E> scheduler, int id, Predicate<? super E> predicate) {
+            super(scheduler, id);
             this.predicate = predicate;
         }
 
         @Override
-        public void run() {
-            matchFound = subView.anyMatch(predicate);
+        void process(AbstractCollection<E> view, int slot) {
+            if (!view.anyMatch(predicate)) return;
+            matchFound = true;
+            scheduler.stop();
         }
     }
 
-    private static final class AnyRunnable<E> implements Runnable {
-        private final AbstractCollection<E> subView;
+    private static final class AnyWorker<E> extends Worker<E> {
         private E found;
 
-        private AnyRunnable(AbstractCollection<E> subView) {
-            this.subView = subView;
+        private AnyWorker(Scheduler<E> scheduler, int id) {
+            super(scheduler, id);
         }
 
         @Override
-        public void run() {
-            found = subView.findAny();
+        void process(AbstractCollection<E> view, int slot) {
+            found = view.findAny();
+            if (found != null) scheduler.stop();
         }
     }
 
-    private static final class CollectRunnable<E> implements Runnable {
-        private final AbstractCollection<E> subView;
-        private AbstractCollection<E> collection;
+    private static final class CollectWorker<E> extends CombiningWorker<E> {
 
-        private CollectRunnable(AbstractCollection<E> subView) {
-            this.subView = subView;
+        private CollectWorker(Scheduler<E> scheduler, int id, Object[] results) {
+            super(scheduler, id, results);
         }
 
         @Override
-        public void run() {
-            collection = subView.collect();
+        void process(AbstractCollection<E> view, int slot) {
+            results[slot] = view.collect();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object merge(Object left, Object right) {
+            AbstractCollection<E> leftCollection = (AbstractCollection<E>) left;
+            AbstractCollection<E> rightCollection = (AbstractCollection<E>) right;
+            if (leftCollection.isEmpty()) return rightCollection; // No copy.
+            leftCollection.addAll(rightCollection);
+            return leftCollection;
         }
     }
 
-    private static final class ForEachRunnable<E> implements Runnable, Predicate<E> {
-        private final AbstractCollection<E> subView;
+    private static final class ForEachWorker<E> extends Worker<E> implements Predicate<E> {
         private final Consumer<? super E> consumer;
 
-        private ForEachRunnable(AbstractCollection<E> subView, Consumer<? super E> consumer) {
-            this.subView = subView;
+        private ForEachWorker(Scheduler<E> scheduler, int id, Consumer<? super E> consumer) {
+            super(scheduler, id);
             this.consumer = consumer;
         }
 
         @Override
-        public void run() {
-            subView.iterator().hasNext(this);
+        void process(AbstractCollection<E> view, int slot) {
+            view.iterator().hasNext(this);
         }
 
         @Override
@@ -297,33 +510,35 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
         }
     }
 
-    private static final class IsEmptyRunnable<E> implements Runnable {
-        private final AbstractCollection<E> subView;
-        private boolean isEmpty;
+    private static final class IsEmptyWorker<E> extends Worker<E> {
+        private boolean notEmpty;
 
-        private IsEmptyRunnable(AbstractCollection<E> subView) {
-            this.subView = subView;
+        private IsEmptyWorker(Scheduler<E> scheduler, int id) {
+            super(scheduler, id);
         }
 
         @Override
-        public void run() {
-            isEmpty = subView.isEmpty();
+        void process(AbstractCollection<E> view, int slot) {
+            if (view.isEmpty()) return;
+            notEmpty = true;
+            scheduler.stop();
         }
     }
 
-    private static final class ReduceRunnable<E> implements Runnable, Predicate<E> {
-        private final AbstractCollection<E> subView;
+    private static final class ReduceWorker<E> extends CombiningWorker<E> implements Predicate<E> {
         private final BinaryOperator<E> operator;
         private E accumulator;
 
-        private ReduceRunnable(AbstractCollection<E> subView, BinaryOperator<E> operator) {
-            this.subView = subView;
+        private ReduceWorker(Scheduler<E> scheduler, int id, BinaryOperator<E> operator, Object[] results) {
+            super(scheduler, id, results);
             this.operator = operator;
         }
 
         @Override
-        public void run() {
-            subView.iterator().hasNext(this);
+        void process(AbstractCollection<E> view, int slot) {
+            accumulator = null;
+            view.iterator().hasNext(this);
+            results[slot] = accumulator;
         }
 
         @Override
@@ -331,24 +546,44 @@ public final class ParallelCollectionImpl<E> extends AbstractCollection<E> {
             accumulator = (accumulator != null) ? operator.apply(accumulator, param) : param;
             return false;
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        Object merge(Object left, Object right) {
+            if (left == null) return right;
+            if (right == null) return left;
+            return operator.apply((E) left, (E) right);
+        }
     }
 
-    private static final class RemoveIfRunnable<E> implements Runnable {
-        private final AbstractCollection<E> subView;
+    private static final class RemoveIfWorker<E> extends Worker<E> {
         private final Predicate<? super E> filter;
         private final FastTable<E> toRemove = new FastTable<E>();
 
-        private RemoveIfRunnable(AbstractCollection<E> subView, Predicate<? super E> filter) {
-            this.subView = subView;
+        private RemoveIfWorker(Scheduler<E> scheduler, int id, Predicate<? super E> filter) {
+            super(scheduler, id);
             this.filter = filter;
         }
 
         @Override
-        public void run() {
-            FastIterator<E> itr = subView.iterator();
+        void process(AbstractCollection<E> view, int slot) {
+            FastIterator<E> itr = view.iterator();
             while (itr.hasNext(filter))
                 toRemove.add(itr.next());
         }
     }
 
+    private static final class SizeWorker<E> extends Worker<E> {
+        private int count;
+
+        private SizeWorker(Scheduler<E> scheduler, int id) {
+            super(scheduler, id);
+        }
+
+        @Override
+        void process(AbstractCollection<E> view, int slot) {
+            count += view.size();
+        }
+    }
+
 }
@@ -68,6 +68,16 @@ public final class SharedCollectionImpl<E> // implements AbstractCollectionMetho
         }
     }
 
+    @Override
+    public void update(Consumer<? super AbstractCollection<E>> batch) {
+        lock.writeLock.lock();
+        try {
+            batch.accept(inner); // Single lock acquisition.
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
     @Override
     public E findAny() {
         lock.readLock.lock();
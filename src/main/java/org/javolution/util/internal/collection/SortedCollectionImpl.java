@@ -12,9 +12,9 @@ import java.util.Comparator;
 
 import org.javolution.util.AbstractCollection;
 import org.javolution.util.FastIterator;
-import org.javolution.util.FastTable;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.table.MergeSortImpl;
 
 /**
  * A sorted view over a collection.
@@ -57,18 +57,12 @@ public final class SortedCollectionImpl<E> extends AbstractCollection<E> {
 
     @Override
     public FastIterator<E> iterator() {
-        FastTable<E> sorted = new FastTable<E>();
-        sorted.addAll(inner);
-        sorted.sort(cmp);
-        return sorted.iterator();
+        return new MergeSortImpl<E>(cmp).sorted(inner.toArray()).iterator();
     }
 
     @Override
     public FastIterator<E> descendingIterator() {
-        FastTable<E> sorted = new FastTable<E>();
-        sorted.addAll(inner);
-        sorted.sort(cmp);
-        return sorted.descendingIterator();
+        return new MergeSortImpl<E>(cmp).sorted(inner.toArray()).descendingIterator();
     }
 
     @Override
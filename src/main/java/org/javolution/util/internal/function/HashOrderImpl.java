@@ -0,0 +1,61 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal.function;
+
+import org.javolution.annotations.Nullable;
+import org.javolution.lang.MathLib;
+import org.javolution.util.function.Order;
+
+/**
+ * An order based on the scrambled index of a hash order (such as the standard or identity order); the indices
+ * are uniformly distributed even when the hash codes are not (e.g. small integers). Scrambling is bijective,
+ * two objects have the same index if and only if they have the same hash index.
+ */
+public final class HashOrderImpl<T> extends Order<T> {
+	private static final long serialVersionUID = 0x700L; // Version.
+	private final Order<? super T> hashOrder;
+
+	public HashOrderImpl(Order<? super T> hashOrder) {
+		this.hashOrder = hashOrder;
+	}
+
+	@Override
+	public boolean areEqual(@Nullable T left, @Nullable T right) {
+		return hashOrder.areEqual(left, right);
+	}
+
+	@Override
+	public int compare(@Nullable T left, @Nullable T right) {
+		long leftIndex = indexOf(left);
+		long rightIndex = indexOf(right);
+		if (leftIndex == rightIndex)
+			return 0;
+		return MathLib.unsignedLessThan(leftIndex, rightIndex) ? -1 : 1;
+	}
+
+	@Override
+	public long indexOf(@Nullable T object) {
+		return scramble(hashOrder.indexOf(object));
+	}
+
+	/** Scrambles the specified index (64-bits finalizer of MurmurHash3, bijective and zero for zero). */
+	public static long scramble(long index) {
+		long h = (index ^ (index >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+
+	/** Returns the index whose scrambled value is specified (inverse of {@link #scramble}). */
+	public static long unscramble(long scrambled) {
+		long h = (scrambled ^ (scrambled >>> 33)) * 0x9cb4b2f8129337dbL;
+		h = (h ^ (h >>> 33)) * 0x4f74430c22a54005L;
+		return h ^ (h >>> 33);
+	}
+
+}
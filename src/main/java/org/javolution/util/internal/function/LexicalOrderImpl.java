@@ -51,9 +51,9 @@ public final class LexicalOrderImpl extends Order<CharSequence> {
     public long indexOf(@Nullable CharSequence csq) {
     	if (csq == null) return 0;
         int length = csq.length();
-        int index = 0;
-        for (int i = startIndex, n = MathLib.min(startIndex + 4, length); i < n;) 
-        	index = (index << 16) | csq.charAt(i++);
+        long index = 0;
+        for (int i = startIndex, n = startIndex + 4; i < n; i++) // Left aligned (shorter sequences first).
+        	index = (index << 16) | (i < length ? csq.charAt(i) : 0);
         return index;	
     }
 
@@ -0,0 +1,513 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.javolution.util.AbstractCache;
+import org.javolution.util.AbstractMap;
+import org.javolution.util.AbstractSet;
+import org.javolution.util.FastIterator;
+import org.javolution.util.FastMap;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Order;
+import org.javolution.util.function.Predicate;
+import org.javolution.util.function.UnaryOperator;
+
+/**
+ * A cache view over a map. Entries are tracked by nodes in doubly-linked lists ordered by last access (all updates
+ * in constant time). The LFU policy adds a small admission window (1% of the maximum size) in front of the main
+ * list; entries leaving the window are admitted only if their estimated frequency is greater than the frequency of
+ * the main list victim (W-TinyLFU). Expiring entries are also held in a binary heap by expiration time (updates
+ * in O(log(n))), the expired ones are removed on each access or update of the cache. Removals through the
+ * {@link #entries() entries} view (and the views built upon it) go through the cache.
+ */
+public final class CacheMapImpl<K, V> extends AbstractCache<K, V> {
+
+    /** The eviction policy. */
+    public enum Policy {
+        LRU, LFU
+    }
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private final AbstractMap<K, V> inner;
+    private final Policy policy;
+    private final int maxSize;
+    private final long timeToLive; // Default time-to-live in nanoseconds (zero if none).
+    private long hits;
+    private long misses;
+    private long evictions;
+    private boolean expiring; // Indicates if some entries may have expired.
+    private transient FastMap<K, Node<K>> nodes;
+    private transient Node<K> window; // Sentinel of the admission window (LFU only).
+    private transient Node<K> main; // Sentinel of the main list (least recently used first).
+    private transient Node<K>[] expirations; // Binary heap of the expiring nodes (earliest expiration first).
+    private transient int expiringCount;
+    private transient int windowSize;
+    private transient int mainSize;
+    private transient FrequencySketch sketch; // LFU only.
+
+    /**
+     * Creates a cache view over the specified map.
+     *
+     * @param maxSize the maximum number of entries ({@code Integer.MAX_VALUE} if unbounded).
+     * @param timeToLive the default time-to-live in nanoseconds or {@code 0} if entries do not expire by default.
+     */
+    public CacheMapImpl(AbstractMap<K, V> inner, Policy policy, int maxSize, long timeToLive) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+        if (timeToLive < 0) throw new IllegalArgumentException("Invalid time-to-live: " + timeToLive);
+        this.inner = inner;
+        this.policy = policy;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.expiring = timeToLive > 0;
+        initialize();
+    }
+
+    @Override
+    public long hits() {
+        return hits;
+    }
+
+    @Override
+    public long misses() {
+        return misses;
+    }
+
+    @Override
+    public long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public Entry<K, V> getEntry(K key) {
+        if (sketch != null) sketch.increment(inner.keyOrder().indexOf(key));
+        Node<K> node = find(key);
+        Entry<K, V> entry = inner.getEntry(key);
+        if (entry == null) {
+            if (node != null) discard(node); // Removed directly from the inner map.
+            misses++;
+            return null;
+        }
+        if (node != null) touch(node);
+        else track(key); // Added directly to the inner map.
+        hits++;
+        return entry;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, timeToLive);
+    }
+
+    @Override
+    public V put(K key, V value, long timeToLive, TimeUnit unit) {
+        if (timeToLive <= 0) throw new IllegalArgumentException("Invalid time-to-live: " + timeToLive);
+        expiring = true;
+        return put(key, value, unit.toNanos(timeToLive));
+    }
+
+    /** Adds or replaces the entry for the specified key (a cache does not hold multiple entries per key). */
+    @Override
+    public Entry<K, V> addEntry(K key, V value) {
+        put(key, value, timeToLive);
+        return inner.getEntry(key);
+    }
+
+    @Override
+    public Entry<K, V> removeEntry(K key) {
+        untrack(key);
+        return inner.removeEntry(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean containsKey(Object key) {
+        return peek((K) key) != null; // No statistics recorded.
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Entry<K, V> entry = peek(key);
+        if (entry != null) return entry.getValue();
+        put(key, value, timeToLive);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object key, Object value) {
+        if ((peek((K) key) == null) || !inner.remove(key, value)) return false;
+        untrack((K) key);
+        return true;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return (peek(key) != null) ? inner.replace(key, value) : null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return (peek(key) != null) ? inner.replace(key, oldValue, newValue) : false;
+    }
+
+    @Override
+    public V put(K key, UnaryOperator<V> update) {
+        Entry<K, V> entry = peek(key);
+        V previous = (entry != null) ? entry.getValue() : null;
+        put(key, update.apply(previous), timeToLive);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        inner.clear();
+        initialize();
+    }
+
+    @Override
+    public int size() {
+        removeExpired(System.nanoTime());
+        return inner.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        removeExpired(System.nanoTime());
+        return inner.isEmpty();
+    }
+
+    @Override
+    public AbstractSet<Entry<K, V>> entries() {
+        return new EntriesImpl();
+    }
+
+    @Override
+    public Order<? super K> keyOrder() {
+        return inner.keyOrder();
+    }
+
+    @Override
+    public Equality<? super V> valuesEquality() {
+        return inner.valuesEquality();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public CacheMapImpl<K, V> clone() {
+        CacheMapImpl<K, V> copy = new CacheMapImpl<K, V>(inner.clone(), policy, maxSize, timeToLive);
+        for (Node<K> sentinel : new Node[] { window, main }) { // Same eviction order.
+            for (Node<K> node = sentinel.next; node != sentinel; node = node.next) {
+                Node<K> copyNode = copy.nodes.get(node.key);
+                if (copyNode == null) continue; // Stale.
+                copy.detach(copyNode);
+                copy.attach(copyNode, node.inWindow);
+                copyNode.expires = node.expires;
+                copyNode.expiration = node.expiration;
+                copy.schedule(copyNode);
+            }
+        }
+        if (sketch != null) copy.sketch = sketch.copy();
+        copy.hits = hits;
+        copy.misses = misses;
+        copy.evictions = evictions;
+        copy.expiring = expiring;
+        return copy;
+    }
+
+    private V put(K key, V value, long ttl) {
+        if (sketch != null) sketch.increment(inner.keyOrder().indexOf(key));
+        Node<K> node = find(key);
+        V previous = inner.put(key, value);
+        if (node != null) touch(node);
+        else node = track(key);
+        if (ttl > 0) {
+            node.expires = true;
+            node.expiration = System.nanoTime() + ttl;
+        } else {
+            node.expires = false;
+        }
+        schedule(node);
+        evictIfNeeded();
+        return previous;
+    }
+
+    /** Returns the entry for the specified key without recording any access. */
+    private Entry<K, V> peek(K key) {
+        find(key); // Removes the entry if expired.
+        return inner.getEntry(key);
+    }
+
+    /** Returns the node for the specified key after removing the expired entries. */
+    private Node<K> find(K key) {
+        removeExpired(System.nanoTime());
+        return nodes.get(key);
+    }
+
+    /** Removes the entries which have expired (the earliest expiration is at the top of the heap). */
+    private void removeExpired(long now) {
+        while ((expiringCount != 0) && expirations[0].hasExpired(now))
+            evict(expirations[0]);
+    }
+
+    /** Inserts the specified node in the expiration heap if it expires (removes it otherwise). */
+    private void schedule(Node<K> node) {
+        unschedule(node);
+        if (!node.expires) return;
+        if (expiringCount == expirations.length) expirations = Arrays.copyOf(expirations, expiringCount * 2);
+        siftUp(expiringCount++, node);
+    }
+
+    private void unschedule(Node<K> node) {
+        int i = node.heapIndex;
+        if (i < 0) return;
+        node.heapIndex = -1;
+        Node<K> last = expirations[--expiringCount];
+        expirations[expiringCount] = null;
+        if (last == node) return;
+        siftDown(i, last);
+        if (expirations[i] == last) siftUp(i, last);
+    }
+
+    /** Moves the specified node from the specified heap position toward the top. */
+    private void siftUp(int i, Node<K> node) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Node<K> earlier = expirations[parent];
+            if (node.expiration - earlier.expiration >= 0) break;
+            expirations[i] = earlier;
+            earlier.heapIndex = i;
+            i = parent;
+        }
+        expirations[i] = node;
+        node.heapIndex = i;
+    }
+
+    /** Moves the specified node from the specified heap position toward the bottom. */
+    private void siftDown(int i, Node<K> node) {
+        for (int child; (child = 2 * i + 1) < expiringCount; i = child) {
+            Node<K> later = expirations[child];
+            if ((child + 1 < expiringCount) && (later.expiration - expirations[child + 1].expiration > 0))
+                later = expirations[++child];
+            if (node.expiration - later.expiration <= 0) break;
+            expirations[i] = later;
+            later.heapIndex = i;
+        }
+        expirations[i] = node;
+        node.heapIndex = i;
+    }
+
+    private Node<K> track(K key) {
+        Node<K> node = new Node<K>(key);
+        nodes.put(key, node);
+        attach(node, policy == Policy.LFU);
+        if (timeToLive > 0) {
+            node.expires = true;
+            node.expiration = System.nanoTime() + timeToLive;
+            schedule(node);
+        }
+        return node;
+    }
+
+    private void evictIfNeeded() {
+        if (policy == Policy.LFU) {
+            int windowMax = Math.max(1, maxSize / 100);
+            int mainMax = maxSize - windowMax;
+            while (windowSize > windowMax) {
+                Node<K> candidate = window.next;
+                detach(candidate);
+                attach(candidate, false);
+                if (mainSize <= mainMax) continue;
+                Node<K> victim = main.next;
+                if (victim == candidate) {
+                    evict(candidate);
+                } else if (sketch.frequency(inner.keyOrder().indexOf(candidate.key)) > sketch
+                        .frequency(inner.keyOrder().indexOf(victim.key))) {
+                    evict(victim);
+                } else {
+                    evict(candidate);
+                }
+            }
+        }
+        while (windowSize + mainSize > maxSize)
+            evict((main.next != main) ? main.next : window.next);
+    }
+
+    private void evict(Node<K> node) {
+        discard(node);
+        if (inner.removeEntry(node.key) != null) evictions++;
+    }
+
+    /** Stops tracking the specified key (removed from the inner map by the caller). */
+    private void untrack(K key) {
+        Node<K> node = nodes.get(key);
+        if (node != null) discard(node);
+    }
+
+    private void discard(Node<K> node) {
+        nodes.remove(node.key);
+        detach(node);
+        unschedule(node);
+    }
+
+    private void touch(Node<K> node) {
+        detach(node);
+        attach(node, node.inWindow);
+    }
+
+    /** Links the specified node as the most recently used of its list. */
+    private void attach(Node<K> node, boolean inWindow) {
+        Node<K> sentinel = inWindow ? window : main;
+        node.inWindow = inWindow;
+        node.previous = sentinel.previous;
+        node.next = sentinel;
+        sentinel.previous.next = node;
+        sentinel.previous = node;
+        if (inWindow) windowSize++;
+        else mainSize++;
+    }
+
+    private void detach(Node<K> node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        if (node.inWindow) windowSize--;
+        else mainSize--;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initialize() {
+        nodes = new FastMap<K, Node<K>>(inner.keyOrder());
+        window = new Node<K>(null);
+        main = new Node<K>(null);
+        expirations = new Node[16];
+        expiringCount = 0;
+        windowSize = 0;
+        mainSize = 0;
+        sketch = (policy == Policy.LFU) ? new FrequencySketch(maxSize) : null;
+        for (Entry<K, V> entry : inner.entries()) { // Existing entries are tracked as least recently used.
+            Node<K> node = track(entry.getKey());
+            detach(node);
+            attach(node, false);
+        }
+        evictIfNeeded();
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        initialize(); // Eviction order is not serialized.
+    }
+
+    /** The entries view; removals untrack the removed keys and expired entries are hidden. */
+    private final class EntriesImpl extends AbstractSet<Entry<K, V>> {
+        private static final long serialVersionUID = CacheMapImpl.serialVersionUID;
+
+        /** Returns the inner entries which have not expired. */
+        private AbstractSet<Entry<K, V>> visible() {
+            if (!expiring) return inner.entries();
+            return inner.entries().filter(new Predicate<Entry<K, V>>() {
+                @Override
+                public boolean test(Entry<K, V> entry) {
+                    Node<K> node = nodes.get(entry.getKey());
+                    return (node == null) || !node.hasExpired(System.nanoTime());
+                }
+            });
+        }
+
+        @Override
+        public boolean add(Entry<K, V> entry, boolean allowDuplicate) {
+            Entry<K, V> existing = peek(entry.getKey());
+            if ((existing != null) && valuesEquality().areEqual(existing.getValue(), entry.getValue())) return false;
+            put(entry.getKey(), entry.getValue(), timeToLive);
+            return true;
+        }
+
+        @Override
+        public Entry<K, V> getAny(Entry<K, V> entry) {
+            return visible().getAny(entry);
+        }
+
+        @Override
+        public Entry<K, V> removeAny(Entry<K, V> entry) {
+            Entry<K, V> removed = visible().removeAny(entry);
+            if (removed != null) untrack(removed.getKey());
+            return removed;
+        }
+
+        @Override
+        public boolean removeIf(final Predicate<? super Entry<K, V>> filter) {
+            return visible().removeIf(new Predicate<Entry<K, V>>() {
+                @Override
+                public boolean test(Entry<K, V> entry) {
+                    if (!filter.test(entry)) return false;
+                    untrack(entry.getKey()); // Removed from the inner map.
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        public Order<? super Entry<K, V>> order() {
+            return inner.entries().order();
+        }
+
+        @Override
+        public FastIterator<Entry<K, V>> iterator(Entry<K, V> low) {
+            return visible().iterator(low);
+        }
+
+        @Override
+        public FastIterator<Entry<K, V>> descendingIterator(Entry<K, V> high) {
+            return visible().descendingIterator(high);
+        }
+
+        @Override
+        public int size() {
+            return CacheMapImpl.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return CacheMapImpl.this.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            CacheMapImpl.this.clear();
+        }
+
+        @Override
+        public AbstractSet<Entry<K, V>> clone() {
+            return CacheMapImpl.this.clone().entries();
+        }
+    }
+
+    /** Tracking node. */
+    private static final class Node<K> {
+        final K key;
+        Node<K> previous = this;
+        Node<K> next = this;
+        int heapIndex = -1; // Position in the expiration heap (-1 if not scheduled).
+        boolean inWindow;
+        boolean expires;
+        long expiration; // System.nanoTime() based.
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        boolean hasExpired(long now) {
+            return expires && (now - expiration >= 0);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal.map;
+
+import java.io.Serializable;
+
+import org.javolution.util.internal.function.HashOrderImpl;
+
+/**
+ * A count-min sketch estimating the access frequency of keys from their index (4 rows of 4-bits counters packed
+ * in a single long array). Counters are halved periodically so that old accesses are progressively forgotten.
+ */
+final class FrequencySketch implements Serializable {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private static final long[] SEEDS = { 0x97cb3127L, 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL };
+    private static final long HALF_MASK = 0x7777777777777777L; // Clears the high bit of each counter after shift.
+
+    private final long[] table;
+    private final int sampleSize; // Number of increments before halving.
+    private int additions;
+
+    /** Creates a sketch for the specified maximum number of entries. */
+    FrequencySketch(int maxSize) {
+        int length = Integer.highestOneBit(Math.max(maxSize, 8) - 1) << 1;
+        table = new long[length];
+        sampleSize = (maxSize < Integer.MAX_VALUE / 10) ? 10 * maxSize : Integer.MAX_VALUE;
+    }
+
+    private FrequencySketch(FrequencySketch that) {
+        table = that.table.clone();
+        sampleSize = that.sampleSize;
+        additions = that.additions;
+    }
+
+    /** Returns the estimated number of occurrences of the specified index (in range [0..15]). */
+    int frequency(long index) {
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            long hash = HashOrderImpl.scramble(index + SEEDS[i]);
+            int count = (int) (table[slot(hash)] >>> shift(hash, i)) & 0xF;
+            if (count < frequency) frequency = count;
+        }
+        return frequency;
+    }
+
+    /** Records an occurrence of the specified index. */
+    void increment(long index) {
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            long hash = HashOrderImpl.scramble(index + SEEDS[i]);
+            int slot = slot(hash);
+            int shift = shift(hash, i);
+            if (((table[slot] >>> shift) & 0xF) == 0xF) continue; // Saturated.
+            table[slot] += 1L << shift;
+            added = true;
+        }
+        if (added && (++additions >= sampleSize)) halve();
+    }
+
+    /** Returns a copy of this sketch. */
+    FrequencySketch copy() {
+        return new FrequencySketch(this);
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++)
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        additions >>>= 1;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash >>> 32) & (table.length - 1);
+    }
+
+    /** Each row uses its own four counters among the sixteen counters of a slot. */
+    private static int shift(long hash, int row) {
+        return ((((int) hash & 3) << 2) + row) << 2;
+    }
+
+}
@@ -10,10 +10,9 @@ package org.javolution.util.internal.map;
 
 import org.javolution.util.AbstractMap;
 import org.javolution.util.AbstractSet;
-import org.javolution.util.AbstractTable;
-import org.javolution.util.FastTable;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Order;
+import org.javolution.util.internal.collection.LinkedIndexImpl;
 import org.javolution.util.internal.set.LinkedSetImpl;
 
 /**
@@ -23,11 +22,11 @@ public final class LinkedMapImpl<K, V> extends AbstractMap<K, V> {
 
     private static final long serialVersionUID = 0x700L; // Version.
     private AbstractMap<K,V> inner;
-    private final AbstractTable<Entry<K,V>> insertionTable;
+    private final LinkedIndexImpl<Entry<K,V>> insertionTable; // Constant time removal.
  
     public LinkedMapImpl(AbstractMap<K,V> inner) {
         this.inner = inner;
-        this.insertionTable = new FastTable<Entry<K,V>>().equality(Equality.identity());
+        this.insertionTable = new LinkedIndexImpl<Entry<K,V>>();
     }
 
     @Override
@@ -0,0 +1,298 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal.map;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javolution.util.AbstractCache;
+import org.javolution.util.AbstractMap;
+import org.javolution.util.AbstractSet;
+import org.javolution.util.function.Consumer;
+import org.javolution.util.function.Equality;
+import org.javolution.util.function.Order;
+import org.javolution.util.function.UnaryOperator;
+import org.javolution.util.internal.ReadWriteLockImpl;
+import org.javolution.util.internal.set.SharedSetImpl;
+
+/**
+ * A shared view over a cache (lookups update the eviction order and remove expired entries, they require the
+ * write lock).
+ */
+public final class SharedCacheImpl<K, V> extends AbstractCache<K, V> {
+
+    private static final long serialVersionUID = 0x700L; // Version.
+    private final AbstractCache<K, V> inner;
+    private final ReadWriteLockImpl lock;
+
+    public SharedCacheImpl(AbstractCache<K, V> inner) {
+        this.inner = inner;
+        this.lock = new ReadWriteLockImpl();
+    }
+
+    @Override
+    public long hits() {
+        lock.readLock.lock();
+        try {
+            return inner.hits();
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public long misses() {
+        lock.readLock.lock();
+        try {
+            return inner.misses();
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public long evictions() {
+        lock.readLock.lock();
+        try {
+            return inner.evictions();
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public Entry<K, V> getEntry(K key) {
+        lock.writeLock.lock();
+        try {
+            return inner.getEntry(key);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        lock.writeLock.lock();
+        try {
+            return inner.get(key);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        lock.writeLock.lock();
+        try {
+            return inner.containsKey(key);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        lock.writeLock.lock();
+        try {
+            return inner.put(key, value);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, V value, long timeToLive, TimeUnit unit) {
+        lock.writeLock.lock();
+        try {
+            return inner.put(key, value, timeToLive, unit);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, UnaryOperator<V> update) {
+        lock.writeLock.lock();
+        try {
+            return inner.put(key, update);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Entry<K, V> addEntry(K key, V value) {
+        lock.writeLock.lock();
+        try {
+            return inner.addEntry(key, value);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        lock.writeLock.lock();
+        try {
+            return inner.putIfAbsent(key, value);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        lock.writeLock.lock();
+        try {
+            return inner.remove(key);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        lock.writeLock.lock();
+        try {
+            return inner.remove(key, value);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Entry<K, V> removeEntry(K key) {
+        lock.writeLock.lock();
+        try {
+            return inner.removeEntry(key);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        lock.writeLock.lock();
+        try {
+            return inner.replace(key, value);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        lock.writeLock.lock();
+        try {
+            return inner.replace(key, oldValue, newValue);
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void update(Consumer<? super AbstractMap<K, V>> batch) {
+        lock.writeLock.lock();
+        try {
+            batch.accept(inner); // Single lock acquisition.
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock.lock();
+        try {
+            inner.clear();
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.writeLock.lock();
+        try {
+            return inner.size();
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        lock.writeLock.lock();
+        try {
+            return inner.isEmpty();
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock.lock();
+        try {
+            return inner.toString();
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        lock.readLock.lock();
+        try {
+            return inner.equals(obj);
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        lock.readLock.lock();
+        try {
+            return inner.hashCode();
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public SharedCacheImpl<K, V> clone() {
+        lock.readLock.lock();
+        try {
+            return new SharedCacheImpl<K, V>(inner.clone());
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public AbstractSet<Entry<K, V>> entries() {
+        lock.readLock.lock();
+        try {
+            return new SharedSetImpl<Entry<K, V>>(inner.entries(), lock);
+        } finally {
+            lock.readLock.unlock();
+        }
+    }
+
+    @Override
+    public Order<? super K> keyOrder() {
+        return inner.keyOrder(); // Immutable.
+    }
+
+    @Override
+    public Equality<? super V> valuesEquality() {
+        return inner.valuesEquality(); // Immutable.
+    }
+
+}
@@ -13,6 +13,7 @@ import java.util.Map;
 import org.javolution.util.AbstractMap;
 import org.javolution.util.AbstractSet;
 import org.javolution.util.FastMap;
+import org.javolution.util.function.Consumer;
 import org.javolution.util.function.Equality;
 import org.javolution.util.function.Order;
 import org.javolution.util.function.UnaryOperator;
@@ -184,6 +185,16 @@ public final class SharedMapImpl<K, V> extends AbstractMap<K, V> {
         }
     }
 
+    @Override
+    public void update(Consumer<? super AbstractMap<K, V>> batch) {
+        lock.writeLock.lock();
+        try {
+            batch.accept(inner); // Single lock acquisition.
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
     @Override
     public V putIfAbsent(K key, V value) {
         lock.writeLock.lock();
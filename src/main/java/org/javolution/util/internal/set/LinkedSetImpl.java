@@ -11,11 +11,9 @@ package org.javolution.util.internal.set;
 import org.javolution.util.FastIterator;
 import org.javolution.annotations.Nullable;
 import org.javolution.util.AbstractSet;
-import org.javolution.util.AbstractTable;
-import org.javolution.util.FastTable;
-import org.javolution.util.function.Equality;
 import org.javolution.util.function.Order;
 import org.javolution.util.function.Predicate;
+import org.javolution.util.internal.collection.LinkedIndexImpl;
 
 /**
  * A linked view over a set.
@@ -24,14 +22,14 @@ public final class LinkedSetImpl<E> extends AbstractSet<E> {
     
     private static final long serialVersionUID = 0x700L; // Version.
     private final AbstractSet<E> inner;
-    private final AbstractTable<E> insertionTable;
+    private final LinkedIndexImpl<E> insertionTable; // Constant time removal.
 
     public LinkedSetImpl(AbstractSet<E> inner) {
         this.inner = inner;
-        this.insertionTable = new FastTable<E>().equality(Equality.identity());
+        this.insertionTable = new LinkedIndexImpl<E>();
     }
 
-    public LinkedSetImpl(AbstractSet<E> inner, AbstractTable<E> insertionTable) {
+    public LinkedSetImpl(AbstractSet<E> inner, LinkedIndexImpl<E> insertionTable) {
         this.inner = inner;
         this.insertionTable = insertionTable;
     }
@@ -22,7 +22,8 @@ import org.javolution.util.function.Predicate;
 import org.javolution.util.internal.ReadWriteLockImpl;
 
 /**
- * A shared view over a set (reads-write locks).
+ * A shared view over a set (reads-write locks); bounded reads ({@code size}, {@code isEmpty}) are first
+ * attempted without locking and retried under the read lock on conflict.
  */
 public final class SharedSetImpl<E> // implements AbstractSetMethods<E> {
      extends AbstractSet<E> {
@@ -81,6 +82,16 @@ public final class SharedSetImpl<E> // implements AbstractSetMethods<E> {
         }
     }
 
+    @Override
+    public void update(Consumer<? super AbstractCollection<E>> batch) {
+        lock.writeLock.lock();
+        try {
+            batch.accept(inner); // Single lock acquisition.
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
     @Override
     public E findAny() {
         lock.readLock.lock();
@@ -122,7 +133,7 @@ public final class SharedSetImpl<E> // implements AbstractSetMethods<E> {
     }
 
     @Override
-    public boolean contains(final Object searched) {
+    public boolean contains(Object searched) {
         lock.readLock.lock();
         try {
             return inner.contains(searched);
@@ -183,6 +194,15 @@ public final class SharedSetImpl<E> // implements AbstractSetMethods<E> {
 
     @Override
     public boolean isEmpty() {
+        long stamp = lock.tryOptimisticRead(); // Lock-free attempt (bounded read, validated).
+        if (stamp != 0) {
+            try {
+                boolean empty = inner.isEmpty();
+                if (lock.validate(stamp)) return empty;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e; // Not caused by a concurrent update.
+            }
+        }
         lock.readLock.lock();
         try {
             return inner.isEmpty();
@@ -299,6 +319,15 @@ public final class SharedSetImpl<E> // implements AbstractSetMethods<E> {
 
     @Override
     public int size() {
+        long stamp = lock.tryOptimisticRead(); // Lock-free attempt (bounded read, validated).
+        if (stamp != 0) {
+            try {
+                int n = inner.size();
+                if (lock.validate(stamp)) return n;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e; // Not caused by a concurrent update.
+            }
+        }
         lock.readLock.lock();
         try {
             return inner.size();
@@ -8,6 +8,7 @@
  */
 package org.javolution.util.internal.set;
 
+import org.javolution.annotations.Nullable;
 import org.javolution.util.FastIterator;
 import org.javolution.util.FractalArray;
 import org.javolution.util.function.Order;
@@ -33,7 +34,7 @@ public final class SortedSetImpl<E> extends AbstractSet<E> {
     public boolean add(E element, boolean allowDuplicate) {
         int i = firstIndex(element, 0, size);
         if (!allowDuplicate && (i < size) && comparator.areEqual(element, sorted.get(i))) return false;
-        sorted.insert(i, element);
+        sorted = sorted.insert(i, element);
         size++;
         return true;
     }
@@ -41,8 +42,9 @@ public final class SortedSetImpl<E> extends AbstractSet<E> {
     @Override
     public boolean removeIf(Predicate<? super E> filter) {
         int initialSize = size;
-        for (FractalArray.Iterator<E> itr = sorted.iterator(); itr.hasNext(filter);) {
-            sorted.set(itr.nextIndex(), null);
+        for (int i = size; --i >= 0;) { // Deletions do not shift the elements not yet tested.
+            if (!filter.test(sorted.get(i))) continue;
+            sorted = sorted.delete(i);
             --size;
         }
         return initialSize != size;
@@ -79,24 +81,32 @@ public final class SortedSetImpl<E> extends AbstractSet<E> {
         return null;
     }
 
+    @Override
+    public SortedSetImpl<E> clone() {
+        SortedSetImpl<E> copy = (SortedSetImpl<E>) super.clone();
+        copy.sorted = sorted.clone();
+        return copy;
+    }
+
     @Override
     public Order<? super E> order() {
         return comparator;
     }
 
     @Override
-    public FastIterator<E> iterator(E low) {
-        return sorted.iterator(firstIndex(low, 0, size));
+    public FastIterator<E> iterator(@Nullable E low) {
+        return sorted.iterator((low != null) ? firstIndex(low, 0, size) : 0);
     }
 
     @Override
-    public FastIterator<E> descendingIterator(E high) {
-        return sorted.descendingIterator(lastIndex(high, 0, size));
+    public FastIterator<E> descendingIterator(@Nullable E high) {
+        int last = (high != null) ? lastIndex(high, 0, size) - 1 : size - 1; // Position of the last element <= high.
+        return (last >= 0) ? sorted.descendingIterator(last) : FractalArray.<E>empty().iterator();
     }
 
     @Override
     public boolean isEmpty() {
-        return size != 0;
+        return size == 0;
     }
 
     @Override
@@ -8,7 +8,6 @@
  */
 package org.javolution.util.internal.set;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import org.javolution.annotations.Nullable;
@@ -111,12 +110,22 @@ public final class SubSetImpl<E> extends AbstractSet<E> {
             }});
     }       
 
-    @Parallel
     @Override
     public int size() {
-        int count = 0;
-        for (Iterator<E> itr = iterator(); itr.hasNext(); itr.next()) count++;
-        return count;
+        return inner.rangeCount(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    @Override
+    public int rangeCount(@Nullable E from, boolean fromIncl, @Nullable E to, boolean toIncl) {
+        if ((from == null) || tooLow(from)) { // Restricts to sub-set lower bound.
+            from = fromElement;
+            fromIncl = fromInclusive;
+        }
+        if ((to == null) || tooHigh(to)) { // Restricts to sub-set higher bound.
+            to = toElement;
+            toIncl = toInclusive;
+        }
+        return inner.rangeCount(from, fromIncl, to, toIncl);
     }
  
     private E ceiling(E element) {
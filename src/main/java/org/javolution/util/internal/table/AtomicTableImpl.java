@@ -22,7 +22,8 @@ import org.javolution.util.function.Equality;
 import org.javolution.util.function.Predicate;
 
 /**
- * An atomic view over a table. All updates are synchronized, reads are performed on immutable copy.
+ * An atomic view over a table. All updates are synchronized, reads are performed on immutable copy
+ * (for fast tables, copies share their structure with the original and each update copies only the modified path).
  */
 public final class AtomicTableImpl<E> // implements AbstractTableMethods<E> {
         extends AbstractTable<E> {
@@ -0,0 +1,189 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal.table;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.javolution.context.ConcurrentContext;
+import org.javolution.util.AbstractTable;
+import org.javolution.util.FastTable;
+
+/**
+ * A stable merge sort utility class operating on contiguous arrays (the table elements are copied once,
+ * sorted and copied back). Sub-arrays are sorted concurrently using an adaptive merge sort (linear time for
+ * presorted runs), then merged pairwise; each merge is itself partitioned into independent merges of equal
+ * length (merge path) so that all the {@link ConcurrentContext} threads are kept busy up to the last merge.
+ */
+public final class MergeSortImpl<E> {
+
+    /** The minimum number of elements sorted or merged by a concurrent task. */
+    private static final int MIN_TASK_LENGTH = 1 << 13;
+
+    private final Comparator<? super E> comparator;
+
+    public MergeSortImpl(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    /** Sorts the specified table in place (elements set one at a time, see {@link FastTable#sort} for bulk loading). */
+    @SuppressWarnings("unchecked")
+    public void sort(AbstractTable<E> table) {
+        if (table.size() < 2) return;
+        Object[] elements = table.toArray();
+        sort(elements);
+        for (int i = 0; i < elements.length; i++)
+            table.set(i, (E) elements[i]);
+    }
+
+    /** Returns a new table holding the specified elements sorted. */
+    @SuppressWarnings("unchecked")
+    public FastTable<E> sorted(Object[] elements) {
+        sort(elements);
+        return FastTable.of((E[]) elements);
+    }
+
+    /** Sorts the specified array in place. */
+    @SuppressWarnings("unchecked")
+    public void sort(Object[] elements) {
+        int n = elements.length;
+        if (n < 2 * MIN_TASK_LENGTH) {
+            Arrays.sort(elements, (Comparator<Object>) comparator);
+            return;
+        }
+        ConcurrentContext ctx = ConcurrentContext.enter();
+        try {
+            int concurrency = ctx.getConcurrency() + 1;
+            int runs = Math.min(concurrency, n / MIN_TASK_LENGTH);
+            if (runs <= 1) {
+                Arrays.sort(elements, (Comparator<Object>) comparator);
+                return;
+            }
+            int[] bounds = new int[runs + 1];
+            Runnable[] sorts = new Runnable[runs];
+            for (int i = 0; i < runs; i++) {
+                bounds[i + 1] = (int) ((long) n * (i + 1) / runs);
+                sorts[i] = new SortTask(elements, bounds[i], bounds[i + 1]);
+            }
+            execute(sorts);
+            Object[] src = elements;
+            Object[] dst = new Object[n];
+            while (runs > 1) { // Merges pairs of adjacent runs (the last run is copied if unpaired).
+                int merges = (runs + 1) / 2;
+                int parts = Math.max(1, concurrency / merges);
+                int[] mergedBounds = new int[merges + 1];
+                Runnable[] tasks = new Runnable[merges * parts];
+                for (int i = 0, t = 0; i < merges; i++) {
+                    int lo = bounds[2 * i];
+                    int mid = bounds[Math.min(2 * i + 1, runs)];
+                    int hi = bounds[Math.min(2 * i + 2, runs)];
+                    mergedBounds[i + 1] = hi;
+                    int length = hi - lo;
+                    int n1 = Math.max(1, Math.min(parts, length / MIN_TASK_LENGTH));
+                    for (int j = 0; j < parts; j++) {
+                        int from = (j < n1) ? (int) ((long) length * j / n1) : length;
+                        int to = (j < n1) ? (int) ((long) length * (j + 1) / n1) : length;
+                        tasks[t++] = new MergeTask(src, dst, lo, mid, hi, from, to);
+                    }
+                }
+                execute(tasks);
+                Object[] tmp = src;
+                src = dst;
+                dst = tmp;
+                bounds = mergedBounds;
+                runs = merges;
+            }
+            if (src != elements) System.arraycopy(src, 0, elements, 0, n);
+        } finally {
+            ctx.exit();
+        }
+    }
+
+    /** Executes the specified tasks concurrently and waits for their completion. */
+    private static void execute(Runnable[] tasks) {
+        ConcurrentContext ctx = ConcurrentContext.enter();
+        try {
+            for (int i = 1; i < tasks.length; i++)
+                ctx.execute(tasks[i]);
+            tasks[0].run(); // Current thread works too.
+        } finally {
+            ctx.exit(); // Waits for concurrent completion.
+        }
+    }
+
+    /** Sorts a sub-array. */
+    private final class SortTask implements Runnable {
+        private final Object[] elements;
+        private final int from;
+        private final int to;
+
+        private SortTask(Object[] elements, int from, int to) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            Arrays.sort(elements, from, to, (Comparator<Object>) comparator);
+        }
+    }
+
+    /**
+     * Merges the sorted runs {@code src[lo, mid)} and {@code src[mid, hi)} into {@code dst[lo, hi)},
+     * only the merged elements at the positions {@code [lo + from, lo + to)} are written.
+     */
+    private final class MergeTask implements Runnable {
+        private final Object[] src;
+        private final Object[] dst;
+        private final int lo, mid, hi;
+        private final int from, to;
+
+        private MergeTask(Object[] src, Object[] dst, int lo, int mid, int hi, int from, int to) {
+            this.src = src;
+            this.dst = dst;
+            this.lo = lo;
+            this.mid = mid;
+            this.hi = hi;
+            this.from = from;
+            this.to = to;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            if (from == to) return;
+            int i = lo + split(from);
+            int j = mid + from - (i - lo);
+            int iEnd = lo + split(to);
+            int jEnd = mid + to - (iEnd - lo);
+            int k = lo + from;
+            while ((i < iEnd) && (j < jEnd))
+                dst[k++] = (comparator.compare((E) src[j], (E) src[i]) < 0) ? src[j++] : src[i++]; // Stable.
+            while (i < iEnd)
+                dst[k++] = src[i++];
+            while (j < jEnd)
+                dst[k++] = src[j++];
+        }
+
+        /** Returns the number of elements of the left run among the first {@code k} merged elements. */
+        @SuppressWarnings("unchecked")
+        private int split(int k) {
+            int low = Math.max(0, k - (hi - mid));
+            int high = Math.min(k, mid - lo);
+            while (low < high) { // Finds the smallest i such that right[k - i - 1] < left[i]
+                int i = (low + high) >>> 1;
+                if (comparator.compare((E) src[mid + k - i - 1], (E) src[lo + i]) < 0) high = i;
+                else low = i + 1;
+            }
+            return low;
+        }
+    }
+}
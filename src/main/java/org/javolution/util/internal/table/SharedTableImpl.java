@@ -23,7 +23,9 @@ import org.javolution.util.function.Predicate;
 import org.javolution.util.internal.ReadWriteLockImpl;
 
 /**
- * A shared view over a table allowing concurrent access and sequential updates.
+ * A shared view over a table allowing concurrent access and sequential updates; bounded reads ({@code get},
+ * {@code size}, {@code isEmpty}) are first attempted without locking and retried under the read lock on
+ * conflict.
  */
 public final class SharedTableImpl<E> //implements AbstractTableMethods<E> {
          extends AbstractTable<E> {
@@ -92,6 +94,16 @@ public final class SharedTableImpl<E> //implements AbstractTableMethods<E> {
         }
     }
 
+    @Override
+    public void update(Consumer<? super AbstractCollection<E>> batch) {
+        lock.writeLock.lock();
+        try {
+            batch.accept(inner); // Single lock acquisition.
+        } finally {
+            lock.writeLock.unlock();
+        }
+    }
+
     @Override
     public void addFirst(E element) {
         lock.writeLock.lock();
@@ -209,6 +221,15 @@ public final class SharedTableImpl<E> //implements AbstractTableMethods<E> {
 
     @Override
     public E get(int index) {
+        long stamp = lock.tryOptimisticRead(); // Lock-free attempt (bounded read, validated).
+        if (stamp != 0) {
+            try {
+                E element = inner.get(index);
+                if (lock.validate(stamp)) return element;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e; // Not caused by a concurrent update.
+            }
+        }
         lock.readLock.lock();
         try {
             return inner.get(index);
@@ -429,6 +450,15 @@ public final class SharedTableImpl<E> //implements AbstractTableMethods<E> {
 
     @Override
     public int size() {
+        long stamp = lock.tryOptimisticRead(); // Lock-free attempt (bounded read, validated).
+        if (stamp != 0) {
+            try {
+                int n = inner.size();
+                if (lock.validate(stamp)) return n;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e; // Not caused by a concurrent update.
+            }
+        }
         lock.readLock.lock();
         try {
             return inner.size();
@@ -556,6 +586,15 @@ public final class SharedTableImpl<E> //implements AbstractTableMethods<E> {
 
     @Override
     public boolean isEmpty() {
+        long stamp = lock.tryOptimisticRead(); // Lock-free attempt (bounded read, validated).
+        if (stamp != 0) {
+            try {
+                boolean empty = inner.isEmpty();
+                if (lock.validate(stamp)) return empty;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e; // Not caused by a concurrent update.
+            }
+        }
         lock.readLock.lock();
         try {
             return inner.isEmpty();
@@ -584,5 +623,4 @@ public final class SharedTableImpl<E> //implements AbstractTableMethods<E> {
         }
     }
 
-    
-}
\ No newline at end of file
+}
@@ -11,8 +11,7 @@ package org.javolution.xml.internal.stream;
 import java.io.OutputStream;
 import java.io.Writer;
 
-import org.javolution.util.AbstractTable;
-import org.javolution.util.FastTable;
+import org.javolution.util.ConcurrentRingBuffer;
 import org.javolution.xml.stream.XMLOutputFactory;
 import org.javolution.xml.stream.XMLStreamException;
 
@@ -39,7 +38,10 @@ public final class XMLOutputFactoryImpl implements XMLOutputFactory {
     // Property setting.
     private String _repairingPrefix = "ns";
 
-    private AbstractTable<XMLStreamWriterImpl> _recycled = new FastTable<XMLStreamWriterImpl>().shared();
+    private static final int RECYCLED_CAPACITY = 64; // Instances in excess are garbage collected.
+    // Recycled instances are reused in FIFO order (lock-free), not the most recently released first.
+    private ConcurrentRingBuffer<XMLStreamWriterImpl> _recycled
+            = new ConcurrentRingBuffer<XMLStreamWriterImpl>(RECYCLED_CAPACITY);
 
     // Implements XMLOutputFactory abstract method.
     public XMLStreamWriterImpl createXMLStreamWriter(OutputStream stream)
@@ -122,11 +124,11 @@ public final class XMLOutputFactoryImpl implements XMLOutputFactory {
      * Recycles the specified writer instance.
      */
     void recycle(XMLStreamWriterImpl xmlWriter) {
-        _recycled.addLast(xmlWriter);
+        _recycled.offer(xmlWriter);
     }
 
     private XMLStreamWriterImpl newWriter() {
-        XMLStreamWriterImpl xmlWriter = _recycled.pollLast();
+        XMLStreamWriterImpl xmlWriter = _recycled.poll();
         if (xmlWriter == null) xmlWriter = new XMLStreamWriterImpl(this);
         xmlWriter.setRepairingNamespaces(_isRepairingNamespaces.booleanValue());
         xmlWriter.setRepairingPrefix(_repairingPrefix);
@@ -142,7 +144,7 @@ public final class XMLOutputFactoryImpl implements XMLOutputFactory {
     public XMLOutputFactory clone() {
         try {
             XMLOutputFactoryImpl clone = (XMLOutputFactoryImpl) super.clone();
-            clone._recycled = new FastTable<XMLStreamWriterImpl>().shared();
+            clone._recycled = new ConcurrentRingBuffer<XMLStreamWriterImpl>(RECYCLED_CAPACITY);
             return clone;
         } catch (CloneNotSupportedException e) {
             throw new Error();// Cannot happen since cloneable.
@@ -0,0 +1,101 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.javolution.util.function.Order;
+import org.javolution.util.function.UnaryOperator;
+import org.junit.Test;
+
+public class ConcurrentFastMapTest {
+
+	@Test
+	public void testPutGetRemove(){
+		Random rnd = new Random(0);
+		HashMap<Integer, Integer> hm = new HashMap<>();
+		ConcurrentFastMap<Integer, Integer> cfm = new ConcurrentFastMap<>();
+		for (int i = 0; i < 100000; i++) {
+			Integer key = rnd.nextInt(10000);
+			switch (rnd.nextInt(4)) {
+			case 0:
+				assertEquals(hm.put(key, i), cfm.put(key, i));
+				break;
+			case 1:
+				assertEquals(hm.remove(key), cfm.remove(key));
+				break;
+			case 2:
+				assertEquals(hm.putIfAbsent(key, i), cfm.putIfAbsent(key, i));
+				break;
+			default:
+				assertEquals(hm.get(key), cfm.get(key));
+			}
+		}
+		assertEquals(hm.size(), cfm.size());
+		assertEquals(hm, cfm);
+	}
+
+	@Test
+	public void testCollisions(){ // Different keys with the same index.
+		ConcurrentFastMap<String, Integer> cfm = new ConcurrentFastMap<>(Order.lexical());
+		cfm.put("ABCD1", 1);
+		cfm.put("ABCD3", 3);
+		cfm.put("ABCD2", 2);
+		assertEquals(3, cfm.size());
+		assertEquals((Integer) 2, cfm.get("ABCD2"));
+		assertTrue(cfm.replace("ABCD2", 2, 22));
+		assertFalse(cfm.replace("ABCD2", 2, 222));
+		assertEquals("[ABCD1, ABCD2, ABCD3]", cfm.keySet().toString());
+		assertTrue(cfm.remove("ABCD1", 1));
+		assertNull(cfm.get("ABCD1"));
+		assertEquals("[ABCD2, ABCD3]", cfm.keySet().toString());
+	}
+
+	@Test
+	public void testOrder(){
+		ConcurrentFastMap<String, Integer> cfm = new ConcurrentFastMap<>(Order.lexical());
+		String[] keys = { "Paris", "London", "Berlin", "Zurich", "Madrid", "Amsterdam" };
+		for (int i = 0; i < keys.length; i++) cfm.put(keys[i], i);
+		assertEquals("[Amsterdam, Berlin, London, Madrid, Paris, Zurich]", cfm.keySet().toString());
+		assertEquals("Amsterdam", cfm.firstKey());
+		assertEquals("Zurich", cfm.lastKey());
+		assertEquals("[Berlin, London]", cfm.subMap("B", "M").keySet().toString());
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final ConcurrentFastMap<Integer, Integer> cfm = new ConcurrentFastMap<>();
+		final UnaryOperator<Integer> increment = new UnaryOperator<Integer>() {
+			@Override
+			public Integer apply(Integer value) {
+				return (value != null) ? value + 1 : 1;
+			}
+		};
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) cfm.put(i % 100, increment);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+		assertEquals(100, cfm.size());
+		for (int i = 0; i < 100; i++) assertEquals((Integer) (threads.length * 100), cfm.get(i));
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.javolution.util.function.Predicate;
+import org.junit.Test;
+
+public class ConcurrentQueuesTest {
+
+	private static final int THREADS = 4;
+	private static final int COUNT = 100000; // Per producer.
+
+	private static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+		@Override
+		public boolean test(Integer param) {
+			return (param & 1) == 0;
+		}};
+
+	@Test
+	public void testRingBufferFifo() {
+		ConcurrentRingBuffer<Integer> queue = new ConcurrentRingBuffer<Integer>(5);
+		assertEquals(8, queue.capacity());
+		for (int i = 0; i < 8; i++)
+			assertTrue(queue.offer(i));
+		assertFalse(queue.offer(8));
+		assertEquals(8, queue.size());
+		assertEquals(0, queue.peek().intValue());
+		assertEquals(0, queue.poll().intValue());
+		assertTrue(queue.offer(8));
+		assertTrue(queue.removeIf(EVEN));
+		assertEquals("[1, 3, 5, 7]", queue.toString());
+		assertEquals(queue.toString(), queue.clone().toString());
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testRingBufferConcurrent() throws InterruptedException {
+		final ConcurrentRingBuffer<Integer> queue = new ConcurrentRingBuffer<Integer>(1024);
+		final AtomicLong sum = new AtomicLong();
+		Thread[] threads = new Thread[2 * THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 1; i <= COUNT; i++)
+						while (!queue.offer(i)) Thread.yield();
+				}};
+			threads[THREADS + t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < COUNT; i++) {
+						Integer value;
+						while ((value = queue.poll()) == null) Thread.yield();
+						sum.addAndGet(value);
+					}
+				}};
+		}
+		startAndJoin(threads);
+		assertEquals((long) THREADS * COUNT * (COUNT + 1) / 2, sum.get());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testRingBufferRemoveIfConcurrent() throws InterruptedException {
+		final ConcurrentRingBuffer<Integer> queue = new ConcurrentRingBuffer<Integer>(8);
+		final AtomicLong sum = new AtomicLong();
+		final AtomicLong producing = new AtomicLong(THREADS + 1); // Including the main thread.
+		Thread[] threads = new Thread[2 * THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 1; i <= COUNT; i += 2) // Odd values (never removed).
+						while (!queue.offer(i)) Thread.yield();
+					producing.decrementAndGet();
+				}};
+			threads[THREADS + t] = new Thread() {
+				@Override
+				public void run() {
+					while (true) {
+						boolean done = producing.get() == 0;
+						Integer value = queue.poll();
+						if (value != null) sum.addAndGet(value);
+						else if (done) return;
+						else Thread.yield();
+					}
+				}};
+		}
+		for (Thread thread : threads)
+			thread.start();
+		while (producing.get() != 1)
+			assertFalse(queue.removeIf(EVEN));
+		producing.decrementAndGet();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals((long) THREADS * (COUNT / 2) * (COUNT / 2), sum.get());
+	}
+
+	@Test
+	public void testMpscQueue() throws InterruptedException {
+		final MpscQueue<Integer> queue = new MpscQueue<Integer>();
+		Thread[] producers = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			producers[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 1; i <= COUNT; i++)
+						queue.offer(i);
+				}};
+		}
+		for (Thread thread : producers)
+			thread.start();
+		long sum = 0;
+		for (int i = 0; i < THREADS * COUNT; i++) {
+			Integer value;
+			while ((value = queue.poll()) == null) Thread.yield();
+			sum += value;
+		}
+		for (Thread thread : producers)
+			thread.join();
+		assertEquals((long) THREADS * COUNT * (COUNT + 1) / 2, sum);
+		assertNull(queue.poll());
+		queue.offer(1);
+		queue.offer(2);
+		assertEquals("[1, 2]", queue.clone().toString());
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testWorkStealingDeque() throws InterruptedException {
+		final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>();
+		for (int i = 0; i < 5; i++)
+			deque.push(i);
+		assertEquals(4, deque.peek().intValue());
+		assertEquals(4, deque.pop().intValue());
+		assertEquals(0, deque.steal().intValue());
+		assertTrue(deque.removeIf(EVEN));
+		assertEquals("[1, 3]", deque.toString());
+		deque.clear();
+
+		final AtomicLong stolen = new AtomicLong();
+		final AtomicLong remaining = new AtomicLong(COUNT);
+		Thread[] thieves = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			thieves[t] = new Thread() {
+				@Override
+				public void run() {
+					while (remaining.get() > 0) {
+						Integer value = deque.steal();
+						if (value == null) continue;
+						stolen.addAndGet(value);
+						remaining.decrementAndGet();
+					}
+				}};
+		}
+		for (Thread thread : thieves)
+			thread.start();
+		long popped = 0;
+		for (int i = 1; i <= COUNT; i++) {
+			deque.push(i);
+			if ((i % 3) == 0) {
+				Integer value = deque.pop();
+				if (value != null) {
+					popped += value;
+					remaining.decrementAndGet();
+				}
+			}
+		}
+		for (Integer value = deque.pop(); value != null; value = deque.pop()) {
+			popped += value;
+			remaining.decrementAndGet();
+		}
+		for (Thread thread : thieves)
+			thread.join();
+		assertEquals((long) COUNT * (COUNT + 1) / 2, popped + stolen.get());
+		assertEquals(0, deque.size());
+	}
+
+	private static void startAndJoin(Thread[] threads) throws InterruptedException {
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+	}
+}
@@ -199,4 +199,149 @@ public class FastBitSetTest {
 		assertTrue("FastBitSet Is Empty", _fastBitSetAll.isEmpty());
 		assertEquals("FastBitSet Size == 0 ", 0,  _fastBitSetAll.size());
 	}
+
+	@Test
+	public void testLargeBulkOperations(){
+		FastBitSet evens = new FastBitSet();
+		FastBitSet thirds = new FastBitSet();
+		for(int i = 0; i < 10000000; i += 2) evens.set(i);
+		for(int i = 0; i < 10000000; i += 3) thirds.set(i);
+		assertEquals("Cardinality", 5000000, evens.cardinality());
+		FastBitSet sixths = evens.clone();
+		sixths.and(thirds);
+		assertEquals("And", 1666667, sixths.cardinality());
+		FastBitSet union = evens.clone();
+		union.or(thirds);
+		assertEquals("Or", 5000000 + 3333334 - 1666667, union.cardinality());
+		union.xor(sixths);
+		assertEquals("Xor", 5000000 + 3333334 - 2 * 1666667, union.cardinality());
+		union.andNot(evens);
+		assertEquals("AndNot", 3333334 - 1666667, union.cardinality());
+	}
+	
+	@Test
+	public void testSetBitsBatchIteration(){
+		FastBitSet bits = new FastBitSet();
+		for(int i = 5; i < 1000; i += 7) bits.set(i);
+		int[] buffer = new int[10];
+		int expected = 5;
+		for (int n, from = 0; (n = bits.nextSetBits(from, buffer)) > 0; from = buffer[n - 1] + 1)
+			for (int i = 0; i < n; i++, expected += 7) 
+				assertEquals("Set Bit", expected, buffer[i]);
+		assertEquals("All Bits Iterated", 1006, expected);
+		final int[] sum = new int[1];
+		bits.forEachSetBit(new java.util.function.IntConsumer() {
+			@Override
+			public void accept(int index) {
+				sum[0] += index;
+			}});
+		int expectedSum = 0;
+		for (int i : bits.toIntArray()) expectedSum += i;
+		assertEquals("Same Bits", expectedSum, sum[0]);
+		assertEquals("Previous Set Bit", 999, bits.previousSetBit(1005));
+		assertEquals("Next Set Bit", 75, bits.nextSetBit(70));
+	}
+
+	@Test
+	public void testPrimitiveIteration(){
+		FastBitSet bits = new FastBitSet();
+		for(int i = 3; i < 100000; i += 11) bits.set(i);
+		long expected = 3;
+		for (FastBitSet.IndexIterator itr = bits.iterator(); itr.hasNext(); expected += 11)
+			assertEquals("Ascending", expected, itr.nextLong());
+		assertEquals("All Bits Iterated", 100004, expected);
+		for (FastBitSet.IndexIterator itr = bits.descendingIterator(); itr.hasNext();) 
+			assertEquals("Descending", expected -= 11, itr.nextLong());
+		assertEquals("All Bits Iterated", 3, expected);
+		FastBitSet.IndexIterator itr = bits.iterator(Index.of(50000));
+		assertTrue("Matching", itr.hasNext(new org.javolution.util.function.Predicate<Index>() {
+			@Override
+			public boolean test(Index index) {
+				return index.intValue() % 2 == 0;
+			}}));
+		assertEquals("Next Even", 50020, itr.next().intValue());
+		assertEquals("Next", 50031, itr.nextLong());
+	}
+
+	@Test
+	public void testCompressedSparseBit(){
+		FastBitSet bits = FastBitSet.compressed();
+		bits.set(Integer.MAX_VALUE);
+		assertTrue("Compressed", bits.isCompressed());
+		assertTrue("Bit Set", bits.get(Integer.MAX_VALUE));
+		assertEquals("Cardinality", 1, bits.cardinality());
+		assertEquals("Length", Integer.MAX_VALUE, bits.length() - 1);
+		assertEquals("Next Set Bit", Integer.MAX_VALUE, bits.nextSetBit(0));
+		assertEquals("Previous Set Bit", Integer.MAX_VALUE, bits.previousSetBit(Integer.MAX_VALUE));
+		assertEquals("Next Clear Bit", 0, bits.nextClearBit(0));
+	}
+	
+	@Test
+	public void testCompressedEqualsNotExpanded(){
+		FastBitSet bits = FastBitSet.compressed();
+		FastBitSet same = FastBitSet.compressed();
+		bits.set(2000000000);
+		same.set(2000000000);
+		assertEquals("Compared Chunk By Chunk", bits, same);
+		same.set(1999999999);
+		assertFalse("Different Bits", bits.equals(same));
+		FastBitSet dense = new FastBitSet();
+		dense.set(64);
+		FastBitSet compressed = FastBitSet.compressed();
+		compressed.set(64);
+		assertEquals("Dense Equals Compressed", dense, compressed);
+		assertEquals("Compressed Equals Dense", compressed, dense);
+	}
+
+	@Test
+	public void testCompressedSameAsDense(){
+		java.util.Random random = new java.util.Random(0);
+		FastBitSet[] dense = new FastBitSet[2];
+		FastBitSet[] compressed = new FastBitSet[2];
+		for (int k = 0; k < 2; k++) {
+			dense[k] = new FastBitSet();
+			compressed[k] = FastBitSet.compressed();
+			for (int i = 0; i < 2000; i++) { // Sparse bits.
+				int index = random.nextInt(1 << 20);
+				dense[k].set(index);
+				compressed[k].set(index);
+			}
+			int from = random.nextInt(1 << 20); // Clustered bits.
+			int to = from + random.nextInt(1 << 18);
+			dense[k].set(from, to);
+			compressed[k].set(from, to);
+			for (int i = 0; i < 100000; i++) { // Dense bits.
+				int index = (3 << 16) + random.nextInt(1 << 16);
+				dense[k].flip(index);
+				compressed[k].flip(index);
+			}
+		}
+		assertEquals("Same Bits", dense[0], compressed[0]);
+		assertEquals("Same Cardinality", dense[0].cardinality(), compressed[0].cardinality());
+		assertEquals("Same Length", dense[0].length(), compressed[0].length());
+		assertEquals("Same Intersects", dense[0].intersects(dense[1]), compressed[0].intersects(compressed[1]));
+		for (int op = 0; op < 4; op++) {
+			FastBitSet expected = dense[0].clone();
+			FastBitSet actual = compressed[0].clone();
+			switch (op) {
+				case 0: expected.and(dense[1]); actual.and(compressed[1]); break;
+				case 1: expected.or(dense[1]); actual.or(compressed[1]); break;
+				case 2: expected.xor(dense[1]); actual.xor(compressed[1]); break;
+				default: expected.andNot(dense[1]); actual.andNot(dense[1]); break; // Mixed representations.
+			}
+			assertTrue("Still Compressed", actual.isCompressed());
+			assertTrue("Same Result " + op, java.util.Arrays.equals(expected.toLongArray(), actual.toLongArray()));
+		}
+		for (int i = 0; i < 1000; i++) {
+			int index = random.nextInt(1 << 20);
+			assertEquals("Next Set Bit", dense[0].nextSetBit(index), compressed[0].nextSetBit(index));
+			assertEquals("Next Clear Bit", dense[0].nextClearBit(index), compressed[0].nextClearBit(index));
+			assertEquals("Previous Set Bit", dense[0].previousSetBit(index), compressed[0].previousSetBit(index));
+			assertEquals("Previous Clear Bit", dense[0].previousClearBit(index), compressed[0].previousClearBit(index));
+		}
+		compressed[0].clear(1 << 18, 1 << 19);
+		dense[0].clear(1 << 18, 1 << 19);
+		assertTrue("Same After Clear", java.util.Arrays.equals(dense[0].toIntArray(), compressed[0].toIntArray()));
+		assertEquals("Same Range", dense[0].get(1000, 300000), compressed[0].get(1000, 300000));
+	}
 }
@@ -17,6 +17,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.javolution.util.FastMap;
 import org.junit.Before;
@@ -152,4 +153,282 @@ public class FastMapTest {
 		assertEquals("Size Equals 3", _fastMap.size(), 3);
 	}
 	
+	@Test
+	public void testOpenAddressing(){
+		FastMap<Integer,String> map = FastMap.openAddressing();
+		for (int i = 0; i < 1000; i++) map.put(i, "Value" + i);
+		assertEquals("Size", 1000, map.size());
+		int count = 0;
+		for (java.util.Map.Entry<Integer,String> entry : map.entrySet()) {
+			assertEquals("Entry Value", "Value" + entry.getKey(), entry.getValue());
+			count++;
+		}
+		assertEquals("All Entries Iterated", 1000, count);
+	}
+	
+	@Test
+	public void testOpenAddressingOnlyCollidingKeys(){
+		FastMap<String,String> map = FastMap.openAddressing();
+		map.put("Aa", "Value1"); // Same hash code as "BB".
+		map.put("BB", "Value2");
+		java.util.HashMap<String,String> iterated = new java.util.HashMap<String,String>();
+		for (java.util.Map.Entry<String,String> entry : map.entrySet()) iterated.put(entry.getKey(), entry.getValue());
+		assertEquals("All Entries Iterated", 2, iterated.size());
+		assertEquals("Same Mappings", iterated, map);
+		assertEquals("Remove Aa", "Value1", map.remove("Aa"));
+		assertEquals("[(BB=Value2)]", map.toString());
+	}
+
+	@Test
+	public void testLookupByKeyWithCollisions(){
+		_fastMap.put("Aa", "Value1"); // Same hash code as "BB".
+		_fastMap.put("BB", "Value2");
+		_fastMap.put("TestKey", "Value3");
+		assertEquals("Get Aa", "Value1", _fastMap.get("Aa"));
+		assertEquals("Get BB", "Value2", _fastMap.get("BB"));
+		assertTrue("Contains Key TestKey", _fastMap.containsKey("TestKey"));
+		assertEquals("Update BB", "Value2", _fastMap.put("BB", "Value4"));
+		assertEquals("Remove Aa", "Value1", _fastMap.remove("Aa"));
+		assertNull("Aa Removed", _fastMap.get("Aa"));
+		assertEquals("Get BB", "Value4", _fastMap.get("BB"));
+		assertEquals("Size", 2, _fastMap.size());
+	}
+	
+
+	@Test
+	public void testBulkLoad(){
+		java.util.HashMap<String, String> hm = new java.util.HashMap<String, String>();
+		for (int i = 0; i < 10000; i++) hm.put("TestKey" + i, "TestValue" + i);
+		hm.put("Aa", "Value1"); // Same hash code as "BB".
+		hm.put("BB", "Value2");
+		FastMap<String,String> map = FastMap.of(org.javolution.util.function.Order.standard(), hm);
+		assertEquals("Size", hm.size(), map.size());
+		assertEquals("Same Mappings", hm, map);
+		assertEquals("Get BB", "Value2", map.get("BB"));
+		assertEquals("Update After Bulk Loading", "TestValue7", map.put("TestKey7", "Value7"));
+		java.util.IdentityHashMap<String, String> ihm = new java.util.IdentityHashMap<String, String>();
+		ihm.put("Key", "Value1");
+		ihm.put(new String("Key"), "Value2"); // Different instance, equal key.
+		FastMap<String,String> distinct = FastMap.of(org.javolution.util.function.Order.standard(), ihm);
+		assertEquals("Distinct Keys", 1, distinct.size());
+	}
+
+	@Test
+	public void testSnapshot(){
+		FastMap<String,String> map = new FastMap<String,String>().with("Aa", "Value1").with("BB", "Value2");
+		FastMap<String,String> snapshot = map.snapshot();
+		FastMap<String,String> copy = map.clone();
+		map.put("Aa", "Value3");
+		copy.put("BB", "Value4");
+		assertEquals("Snapshot Unchanged", "Value1", snapshot.get("Aa"));
+		assertEquals("Map Updated", "Value3", map.get("Aa"));
+		assertEquals("Copy Unchanged", "Value1", copy.get("Aa"));
+		assertEquals("Map Unchanged", "Value2", map.get("BB"));
+		assertEquals("Copy Updated", "Value4", copy.get("BB"));
+	}
+
+	@Test
+	public void testUpdatesAfterSnapshot(){
+		FastMap<String,String> map = new FastMap<String,String>().with("Aa", "Value1").with("BB", "Value2");
+		FastMap<String,String> snapshot = map.snapshot();
+		map.put("Aa", "Value3"); // Shared entry replaced.
+		AbstractMap.Entry<String,String> entry = map.getEntry("Aa");
+		map.put("Aa", "Value4"); // Owned entry updated in place.
+		assertTrue("Entry Owned After Replacement", entry == map.getEntry("Aa"));
+		map.put("Test", "Value5");
+		entry = map.getEntry("Test");
+		map.put("Test", "Value6");
+		assertTrue("New Entry Owned", entry == map.getEntry("Test"));
+		assertEquals("Snapshot Unchanged", "Value1", snapshot.get("Aa"));
+		assertEquals(2, snapshot.size());
+		map.clear();
+		map.put("Aa", "Value7");
+		entry = map.getEntry("Aa");
+		map.put("Aa", "Value8");
+		assertTrue("Not Shared After Clear", entry == map.getEntry("Aa"));
+		assertEquals("Value1", snapshot.get("Aa"));
+	}
+
+	@Test
+	public void testLruCache(){
+		AbstractCache<Integer,String> cache = new FastMap<Integer,String>().lru(3);
+		for (int i = 0; i < 3; i++)
+			cache.put(i, "V" + i);
+		assertEquals("V0", cache.get(0)); // 0 most recently used.
+		cache.put(3, "V3"); // Evicts 1.
+		assertFalse(cache.containsKey(1));
+		assertTrue(cache.containsKey(0));
+		assertEquals(3, cache.size());
+		assertNull(cache.get(1));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(1, cache.evictions());
+		AbstractCache<Integer,String> copy = cache.clone();
+		copy.put(4, "V4"); // Evicts 2 in the copy only.
+		assertFalse(copy.containsKey(2));
+		assertTrue(cache.containsKey(2));
+		cache.remove(0);
+		cache.put(5, "V5"); // No eviction required.
+		assertEquals(1, cache.evictions());
+	}
+
+	@Test
+	public void testCacheEntriesRemoval(){
+		AbstractCache<Integer,String> cache = new FastMap<Integer,String>().lru(3);
+		for (int i = 1; i <= 3; i++)
+			cache.put(i, "V" + i);
+		cache.get(1);
+		assertTrue(cache.entries().removeIf(new org.javolution.util.function.Predicate<Entry<Integer,String>>() {
+			@Override
+			public boolean test(Entry<Integer,String> entry) {
+				return entry.getKey() == 1;
+			}}));
+		cache.put(4, "V4"); // No eviction required.
+		assertEquals(3, cache.size());
+		assertTrue(cache.containsKey(2));
+		assertTrue(cache.containsKey(3));
+		assertTrue(cache.containsKey(4));
+		assertTrue(cache.values().remove("V2"));
+		cache.put(5, "V5");
+		cache.put(6, "V6"); // Evicts 3.
+		assertFalse(cache.containsKey(3));
+		assertTrue(cache.containsKey(4));
+		assertEquals(1, cache.evictions());
+	}
+
+	@Test
+	public void testLfuCache(){
+		AbstractCache<Integer,String> cache = new FastMap<Integer,String>().lfu(100);
+		for (int i = 0; i < 100; i++)
+			cache.put(i, "V" + i);
+		for (int n = 0; n < 5; n++)
+			for (int i = 0; i < 100; i++)
+				cache.get(i); // Frequently used.
+		for (int i = 1000; i < 2000; i++)
+			cache.put(i, "V" + i); // Scan (accessed once).
+		assertEquals(100, cache.size());
+		int retained = 0;
+		for (int i = 0; i < 100; i++)
+			if (cache.containsKey(i)) retained++;
+		assertTrue("Frequently used entries retained: " + retained, retained >= 95);
+		assertEquals(1000, cache.evictions());
+	}
+
+	@Test
+	public void testExpiringCache() throws InterruptedException {
+		AbstractCache<String,String> cache = new FastMap<String,String>().expiring(1, TimeUnit.HOURS);
+		cache.put("Long", "Value");
+		cache.put("Short", "Value", 1, TimeUnit.MILLISECONDS);
+		Thread.sleep(10);
+		assertEquals("Expired Entries Hidden", 1, cache.entrySet().size());
+		assertNull(cache.get("Short"));
+		assertEquals("Value", cache.get("Long"));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.evictions());
+	}
+
+	@Test
+	public void testExpiringCacheDistinctKeys() throws InterruptedException {
+		FastMap<Integer,Integer> map = new FastMap<Integer,Integer>();
+		AbstractCache<Integer,Integer> cache = map.expiring(1, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 10000; i++) cache.put(i, i);
+		Thread.sleep(10);
+		assertEquals("Expired Entries Not Counted", 0, cache.size());
+		assertTrue(cache.isEmpty());
+		assertTrue("Expired Entries Removed", map.isEmpty());
+		cache.put(-1, -1, 1, TimeUnit.HOURS);
+		for (int i = 0; i < 10000; i++) cache.put(i, i);
+		Thread.sleep(10);
+		cache.put(10000, 10000, 1, TimeUnit.HOURS); // Updates remove expired entries.
+		assertEquals(2, map.size());
+		assertEquals(Integer.valueOf(-1), cache.get(-1));
+	}
+
+	@Test
+	public void testExpiringCacheMixedTimeToLive() throws InterruptedException {
+		FastMap<Integer,Integer> map = new FastMap<Integer,Integer>();
+		AbstractCache<Integer,Integer> cache = map.lru(100000);
+		for (int i = 0; i < 10000; i++)
+			cache.put(i, i, (i % 2 == 0) ? 1 : 1000000, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 10000; i += 4)
+			cache.put(i, i, 1000000, TimeUnit.MILLISECONDS); // Rescheduled.
+		Thread.sleep(10);
+		assertEquals(7500, cache.size());
+		assertEquals(7500, map.size());
+		for (int i = 0; i < 10000; i++)
+			assertEquals(i % 4 != 2, cache.containsKey(i));
+	}
+
+	@Test
+	public void testSharedCache() throws InterruptedException {
+		final AbstractCache<Integer,Integer> cache = new FastMap<Integer,Integer>().lru(64).shared();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++)
+						if (cache.get(i & 127) == null) cache.put(i & 127, i);
+				}};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(64, cache.size());
+		assertEquals(40000, cache.hits() + cache.misses());
+	}
+
+	@Test
+	public void testRankSelect(){
+		java.util.TreeMap<String,Integer> treeMap = new java.util.TreeMap<String,Integer>();
+		FastMap<String,Integer> map = new FastMap<String,Integer>(org.javolution.util.function.Order.lexical());
+		for (int i = 0; i < 10000; i++) {
+			String key = Integer.toString(i * 7919 % 10007, 36);
+			treeMap.put(key, i);
+			map.put(key, i);
+		}
+		int k = 0;
+		for (Entry<String,Integer> entry : treeMap.entrySet()) {
+			if (k % 97 == 0) {
+				assertEquals(k, map.rank(entry.getKey()));
+				assertEquals(entry.getKey(), map.select(k).getKey());
+				assertEquals(treeMap.headMap(entry.getKey()).size(), map.headMap(entry.getKey()).size());
+				if (entry.getKey().compareTo("a") >= 0) assertEquals(treeMap.subMap("a", true, entry.getKey(), true)
+						.size(), map.rangeCount("a", true, entry.getKey(), true));
+			}
+			k++;
+		}
+	}
+
+	@Test
+	public void testOnlyCollidingKeys(){
+		FastMap<String,Integer> map = new FastMap<String,Integer>();
+		map.put("Aa", 1); // Same hash code as "BB".
+		map.put("BB", 2);
+		assertEquals(2, map.entrySet().size());
+		int sum = 0;
+		for (Integer value : map.values()) sum += value;
+		assertEquals(3, sum);
+		assertTrue(map.toString().contains("Aa=1") && map.toString().contains("BB=2"));
+	}
+
+	@Test
+	public void testLinkedRemoval(){
+		AbstractMap<Integer,String> map = new FastMap<Integer,String>().linked();
+		final int n = 200000;
+		for (int i = n - 1; i >= 0; i--) // Insertion order is the reverse of key order.
+			map.put(i, "V" + i);
+		for (int i = 0; i < n; i += 2)
+			assertEquals("V" + i, map.remove(i)); // Constant time.
+		assertEquals(n / 2, map.size());
+		int expected = n - 1;
+		for (Integer key : map.keySet()) {
+			assertEquals(expected, key.intValue());
+			expected -= 2;
+		}
+		assertEquals(-1, expected);
+		map.put(0, "New");
+		assertEquals("New", map.entrySet().last().getValue());
+	}
+
 }
@@ -17,6 +17,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 
+import org.javolution.util.function.Order;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -124,6 +125,70 @@ public class FastSetTest {
 		assertEquals("Element 4 is A", "A", iterator.next());
 	}
 	
+	@Test
+	public void testOpenAddressing(){
+		FastSet<Integer> set = FastSet.openAddressing();
+		java.util.HashSet<Integer> expected = new java.util.HashSet<Integer>();
+		java.util.Random random = new java.util.Random(0);
+		for (int i = 0; i < 20000; i++) {
+			Integer value = random.nextInt(10000);
+			assertEquals("Added", expected.add(value), set.add(value));
+			value = random.nextInt(10000);
+			assertEquals("Removed", expected.remove(value), set.remove(value));
+		}
+		assertEquals("Same Size", expected.size(), set.size());
+		for (int i = 0; i < 10000; i++) 
+			assertEquals("Same Contains", expected.contains(i), set.contains(i));
+		int count = 0;
+		Integer previous = null;
+		for (Integer i : set) {
+			assertTrue("Ordered", (previous == null) || (set.order().compare(previous, i) < 0));
+			previous = i;
+			count++;
+		}
+		assertEquals("All Iterated", expected.size(), count);
+		FastSet<Integer> copy = set.clone();
+		copy.clear();
+		assertEquals("Clone Independent", expected.size(), set.size());
+		copy.add(1);
+		assertTrue("Still Open Addressing", copy.contains(1));
+	}
+
+	@Test
+	public void testOpenAddressingOnlyCollidingElements(){
+		FastSet<String> set = FastSet.openAddressing();
+		set.addAll("Aa", "BB"); // Same hash code.
+		assertEquals("[Aa, BB]", sorted(set));
+		assertEquals("[Aa, BB]", sorted(set.reversed()));
+	}
+
+	@Test
+	public void testParallelFilteredSize(){
+		FastSet<Integer> set = new FastSet<Integer>();
+		for (int i = 0; i < 10000; i++) set.add(i);
+		assertEquals("Parallel Filtered Size", 5000, set.filter(new org.javolution.util.function.Predicate<Integer>() {
+			@Override
+			public boolean test(Integer i) {
+				return (i & 1) == 0;
+			}}).parallel().size());
+	}
+	
+	@Test
+	public void testSplitCoversAllElements(){
+		FastSet<Integer> set = new FastSet<Integer>();
+		for (int i = 0; i < 1000; i++) set.add(i * 7);
+		AbstractSet<Integer>[] pieces = set.trySplit(4);
+		FastSet<Integer> union = new FastSet<Integer>();
+		int count = 0;
+		for (AbstractSet<Integer> piece : pieces) 
+			for (Integer i : piece) {
+				count++;
+				union.add(i);
+			}
+		assertEquals("Each Element Found Once", 1000, count);
+		assertEquals("All Elements Found", set, union);
+	}
+	
 	@Test
 	public void testSize(){
 		_fastSet.add("Test1");
@@ -137,4 +202,162 @@ public class FastSetTest {
 		Set<String> unmodifiableSet = _fastSet.unmodifiable();
 		unmodifiableSet.add("Test");
 	}
+
+	@Test
+	public void testBulkLoad(){
+		java.util.Random rnd = new java.util.Random(0);
+		java.util.ArrayList<Integer> elements = new java.util.ArrayList<Integer>();
+		FastSet<Integer> expected = new FastSet<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			Integer e = rnd.nextInt(20000) - 5000; // Duplicates and negative indices.
+			elements.add(e);
+			expected.add(e);
+		}
+		FastSet<Integer> set = FastSet.of(org.javolution.util.function.Order.standard(), elements);
+		assertEquals("Same Size", expected.size(), set.size());
+		assertEquals("Same Iterative Order", expected.toString(), set.toString());
+		assertTrue("Updates After Bulk Loading", set.remove(elements.get(0)) && set.add(elements.get(0)));
+		FastSet<String> collisions = FastSet.of(org.javolution.util.function.Order.standard(), 
+				java.util.Arrays.asList("Aa", "BB", "Aa", "Test")); // Same hash codes.
+		assertEquals("Size With Collisions", 3, collisions.size());
+		assertTrue("Contains Colliding Elements", collisions.contains("Aa") && collisions.contains("BB"));
+	}
+
+	@Test
+	public void testSnapshot(){
+		FastSet<String> set = new FastSet<String>().with("Aa", "BB", "Test"); // "Aa" and "BB" collide.
+		FastSet<String> snapshot = set.snapshot();
+		FastSet<String> copy = set.clone();
+		set.remove("Aa");
+		set.add("C");
+		copy.remove("BB");
+		assertEquals("Snapshot Unchanged", "[Aa, BB, Test]", sorted(snapshot));
+		assertEquals("Set Updated", "[BB, C, Test]", sorted(set));
+		assertEquals("Copy Updated", "[Aa, Test]", sorted(copy));
+	}
+
+	@Test
+	public void testCollisionGroupWithHighestIndex(){
+		FastSet<String> set = new FastSet<String>().with("Aa", "BB"); // Only colliding elements.
+		assertEquals("[Aa, BB]", sorted(set));
+		assertEquals("[Aa, BB]", sorted(set.reversed()));
+		FastIterator<String> itr = set.iterator();
+		assertTrue(itr.hasNext(new org.javolution.util.function.Predicate<String>() {
+			@Override
+			public boolean test(String param) {
+				return param.equals("BB");
+			}}));
+		set.add("A"); // Single element with a lower index.
+		assertEquals("[A, Aa, BB]", sorted(set));
+		assertEquals("[A, Aa, BB]", sorted(set.reversed()));
+	}
+
+	@Test
+	public void testUpdatesAfterSnapshot(){
+		FastSet<String> set = new FastSet<String>().with("Aa", "BB"); // Collision group.
+		FastSet<String> snapshot = set.snapshot();
+		set.add("Aa", true); // Group copied.
+		set.add("BB", true); // Group owned.
+		set.remove("Aa");
+		FastSet<String> copy = set.clone();
+		copy.add("BB", true);
+		assertEquals("Snapshot Unchanged", "[Aa, BB]", sorted(snapshot));
+		assertEquals("Set Updated", "[Aa, BB, BB]", sorted(set));
+		assertEquals("Copy Updated", "[Aa, BB, BB, BB]", sorted(copy));
+	}
+
+	@Test
+	public void testLinkedMultiset(){
+		AbstractSet<Integer> factors = new FastSet<Integer>().multi().linked().with(5, 2, 3, 2, 2);
+		assertEquals("[5, 2, 3, 2, 2]", factors.toString());
+		assertTrue(factors.remove(2)); // First occurrence.
+		assertEquals("[5, 3, 2, 2]", factors.toString());
+		assertTrue(factors.remove(5));
+		factors.add(5);
+		assertEquals("[3, 2, 2, 5]", factors.toString());
+		assertEquals(4, factors.size());
+	}
+
+	@Test
+	public void testRankSelect(){
+		java.util.Random rnd = new java.util.Random(0);
+		java.util.TreeSet<String> treeSet = new java.util.TreeSet<String>();
+		FastSet<String> set = new FastSet<String>(Order.lexical());
+		for (int i = 0; i < 20000; i++) {
+			String s = Integer.toString(rnd.nextInt(100000), 36);
+			if (rnd.nextInt(4) == 0) assertEquals(treeSet.remove(s), set.remove(s));
+			else assertEquals(treeSet.add(s), set.add(s));
+		}
+		assertEquals(treeSet.size(), set.size());
+		java.util.List<String> list = new java.util.ArrayList<String>(treeSet);
+		for (int i = 0; i < 1000; i++) {
+			int k = rnd.nextInt(list.size());
+			assertEquals(list.get(k), set.select(k));
+			assertEquals(k, set.rank(list.get(k)));
+			String from = Integer.toString(rnd.nextInt(100000), 36);
+			String to = Integer.toString(rnd.nextInt(100000), 36);
+			if (from.compareTo(to) > 0) continue;
+			boolean fromInclusive = rnd.nextBoolean(), toInclusive = rnd.nextBoolean();
+			int expected = treeSet.subSet(from, fromInclusive, to, toInclusive).size();
+			assertEquals(expected, set.rangeCount(from, fromInclusive, to, toInclusive));
+			assertEquals(expected, set.subSet(from, fromInclusive, to, toInclusive).size());
+			assertEquals(treeSet.headSet(to).size(), set.headSet(to).size());
+			assertEquals(treeSet.tailSet(from).size(), set.tailSet(from).size());
+		}
+	}
+
+	@Test
+	public void testRankConsistentWithIteration(){
+		FastSet<String> set = new FastSet<String>().with("Aa", "BB", "Test", "C", "D"); // "Aa" and "BB" collide.
+		int k = 0;
+		for (String s : set) {
+			int lower = 0; // Colliding elements have the same rank.
+			for (String e : set) if (set.order().compare(e, s) < 0) lower++;
+			assertEquals(lower, set.rank(s));
+			assertEquals(s, set.select(k++));
+		}
+		assertEquals(set.size(), k);
+		assertEquals(2, set.subSet("Aa").size());
+	}
+
+	@Test
+	public void testRankSelectCollisionGroups(){ // Lexical indices collide on long common prefixes.
+		java.util.Random rnd = new java.util.Random(0);
+		java.util.TreeSet<String> treeSet = new java.util.TreeSet<String>();
+		FastSet<String> set = new FastSet<String>(Order.lexical());
+		for (int i = 0; i < 5000; i++) {
+			String s = "prefix" + (char)('a' + rnd.nextInt(4)) + rnd.nextInt(1000);
+			if (rnd.nextInt(4) == 0) assertEquals(treeSet.remove(s), set.remove(s));
+			else assertEquals(treeSet.add(s), set.add(s));
+		}
+		FastSet<String> copy = set.clone();
+		set.removeIf(new org.javolution.util.function.Predicate<String>() {
+			@Override
+			public boolean test(String s) {
+				return s.endsWith("7");
+			}});
+		for (java.util.Iterator<String> itr = treeSet.iterator(); itr.hasNext();)
+			if (itr.next().endsWith("7")) itr.remove();
+		assertRanks(treeSet, set);
+		assertRanks(new java.util.TreeSet<String>(copy), copy);
+		assertRanks(treeSet, FastSet.of(Order.lexical(), treeSet));
+		assertRanks(treeSet, set.snapshot());
+	}
+
+	private static void assertRanks(java.util.TreeSet<String> expected, FastSet<String> set) {
+		assertEquals(expected.size(), set.size());
+		int k = 0;
+		for (String s : expected) {
+			assertEquals(s, set.select(k));
+			assertEquals(k++, set.rank(s));
+			assertEquals(expected.headSet(s, true).size(), set.subSet(null, false, s, true).size());
+		}
+	}
+
+	private static String sorted(Collection<String> strings) {
+		java.util.ArrayList<String> list = new java.util.ArrayList<String>(strings);
+		java.util.Collections.sort(list);
+		return list.toString();
+	}
+
 }
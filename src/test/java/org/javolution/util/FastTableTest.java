@@ -13,6 +13,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.javolution.util.FastTable;
@@ -51,7 +52,94 @@ public class FastTableTest {
 			    assertEquals(al.toString(), ft.toString());
 			}
 	}
-	
+
+	@Test(timeout=10000)
+	public void testFractalLastIndex(){
+			FractalArray<String> fa = FractalArray.<String>empty().set(5, "First").set(-1, "Last");
+			ArrayList<String> al = new ArrayList<>();
+			for (String s : fa) al.add(s); // Index -1 is also the NOT_FOUND marker.
+			assertEquals("[First, Last]", al.toString());
+			assertEquals(-1, fa.next(5, null));
+			assertEquals(0, fa.next(-1, null));
+	}
+
+	@Test
+	public void testRandomInsertRemove(){
+			Random rnd = new Random(0);
+			ArrayList<Integer> al = new ArrayList<>();
+			FastTable<Integer> ft = new FastTable<>();
+			for (int ii= 0; ii < 20 * SIZE; ii++) {
+				if (rnd.nextInt(3) != 0) { // Insertion (table grows).
+					int j = rnd.nextInt(al.size()+1);
+					al.add(j, ii);
+					ft.add(j, ii);
+				} else if (!al.isEmpty()) { // Removal.
+					int j = rnd.nextInt(al.size());
+					assertEquals(al.remove(j), ft.remove(j));
+				}
+			}
+			assertEquals(al, ft);
+			while (!al.isEmpty()) assertEquals(al.remove(0), ft.remove(0));
+			assertTrue(ft.isEmpty());
+	}
+
+	@Test
+	public void testFractalCountSelect(){
+			Random rnd = new Random(0);
+			ArrayList<Integer> al = new ArrayList<>();
+			FractalArray<Integer> fa = FractalArray.empty();
+			for (int ii= 0; ii < 2 * SIZE; ii++) {
+				Integer e = (rnd.nextInt(3) == 0) ? null : ii; // Nulls are not counted.
+				int op = rnd.nextInt(4);
+				if ((op == 0) && !al.isEmpty()) { // Removal (shift left).
+					int j = rnd.nextInt(al.size());
+					al.remove(j);
+					fa = fa.delete(j);
+				} else if ((op == 1) && !al.isEmpty()) { // Update.
+					int j = rnd.nextInt(al.size());
+					al.set(j, e);
+					fa = fa.set(j, e);
+				} else { // Insertion (shift right).
+					int j = rnd.nextInt(al.size() + 1);
+					al.add(j, e);
+					fa = fa.insert(j, e);
+				}
+			}
+			ArrayList<Integer> nonNulls = new ArrayList<>();
+			for (int i = 0; i < al.size(); i++) if (al.get(i) != null) nonNulls.add(i);
+			assertEquals(nonNulls.size(), fa.count());
+			for (int ii= 0; ii < 1000; ii++) {
+				int k = rnd.nextInt(nonNulls.size());
+				assertEquals(nonNulls.get(k).longValue(), fa.select(k));
+				int from = rnd.nextInt(al.size());
+				int to = from + rnd.nextInt(al.size() - from);
+				int expected = 0;
+				for (int i = from; i <= to; i++) if (al.get(i) != null) expected++;
+				assertEquals(expected, fa.count(from, to));
+				assertEquals(expected, fa.unmodifiable().count(from, to));
+			}
+			assertEquals(0, fa.count(1, 0));
+	}
+
+	@Test
+	public void testAddFirstLastWithNulls(){
+			Random rnd = new Random(0);
+			ArrayList<Integer> al = new ArrayList<>();
+			FastTable<Integer> ft = new FastTable<>();
+			for (int ii= 0; ii < SIZE; ii++) {
+				Integer e = (rnd.nextInt(20) == 0) ? null : ii; // Nulls create holes.
+				if (rnd.nextBoolean()) {
+					al.add(0, e);
+					ft.addFirst(e);
+				} else {
+					al.add(e);
+					ft.addLast(e);
+				}
+				if (rnd.nextInt(4) == 0) assertEquals(al.remove(al.size() / 2), ft.remove(ft.size() / 2));
+			}
+			assertEquals(al, ft);
+	}
+
 
 	
 	
@@ -217,4 +305,188 @@ public class FastTableTest {
 		_fastTable.remove(1);
 		assertFalse("No Longer Contains Test2", _fastTable.contains("Test2"));
 	}
+	
+	@Test
+	public void testSharedReadsDuringUpdates() throws InterruptedException {
+		final AbstractTable<Integer> shared = new FastTable<Integer>().shared();
+		for (int i = 0; i < 100; i++) shared.add(i);
+		final boolean[] inconsistent = new boolean[1];
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 100000; i++) {
+					int size = shared.size();
+					if ((size < 100) || (size > 101) || (shared.get(i % 100) != i % 100)) inconsistent[0] = true;
+				}
+			}
+		};
+		reader.start();
+		for (int i = 0; i < 10000; i++) {
+			shared.addLast(-1);
+			shared.removeLast();
+		}
+		reader.join();
+		assertFalse("Inconsistent reads", inconsistent[0]);
+	}
+	
+	@Test
+	public void testSharedReadRetriedOnConcurrentWrite() {
+		final Thread main = Thread.currentThread();
+		final List<AbstractTable<Integer>> shared = new ArrayList<AbstractTable<Integer>>();
+		final int[] reads = new int[1];
+		FastTable<Integer> inner = new FastTable<Integer>() {
+			private static final long serialVersionUID = 0x700L;
+
+			@Override
+			public boolean isEmpty() {
+				boolean value = super.isEmpty();
+				if ((Thread.currentThread() == main) && (reads[0]++ == 0)) { // Write during the optimistic read.
+					Thread writer = new Thread() {
+						@Override
+						public void run() {
+							shared.get(0).clear();
+						}
+					};
+					writer.start();
+					try {
+						writer.join();
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return value;
+			}
+		};
+		inner.add(0);
+		shared.add(inner.shared());
+		assertTrue("Stale read discarded", shared.get(0).isEmpty());
+		assertEquals("Read retried under lock", 2, reads[0]);
+	}
+
+	@Test
+	public void testLinkedRemove(){
+		AbstractCollection<Integer> linked = new FastTable<Integer>().linked();
+		linked.add(1000);
+		linked.add(2000);
+		assertTrue(linked.remove(Integer.valueOf(1000))); // Distinct instance.
+		assertEquals(1, linked.size());
+		FastIterator<Integer> itr = linked.iterator();
+		assertEquals(2000, (int) itr.next());
+		assertFalse(itr.hasNext());
+		assertFalse(linked.remove(Integer.valueOf(1000)));
+	}
+
+	@Test
+	public void testCloneIsIndependent(){
+		FastTable<Integer> table = new FastTable<Integer>();
+		for (int i = 0; i < 10000; i++) table.add(i);
+		FastTable<Integer> copy = table.clone();
+		for (int i = 0; i < 10000; i += 7) table.set(i, -i);
+		table.add(5000, -1);
+		copy.remove(0);
+		for (int i = 0; i < 9999; i++) assertEquals(i + 1, (int) copy.get(i));
+		assertEquals(-7, (int) table.get(7));
+		assertEquals(-1, (int) table.get(5000));
+		assertEquals(10001, table.size());
+	}
+
+	@Test
+	public void testParallelReduceAndCollect() {
+		FastTable<Integer> table = new FastTable<Integer>();
+		for (int i = 0; i < 10000; i++) table.add(i);
+		Integer sum = table.parallel().reduce(new org.javolution.util.function.BinaryOperator<Integer>() {
+			@Override
+			public Integer apply(Integer first, Integer second) {
+				return first + second;
+			}});
+		assertEquals(49995000, sum.intValue());
+		assertEquals(table, table.parallel().collect());
+	}
+
+	@Test
+	public void testParallelCollectKeepsOrder() {
+		FastTable<Integer> table = new FastTable<Integer>();
+		for (int i = 0; i < 100000; i++) table.add(i);
+		org.javolution.context.ConcurrentContext ctx = org.javolution.context.ConcurrentContext.enter();
+		try {
+			ctx.setConcurrency(3); // Partial results merged by multiple threads.
+			AbstractCollection<Integer> odds = table.filter(new org.javolution.util.function.Predicate<Integer>() {
+				@Override
+				public boolean test(Integer i) {
+					return (i & 1) != 0;
+				}}).parallel().collect();
+			assertEquals(50000, odds.size());
+			int expected = 1;
+			for (Integer i : odds) {
+				assertEquals(expected, i.intValue());
+				expected += 2;
+			}
+		} finally {
+			ctx.exit();
+		}
+	}
+
+	@Test
+	public void testSortIsStable() {
+		FastTable<Integer> table = new FastTable<Integer>();
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) table.add(random.nextInt(1000) * 1000000 + i); // Key then position.
+		org.javolution.context.ConcurrentContext ctx = org.javolution.context.ConcurrentContext.enter();
+		try {
+			ctx.setConcurrency(3); // Runs sorted and merged by multiple threads.
+			table.sort(new java.util.Comparator<Integer>() {
+				@Override
+				public int compare(Integer left, Integer right) { // Compares keys only.
+					return Integer.compare(left / 1000000, right / 1000000);
+				}});
+		} finally {
+			ctx.exit();
+		}
+		assertEquals(100000, table.size());
+		for (int i = 1; i < table.size(); i++)
+			assertTrue(table.get(i - 1) < table.get(i));
+	}
+
+	@Test
+	public void testBulkLoad(){
+			Random rnd = new Random(0);
+			ArrayList<Integer> al = new ArrayList<>();
+			for (int ii= 0; ii < 10 * SIZE; ii++) 
+				al.add((rnd.nextInt(100) == 0) ? null : ii); // Nulls create holes.
+			FastTable<Integer> ft = FastTable.of(al);
+			assertEquals(al, ft);
+			for (int ii= 0; ii < SIZE; ii++) { // Updates after bulk loading.
+				int j = rnd.nextInt(al.size());
+				if (rnd.nextBoolean()) {
+					al.add(j, ii);
+					ft.add(j, ii);
+				} else assertEquals(al.remove(j), ft.remove(j));
+			}
+			assertEquals(al, ft);
+			final AbstractCollection<Integer> shared = ft.shared();
+			shared.update(new org.javolution.util.function.Consumer<AbstractCollection<Integer>>() {
+				@Override
+				public void accept(AbstractCollection<Integer> table) {
+					table.clear();
+					table.addAll(1, 2, 3);
+				}});
+			assertEquals(3, shared.size());
+	}
+
+	@Test
+	public void testSnapshot(){
+			Random rnd = new Random(0);
+			FastTable<Integer> ft = new FastTable<>();
+			for (int ii= 0; ii < SIZE; ii++) ft.add(ii);
+			ArrayList<Integer> expected = new ArrayList<>(ft);
+			FastTable.Immutable<Integer> snapshot = ft.snapshot();
+			for (int ii= 0; ii < SIZE; ii++) { // Updates after snapshot.
+				int j = rnd.nextInt(ft.size());
+				if (rnd.nextBoolean()) ft.add(j, -ii);
+				else ft.set(j, -ii);
+			}
+			assertEquals(expected, snapshot);
+			assertFalse(expected.equals(ft));
+	}
+
 }
@@ -0,0 +1,83 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntTableTest {
+
+	private static final int SIZE = 10000;
+
+	@Test
+	public void testRandomInsertRemove(){
+			Random rnd = new Random(0);
+			ArrayList<Integer> al = new ArrayList<>();
+			IntTable it = new IntTable();
+			for (int ii= 0; ii < 20 * SIZE; ii++) {
+				int op = rnd.nextInt(6);
+				if (op < 3) { // Insertion (table grows).
+					int j = rnd.nextInt(al.size()+1);
+					al.add(j, ii);
+					it.addInt(j, ii);
+				} else if (op == 3) {
+					al.add(ii);
+					it.addInt(ii);
+				} else if (!al.isEmpty()) { // Removal.
+					int j = rnd.nextInt(al.size());
+					assertEquals((int)al.remove(j), it.removeInt(j));
+				}
+			}
+			assertEquals(al, it);
+			assertEquals(it, it.clone());
+			while (!al.isEmpty()) assertEquals((int)al.remove(0), it.removeInt(0));
+			assertTrue(it.isEmpty());
+	}
+
+	@Test
+	public void testSetGet(){
+		IntTable it = new IntTable().withInts(1, 2, 3);
+		assertEquals(2, it.setInt(1, 20));
+		assertEquals(20, it.getInt(1));
+		assertEquals(Integer.valueOf(3), it.getLast());
+		assertEquals(1, it.indexOf(20));
+	}
+
+	@Test
+	public void testIterator(){
+		IntTable it = new IntTable();
+		for (int i=0; i < 3000; i++) it.addInt(i);
+		IntTable.Iterator itr = it.listIterator(0);
+		for (int i=0; i < 3000; i++) assertEquals(i, itr.nextInt());
+		assertFalse(itr.hasNext());
+		assertEquals(2999, itr.previousInt());
+	}
+
+	@Test
+	public void testLongAndDouble(){
+		LongTable lt = new LongTable().withLongs(1L, Long.MAX_VALUE);
+		lt.addLong(1, -1L);
+		assertEquals("[1, -1, 9223372036854775807]", lt.toString());
+		DoubleTable dt = new DoubleTable().withDoubles(0.5, 1.5);
+		dt.removeDouble(0);
+		assertEquals(1.5, dt.getDouble(0), 0.0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds(){
+		new IntTable().withInts(1).getInt(1);
+	}
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2012 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class LongFastMapTest {
+
+	private static final int SIZE = 10000;
+
+	@Test
+	public void testRandomPutRemove(){
+		Random rnd = new Random(0);
+		TreeMap<Long, String> tm = new TreeMap<Long, String>();
+		LongFastMap<String> map = new LongFastMap<String>();
+		for (int i = 0; i < 10 * SIZE; i++) {
+			long key = (rnd.nextInt(3) == 0) ? rnd.nextLong() : rnd.nextInt(SIZE) - SIZE / 2;
+			if (rnd.nextInt(3) != 0) {
+				assertEquals(tm.put(key, "V" + i), map.put(key, "V" + i));
+			} else {
+				assertEquals(tm.remove(key), map.remove(key));
+			}
+		}
+		assertEquals(tm.size(), map.size());
+		assertEquals(tm, map);
+		long previous = Long.MIN_VALUE;
+		int count = 0;
+		for (LongFastMap.Iterator<String> itr = map.iterator(); itr.hasNext(); count++) {
+			long key = itr.nextKey();
+			assertTrue("Signed Order", (count == 0) || (previous < key));
+			assertEquals(tm.get(key), itr.next());
+			previous = key;
+		}
+		assertEquals(tm.size(), count);
+		assertEquals(tm.lastKey().longValue(), map.descendingIterator().nextKey());
+		LongFastMap<String> copy = map.clone();
+		copy.clear();
+		assertEquals(tm.size(), map.size());
+	}
+
+	@Test
+	public void testNullValueAndIntKeys(){
+		IntFastMap<String> map = new IntFastMap<String>();
+		map.put(-1, null);
+		map.put(7, "Seven");
+		map.put(Integer.MIN_VALUE, "Min");
+		assertTrue(map.containsKey(-1));
+		assertNull(map.get(-1));
+		assertEquals(3, map.size());
+		IntFastMap.Iterator<String> itr = map.iterator();
+		assertEquals(Integer.MIN_VALUE, itr.nextKey());
+		assertEquals("Min", itr.next());
+		assertEquals(-1, itr.nextKey());
+		assertNull(itr.next());
+		assertEquals(7, itr.nextKey());
+		assertEquals("Seven", map.remove(7));
+		assertFalse(map.containsKey(7));
+	}
+
+	@Test
+	public void testLongLong(){
+		Random rnd = new Random(0);
+		HashMap<Long, Long> hm = new HashMap<Long, Long>();
+		LongLongFastMap map = new LongLongFastMap();
+		for (int i = 0; i < 10 * SIZE; i++) {
+			long key = rnd.nextInt(SIZE) - SIZE / 2;
+			switch (rnd.nextInt(3)) {
+			case 0:
+				assertEquals(!hm.containsKey(key), map.putLong(key, i));
+				hm.put(key, (long) i);
+				break;
+			case 1:
+				assertEquals(hm.remove(key) != null, map.removeLong(key));
+				break;
+			default:
+				Long value = hm.get(key);
+				hm.put(key, (value != null ? value : 0) + 3);
+				assertEquals(hm.get(key).longValue(), map.increment(key, 3));
+			}
+		}
+		assertEquals(hm.size(), map.size());
+		for (long key = -SIZE / 2; key < SIZE / 2; key++)
+			assertEquals(hm.containsKey(key) ? hm.get(key) : -1, map.getLong(key, -1));
+		int count = 0;
+		for (LongLongFastMap.Iterator itr = map.iterator(); itr.hasNext(); count++)
+			assertEquals(hm.get(itr.nextKey()).longValue(), itr.nextLong());
+		assertEquals(hm.size(), count);
+		count = 0;
+		for (LongLongFastMap.Iterator itr = map.descendingIterator(); itr.hasNext(); count++)
+			assertEquals(hm.get(itr.nextKey()).longValue(), itr.nextLong());
+		assertEquals(hm.size(), count);
+		assertEquals(hm, map);
+		map.entrySet().removeIf(new org.javolution.util.function.Predicate<Map.Entry<Long, Long>>() {
+			@Override
+			public boolean test(Map.Entry<Long, Long> entry) {
+				return (entry.getKey() & 1) == 0;
+			}});
+		for (long key = -SIZE / 2; key < SIZE / 2; key++)
+			assertEquals(hm.containsKey(key) && ((key & 1) != 0), map.containsKey(key));
+	}
+
+	@Test
+	public void testLongLongZeroKey(){
+		LongLongFastMap map = new LongLongFastMap();
+		map.putLong(0, 100);
+		assertTrue(map.removeLong(0));
+		assertEquals(5, map.increment(0, 5));
+		map.putLong(0, 42);
+		map.clear();
+		assertEquals(1, map.increment(0, 1));
+		assertEquals(1, map.size());
+		map.put(0L, (Long) null);
+		assertFalse(map.containsKey(0));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void testLongLongViews(){
+		LongLongFastMap map = new LongLongFastMap();
+		for (long key = -100; key < 100; key++)
+			map.putLong(key, key * 2);
+		LongLongFastMap copy = map.clone();
+		map.entrySet().removeIf(new org.javolution.util.function.Predicate<Map.Entry<Long, Long>>() {
+			@Override
+			public boolean test(Map.Entry<Long, Long> entry) {
+				return entry.getKey() >= 0;
+			}});
+		assertEquals(100, map.size());
+		assertEquals(200, copy.size());
+		assertEquals(198, copy.getLong(99, 0));
+		long previous = 0;
+		int count = 0;
+		for (Long key : map.keySet()) {
+			long index = LongLongFastMap.KEY_ORDER.indexOf(key);
+			assertTrue("Key Order", (count++ == 0) || org.javolution.lang.MathLib.unsignedLessThan(previous, index));
+			assertEquals(key * 2, map.get(key).longValue());
+			previous = index;
+		}
+		assertEquals(100, count);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.javolution.io.Struct;
+import org.junit.Test;
+
+public class StructMapTest {
+
+	static class Key extends Struct {
+		final Signed64 id = new Signed64();
+		final Signed8 kind = new Signed8();
+	}
+
+	static class Value extends Struct {
+		final Float64 price = new Float64();
+	}
+
+	private static final int SIZE = 100000;
+
+	@Test
+	public void testPutGetRemove(){
+		Random rnd = new Random(0);
+		HashMap<Long, Double> hm = new HashMap<>();
+		StructMap<Key, Value> sm = new StructMap<>(new Key(), new Value());
+		Key key = new Key();
+		for (int i=0; i < SIZE; i++) {
+			long id = rnd.nextInt(SIZE / 2);
+			key.id.set(id);
+			if (rnd.nextInt(4) == 0) {
+				assertEquals(hm.remove(id) != null, sm.remove(key));
+			} else {
+				hm.put(id, (double) i);
+				sm.put(key).price.set(i);
+			}
+		}
+		assertEquals(hm.size(), sm.size());
+		for (long id=0; id < SIZE / 2; id++) {
+			key.id.set(id);
+			Value v = sm.get(key);
+			if (hm.containsKey(id)) assertEquals(hm.get(id), v.price.get(), 0.0);
+			else assertNull(v);
+		}
+		int n = 0;
+		for (Key k : sm) {
+			assertEquals(hm.get(k.id.get()), sm.get(k).price.get(), 0.0);
+			n++;
+		}
+		assertEquals(hm.size(), n);
+		sm.clear();
+		assertTrue(sm.isEmpty());
+		assertFalse(sm.containsKey(key));
+	}
+
+	@Test
+	public void testMixedByteOrder(){
+		StructMap<Key, Value> sm = new StructMap<>(new Key(), new Value());
+		Key key = new Key();
+		key.getByteBuffer().order(ByteOrder.LITTLE_ENDIAN); // Entries are big-endian.
+		for (int i=0; i < SIZE; i++) {
+			key.id.set(i);
+			sm.put(key).price.set(i);
+		}
+		assertEquals(SIZE, sm.size());
+		for (int i=0; i < SIZE; i++) {
+			key.id.set(i);
+			assertEquals(i, sm.get(key).price.get(), 0.0);
+		}
+	}
+
+	@Test
+	public void testMappedReopen() throws IOException {
+		File file = File.createTempFile("StructMapTest", ".dat");
+		File index = new File(file.getPath() + ".index");
+		try {
+			Key key = new Key();
+			StructMap.Mapped<Key, Value> sm = StructMap.map(file, new Key(), new Value());
+			for (int i=0; i < SIZE; i++) {
+				key.id.set(i);
+				sm.put(key).price.set(i * 2.0);
+			}
+			key.id.set(3);
+			sm.remove(key);
+			sm.close();
+			sm = StructMap.map(file, new Key(), new Value());
+			assertEquals(SIZE - 1, sm.size());
+			assertFalse(sm.containsKey(key));
+			key.id.set(SIZE - 1);
+			assertEquals((SIZE - 1) * 2.0, sm.get(key).price.get(), 0.0);
+			sm.close();
+
+			File tableFile = new File(file.getPath() + ".table");
+			StructTable.Mapped<Value> table = StructTable.map(tableFile, new Value());
+			for (int i=0; i < SIZE; i++) table.addNew().price.set(i);
+			table.close();
+			table = StructTable.map(tableFile, new Value());
+			assertEquals(SIZE, table.size());
+			assertEquals(SIZE - 1, table.get(SIZE - 1).price.get(), 0.0);
+			table.close();
+			tableFile.delete();
+		} finally {
+			file.delete();
+			index.delete();
+		}
+	}
+
+	@Test
+	public void testMappedSmallFile() throws IOException {
+		File file = File.createTempFile("StructMapTest", ".dat");
+		try {
+			StructTable.Mapped<Value> table = StructTable.map(file, new Value());
+			for (int i=0; i < 10; i++) table.addNew().price.set(i);
+			table.close();
+			assertTrue("Small first chunk", file.length() < 4096);
+			table = StructTable.map(file, new Value());
+			for (int i=10; i < 1000; i++) table.addNew().price.set(i);
+			table.close();
+			table = StructTable.map(file, new Value());
+			for (int i=0; i < 1000; i++) assertEquals(i, table.get(i).price.get(), 0.0);
+			table.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMappedLayoutMismatch() throws IOException {
+		File file = File.createTempFile("StructMapTest", ".dat");
+		try {
+			StructTable.map(file, new Value()).close();
+			StructTable.map(file, new Key());
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.javolution.io.Struct;
+import org.junit.Test;
+
+public class StructTableTest {
+
+	static class Quote extends Struct {
+		final Signed64 time = new Signed64();
+		final Float64 price = new Float64();
+		final Signed32 volume = new Signed32();
+	}
+
+	private static final int SIZE = 200000; // Spans several chunks.
+
+	@Test
+	public void testAddGet(){
+		StructTable<Quote> quotes = new StructTable<>(new Quote());
+		for (int i=0; i < SIZE; i++) {
+			Quote q = quotes.addNew();
+			q.time.set(i);
+			q.price.set(i * 0.5);
+			q.volume.set(-i);
+		}
+		assertEquals(SIZE, quotes.size());
+		for (int i=SIZE-1; i >= 0; i--) {
+			Quote q = quotes.get(i);
+			assertEquals(i, q.time.get());
+			assertEquals(i * 0.5, q.price.get(), 0.0);
+			assertEquals(-i, q.volume.get());
+		}
+		long sum = 0;
+		for (Quote q : quotes) sum += q.time.get();
+		assertEquals((long) SIZE * (SIZE - 1) / 2, sum);
+	}
+
+	@Test
+	public void testSetRemove(){
+		StructTable<Quote> quotes = new StructTable<>(new Quote());
+		for (int i=0; i < 10; i++) quotes.addNew().time.set(i);
+		Quote other = new Quote();
+		other.time.set(42);
+		quotes.set(3, other);
+		quotes.add(other);
+		assertEquals(42, quotes.get(3).time.get());
+		assertEquals(42, quotes.get(10).time.get());
+		quotes.remove(0);
+		assertEquals(1, quotes.get(0).time.get());
+		assertEquals(10, quotes.size());
+		quotes.removeLast();
+		assertEquals(9, quotes.get(8).time.get());
+		quotes.clear();
+		assertTrue(quotes.isEmpty());
+		assertEquals(0, quotes.addNew().time.get()); // Cleared on reuse.
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds(){
+		new StructTable<>(new Quote()).get(0);
+	}
+
+}
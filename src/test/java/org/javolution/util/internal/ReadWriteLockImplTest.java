@@ -0,0 +1,125 @@
+/*
+ * Javolution - Java(TM) Solution for Real-Time and Embedded Systems
+ * Copyright (C) 2016 - Javolution (http://javolution.org/)
+ * All rights reserved.
+ *
+ * Permission to use, copy, modify, and distribute this software is
+ * freely granted, provided that this notice is preserved.
+ */
+package org.javolution.util.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Test;
+
+public class ReadWriteLockImplTest {
+
+	@Test
+	public void testTryLock() throws Exception {
+		ReadWriteLockImpl lock = new ReadWriteLockImpl();
+		assertTrue(lock.writeLock.tryLock());
+		assertFalse(tryLockFromOtherThread(lock.readLock));
+		assertFalse(tryLockFromOtherThread(lock.writeLock));
+		lock.writeLock.unlock();
+		assertTrue(lock.readLock.tryLock());
+		assertFalse(tryLockFromOtherThread(lock.writeLock));
+		assertTrue(tryLockFromOtherThread(lock.readLock)); // Shared (released by the other thread).
+		lock.readLock.unlock();
+		assertTrue(tryLockFromOtherThread(lock.writeLock));
+	}
+
+	@Test
+	public void testTimedTryLock() throws Exception {
+		final ReadWriteLockImpl lock = new ReadWriteLockImpl();
+		lock.writeLock.lock();
+		long start = System.nanoTime();
+		assertFalse(callFromOtherThread(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return lock.readLock.tryLock(20, TimeUnit.MILLISECONDS);
+			}}));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertFalse(callFromOtherThread(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return lock.writeLock.tryLock(20, TimeUnit.MILLISECONDS);
+			}}));
+		assertTrue(lock.writeLock.tryLock(20, TimeUnit.MILLISECONDS)); // Reentrant.
+		lock.writeLock.unlock();
+		lock.writeLock.unlock();
+		assertTrue(callFromOtherThread(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				if (!lock.writeLock.tryLock(20, TimeUnit.MILLISECONDS)) return false;
+				lock.writeLock.unlock();
+				return true;
+			}}));
+	}
+
+	@Test
+	public void testWriteReentrancy() throws Exception {
+		ReadWriteLockImpl lock = new ReadWriteLockImpl();
+		lock.writeLock.lock();
+		lock.writeLock.lock();
+		assertTrue(lock.writeLock.tryLock());
+		lock.writeLock.unlock();
+		lock.writeLock.unlock();
+		assertFalse(tryLockFromOtherThread(lock.writeLock)); // Still held once.
+		lock.writeLock.unlock();
+		assertTrue(tryLockFromOtherThread(lock.writeLock));
+	}
+
+	@Test
+	public void testReadAfterWrite() throws Exception {
+		ReadWriteLockImpl lock = new ReadWriteLockImpl();
+		lock.writeLock.lock();
+		lock.readLock.lock(); // Does not deadlock.
+		assertTrue(lock.readLock.tryLock());
+		assertTrue(lock.readLock.tryLock(0, TimeUnit.MILLISECONDS));
+		lock.readLock.unlock();
+		lock.readLock.unlock();
+		lock.readLock.unlock();
+		assertFalse(tryLockFromOtherThread(lock.readLock)); // Write lock still held.
+		assertTrue(lock.tryOptimisticRead() == 0);
+		lock.writeLock.unlock();
+		long stamp = lock.tryOptimisticRead();
+		assertTrue(stamp != 0);
+		assertTrue(lock.validate(stamp));
+		assertTrue(tryLockFromOtherThread(lock.readLock));
+	}
+
+	@Test(expected = IllegalMonitorStateException.class)
+	public void testWriteUnlockNotHeld() {
+		new ReadWriteLockImpl().writeLock.unlock();
+	}
+
+	@Test(expected = IllegalMonitorStateException.class)
+	public void testReadUnlockNotHeld() {
+		new ReadWriteLockImpl().readLock.unlock();
+	}
+
+	/** Tries to lock from another thread (the lock is released by that thread if acquired). */
+	private static boolean tryLockFromOtherThread(final Lock lock) throws Exception {
+		return callFromOtherThread(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				if (!lock.tryLock()) return false;
+				lock.unlock();
+				return true;
+			}});
+	}
+
+	private static boolean callFromOtherThread(Callable<Boolean> callable) throws Exception {
+		FutureTask<Boolean> task = new FutureTask<Boolean>(callable);
+		Thread thread = new Thread(task);
+		thread.start();
+		thread.join();
+		return task.get();
+	}
+}